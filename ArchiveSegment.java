@@ -0,0 +1,326 @@
+package Brewmaster;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * <h2>ArchiveSegment</h2> An ArchiveSegment is one sealed day of a
+ * fermentation, written by {@link ArchiveWriter} to a file named
+ * "id-dayNNN-start.bma". The file starts with a {@link #HEADER} byte header
+ * that indexes the segment, the day, state and target temperatures, the times
+ * it covers and the number of log lines and samples, followed by the log lines
+ * and the samples, each compressed with deflate. A CRC32 of everything after
+ * the header is kept in the header, a segment is only read back if it matches.
+ * Reading just the headers of a folder of segments is enough to find a day,
+ * so a whole fermentation is searched without inflating anything.<br>
+ * Run it with "java Brewmaster.ArchiveSegment folder" to list the segments of
+ * a folder, or "java Brewmaster.ArchiveSegment folder day" to print the log of
+ * a day.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ * @see ArchiveWriter
+ */
+public class ArchiveSegment {
+	/**
+	 * The {@link Long} magic number at the start of the file, "BMARCH01"
+	 */
+	static final long MAGIC = 0x424d415243483031L;
+	/**
+	 * The {@link Integer} bytes in the header
+	 */
+	static final int HEADER = 128;
+	/**
+	 * The {@link Integer} most bytes of the state kept in the header
+	 */
+	static final int STATE_BYTES = HEADER - 74;
+	/**
+	 * flag set when the program stopped before the day ended
+	 */
+	static final int PARTIAL = 1;
+	/**
+	 * The {@link String} file extension of a sealed segment
+	 */
+	static final String EXTENSION = ".bma";
+
+	/**
+	 * The {@link Path} of the segment
+	 */
+	final Path file;
+	/**
+	 * The {@link Integer} flags, {@link #PARTIAL}
+	 */
+	final int flags;
+	/**
+	 * The {@link Integer} day of the schedule, day 1 = 1
+	 */
+	final int day;
+	/**
+	 * The {@link Long} time the segment starts in milliseconds since the epoch
+	 */
+	final long start;
+	/**
+	 * The {@link Long} time the segment ends in milliseconds since the epoch, the
+	 * samples are from {@link #start} and before it
+	 */
+	final long end;
+	/**
+	 * The {@link Double} target temperature at the start of the day
+	 */
+	final double from;
+	/**
+	 * The {@link Double} target temperature the segment of the schedule ramps
+	 * to, the same as {@link #from} if it holds
+	 */
+	final double to;
+	/**
+	 * The {@link String} state at the start of the day
+	 */
+	final String state;
+	/**
+	 * The {@link Integer} number of log lines
+	 */
+	final int lines;
+	/**
+	 * The {@link Integer} number of samples
+	 */
+	final int samples;
+	/**
+	 * The {@link Integer} compressed bytes of the log lines
+	 */
+	final int logBytes;
+	/**
+	 * The {@link Integer} compressed bytes of the samples
+	 */
+	final int sampleBytes;
+	/**
+	 * The {@link Integer} CRC32 of everything after the header
+	 */
+	final int crc;
+
+	/**
+	 * Reads the header of a segment
+	 *
+	 * @param file {@link Path} of the segment
+	 * @throws IOException if the file can not be read or is not a segment
+	 */
+	ArchiveSegment(Path file) throws IOException {
+		this.file = file;
+		ByteBuffer h = ByteBuffer.allocate(HEADER);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			while (h.hasRemaining() && channel.read(h) >= 0) {
+			}
+		}
+		if (h.hasRemaining() || h.getLong(0) != MAGIC || h.getInt(8) != 1) {
+			throw new IOException(file + " is not an archive segment");
+		}
+		flags = h.getInt(12);
+		day = h.getInt(16);
+		samples = h.getInt(20);
+		start = h.getLong(24);
+		end = h.getLong(32);
+		from = h.getDouble(40);
+		to = h.getDouble(48);
+		lines = h.getInt(56);
+		logBytes = h.getInt(60);
+		sampleBytes = h.getInt(64);
+		crc = h.getInt(68);
+		int length = Math.min(h.getShort(72), STATE_BYTES);
+		state = new String(h.array(), 74, Math.max(0, length), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Fills in a header
+	 *
+	 * @param h           {@link ByteBuffer} of at least {@link #HEADER} bytes
+	 * @param flags       {@link Integer} flags
+	 * @param day         {@link Integer} day, day 1 = 1
+	 * @param start       {@link Long} time the segment starts
+	 * @param end         {@link Long} time the segment ends
+	 * @param from        {@link Double} target at the start of the day
+	 * @param to          {@link Double} target the day ramps to
+	 * @param state       {@link String} state, cut to {@link #STATE_BYTES}
+	 * @param lines       {@link Integer} log lines
+	 * @param samples     {@link Integer} samples
+	 * @param logBytes    {@link Integer} compressed bytes of the log lines
+	 * @param sampleBytes {@link Integer} compressed bytes of the samples
+	 * @param crc         {@link Integer} CRC32 of everything after the header
+	 */
+	static void header(ByteBuffer h, int flags, int day, long start, long end, double from, double to, String state,
+			int lines, int samples, int logBytes, int sampleBytes, int crc) {
+		h.putLong(0, MAGIC);
+		h.putInt(8, 1);
+		h.putInt(12, flags);
+		h.putInt(16, day);
+		h.putInt(20, samples);
+		h.putLong(24, start);
+		h.putLong(32, end);
+		h.putDouble(40, from);
+		h.putDouble(48, to);
+		h.putInt(56, lines);
+		h.putInt(60, logBytes);
+		h.putInt(64, sampleBytes);
+		h.putInt(68, crc);
+		byte[] name = state.getBytes(StandardCharsets.UTF_8);
+		int length = Math.min(name.length, STATE_BYTES);
+		h.putShort(72, (short) length);
+		for (int i = 0; i < STATE_BYTES; i++) {
+			h.put(74 + i, i < length ? name[i] : 0);
+		}
+	}
+
+	/**
+	 * Checks the CRC32 of the segment
+	 *
+	 * @return {@link Boolean} true if the body is whole
+	 * @throws IOException if the file can not be read
+	 */
+	boolean verify() throws IOException {
+		CRC32 check = new CRC32();
+		ByteBuffer buffer = ByteBuffer.allocate(8192);
+		long length = 0;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			channel.position(HEADER);
+			int n;
+			while ((n = channel.read(buffer)) >= 0) {
+				buffer.flip();
+				check.update(buffer);
+				buffer.clear();
+				length += n;
+			}
+		}
+		return length == (long) logBytes + sampleBytes && (int) check.getValue() == crc;
+	}
+
+	/**
+	 * Opens an inflating stream over one part of the body
+	 *
+	 * @param offset {@link Long} offset of the part after the header
+	 * @return {@link InputStream} of the inflated part
+	 * @throws IOException if the file can not be opened
+	 */
+	private InputStream open(long offset) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		channel.position(HEADER + offset);
+		return new InflaterInputStream(new BufferedInputStream(Channels.newInputStream(channel), 8192));
+	}
+
+	/**
+	 * Reads the log lines
+	 *
+	 * @return {@link List} of the lines, oldest first
+	 * @throws IOException if the file can not be read or is not whole
+	 */
+	List<String> readLog() throws IOException {
+		if (!verify()) {
+			throw new IOException(file + " failed the crc check");
+		}
+		List<String> log = new ArrayList<String>(lines);
+		try (BufferedReader in = new BufferedReader(new InputStreamReader(open(0), StandardCharsets.UTF_8))) {
+			String line;
+			while (log.size() < lines && (line = in.readLine()) != null) {
+				log.add(line);
+			}
+		}
+		return log;
+	}
+
+	/**
+	 * Calls visitor for every sample, oldest first
+	 *
+	 * @param visitor {@link HistoryStore.Visitor} to call
+	 * @return {@link Long} number of samples visited
+	 * @throws IOException if the file can not be read or is not whole
+	 */
+	long readSamples(HistoryStore.Visitor visitor) throws IOException {
+		if (!verify()) {
+			throw new IOException(file + " failed the crc check");
+		}
+		long visited = 0;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(open(logBytes), 8192))) {
+			while (visited < samples) {
+				long time = in.readLong();
+				float temp = in.readFloat();
+				float min = in.readFloat();
+				float max = in.readFloat();
+				int flags = in.readInt();
+				visited++;
+				if (!visitor.sample(time, temp, min, max, flags)) {
+					break;
+				}
+			}
+		}
+		return visited;
+	}
+
+	/**
+	 * Reads the headers of every segment in a folder
+	 *
+	 * @param dir {@link Path} of the folder
+	 * @return {@link List} of the segments ordered by start time
+	 * @throws IOException if the folder can not be read
+	 */
+	static List<ArchiveSegment> list(Path dir) throws IOException {
+		List<ArchiveSegment> segments = new ArrayList<ArchiveSegment>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + EXTENSION)) {
+			for (Path f : files) {
+				try {
+					segments.add(new ArchiveSegment(f));
+				} catch (IOException e) {
+					System.out.println(e.getMessage());
+				}
+			}
+		}
+		Collections.sort(segments, (a, b) -> Long.compare(a.start, b.start));
+		return segments;
+	}
+
+	/**
+	 * Lists the segments of a folder, or prints the log of a day
+	 *
+	 * @param a the folder, optionally followed by a day
+	 */
+	public static void main(String[] a) {
+		if (a.length == 0) {
+			System.out.println("Need archive folder as input \"eks: java Brewmaster.ArchiveSegment brew-archive 3\"");
+			System.exit(-1);
+		}
+		try {
+			List<ArchiveSegment> segments = list(Paths.get(a[0]));
+			for (ArchiveSegment s : segments) {
+				if (a.length == 1) {
+					System.out.println(s.file.getFileName() + " day " + s.day + " " + s.state + " "
+							+ (s.from == s.to ? String.valueOf(s.from) : s.from + ">" + s.to) + " " + s.lines
+							+ " lines " + s.samples + " samples " + (HEADER + s.logBytes + s.sampleBytes) + " bytes"
+							+ ((s.flags & PARTIAL) != 0 ? " partial" : "") + (s.verify() ? "" : " BAD CRC"));
+				} else if (s.day == Integer.parseInt(a[1])) {
+					for (String line : s.readLog()) {
+						System.out.println(line);
+					}
+				}
+			}
+		} catch (IOException | NumberFormatException e) {
+			System.out.println(e.getMessage());
+			System.exit(-1);
+		}
+	}
+}
@@ -0,0 +1,556 @@
+package Brewmaster;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * <h2>ArchiveWriter</h2> The ArchiveWriter class seals every day of a
+ * fermentation into an {@link ArchiveSegment} in {@link Settings#archiveDir},
+ * on its own thread. As a {@link LogSink} it is sent every line logged, which
+ * it compresses into the open segment as it comes so a day is never held in
+ * memory. When {@link TemperatureHandler#updateDay} ends a day the samples of
+ * the day are read back from the {@link HistoryStore} and compressed after the
+ * lines, the header is written and the segment is forced to disk and renamed
+ * from ".part" to {@link ArchiveSegment#EXTENSION}. A day the program stops in
+ * is sealed as {@link ArchiveSegment#PARTIAL} when it shuts down, the rest of
+ * the day goes in a new segment when it starts again. A ".part" left by a
+ * program that did not shut down is deleted when it starts, the lines and
+ * samples in it are still in the log and history files since those are only
+ * pruned up to {@link #archivedUntil}. With {@link Settings#archivePrune} the
+ * day rotations of the log file are deleted once they are archived. Failures
+ * are sent to the log given to {@link #setLog}.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+public class ArchiveWriter implements Runnable, LogSink {
+	/**
+	 * <h2>Day</h2> Marks the start of a day of the schedule on the queue
+	 */
+	private static final class Day {
+		/**
+		 * The {@link Integer} day, day 1 = 1
+		 */
+		final int day;
+		/**
+		 * The {@link String} state
+		 */
+		final String state;
+		/**
+		 * The {@link Double} target at the start of the day
+		 */
+		final double from;
+		/**
+		 * The {@link Double} target the day ramps to
+		 */
+		final double to;
+		/**
+		 * The {@link Long} time the day started
+		 */
+		final long time;
+
+		/**
+		 * @param day   {@link Integer} day, day 1 = 1
+		 * @param state {@link String} state
+		 * @param from  {@link Double} target at the start of the day
+		 * @param to    {@link Double} target the day ramps to
+		 * @param time  {@link Long} time the day started
+		 */
+		Day(int day, String state, double from, double to, long time) {
+			this.day = day;
+			this.state = state;
+			this.from = from;
+			this.to = to;
+			this.time = time;
+		}
+	}
+
+	/**
+	 * The {@link Integer} number of lines that can wait to be written, lines
+	 * written while the queue is full are dropped
+	 */
+	private static final int QUEUE_SIZE = 1024;
+	/**
+	 * The {@link Long} milliseconds {@link #startDay} and {@link #endDay} wait for
+	 * room on a full queue, a day is not lost to a burst of lines
+	 */
+	private static final long MARK_WAIT = 1000;
+	/**
+	 * put on the queue to seal the open segment as partial and stop the thread
+	 */
+	private static final Object STOP = new Object();
+
+	/**
+	 * The {@link Path} of the folder the segments are written to
+	 */
+	private final Path dir;
+	/**
+	 * The {@link String} {@link Settings#id} every segment is named after
+	 */
+	private final String id;
+	/**
+	 * The {@link HistoryStore} the samples of a day are read from, null if there
+	 * is none
+	 */
+	private final HistoryStore store;
+	/**
+	 * The {@link Path} of the log file whose day rotations are deleted once
+	 * archived, null if they are kept
+	 */
+	private final Path prunedLog;
+	/**
+	 * The {@link Integer} number of ".part" files deleted when the writer was set
+	 * up
+	 */
+	private int removedParts = 0;
+	/**
+	 * The {@link ArrayBlockingQueue} of lines, {@link Day}s starting a day and
+	 * {@link Long} times ending one
+	 */
+	private final ArrayBlockingQueue<Object> queue = new ArrayBlockingQueue<Object>(QUEUE_SIZE);
+	/**
+	 * The {@link Thread} writing the segments
+	 */
+	private final Thread thread;
+	/**
+	 * The {@link Day} of the open segment, null until the first day starts
+	 */
+	private Day day = null;
+	/**
+	 * The {@link Path} of the open segment while it is written, null if none is
+	 * open
+	 */
+	private Path part = null;
+	/**
+	 * The {@link FileChannel} of {@link #part}
+	 */
+	private FileChannel channel;
+	/**
+	 * The {@link CRC32} of everything written after the header
+	 */
+	private final CRC32 crc = new CRC32();
+	/**
+	 * The {@link OutputStream} writing to {@link #channel} after the header
+	 * through {@link #crc}
+	 */
+	private OutputStream body;
+	/**
+	 * The {@link Deflater} compressing the open part of the segment
+	 */
+	private final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+	/**
+	 * The {@link DeflaterOutputStream} compressing the lines
+	 */
+	private DeflaterOutputStream compressed;
+	/**
+	 * The {@link Writer} of the lines
+	 */
+	private Writer lines;
+	/**
+	 * The {@link Integer} lines written to the open segment
+	 */
+	private int lineCount;
+	/**
+	 * The {@link Long} number of lines dropped because the queue was full
+	 */
+	private volatile long dropped = 0;
+	/**
+	 * The {@link Long} number of segments sealed
+	 */
+	private volatile long sealed = 0;
+	/**
+	 * a {@link Consumer} warnings are sent to, printed until {@link #setLog} is
+	 * called
+	 */
+	private volatile Consumer<String> log = System.out::println;
+	/**
+	 * a {@link Boolean} true after a segment failed until the next is sealed, the
+	 * warning is a line sent to this writer too so only the first is sent
+	 */
+	private boolean failing = false;
+
+	/**
+	 * Sets up an ArchiveWriter for {@link Settings#archiveDir}, deletes the
+	 * ".part" files of {@link Settings#id} left in it and starts its thread, the
+	 * open segment is sealed when the program shuts down.
+	 *
+	 * @param settings {@link Settings}
+	 * @param store    {@link HistoryStore} the samples are read from, may be null
+	 * @throws IOException if the folder can not be created or read
+	 */
+	ArchiveWriter(Settings settings, HistoryStore store) throws IOException {
+		dir = Paths.get(settings.archiveDir);
+		Files.createDirectories(dir);
+		id = settings.id;
+		this.store = store;
+		prunedLog = settings.archivePrune ? Paths.get(settings.logFileName).toAbsolutePath() : null;
+		String leftover = Pattern.quote(id) + "-\\d+\\.part";
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.part")) {
+			for (Path f : files) {
+				if (f.getFileName().toString().matches(leftover)) {
+					Files.delete(f);
+					removedParts++;
+				}
+			}
+		}
+		thread = new Thread(this, "archive-writer");
+		thread.setDaemon(true);
+		thread.start();
+		Runtime.getRuntime().addShutdownHook(new Thread(this::close, "archive-writer-shutdown"));
+	}
+
+	/**
+	 * Setter for log
+	 * 
+	 * @param log {@link Consumer} to send warnings to
+	 */
+	void setLog(Consumer<String> log) {
+		this.log = log;
+	}
+
+	/**
+	 * Queues the line to be compressed into the open segment, never blocks. If
+	 * the queue is full the line is dropped and counted.
+	 */
+	@Override
+	public void write(LogEvent event, String line) {
+		if (!queue.offer(line)) {
+			dropped++;
+		}
+	}
+
+	/**
+	 * Marks the start of a day, the open segment is indexed by the first day
+	 * started in it. Waits up to {@link #MARK_WAIT} for room on a full queue,
+	 * then drops the mark.
+	 *
+	 * @param day   {@link Integer} day, day 1 = 1
+	 * @param state {@link String} state
+	 * @param from  {@link Double} target at the start of the day
+	 * @param to    {@link Double} target the day ramps to
+	 * @param time  {@link Long} milliseconds since the epoch the day started
+	 */
+	void startDay(int day, String state, double from, double to, long time) {
+		try {
+			if (!queue.offer(new Day(day, state, from, to, time), MARK_WAIT, TimeUnit.MILLISECONDS)) {
+				dropped++;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Marks the end of a day, the open segment is sealed with the samples up to
+	 * time after the lines already queued. Waits up to {@link #MARK_WAIT} for
+	 * room on a full queue, then the day is sealed together with the next.
+	 *
+	 * @param time {@link Long} milliseconds since the epoch the day ended
+	 */
+	void endDay(long time) {
+		try {
+			if (!queue.offer(Long.valueOf(time), MARK_WAIT, TimeUnit.MILLISECONDS)) {
+				dropped++;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Writes queued lines and seals segments until {@link #close} is called
+	 */
+	@Override
+	public void run() {
+		try {
+			while (true) {
+				Object entry = queue.take();
+				if (entry == STOP) {
+					break;
+				} else if (entry instanceof String) {
+					append((String) entry);
+				} else if (entry instanceof Day) {
+					if (day == null) {
+						day = (Day) entry;
+					}
+				} else if (entry instanceof Long) {
+					seal((Long) entry, 0);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		seal(Long.MAX_VALUE, ArchiveSegment.PARTIAL);
+		deflater.end();
+	}
+
+	/**
+	 * Compresses one line into the open segment, opening one if needed
+	 *
+	 * @param line {@link String} to write
+	 */
+	private void append(String line) {
+		if (part == null) {
+			open();
+			if (part == null) {
+				return;
+			}
+		}
+		try {
+			lines.write(line);
+			lines.write('\n');
+			lineCount++;
+		} catch (IOException e) {
+			fail("Failed to write archive segment " + part, e);
+			discard();
+		}
+	}
+
+	/**
+	 * Opens a new segment, leaving room for the header
+	 */
+	private void open() {
+		part = dir.resolve(id + "-" + System.nanoTime() + ".part");
+		try {
+			channel = FileChannel.open(part, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+			channel.position(ArchiveSegment.HEADER);
+			crc.reset();
+			body = new CheckedOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 8192), crc);
+			deflater.reset();
+			compressed = new DeflaterOutputStream(body, deflater, 4096);
+			lines = new BufferedWriter(new OutputStreamWriter(compressed, StandardCharsets.UTF_8), 4096);
+			lineCount = 0;
+		} catch (IOException e) {
+			fail("Failed to open archive segment " + part, e);
+			discard();
+		}
+	}
+
+	/**
+	 * Finishes the lines, compresses the samples of the day after them, writes
+	 * the header and renames the segment to its sealed name. Nothing is written
+	 * if no day was started since the last segment, lines logged after the
+	 * schedule has finished are thrown away.
+	 *
+	 * @param end   {@link Long} time the day ended, {@link Long#MAX_VALUE} for
+	 *              now
+	 * @param flags {@link Integer} flags of the segment
+	 */
+	private void seal(long end, int flags) {
+		if (day == null) {
+			discard();
+			return;
+		}
+		if (part == null) {
+			open();
+			if (part == null) {
+				day = null;
+				return;
+			}
+		}
+		Day d = day;
+		try {
+			lines.flush();
+			compressed.finish();
+			body.flush();
+			long logBytes = channel.position() - ArchiveSegment.HEADER;
+
+			deflater.reset();
+			DeflaterOutputStream sampleStream = new DeflaterOutputStream(body, deflater, 4096);
+			DataOutputStream samples = new DataOutputStream(new BufferedOutputStream(sampleStream, 8192));
+			long[] last = { d.time };
+			long count = store == null ? 0 : store.query(d.time, end - 1, (time, temp, min, max, relays) -> {
+				try {
+					samples.writeLong(time);
+					samples.writeFloat(temp);
+					samples.writeFloat(min);
+					samples.writeFloat(max);
+					samples.writeInt(relays);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				last[0] = time;
+				return true;
+			});
+			samples.flush();
+			sampleStream.finish();
+			body.flush();
+			long sampleBytes = channel.position() - ArchiveSegment.HEADER - logBytes;
+
+			ByteBuffer header = ByteBuffer.allocate(ArchiveSegment.HEADER);
+			ArchiveSegment.header(header, flags, d.day, d.time, end == Long.MAX_VALUE ? last[0] + 1 : end, d.from, d.to,
+					d.state, lineCount, (int) count, (int) logBytes, (int) sampleBytes, (int) crc.getValue());
+			while (header.hasRemaining()) {
+				channel.write(header, ArchiveSegment.HEADER - header.remaining());
+			}
+			channel.force(true);
+			channel.close();
+			Path sealedFile = dir.resolve(String.format("%s-day%03d-%d%s", id, d.day, d.time, ArchiveSegment.EXTENSION));
+			Files.move(part, sealedFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			part = null;
+			sealed++;
+			failing = false;
+			if (prunedLog != null && flags == 0) {
+				pruneLog();
+			}
+		} catch (IOException | UncheckedIOException e) {
+			fail("Failed to seal archive segment " + part, e);
+			discard();
+		}
+		day = null;
+	}
+
+	/**
+	 * Finds how far the samples in store are archived, following the segments of
+	 * id from the oldest sample on for as long as every sample is in a segment
+	 * that passes {@link ArchiveSegment#verify}
+	 *
+	 * @param dir   {@link Path} of the archive folder
+	 * @param id    {@link String} {@link Settings#id} the segments are named after
+	 * @param store {@link HistoryStore} with the samples, may be null
+	 * @return {@link Long} time every sample before is archived, the time of the
+	 *         oldest sample if none is, {@link Long#MIN_VALUE} if nothing can be
+	 *         checked
+	 * @throws IOException if a segment can not be read
+	 */
+	static long archivedUntil(Path dir, String id, HistoryStore store) throws IOException {
+		if (store == null || store.size() == 0 || !Files.isDirectory(dir)) {
+			return Long.MIN_VALUE;
+		}
+		long until = store.getTime(0);
+		for (ArchiveSegment s : ArchiveSegment.list(dir)) {
+			if (!s.file.getFileName().toString().startsWith(id + "-day") || s.end <= until) {
+				continue;
+			}
+			// samples between the archived part and this segment were never archived
+			if (store.lowerBound(until) != store.lowerBound(Math.max(until, s.start)) || !s.verify()) {
+				break;
+			}
+			until = s.end;
+		}
+		return until;
+	}
+
+	/**
+	 * Deletes the day rotations of {@link #prunedLog}, LogFileName.dayN, last
+	 * written while every sample was archived. A rotation last written before
+	 * the oldest sample is kept, nothing says its lines are archived.
+	 */
+	private void pruneLog() {
+		try {
+			long until = archivedUntil(dir, id, store);
+			if (until == Long.MIN_VALUE) {
+				return;
+			}
+			long oldest = store.getTime(0);
+			try (DirectoryStream<Path> files = Files.newDirectoryStream(prunedLog.getParent(),
+					prunedLog.getFileName() + ".day*")) {
+				for (Path f : files) {
+					long modified = Files.getLastModifiedTime(f).toMillis();
+					if (modified >= oldest && modified <= until) {
+						Files.delete(f);
+					}
+				}
+			}
+		} catch (IOException e) {
+			log.accept("Failed to prune the day rotations of " + prunedLog + ": " + e);
+		}
+	}
+
+	/**
+	 * Sends a failure to {@link #log} unless one has been sent since the last
+	 * segment was sealed
+	 *
+	 * @param message {@link String} what failed
+	 * @param e       {@link Exception} it failed with
+	 */
+	private void fail(String message, Exception e) {
+		if (!failing) {
+			failing = true;
+			log.accept(message + ": " + e);
+		}
+	}
+
+	/**
+	 * Closes and deletes the open segment after it failed
+	 */
+	private void discard() {
+		if (channel != null) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				fail("Failed to close archive segment " + part, e);
+			}
+			channel = null;
+		}
+		if (part != null) {
+			try {
+				Files.deleteIfExists(part);
+			} catch (IOException e) {
+				fail("Failed to delete archive segment " + part, e);
+			}
+			part = null;
+		}
+	}
+
+	/**
+	 * Stops the thread after it has sealed the open segment as partial, waits up
+	 * to five seconds for it.
+	 */
+	void close() {
+		try {
+			if (queue.offer(STOP, 5, TimeUnit.SECONDS)) {
+				thread.join(TimeUnit.SECONDS.toMillis(5));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @return {@link #dropped}
+	 */
+	long getDropped() {
+		return dropped;
+	}
+
+	/**
+	 * @return {@link #sealed}
+	 */
+	long getSealed() {
+		return sealed;
+	}
+
+	/**
+	 * @return {@link #removedParts}
+	 */
+	int getRemovedParts() {
+		return removedParts;
+	}
+}
@@ -0,0 +1,58 @@
+package Brewmaster;
+
+/**
+ * <h2>BadValueFilter</h2> The BadValueFilter drops the values a DS18B20 is
+ * known to give when something went wrong. 85.000 is the value of its register
+ * after power on, read when the probe browns out or the conversion was not
+ * waited for, -0.0625 is the register read as all ones and 127.9375 is the
+ * largest value it can hold. They are only passed on when the last value passed
+ * on was within {@link #SPREAD} of them, so a fermenter that really is at 85 or
+ * just below 0 is still followed. Anything outside the range the probe can
+ * measure, {@link #MIN} to {@link #MAX}, is always dropped.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+class BadValueFilter implements FilterStage {
+	/**
+	 * The values a glitching probe reads
+	 */
+	private static final double[] KNOWN_BAD = { 85.0, -0.0625, 127.9375 };
+	/**
+	 * The {@link Double} degrees the last value passed on must be within for a
+	 * known bad value to be believed
+	 */
+	private static final double SPREAD = 1.0;
+	/**
+	 * The {@link Double} lowest temperature the probe can measure
+	 */
+	private static final double MIN = -55;
+	/**
+	 * The {@link Double} highest temperature the probe can measure
+	 */
+	private static final double MAX = 125;
+
+	/**
+	 * The {@link Double} last value passed on, NaN before the first
+	 */
+	private double last = Double.NaN;
+
+	/**
+	 * @return {@link Double} value, or NaN if it is out of range or a known bad
+	 *         value far from the last one
+	 */
+	@Override
+	public double filter(long time, double value) {
+		if (!(value >= MIN && value <= MAX)) {
+			return Double.NaN;
+		}
+		for (double bad : KNOWN_BAD) {
+			if (value == bad && !(Math.abs(value - last) <= SPREAD)) {
+				return Double.NaN;
+			}
+		}
+		last = value;
+		return value;
+	}
+}
@@ -1,6 +1,24 @@
 package Brewmaster;
 
 import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 /**
  * <h2>BrewMaster</h2> The BrewMaster program reads the temperature of a probe
@@ -9,65 +27,193 @@ import java.io.File;
  * refrigerator on<br>
  * and off with a wireless relay (ex.tp-link hs100) based on a settings file you
  * can control various<br>
- * aspects of this process.
+ * aspects of this process. Several settings files can be given to control
+ * several refrigerators from one program.
  * 
  * @author Anders Lunde
  * @version 0.1
  * @since 2020-23-9
  */
 public class BrewMaster {
+	/**
+	 * a {@link Long} with the most milliseconds to wait for the relays to answer
+	 * their last commands before exiting
+	 */
+	private static final long RELAY_WAIT = 30000;
+
 	/**
 	 * This is the main method which sets up the program and controls the main loop.
-	 * It takes the file given as input and tries to load it as a Settings object
-	 * then it sets up TemperatureHandler and TempWorker it tries to control the
+	 * It takes the files given as input and tries to load each as a Settings object
+	 * then it sets up a TemperatureHandler for every one and tries to control the
 	 * temperature and log information the way it's specified in Settings
 	 * 
-	 * @param a Array of arguments passed to the program (should contain path to
-	 *          settings file at positon 0).
+	 * @param a Array of arguments passed to the program (should contain paths to
+	 *          settings files or folders of settings files).
 	 */
 	public static void main(String[] a) {
-		String file = getInput(a);
-		if (new File(file).exists()) {
-			run(file);
-		} else {
-			System.out.println("File does not exsist");
-			System.exit(-1);
-		}
-
+		List<String> files = getInput(a);
+		run(files);
 	}
 
 	/**
-	 * Gets the first argument of string array or exits with code -1 if it is empty
+	 * Gets the settings files of the arguments, a folder is replaced by the files
+	 * in it ending with .brew, or exits with code -1 if there are none or a file
+	 * does not exist
 	 * 
-	 * @param a Path to settings file.
-	 * @return {@link String} containing the string in position 0 of a[] or nothing
-	 *         if a is empty
+	 * @param a Paths to settings files or folders.
+	 * @return {@link List} of settings file paths
 	 */
-	private static String getInput(String[] a) {
+	private static List<String> getInput(String[] a) {
 		if (a.length == 0) {
 			System.out.println("Need settings file as input \"eks: java -jar BrewMaster.jar settings.brew\"");
 			System.exit(-1);
 		}
-		return a[0];
+		List<String> files = new ArrayList<String>();
+		for (String arg : a) {
+			File f = new File(arg);
+			if (f.isDirectory()) {
+				File[] brews = f.listFiles((dir, name) -> name.endsWith(".brew"));
+				if (brews == null) {
+					System.out.println("Can not read folder: " + arg);
+					System.exit(-1);
+				}
+				Arrays.sort(brews);
+				for (File brew : brews) {
+					files.add(brew.getPath());
+				}
+			} else if (f.exists()) {
+				files.add(arg);
+			} else {
+				System.out.println("File does not exsist: " + arg);
+				System.exit(-1);
+			}
+		}
+		if (files.isEmpty()) {
+			System.out.println("No settings files found");
+			System.exit(-1);
+		}
+		return files;
+	}
+
+	/**
+	 * Checks that no two vessels share an id, log file, history file, checkpoint
+	 * file or probe, exits with code -1 if they do.
+	 * 
+	 * @param settings {@link List} of the {@link Settings} of every vessel
+	 */
+	private static void checkIsolated(List<Settings> settings) {
+		Set<String> ids = new HashSet<String>();
+		Set<String> files = new HashSet<String>();
+		Set<String> probes = new HashSet<String>();
+		for (Settings s : settings) {
+			String error = null;
+			if (!ids.add(s.id)) {
+				error = "Id " + s.id + " is used by more than one vessel";
+			} else if (!files.add(Paths.get(s.logFileName).toAbsolutePath().normalize().toString())) {
+				error = "LogFileName " + s.logFileName + " is used by more than one vessel";
+			} else if (!"none".equals(s.historyFile)
+					&& !files.add(Paths.get(s.historyFile).toAbsolutePath().normalize().toString())) {
+				error = "HistoryFile " + s.historyFile + " is used by more than one vessel";
+			} else if (!"none".equals(s.checkpointFile)
+					&& !files.add(Paths.get(s.checkpointFile).toAbsolutePath().normalize().toString())) {
+				error = "CheckpointFile " + s.checkpointFile + " is used by more than one vessel";
+			} else if (settings.size() > 1 && s.probeId == null) {
+				error = "ProbeId is needed for " + s.id + " when running more than one vessel";
+			} else if (s.probeId != null && !probes.add(s.probeId)) {
+				error = "ProbeId " + s.probeId + " is used by more than one vessel";
+			}
+			if (error != null) {
+				System.out.println(error);
+				System.exit(-1);
+			}
+		}
 	}
 
 	/**
-	 * Sets up the settings file, TemperatureHandler and a new thread running
-	 * {@link ServerThread}.then starts the program loop while(true)
-	 * {@link TemperatureHandler#run}
+	 * Sets up the settings files and a TemperatureHandler for each, all reading
+	 * their probe from one {@link W1Bus}, a {@link SettingsWatcher} reloading the
+	 * settings files when they change and a new thread running one
+	 * {@link ServerThread} for them all. Then starts a {@link ControlEngine} for
+	 * every vessel on one shared scheduler, publishes {@link VesselMetrics} of
+	 * every vessel and {@link ServerMetrics} over JMX and exits with status 0 when
+	 * every schedule has finished and the relays, turned off by then, have
+	 * answered or {@link #RELAY_WAIT} has passed.
 	 * 
-	 * @param file {@link String} file with path of settings file
+	 * @param files {@link List} of settings file paths
 	 * @see Settings
 	 * @see TemperatureHandler
+	 * @see ControlEngine
 	 */
-	private static void run(String file) {
-		Settings s = new Settings(file);
-		TemperatureHandler th = new TemperatureHandler(s);
-		ServerThread t = new ServerThread(th);
+	private static void run(List<String> files) {
+		List<Settings> settings = new ArrayList<Settings>();
+		for (String file : files) {
+			try {
+				Settings s = new Settings(file);
+				s.validate();
+				settings.add(s);
+			} catch (IllegalArgumentException e) {
+				System.out.println(file + ": " + e.getMessage());
+				System.exit(-1);
+			}
+		}
+		checkIsolated(settings);
+
+		W1Bus bus = new W1Bus(W1Probe.DEVICES);
+		bus.startWatcher();
+		Map<String, TemperatureHandler> vessels = new LinkedHashMap<String, TemperatureHandler>();
+		for (Settings s : settings) {
+			vessels.put(s.id, new TemperatureHandler(s, bus));
+		}
+		try {
+			SettingsWatcher watcher = new SettingsWatcher();
+			for (TemperatureHandler th : vessels.values()) {
+				watcher.watch(th);
+			}
+			watcher.start();
+		} catch (IOException e) {
+			System.out.println("Can not watch the settings files, changes need a restart: " + e);
+		}
+		ServerThread t = new ServerThread(vessels);
 		new Thread(t).start();
 
-		while (true) {
-			th.run();
+		AtomicInteger threads = new AtomicInteger();
+		ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(
+				Math.min(vessels.size(), Runtime.getRuntime().availableProcessors()),
+				r -> new Thread(r, "control-" + threads.incrementAndGet()));
+		CountDownLatch done = new CountDownLatch(vessels.size());
+		MBeanServer mbeans = ManagementFactory.getPlatformMBeanServer();
+		register(mbeans, new ServerMetrics(t), "Brewmaster:type=Server");
+		for (TemperatureHandler th : vessels.values()) {
+			ControlEngine engine = new ControlEngine(th, scheduler, done::countDown);
+			register(mbeans, new VesselMetrics(th, engine),
+					"Brewmaster:type=Vessel,id=" + ObjectName.quote(th.getSettings().id));
+			engine.start();
+		}
+		try {
+			done.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		for (TemperatureHandler th : vessels.values()) {
+			th.awaitRelays(RELAY_WAIT);
+		}
+		System.out.println("out of days, done");
+		System.exit(0);
+	}
+
+	/**
+	 * Registers an MBean, prints why if it can not be registered and carries on
+	 * without it
+	 * 
+	 * @param mbeans {@link MBeanServer} to register with
+	 * @param mbean  {@link Object} to register
+	 * @param name   {@link String} object name
+	 */
+	private static void register(MBeanServer mbeans, Object mbean, String name) {
+		try {
+			mbeans.registerMBean(mbean, new ObjectName(name));
+		} catch (JMException e) {
+			System.out.println("Can not publish " + name + " over JMX: " + e);
 		}
 	}
 
@@ -0,0 +1,369 @@
+package Brewmaster;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * <h2>CheckpointJournal</h2> The CheckpointJournal class keeps the progress of
+ * a fermentation on disk so it can be resumed after a restart. Every checkpoint
+ * is a {@link #RECORD} byte record appended to the journal file, holding the
+ * start of the schedule, the day, the relay states and the times the relays
+ * were last allowed to switch, together with the fingerprint of the schedule
+ * and a CRC32 of the record. Records are forced to disk at most every
+ * {@link #SYNC_MILLIS} and the journal is compacted to its last record when it
+ * grows past {@link #MAX_RECORDS}. When opened the last record with a good CRC
+ * is read back, a record torn by a crash is skipped.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+public class CheckpointJournal {
+	/**
+	 * The {@link Integer} every record starts with, "BMCK"
+	 */
+	private static final int MAGIC = 0x424d434b;
+	/**
+	 * The {@link Integer} bytes in a record
+	 */
+	static final int RECORD = 64;
+	/**
+	 * The {@link Integer} records the journal may hold before it is compacted
+	 */
+	private static final int MAX_RECORDS = 1024;
+	/**
+	 * The {@link Long} most milliseconds a written record waits to be forced to
+	 * disk
+	 */
+	static final long SYNC_MILLIS = 1000;
+
+	/**
+	 * The {@link Path} of the journal file
+	 */
+	private final Path file;
+	/**
+	 * The {@link FileChannel} open on {@link #file}
+	 */
+	private FileChannel channel;
+	/**
+	 * The {@link ByteBuffer} records are written and read through
+	 */
+	private final ByteBuffer record = ByteBuffer.allocate(RECORD);
+	/**
+	 * The {@link CRC32} records are checked with
+	 */
+	private final CRC32 crc = new CRC32();
+	/**
+	 * The {@link Integer} records in {@link #file}
+	 */
+	private int records = 0;
+	/**
+	 * The {@link Long} sequence number of the last record
+	 */
+	private long sequence = 0;
+	/**
+	 * The {@link Boolean} true if a record has been written since the last force
+	 */
+	private boolean unsynced = false;
+	/**
+	 * The {@link System#nanoTime} of the last force
+	 */
+	private long lastSync = System.nanoTime();
+
+	/**
+	 * The {@link Boolean} true if a checkpoint was read when the journal was
+	 * opened
+	 */
+	private boolean restored = false;
+	/**
+	 * The {@link Boolean} true if there is a checkpoint, read or written, to keep
+	 * when compacting
+	 */
+	private boolean current = false;
+	/**
+	 * The {@link Long} fingerprint of the schedule of the last checkpoint
+	 */
+	private long fingerprint;
+	/**
+	 * The {@link Long} start of the schedule of the last checkpoint in
+	 * milliseconds since the epoch
+	 */
+	private long start;
+	/**
+	 * The {@link Long} time the last checkpoint was written in milliseconds since
+	 * the epoch
+	 */
+	private long time;
+	/**
+	 * The {@link Integer} day of the last checkpoint, day 1 = 0
+	 */
+	private int day;
+	/**
+	 * The {@link Integer} relay states of the last checkpoint as in
+	 * {@link SampleHistory}
+	 */
+	private int flags;
+	/**
+	 * The {@link Long} time the cooler was last allowed to switch in the last
+	 * checkpoint, -1 if never
+	 */
+	private long coolerLast;
+	/**
+	 * The {@link Long} time the heater was last allowed to switch in the last
+	 * checkpoint, -1 if never
+	 */
+	private long heaterLast;
+
+	/**
+	 * Opens or creates the journal, reads its last good record and compacts it to
+	 * that record. The journal is forced to disk when the program shuts down.
+	 *
+	 * @param file {@link Path} of the journal file
+	 * @throws IOException if the journal can not be read or written
+	 */
+	CheckpointJournal(Path file) throws IOException {
+		this.file = file;
+		if (Files.exists(file)) {
+			try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+				long position = 0;
+				while (true) {
+					record.clear();
+					while (record.hasRemaining()) {
+						if (in.read(record, position + record.position()) <= 0) {
+							break;
+						}
+					}
+					if (record.hasRemaining()) {
+						break;
+					}
+					position += RECORD;
+					if (check()) {
+						read();
+					}
+				}
+			}
+		}
+		compact();
+		Runtime.getRuntime().addShutdownHook(new Thread(this::close, "checkpoint-shutdown"));
+	}
+
+	/**
+	 * @return {@link Boolean} true if {@link #record} holds a record with a good
+	 *         CRC
+	 */
+	private boolean check() {
+		if (record.getInt(0) != MAGIC) {
+			return false;
+		}
+		crc.reset();
+		crc.update(record.array(), 0, RECORD - 4);
+		return (int) crc.getValue() == record.getInt(RECORD - 4);
+	}
+
+	/**
+	 * Reads the checkpoint in {@link #record}
+	 */
+	private void read() {
+		restored = true;
+		current = true;
+		day = record.getInt(4);
+		sequence = record.getLong(8);
+		fingerprint = record.getLong(16);
+		start = record.getLong(24);
+		time = record.getLong(32);
+		coolerLast = record.getLong(40);
+		heaterLast = record.getLong(48);
+		flags = record.getInt(56);
+	}
+
+	/**
+	 * Appends a checkpoint, forcing it to disk if {@link #SYNC_MILLIS} have passed
+	 * since the last force. Must only be called from one thread.
+	 *
+	 * @param time        {@link Long} the checkpoint is written at in milliseconds
+	 *                    since the epoch
+	 * @param fingerprint {@link Long} of the schedule
+	 * @param start       {@link Long} start of the schedule in milliseconds since
+	 *                    the epoch
+	 * @param day         {@link Integer} day, day 1 = 0
+	 * @param flags       {@link Integer} relay states as in {@link SampleHistory}
+	 * @param coolerLast  {@link Long} time the cooler was last allowed to switch,
+	 *                    -1 if never
+	 * @param heaterLast  {@link Long} time the heater was last allowed to switch,
+	 *                    -1 if never
+	 * @throws IOException if the record can not be written
+	 */
+	synchronized void write(long time, long fingerprint, long start, int day, int flags, long coolerLast,
+			long heaterLast) throws IOException {
+		this.fingerprint = fingerprint;
+		this.start = start;
+		this.day = day;
+		this.flags = flags;
+		this.coolerLast = coolerLast;
+		this.heaterLast = heaterLast;
+		this.time = time;
+		current = true;
+		sequence++;
+		if (records >= MAX_RECORDS) {
+			compact();
+		} else {
+			append();
+		}
+		sync();
+	}
+
+	/**
+	 * Forces written records to disk if {@link #SYNC_MILLIS} have passed since the
+	 * last force
+	 */
+	synchronized void sync() {
+		if (unsynced && System.nanoTime() - lastSync >= TimeUnit.MILLISECONDS.toNanos(SYNC_MILLIS)) {
+			force();
+		}
+	}
+
+	/**
+	 * Fills {@link #record} with the current checkpoint and writes it at the end
+	 * of {@link #channel}
+	 *
+	 * @throws IOException if the record can not be written
+	 */
+	private void append() throws IOException {
+		record.clear();
+		record.putInt(0, MAGIC);
+		record.putInt(4, day);
+		record.putLong(8, sequence);
+		record.putLong(16, fingerprint);
+		record.putLong(24, start);
+		record.putLong(32, time);
+		record.putLong(40, coolerLast);
+		record.putLong(48, heaterLast);
+		record.putInt(56, flags);
+		crc.reset();
+		crc.update(record.array(), 0, RECORD - 4);
+		record.putInt(RECORD - 4, (int) crc.getValue());
+		while (record.hasRemaining()) {
+			channel.write(record);
+		}
+		records++;
+		unsynced = true;
+	}
+
+	/**
+	 * Writes the current checkpoint, if there is one, alone to a new file, forces
+	 * it and moves it over {@link #file}, then continues appending to it
+	 *
+	 * @throws IOException if the new file can not be written or moved
+	 */
+	private void compact() throws IOException {
+		if (channel != null) {
+			channel.close();
+		}
+		Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+		channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.WRITE);
+		records = 0;
+		if (current) {
+			append();
+		}
+		channel.force(true);
+		channel.close();
+		Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		unsynced = false;
+		lastSync = System.nanoTime();
+	}
+
+	/**
+	 * Forces {@link #channel} to disk
+	 */
+	private void force() {
+		try {
+			channel.force(false);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		unsynced = false;
+		lastSync = System.nanoTime();
+	}
+
+	/**
+	 * Forces the last records to disk and closes the journal
+	 */
+	synchronized void close() {
+		if (channel != null && channel.isOpen()) {
+			if (unsynced) {
+				force();
+			}
+			try {
+				channel.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * @return {@link Boolean} true if a checkpoint was read when the journal was
+	 *         opened
+	 */
+	boolean hasCheckpoint() {
+		return restored;
+	}
+
+	/**
+	 * @return {@link #fingerprint}
+	 */
+	long getFingerprint() {
+		return fingerprint;
+	}
+
+	/**
+	 * @return {@link #start}
+	 */
+	long getStart() {
+		return start;
+	}
+
+	/**
+	 * @return {@link #time}
+	 */
+	long getTime() {
+		return time;
+	}
+
+	/**
+	 * @return {@link #day}
+	 */
+	int getDay() {
+		return day;
+	}
+
+	/**
+	 * @return {@link #flags}
+	 */
+	int getFlags() {
+		return flags;
+	}
+
+	/**
+	 * @return {@link #coolerLast}
+	 */
+	long getCoolerLast() {
+		return coolerLast;
+	}
+
+	/**
+	 * @return {@link #heaterLast}
+	 */
+	long getHeaterLast() {
+		return heaterLast;
+	}
+}
@@ -0,0 +1,33 @@
+package Brewmaster;
+
+/**
+ * <h2>ConsoleSink</h2> The ConsoleSink prints log events to standard out after
+ * the id of the vessel, so the samples and messages of several vessels can be
+ * told apart.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+class ConsoleSink implements LogSink {
+	/**
+	 * The {@link String} {@link Settings#id} of the vessel
+	 */
+	private final String id;
+
+	/**
+	 * @param id {@link String} {@link Settings#id} of the vessel
+	 */
+	ConsoleSink(String id) {
+		this.id = id;
+	}
+
+	@Override
+	public void write(LogEvent event, String line) {
+		synchronized (System.out) {
+			System.out.print(id);
+			System.out.print(": ");
+			System.out.println(line);
+		}
+	}
+}
@@ -0,0 +1,270 @@
+package Brewmaster;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * <h2>ControlEngine</h2> The ControlEngine class drives a
+ * {@link TemperatureHandler} from a {@link ScheduledExecutorService} instead of
+ * a busy loop. Sampling, control and logging each run as a separate
+ * {@link Tick} with the period given by {@link Settings}, ticks that start late
+ * or have to be skipped are counted and reported, how late every tick starts
+ * and how long it runs is recorded in a {@link LatencyHistogram}. Every vessel
+ * has its own ControlEngine, they share one scheduler.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+public class ControlEngine {
+	/**
+	 * a {@link Long} with the number of nanoseconds a tick may start after its
+	 * deadline before it is counted as late
+	 */
+	private static final long LATE_TOLERANCE = TimeUnit.MILLISECONDS.toNanos(100);
+
+	/**
+	 * The {@link ScheduledExecutorService} running the ticks, shared with the
+	 * other vessels. The ticks of {@link TemperatureHandler} are synchronized so
+	 * they never overlap even if the scheduler has more than one thread.
+	 */
+	private final ScheduledExecutorService scheduler;
+	/**
+	 * The {@link TemperatureHandler} run by the ticks
+	 */
+	private final TemperatureHandler th;
+	/**
+	 * a {@link Runnable} run once when the schedule of {@link #th} has finished
+	 */
+	private final Runnable onFinish;
+	/**
+	 * a {@link Boolean} set by {@link #stop}, or when the schedule has finished,
+	 * after which no tick is rescheduled
+	 */
+	private volatile boolean stopped = false;
+
+	/**
+	 * a {@link Tick} reading the probe
+	 *
+	 * @see TemperatureHandler#sampleTick
+	 */
+	final Tick sample;
+	/**
+	 * a {@link Tick} checking the temperature and the day
+	 *
+	 * @see TemperatureHandler#controlTick
+	 */
+	final Tick control;
+	/**
+	 * a {@link Tick} logging the temperature
+	 *
+	 * @see TemperatureHandler#logTemp
+	 */
+	final Tick log;
+
+	/**
+	 * Sets up a ControlEngine running the {@link TemperatureHandler} th on
+	 * scheduler, periods are read from {@link TemperatureHandler#getSettings}
+	 * every time a tick is rescheduled.
+	 *
+	 * @param th        {@link TemperatureHandler} to run
+	 * @param scheduler {@link ScheduledExecutorService} shared by every vessel
+	 * @param onFinish  {@link Runnable} run once when the schedule of th has
+	 *                  finished
+	 */
+	ControlEngine(TemperatureHandler th, ScheduledExecutorService scheduler, Runnable onFinish) {
+		this.th = th;
+		this.scheduler = scheduler;
+		this.onFinish = onFinish;
+		String id = th.getSettings().id;
+		sample = new Tick(id + " Sample", th::sampleTick, () -> seconds(th.getSettings().secondsBetweenSamples));
+		control = new Tick(id + " Control", th::controlTick, () -> seconds(th.getSettings().secondsBetweenControl));
+		log = new Tick(id + " Log", th::logTemp, () -> seconds(th.getSettings().secondsBetweenLogs()));
+	}
+
+	/**
+	 * Schedules the first run of every tick, sampling is scheduled first so the
+	 * first control and log tick sees a temperature.
+	 */
+	void start() {
+		sample.start();
+		control.start();
+		log.start();
+	}
+
+	/**
+	 * Stops rescheduling the ticks, a tick that is already running will finish.
+	 * The shared scheduler keeps running.
+	 */
+	void stop() {
+		stopped = true;
+	}
+
+	/**
+	 * Stops the ticks and runs {@link #onFinish} the first time the schedule of
+	 * {@link #th} is seen to have finished
+	 */
+	private synchronized void finish() {
+		if (!stopped) {
+			stopped = true;
+			onFinish.run();
+		}
+	}
+
+	/**
+	 * Converts seconds to nanoseconds, never returning less than one millisecond
+	 * so a zero period in the settings file can not spin a core.
+	 *
+	 * @param seconds {@link Double} seconds
+	 * @return {@link Long} nanoseconds
+	 */
+	private static long seconds(double seconds) {
+		return Math.max(TimeUnit.MILLISECONDS.toNanos(1), (long) (seconds * 1e9));
+	}
+
+	/**
+	 * <h2>Tick</h2> A periodic task that reschedules itself against a fixed
+	 * deadline. If the task starts one or more periods after its deadline the
+	 * skipped runs are counted as missed instead of being run back to back.
+	 */
+	class Tick implements Runnable {
+		/**
+		 * a {@link String} naming the tick in reports
+		 */
+		private final String name;
+		/**
+		 * the {@link Runnable} doing the work
+		 */
+		private final Runnable task;
+		/**
+		 * a {@link LongSupplier} giving the period in nanoseconds
+		 */
+		private final LongSupplier period;
+		/**
+		 * a {@link Long} with the {@link System#nanoTime} the next run should start
+		 */
+		private long deadline;
+		/**
+		 * a {@link Long} counting runs
+		 */
+		private volatile long ticks = 0;
+		/**
+		 * a {@link Long} counting runs that started more than
+		 * {@link ControlEngine#LATE_TOLERANCE} after the deadline
+		 */
+		private volatile long lateTicks = 0;
+		/**
+		 * a {@link Long} counting runs that were skipped because the tick was a full
+		 * period or more behind
+		 */
+		private volatile long missedTicks = 0;
+		/**
+		 * a {@link Long} with the longest time in nanoseconds a run has started
+		 * after its deadline
+		 */
+		private volatile long maxLateness = 0;
+		/**
+		 * a {@link LatencyHistogram} of the nanoseconds every run took
+		 */
+		final LatencyHistogram durations = new LatencyHistogram();
+		/**
+		 * a {@link LatencyHistogram} of the nanoseconds every run started after its
+		 * deadline
+		 */
+		final LatencyHistogram lateness = new LatencyHistogram();
+
+		/**
+		 * Sets up a Tick
+		 *
+		 * @param name   {@link String} name used in reports
+		 * @param task   {@link Runnable} to run every period
+		 * @param period {@link LongSupplier} period in nanoseconds
+		 */
+		Tick(String name, Runnable task, LongSupplier period) {
+			this.name = name;
+			this.task = task;
+			this.period = period;
+		}
+
+		/**
+		 * Schedules the first run right away
+		 */
+		private void start() {
+			deadline = System.nanoTime();
+			scheduler.execute(this);
+		}
+
+		/**
+		 * Checks how late the run is, runs the task and schedules the next run one
+		 * period after the last deadline, until the ControlEngine is stopped or the
+		 * schedule has finished. An exception thrown by the task is printed and does
+		 * not stop the tick.
+		 */
+		@Override
+		public void run() {
+			if (stopped) {
+				return;
+			}
+			long p = period.getAsLong();
+			long lateness = System.nanoTime() - deadline;
+			if (lateness >= p) {
+				long missed = lateness / p;
+				missedTicks += missed;
+				deadline += missed * p;
+				th.log(LogEvent.WARN, name + " tick missed " + missed + " runs, "
+						+ TimeUnit.NANOSECONDS.toMillis(lateness) + " ms behind");
+			} else if (lateness > LATE_TOLERANCE) {
+				lateTicks++;
+				th.log(LogEvent.INFO, name + " tick late by " + TimeUnit.NANOSECONDS.toMillis(lateness) + " ms");
+			}
+			if (lateness > maxLateness) {
+				maxLateness = lateness;
+			}
+			this.lateness.record(lateness);
+			long started = System.nanoTime();
+			try {
+				task.run();
+			} catch (RuntimeException e) {
+				e.printStackTrace();
+			}
+			durations.record(System.nanoTime() - started);
+			ticks++;
+			deadline += p;
+			if (th.isFinished()) {
+				finish();
+			}
+			if (!stopped && !scheduler.isShutdown()) {
+				scheduler.schedule(this, deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+			}
+		}
+
+		/**
+		 * @return {@link #ticks}
+		 */
+		long getTicks() {
+			return ticks;
+		}
+
+		/**
+		 * @return {@link #lateTicks}
+		 */
+		long getLateTicks() {
+			return lateTicks;
+		}
+
+		/**
+		 * @return {@link #missedTicks}
+		 */
+		long getMissedTicks() {
+			return missedTicks;
+		}
+
+		/**
+		 * @return {@link #maxLateness} in nanoseconds
+		 */
+		long getMaxLateness() {
+			return maxLateness;
+		}
+	}
+}
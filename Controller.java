@@ -0,0 +1,76 @@
+package Brewmaster;
+
+/**
+ * <h2>Controller</h2> A Controller decides what the relays of a vessel should
+ * do on every control tick. {@link TemperatureHandler} applies the decision,
+ * switching a relay no more often than {@link Settings#minutesToWaitPowerSwitch}
+ * allows. Controllers keep their own state between ticks and read their
+ * parameters from the {@link Settings} they are given, so reloaded settings
+ * take effect on the next tick.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ * @see HysteresisController
+ * @see PidController
+ * @see PredictiveController
+ */
+interface Controller {
+	/**
+	 * leave the relays as they are
+	 */
+	int HOLD = 0;
+	/**
+	 * turn the cooler on and the heater off
+	 */
+	int COOL = 1;
+	/**
+	 * turn the heater on and the cooler off
+	 */
+	int HEAT = 2;
+	/**
+	 * turn both relays off
+	 */
+	int OFF = 3;
+
+	/**
+	 * Decides what the relays should do
+	 *
+	 * @param now      {@link Long} milliseconds since the epoch
+	 * @param temp     {@link Double} current temperature
+	 * @param target   {@link Double} target temperature of the schedule
+	 * @param settings {@link Settings} with the band and controller parameters
+	 * @param flags    {@link Integer} relay states as in {@link SampleHistory}
+	 * @return {@link Integer} {@link #HOLD}, {@link #COOL}, {@link #HEAT} or
+	 *         {@link #OFF}
+	 */
+	int decide(long now, double temp, double target, Settings settings, int flags);
+
+	/**
+	 * @return {@link Boolean} true if a relay should be sent its state again, at
+	 *         most every {@link Settings#minutesToWaitPowerSwitch}, while the
+	 *         controller keeps asking for the state it is already in. False if
+	 *         relays are only sent changes.
+	 */
+	default boolean reassert() {
+		return false;
+	}
+
+	/**
+	 * Creates the controller named by {@link Settings#controller}
+	 *
+	 * @param name {@link String} "hysteresis", "pid" or "predictive"
+	 * @return {@link Controller}
+	 * @throws IllegalArgumentException if there is no controller with that name
+	 */
+	static Controller create(String name) {
+		if ("hysteresis".equals(name)) {
+			return new HysteresisController();
+		} else if ("pid".equals(name)) {
+			return new PidController();
+		} else if ("predictive".equals(name)) {
+			return new PredictiveController();
+		}
+		throw new IllegalArgumentException("Controller must be hysteresis, pid or predictive");
+	}
+}
@@ -0,0 +1,46 @@
+package Brewmaster;
+
+/**
+ * <h2>EmaFilter</h2> The EmaFilter passes on an exponential moving average of
+ * the samples, every sample moves the average {@link #alpha} of the way to it.
+ * It smooths the 0.0625 degree steps of the probe, a lower alpha smooths more
+ * but follows a real change later. The first sample is passed on as it is.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+class EmaFilter implements FilterStage {
+	/**
+	 * The {@link Double} weight of a new sample, above 0 and at most 1
+	 */
+	private final double alpha;
+	/**
+	 * The {@link Double} average, NaN before the first sample
+	 */
+	private double average = Double.NaN;
+
+	/**
+	 * @param alpha {@link Double} weight of a new sample, above 0 and at most 1
+	 * @throws IllegalArgumentException if alpha is out of range
+	 */
+	EmaFilter(double alpha) {
+		if (!(alpha > 0 && alpha <= 1)) {
+			throw new IllegalArgumentException("Filter ema:alpha needs an alpha above 0 and at most 1");
+		}
+		this.alpha = alpha;
+	}
+
+	/**
+	 * @return {@link Double} average with value added
+	 */
+	@Override
+	public double filter(long time, double value) {
+		if (Double.isNaN(average)) {
+			average = value;
+		} else {
+			average += alpha * (value - average);
+		}
+		return average;
+	}
+}
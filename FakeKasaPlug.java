@@ -0,0 +1,210 @@
+package Brewmaster;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <h2>FakeKasaPlug</h2> The FakeKasaPlug class is a local server speaking the
+ * kasa smart plug protocol, used to test {@link KasaClient} and
+ * {@link PowerSocket} without a plug. It answers set_relay_state and
+ * get_sysinfo and remembers the relay state.<br>
+ * Run with "java -cp BrewMaster.jar Brewmaster.FakeKasaPlug [port]" and set
+ * CoolerIp=127.0.0.1:port in the settings file.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+public class FakeKasaPlug implements Runnable {
+	/**
+	 * The {@link ServerSocket} accepting clients
+	 */
+	private final ServerSocket serverSocket;
+	/**
+	 * The {@link Boolean} state of the fake relay
+	 */
+	private volatile boolean on = false;
+	/**
+	 * The {@link Integer} number of commands answered
+	 */
+	private volatile int commands = 0;
+	/**
+	 * The {@link Integer} milliseconds to wait before answering, used to test
+	 * timeouts
+	 */
+	private volatile int delay = 0;
+	/**
+	 * The {@link Integer} number of clients accepted
+	 */
+	private volatile int connections = 0;
+	/**
+	 * The {@link Socket}s of the clients connected, closed by
+	 * {@link #dropClients}
+	 */
+	private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Sets up a FakeKasaPlug listening on the loopback address
+	 *
+	 * @param port {@link Integer} port to listen on, 0 picks a free port
+	 * @throws IOException if the port can not be bound
+	 */
+	FakeKasaPlug(int port) throws IOException {
+		serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+	}
+
+	/**
+	 * Starts a FakeKasaPlug and prints its port
+	 *
+	 * @param a Array of arguments, position 0 may hold the port
+	 * @throws IOException if the port can not be bound
+	 */
+	public static void main(String[] a) throws IOException {
+		FakeKasaPlug plug = new FakeKasaPlug(a.length > 0 ? Integer.parseInt(a[0]) : KasaClient.PORT);
+		System.out.println("Fake plug listening on " + plug.getHost());
+		plug.run();
+	}
+
+	/**
+	 * Starts {@link #run} on a daemon thread
+	 *
+	 * @return this {@link FakeKasaPlug}
+	 */
+	FakeKasaPlug start() {
+		Thread t = new Thread(this, "fake-plug");
+		t.setDaemon(true);
+		t.start();
+		return this;
+	}
+
+	/**
+	 * @return {@link String} "ip:port" to use as CoolerIp or HeaterIp
+	 */
+	String getHost() {
+		return serverSocket.getInetAddress().getHostAddress() + ":" + serverSocket.getLocalPort();
+	}
+
+	/**
+	 * @return {@link #on}
+	 */
+	boolean isOn() {
+		return on;
+	}
+
+	/**
+	 * @return {@link #commands}
+	 */
+	int getCommands() {
+		return commands;
+	}
+
+	/**
+	 * @return {@link #connections}
+	 */
+	int getConnections() {
+		return connections;
+	}
+
+	/**
+	 * @param delay {@link #delay}
+	 */
+	void setDelay(int delay) {
+		this.delay = delay;
+	}
+
+	/**
+	 * Closes the connection of every client, like a plug closing idle
+	 * connections, new clients are still accepted
+	 */
+	void dropClients() {
+		for (Socket s : clients) {
+			try {
+				s.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Accepts clients until {@link #close} is called, each client gets its own
+	 * thread and may send any number of commands.
+	 */
+	@Override
+	public void run() {
+		while (!serverSocket.isClosed()) {
+			try {
+				Socket s = serverSocket.accept();
+				if (serverSocket.isClosed()) {
+					// accepted while closing, a closed plug answers nobody
+					s.close();
+					return;
+				}
+				connections++;
+				clients.add(s);
+				Thread t = new Thread(() -> serve(s), "fake-plug-client");
+				t.setDaemon(true);
+				t.start();
+			} catch (IOException e) {
+				if (!serverSocket.isClosed()) {
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Answers commands from one client until it disconnects
+	 *
+	 * @param s {@link Socket} connected to the client
+	 */
+	private void serve(Socket s) {
+		try (Socket socket = s) {
+			DataInputStream in = new DataInputStream(socket.getInputStream());
+			OutputStream out = socket.getOutputStream();
+			while (true) {
+				String request = KasaClient.decrypt(KasaClient.readFrame(in));
+				String response;
+				if (request.contains("set_relay_state")) {
+					on = request.replace(" ", "").contains("\"state\":1");
+					response = "{\"system\":{\"set_relay_state\":{\"err_code\":0}}}";
+				} else if (request.contains("get_sysinfo")) {
+					response = "{\"system\":{\"get_sysinfo\":{\"relay_state\":" + (on ? 1 : 0)
+							+ ",\"err_code\":0}}}";
+				} else {
+					response = "{\"err_code\":-1,\"err_msg\":\"module not support\"}";
+				}
+				commands++;
+				if (delay > 0) {
+					Thread.sleep(delay);
+				}
+				out.write(KasaClient.encrypt(response));
+				out.flush();
+			}
+		} catch (SocketException | java.io.EOFException e) {
+			return;
+		} catch (IOException | InterruptedException e) {
+			e.printStackTrace();
+		} finally {
+			clients.remove(s);
+		}
+	}
+
+	/**
+	 * Stops accepting clients
+	 */
+	void close() {
+		try {
+			serverSocket.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
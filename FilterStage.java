@@ -0,0 +1,55 @@
+package Brewmaster;
+
+/**
+ * <h2>FilterStage</h2> A FilterStage is one step of a {@link SensorFilter}.
+ * It is given every temperature read from the probe in order and answers with
+ * the temperature to pass on, or NaN to drop the sample so the last filtered
+ * temperature is kept. Stages keep their own state between samples in arrays
+ * sized when they are created, filtering a sample creates no objects.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ * @see BadValueFilter
+ * @see MedianFilter
+ * @see EmaFilter
+ * @see RateLimitFilter
+ */
+interface FilterStage {
+	/**
+	 * Filters a sample
+	 *
+	 * @param time  {@link Long} milliseconds since the epoch the sample was read
+	 * @param value {@link Double} temperature passed on by the stage before
+	 * @return {@link Double} temperature to pass on, NaN to drop the sample
+	 */
+	double filter(long time, double value);
+
+	/**
+	 * Creates the stage named by one entry of {@link Settings#filter}
+	 *
+	 * @param spec {@link String} "reject", "median:n", "ema:alpha" or "rate:r"
+	 * @return {@link FilterStage}
+	 * @throws IllegalArgumentException if there is no stage with that name or its
+	 *                                  parameter is bad
+	 */
+	static FilterStage create(String spec) {
+		int colon = spec.indexOf(':');
+		String name = colon < 0 ? spec : spec.substring(0, colon);
+		String parameter = colon < 0 ? null : spec.substring(colon + 1).trim();
+		try {
+			if ("reject".equals(name) && parameter == null) {
+				return new BadValueFilter();
+			} else if ("median".equals(name) && parameter != null) {
+				return new MedianFilter(Integer.parseInt(parameter));
+			} else if ("ema".equals(name) && parameter != null) {
+				return new EmaFilter(Double.parseDouble(parameter));
+			} else if ("rate".equals(name) && parameter != null) {
+				return new RateLimitFilter(Double.parseDouble(parameter));
+			}
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Filter " + spec + " has a bad parameter", e);
+		}
+		throw new IllegalArgumentException("Filter must be reject, median:n, ema:alpha or rate:r, not " + spec);
+	}
+}
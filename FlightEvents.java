@@ -0,0 +1,276 @@
+package Brewmaster;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * <h2>FlightEvents</h2> The FlightEvents class holds the Java Flight Recorder
+ * events the program emits, all in the category Brewmaster. They are enabled
+ * in the default recording settings and carry no stack trace, a recording left
+ * running all the time shows every probe read, control decision, relay switch
+ * and command and client next to the GC and thread events of the JVM. Events
+ * are only filled in when {@link Event#shouldCommit} is true, with no recording
+ * running they cost a timestamp or two.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+final class FlightEvents {
+	/**
+	 * Only nested event classes
+	 */
+	private FlightEvents() {
+	}
+
+	/**
+	 * <h2>ProbeRead</h2> A read of the temperature probe and its parsing.
+	 *
+	 * @see TemperatureHandler#sampleTick
+	 */
+	@Name("Brewmaster.ProbeRead")
+	@Label("Probe Read")
+	@Category({ "Brewmaster", "Probe" })
+	@Description("A read of the w1_slave file of a temperature probe")
+	@StackTrace(false)
+	static final class ProbeRead extends Event {
+		/**
+		 * The {@link String} id of the vessel
+		 */
+		@Label("Vessel")
+		String vessel;
+		/**
+		 * The {@link Integer} bytes read
+		 */
+		@Label("Bytes")
+		@DataAmount
+		int bytes;
+		/**
+		 * The {@link Double} temperature read, NaN if the read failed
+		 */
+		@Label("Temperature")
+		double temperature;
+		/**
+		 * The {@link Double} temperature after the {@link SensorFilter}, NaN if the
+		 * read failed or the filter dropped it
+		 */
+		@Label("Filtered")
+		double filtered;
+		/**
+		 * The {@link String} "ok", "bad crc", "malformed", "rejected" by the filter
+		 * or the error of a failed read
+		 */
+		@Label("Result")
+		String result;
+	}
+
+	/**
+	 * <h2>ControlDecision</h2> A control tick asking the controller what the
+	 * relays should do and switching them.
+	 *
+	 * @see TemperatureHandler#controlTick
+	 */
+	@Name("Brewmaster.ControlDecision")
+	@Label("Control Decision")
+	@Category({ "Brewmaster", "Control" })
+	@Description("A decision of the controller and the relay states after it")
+	@StackTrace(false)
+	static final class ControlDecision extends Event {
+		/**
+		 * The {@link String} id of the vessel
+		 */
+		@Label("Vessel")
+		String vessel;
+		/**
+		 * The {@link String} name of the controller
+		 */
+		@Label("Controller")
+		String controller;
+		/**
+		 * The {@link Double} temperature decided on
+		 */
+		@Label("Temperature")
+		double temperature;
+		/**
+		 * The {@link Double} target of the schedule
+		 */
+		@Label("Target")
+		double target;
+		/**
+		 * The {@link String} "hold", "cool", "heat" or "off"
+		 */
+		@Label("Decision")
+		String decision;
+		/**
+		 * The {@link Boolean} state of the cooler after the decision
+		 */
+		@Label("Cooler On")
+		boolean coolerOn;
+		/**
+		 * The {@link Boolean} state of the heater after the decision
+		 */
+		@Label("Heater On")
+		boolean heaterOn;
+	}
+
+	/**
+	 * <h2>RelaySwitch</h2> A relay being turned on or off by the control thread,
+	 * the command is sent later by its {@link RelayCommandQueue}.
+	 *
+	 * @see PowerSocket#turnOn
+	 * @see PowerSocket#turnOff
+	 */
+	@Name("Brewmaster.RelaySwitch")
+	@Label("Relay Switch")
+	@Category({ "Brewmaster", "Relay" })
+	@Description("A relay turned on or off by the controller")
+	@StackTrace(false)
+	static final class RelaySwitch extends Event {
+		/**
+		 * The {@link String} ip address of the relay
+		 */
+		@Label("Relay")
+		String relay;
+		/**
+		 * The {@link Boolean} true if it was turned on
+		 */
+		@Label("On")
+		boolean on;
+		/**
+		 * The {@link Long} times it has been turned on
+		 */
+		@Label("Cycles")
+		long cycles;
+	}
+
+	/**
+	 * <h2>RelayCommand</h2> One attempt to send a state to a relay, the duration
+	 * is how long the relay or the kasa process took to answer.
+	 *
+	 * @see RelayTransport#setState
+	 */
+	@Name("Brewmaster.RelayCommand")
+	@Label("Relay Command")
+	@Category({ "Brewmaster", "Relay" })
+	@Description("A command sent to a wireless relay")
+	@StackTrace(false)
+	static final class RelayCommand extends Event {
+		/**
+		 * The {@link String} ip address of the relay
+		 */
+		@Label("Relay")
+		String relay;
+		/**
+		 * The {@link Boolean} state sent
+		 */
+		@Label("On")
+		boolean on;
+		/**
+		 * The {@link Integer} attempt, 1 for the first
+		 */
+		@Label("Attempt")
+		int attempt;
+		/**
+		 * The {@link String} error if the command failed, null if it succeeded
+		 */
+		@Label("Error")
+		String error;
+	}
+
+	/**
+	 * <h2>ScheduleDay</h2> A new day or a new segment of the schedule.
+	 *
+	 * @see TemperatureHandler#controlTick
+	 */
+	@Name("Brewmaster.ScheduleDay")
+	@Label("Schedule Day")
+	@Category({ "Brewmaster", "Control" })
+	@Description("A new day or segment of the schedule started")
+	@StackTrace(false)
+	static final class ScheduleDay extends Event {
+		/**
+		 * The {@link String} id of the vessel
+		 */
+		@Label("Vessel")
+		String vessel;
+		/**
+		 * The {@link Integer} day, day 1 = 1
+		 */
+		@Label("Day")
+		int day;
+		/**
+		 * The {@link String} state of the segment
+		 */
+		@Label("State")
+		String state;
+		/**
+		 * The {@link Double} temperature the segment starts at
+		 */
+		@Label("From")
+		double from;
+		/**
+		 * The {@link Double} temperature the segment ends at
+		 */
+		@Label("To")
+		double to;
+	}
+
+	/**
+	 * <h2>ClientServe</h2> A client of the {@link ServerThread} from being
+	 * accepted to being closed.
+	 */
+	@Name("Brewmaster.ClientServe")
+	@Label("Client Serve")
+	@Category({ "Brewmaster", "Server" })
+	@Description("A telemetry client from connecting to disconnecting")
+	@StackTrace(false)
+	static final class ClientServe extends Event {
+		/**
+		 * The {@link String} address of the client
+		 */
+		@Label("Address")
+		String address;
+		/**
+		 * The {@link String} "snapshot" or "command"
+		 */
+		@Label("Kind")
+		String kind;
+		/**
+		 * The {@link Long} bytes written to the client
+		 */
+		@Label("Bytes Written")
+		@DataAmount
+		long bytes;
+		/**
+		 * The {@link Integer} commands the client sent
+		 */
+		@Label("Commands")
+		int commands;
+	}
+
+	/**
+	 * <h2>ServerCommand</h2> A command of a client on the command port being run.
+	 */
+	@Name("Brewmaster.ServerCommand")
+	@Label("Server Command")
+	@Category({ "Brewmaster", "Server" })
+	@Description("A command of a telemetry client")
+	@StackTrace(false)
+	static final class ServerCommand extends Event {
+		/**
+		 * The {@link String} line sent
+		 */
+		@Label("Command")
+		String command;
+		/**
+		 * The {@link String} id of the vessel the command is about
+		 */
+		@Label("Vessel")
+		String vessel;
+	}
+}
@@ -0,0 +1,235 @@
+package Brewmaster;
+
+/**
+ * <h2>HistoryQuery</h2> A HistoryQuery is one page of samples from a
+ * {@link HistoryStore} being sent to a client of {@link ServerThread}. The page
+ * is formatted a little at a time by {@link #fill}, as the client reads it, so
+ * only the next few kilobytes of a page are ever in memory however long the
+ * range asked for. With a resolution of 0 every sample is a line
+ * "H,time,temp,min,max,flags", with min and max the band and flags the relay
+ * states as in {@link SampleHistory}. With a resolution the samples are grouped in
+ * buckets of that many milliseconds counted from the epoch and every bucket is
+ * a line "B,start,end,min,max,avg,coolerDuty,heaterDuty", duty being the share
+ * of the samples the relay was on. No more than {@link #SCAN} samples are read
+ * by one {@link #fill}, a bucket over more samples is read over several calls
+ * so other clients are served in between. A page ends with "N,next" when there is more
+ * to send, next being the from of the query for the next page, or with "E"
+ * when the range is done.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+class HistoryQuery {
+	/**
+	 * The {@link Integer} lines in a page if the client does not ask for a size
+	 */
+	static final int PAGE = 1000;
+	/**
+	 * The {@link Integer} most lines in a page
+	 */
+	static final int MAX_PAGE = 10000;
+	/**
+	 * The {@link Integer} most samples read into buckets by one {@link #fill}
+	 */
+	static final int SCAN = 20000;
+
+	/**
+	 * The {@link HistoryStore} the samples are read from
+	 */
+	private final HistoryStore store;
+	/**
+	 * The {@link Long} last time of the range in milliseconds since the epoch
+	 */
+	private final long to;
+	/**
+	 * The {@link Long} length of a bucket in milliseconds, 0 for every sample
+	 */
+	private final long resolution;
+	/**
+	 * The {@link Integer} lines in the page
+	 */
+	private final int pageSize;
+	/**
+	 * The {@link Long} position in {@link #store} of the next sample to send
+	 */
+	private long position;
+	/**
+	 * The {@link Integer} lines sent
+	 */
+	private int lines = 0;
+	/**
+	 * The {@link Long} time of the last sample sent, a page does not end between
+	 * samples with the same time so the next page starts after them
+	 */
+	private long last = Long.MIN_VALUE;
+	/**
+	 * The {@link Boolean} true when the last line of the page is formatted
+	 */
+	private boolean done = false;
+
+	/**
+	 * The {@link Long} end of the bucket being read, {@link Long#MIN_VALUE} if
+	 * no bucket is being read
+	 */
+	private long bucketEnd = Long.MIN_VALUE;
+	/**
+	 * The {@link Float} lowest temperature in the bucket
+	 */
+	private float lo;
+	/**
+	 * The {@link Float} highest temperature in the bucket
+	 */
+	private float hi;
+	/**
+	 * The {@link Double} sum of the temperatures in the bucket
+	 */
+	private double sum;
+	/**
+	 * The {@link Integer} samples in the bucket with a temperature
+	 */
+	private int temps;
+	/**
+	 * The {@link Integer} samples in the bucket
+	 */
+	private int samples;
+	/**
+	 * The {@link Integer} samples in the bucket the cooler was on
+	 */
+	private int cooler;
+	/**
+	 * The {@link Integer} samples in the bucket the heater was on
+	 */
+	private int heater;
+
+	/**
+	 * Constructor for {@link HistoryQuery}
+	 *
+	 * @param store      {@link HistoryStore} to read
+	 * @param from       {@link Long} first time in milliseconds since the epoch
+	 * @param to         {@link Long} last time in milliseconds since the epoch
+	 * @param resolution {@link Long} length of a bucket in milliseconds, 0 for
+	 *                   every sample
+	 * @param pageSize   {@link Integer} lines in the page, from 1 to
+	 *                   {@link #MAX_PAGE}
+	 */
+	HistoryQuery(HistoryStore store, long from, long to, long resolution, int pageSize) {
+		if (resolution < 0 || pageSize < 1 || pageSize > MAX_PAGE) {
+			throw new IllegalArgumentException("Bad history query");
+		}
+		this.store = store;
+		this.to = to;
+		this.resolution = resolution;
+		this.pageSize = pageSize;
+		this.position = store.lowerBound(from);
+	}
+
+	/**
+	 * Parses "HISTORY from to [resolution [pageSize]]", resolution in seconds
+	 *
+	 * @param store {@link HistoryStore} to read
+	 * @param words {@link String} array with the words of the command
+	 * @return {@link HistoryQuery} for the first page asked for
+	 * @throws IllegalArgumentException if a word is not a number or out of range
+	 */
+	static HistoryQuery parse(HistoryStore store, String[] words) {
+		long from = Long.parseLong(words[1]);
+		long to = Long.parseLong(words[2]);
+		long resolution = words.length > 3 ? Math.round(Double.parseDouble(words[3]) * 1000) : 0;
+		int pageSize = words.length > 4 ? Integer.parseInt(words[4]) : PAGE;
+		return new HistoryQuery(store, from, to, resolution, pageSize);
+	}
+
+	/**
+	 * Appends lines of the page to sb until it is at least room long, the page
+	 * is done or {@link #SCAN} samples have been read into buckets. Only whole
+	 * lines are appended, a line is less than 128 characters. Nothing may be
+	 * appended while a long bucket is read, fill is then called again.
+	 *
+	 * @param sb   {@link StringBuilder} to append to
+	 * @param room {@link Integer} length of sb to stop at
+	 * @return {@link Boolean} true if the page is done
+	 */
+	boolean fill(StringBuilder sb, int room) {
+		int scan = SCAN;
+		while (!done && sb.length() < room && scan > 0) {
+			long n = store.size();
+			if (bucketEnd != Long.MIN_VALUE) {
+				scan -= bucket(sb, n, scan);
+				continue;
+			}
+			long t = position < n ? store.getTime(position) : Long.MAX_VALUE;
+			if (position >= n || t > to) {
+				sb.append("E\n");
+				done = true;
+			} else if (lines >= pageSize && t != last) {
+				sb.append("N,").append(t).append('\n');
+				done = true;
+			} else if (resolution == 0) {
+				sb.append("H,").append(t).append(',').append(store.getTemp(position)).append(',')
+						.append(store.getMin(position)).append(',').append(store.getMax(position)).append(',')
+						.append(store.getFlags(position)).append('\n');
+				position++;
+				lines++;
+				last = t;
+			} else {
+				bucketEnd = Math.floorDiv(t, resolution) * resolution + resolution;
+				lo = Float.NaN;
+				hi = Float.NaN;
+				sum = 0;
+				temps = 0;
+				samples = 0;
+				cooler = 0;
+				heater = 0;
+				lines++;
+			}
+		}
+		return done;
+	}
+
+	/**
+	 * Reads at most scan samples of the bucket ending at {@link #bucketEnd} from
+	 * {@link #position} on, and appends its line when its last sample is read
+	 *
+	 * @param sb   {@link StringBuilder} to append to
+	 * @param n    {@link Long} samples in {@link #store}
+	 * @param scan {@link Integer} most samples to read
+	 * @return {@link Integer} samples read
+	 */
+	private int bucket(StringBuilder sb, long n, int scan) {
+		long t;
+		int read = 0;
+		while (position < n && (t = store.getTime(position)) < bucketEnd && t <= to) {
+			if (read == scan) {
+				return read;
+			}
+			float temp = store.getTemp(position);
+			if (!Float.isNaN(temp)) {
+				lo = temps == 0 ? temp : Math.min(lo, temp);
+				hi = temps == 0 ? temp : Math.max(hi, temp);
+				sum += temp;
+				temps++;
+			}
+			int flags = store.getFlags(position);
+			cooler += flags & SampleHistory.COOLER_ON;
+			heater += (flags & SampleHistory.HEATER_ON) >> 1;
+			samples++;
+			position++;
+			read++;
+		}
+		sb.append("B,").append(bucketEnd - resolution).append(',').append(bucketEnd).append(',').append(lo)
+				.append(',').append(hi).append(',')
+				.append(temps == 0 ? Double.NaN : Math.round(sum / temps * 1000) / 1000.0).append(',')
+				.append(Math.round(1000.0 * cooler / samples) / 1000.0).append(',')
+				.append(Math.round(1000.0 * heater / samples) / 1000.0).append('\n');
+		bucketEnd = Long.MIN_VALUE;
+		return read;
+	}
+
+	/**
+	 * @return {@link Boolean} true when the last line of the page is formatted
+	 */
+	boolean isDone() {
+		return done;
+	}
+}
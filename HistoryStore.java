@@ -0,0 +1,363 @@
+package Brewmaster;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * <h2>HistoryStore</h2> The HistoryStore class keeps every sample of a
+ * fermentation in an append only binary file written through memory mapped
+ * regions. A record is {@link #RECORD} bytes, time in milliseconds since the
+ * epoch, temperature, the min and max of the band and the relay states. Times
+ * only grow, so a sample is found by binary search, first over a sparse index
+ * holding the time of every {@link #BLOCK}th record and then inside the block.
+ * The sparse index is all that is rebuilt when the file is opened again.<br>
+ * One thread appends, any number of threads can read samples already
+ * appended.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+public class HistoryStore {
+	/**
+	 * <h2>Visitor</h2> Receives samples from {@link HistoryStore#query}
+	 */
+	interface Visitor {
+		/**
+		 * Called for every sample in the queried range, oldest first
+		 *
+		 * @param time  {@link Long} milliseconds since the epoch
+		 * @param temp  {@link Float} temperature in degrees celsius
+		 * @param min   {@link Float} lower end of the band
+		 * @param max   {@link Float} upper end of the band
+		 * @param flags {@link Integer} relay states as in {@link SampleHistory}
+		 * @return {@link Boolean} false to stop the query
+		 */
+		boolean sample(long time, float temp, float min, float max, int flags);
+	}
+
+	/**
+	 * The {@link Long} magic number at the start of the file, "BMHIST01"
+	 */
+	private static final long MAGIC = 0x424d484953543031L;
+	/**
+	 * The {@link Integer} bytes in the file header
+	 */
+	private static final int HEADER = 64;
+	/**
+	 * The {@link Integer} offset of the record count in the header
+	 */
+	private static final int COUNT_OFFSET = 16;
+	/**
+	 * The {@link Integer} bytes in a record
+	 */
+	static final int RECORD = 24;
+	/**
+	 * The {@link Integer} records in a mapped region
+	 */
+	private static final int REGION_RECORDS = 1 << 18;
+	/**
+	 * The {@link Integer} records between entries of the sparse index
+	 */
+	static final int BLOCK = 4096;
+
+	/**
+	 * The {@link FileChannel} of the file
+	 */
+	private final FileChannel channel;
+	/**
+	 * The {@link MappedByteBuffer} mapping the header
+	 */
+	private final MappedByteBuffer header;
+	/**
+	 * The mapped regions of records, created by the writer before publishing
+	 * {@link #count}
+	 */
+	private MappedByteBuffer[] regions = new MappedByteBuffer[64];
+	/**
+	 * The time of the first record of every {@link #BLOCK}, replaced by a bigger
+	 * array when full
+	 */
+	private volatile long[] index = new long[256];
+	/**
+	 * The {@link Long} number of records appended, written after the record so a
+	 * reader that sees it also sees the record
+	 */
+	private volatile long count;
+
+	/**
+	 * Opens or creates the history file and rebuilds the sparse index. Records
+	 * past the count in the header, left by a crash, are kept as long as their
+	 * times keep growing.
+	 *
+	 * @param file {@link Path} of the history file
+	 * @throws IOException if the file can not be opened or is not a history file
+	 */
+	HistoryStore(Path file) throws IOException {
+		channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		boolean created = channel.size() == 0;
+		header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER);
+		if (created) {
+			header.putLong(0, MAGIC);
+			header.putInt(8, 1);
+			header.putInt(12, RECORD);
+			header.putLong(COUNT_OFFSET, 0);
+		} else if (header.getLong(0) != MAGIC || header.getInt(12) != RECORD) {
+			channel.close();
+			throw new IOException(file + " is not a history file");
+		}
+		long n = header.getLong(COUNT_OFFSET);
+		long last = n > 0 ? recordAt(n - 1).getLong(offset(n - 1)) : Long.MIN_VALUE;
+		long capacity = (channel.size() - HEADER) / RECORD;
+		while (n < capacity) {
+			long t = recordAt(n).getLong(offset(n));
+			if (t == 0 || t < last) {
+				break;
+			}
+			last = t;
+			n++;
+		}
+		for (long b = 0; b * BLOCK < n; b++) {
+			putIndex((int) b, recordAt(b * BLOCK).getLong(offset(b * BLOCK)));
+		}
+		count = n;
+		header.putLong(COUNT_OFFSET, n);
+	}
+
+	/**
+	 * Appends a sample, must only be called from one thread. Samples older than
+	 * the last one are ignored.
+	 *
+	 * @param time  {@link Long} milliseconds since the epoch
+	 * @param temp  {@link Double} temperature in degrees celsius
+	 * @param min   {@link Double} lower end of the band
+	 * @param max   {@link Double} upper end of the band
+	 * @param flags {@link Integer} relay states as in {@link SampleHistory}
+	 * @throws IOException if the file could not be grown
+	 */
+	void append(long time, double temp, double min, double max, int flags) throws IOException {
+		long n = count;
+		if (n > 0 && time < getTime(n - 1)) {
+			return;
+		}
+		MappedByteBuffer region = recordAt(n);
+		int o = offset(n);
+		region.putLong(o, time);
+		region.putFloat(o + 8, (float) temp);
+		region.putFloat(o + 12, (float) min);
+		region.putFloat(o + 16, (float) max);
+		region.putInt(o + 20, flags);
+		if (n % BLOCK == 0) {
+			putIndex((int) (n / BLOCK), time);
+		}
+		count = n + 1;
+		header.putLong(COUNT_OFFSET, n + 1);
+	}
+
+	/**
+	 * Calls visitor for every sample with a time from from to to, both included
+	 *
+	 * @param from    {@link Long} first time in milliseconds since the epoch
+	 * @param to      {@link Long} last time in milliseconds since the epoch
+	 * @param visitor {@link Visitor} to call
+	 * @return {@link Long} number of samples visited
+	 */
+	long query(long from, long to, Visitor visitor) {
+		long n = count;
+		long visited = 0;
+		for (long i = lowerBound(from); i < n; i++) {
+			MappedByteBuffer r = regions[(int) (i / REGION_RECORDS)];
+			int o = offset(i);
+			long t = r.getLong(o);
+			if (t > to) {
+				break;
+			}
+			visited++;
+			if (!visitor.sample(t, r.getFloat(o + 8), r.getFloat(o + 12), r.getFloat(o + 16), r.getInt(o + 20))) {
+				break;
+			}
+		}
+		return visited;
+	}
+
+	/**
+	 * Finds the first sample with a time at or after time
+	 *
+	 * @param time {@link Long} milliseconds since the epoch
+	 * @return {@link Long} position of the sample, {@link #size} if there is none
+	 */
+	long lowerBound(long time) {
+		long n = count;
+		long[] idx = index;
+		int blocks = (int) ((n + BLOCK - 1) / BLOCK);
+		int lo = 0;
+		int hi = blocks;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (idx[mid] < time) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		long left = Math.max(0, (long) (lo - 1) * BLOCK);
+		long right = Math.min(n, (long) lo * BLOCK);
+		while (left < right) {
+			long mid = (left + right) >>> 1;
+			if (getTime(mid) < time) {
+				left = mid + 1;
+			} else {
+				right = mid;
+			}
+		}
+		return left;
+	}
+
+	/**
+	 * @return {@link Long} number of samples in the store
+	 */
+	long size() {
+		return count;
+	}
+
+	/**
+	 * @param i {@link Long} position of a sample below {@link #size}
+	 * @return {@link Long} time of the sample in milliseconds since the epoch
+	 */
+	long getTime(long i) {
+		return regions[(int) (i / REGION_RECORDS)].getLong(offset(i));
+	}
+
+	/**
+	 * @param i {@link Long} position of a sample below {@link #size}
+	 * @return {@link Float} temperature of the sample
+	 */
+	float getTemp(long i) {
+		return regions[(int) (i / REGION_RECORDS)].getFloat(offset(i) + 8);
+	}
+
+	/**
+	 * @param i {@link Long} position of a sample below {@link #size}
+	 * @return {@link Float} lower end of the band of the sample
+	 */
+	float getMin(long i) {
+		return regions[(int) (i / REGION_RECORDS)].getFloat(offset(i) + 12);
+	}
+
+	/**
+	 * @param i {@link Long} position of a sample below {@link #size}
+	 * @return {@link Float} upper end of the band of the sample
+	 */
+	float getMax(long i) {
+		return regions[(int) (i / REGION_RECORDS)].getFloat(offset(i) + 16);
+	}
+
+	/**
+	 * @param i {@link Long} position of a sample below {@link #size}
+	 * @return {@link Integer} relay states of the sample
+	 */
+	int getFlags(long i) {
+		return regions[(int) (i / REGION_RECORDS)].getInt(offset(i) + 20);
+	}
+
+	/**
+	 * Copies the samples from position first on to a new history file that
+	 * replaces file, dropping the older samples. Must only be called by the
+	 * thread that appends, with no readers. This store is closed, the returned
+	 * store is open on the new file.
+	 *
+	 * @param file  {@link Path} of the history file of this store
+	 * @param first {@link Long} position of the first sample kept
+	 * @return {@link HistoryStore} on the new file
+	 * @throws IOException if the new file could not be written or moved, this
+	 *                     store is then left open and unchanged
+	 */
+	HistoryStore compact(Path file, long first) throws IOException {
+		Path copy = file.resolveSibling(file.getFileName() + ".tmp");
+		Files.deleteIfExists(copy);
+		HistoryStore target = new HistoryStore(copy);
+		try {
+			for (long i = first; i < count; i++) {
+				target.append(getTime(i), getTemp(i), getMin(i), getMax(i), getFlags(i));
+			}
+		} catch (IOException e) {
+			target.close();
+			Files.deleteIfExists(copy);
+			throw e;
+		}
+		target.close();
+		Files.move(copy, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		close();
+		return new HistoryStore(file);
+	}
+
+	/**
+	 * Writes mapped changes to disk and closes the file
+	 */
+	void close() {
+		try {
+			header.force();
+			for (MappedByteBuffer r : regions) {
+				if (r != null) {
+					r.force();
+				}
+			}
+			channel.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * @param i {@link Long} position of a record
+	 * @return {@link Integer} offset of the record inside its region
+	 */
+	private static int offset(long i) {
+		return (int) (i % REGION_RECORDS) * RECORD;
+	}
+
+	/**
+	 * Returns the region holding record i, mapping it and growing the file if
+	 * needed
+	 *
+	 * @param i {@link Long} position of a record
+	 * @return {@link MappedByteBuffer} region
+	 * @throws IOException if the region can not be mapped
+	 */
+	private MappedByteBuffer recordAt(long i) throws IOException {
+		int r = (int) (i / REGION_RECORDS);
+		if (r >= regions.length) {
+			MappedByteBuffer[] bigger = new MappedByteBuffer[Math.max(r + 1, regions.length * 2)];
+			System.arraycopy(regions, 0, bigger, 0, regions.length);
+			regions = bigger;
+		}
+		if (regions[r] == null) {
+			long size = (long) REGION_RECORDS * RECORD;
+			regions[r] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER + r * size, size);
+		}
+		return regions[r];
+	}
+
+	/**
+	 * Sets entry b of {@link #index}, replacing it with a bigger array when full
+	 *
+	 * @param b    {@link Integer} block number
+	 * @param time {@link Long} time of the first record in the block
+	 */
+	private void putIndex(int b, long time) {
+		long[] idx = index;
+		if (b >= idx.length) {
+			long[] bigger = new long[idx.length * 2];
+			System.arraycopy(idx, 0, bigger, 0, idx.length);
+			idx = bigger;
+		}
+		idx[b] = time;
+		index = idx;
+	}
+}
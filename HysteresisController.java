@@ -0,0 +1,41 @@
+package Brewmaster;
+
+/**
+ * <h2>HysteresisController</h2> The HysteresisController is the on/off control
+ * the program has always used. Below {@link Settings#tempErrorMarginMinus}
+ * under the target the heater is turned on and the cooler off, above
+ * {@link Settings#tempErrorMarginPlus} over the target the cooler is turned on
+ * and the heater off, inside the band nothing changes. While the temperature
+ * is outside the band the relays are sent their state again every
+ * {@link Settings#minutesToWaitPowerSwitch}.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+class HysteresisController implements Controller {
+	/**
+	 * Compares temp with the band around target
+	 *
+	 * @return {@link Integer} {@link #HEAT} below the band, {@link #COOL} above
+	 *         it, else {@link #HOLD}
+	 */
+	@Override
+	public int decide(long now, double temp, double target, Settings settings, int flags) {
+		if (temp <= target - settings.tempErrorMarginMinus) {
+			return HEAT;
+		} else if (temp >= target + settings.tempErrorMarginPlus) {
+			return COOL;
+		}
+		return HOLD;
+	}
+
+	/**
+	 * @return {@link Boolean} true, the relays are sent their state again while
+	 *         the temperature stays outside the band
+	 */
+	@Override
+	public boolean reassert() {
+		return true;
+	}
+}
@@ -0,0 +1,229 @@
+package Brewmaster;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <h2>KasaClient</h2> The KasaClient class switches a tp-link kasa smart plug
+ * (ex. hs100) with its local protocol instead of starting python-kasa. Commands
+ * are json sent over tcp port 9999, prefixed with a 4 byte big endian length
+ * and encrypted with an xor autokey starting at 171. The connection is kept
+ * open between commands and opened again if the plug has closed it.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+public class KasaClient implements RelayTransport {
+	/**
+	 * The {@link Integer} port the plug listens on
+	 */
+	static final int PORT = 9999;
+	/**
+	 * The {@link Integer} first key of the xor autokey cipher
+	 */
+	static final int KEY = 171;
+	/**
+	 * The {@link Integer} largest response accepted from a plug
+	 */
+	static final int MAX_FRAME = 64 * 1024;
+
+	/**
+	 * a {@link String} with the command turning the relay on
+	 */
+	private static final String ON = "{\"system\":{\"set_relay_state\":{\"state\":1}}}";
+	/**
+	 * a {@link String} with the command turning the relay off
+	 */
+	private static final String OFF = "{\"system\":{\"set_relay_state\":{\"state\":0}}}";
+
+	/**
+	 * The {@link InetSocketAddress} of the plug
+	 */
+	private final InetSocketAddress address;
+	/**
+	 * The {@link Integer} connect timeout in milliseconds
+	 */
+	private final int connectTimeout;
+	/**
+	 * The {@link Integer} read timeout in milliseconds
+	 */
+	private final int readTimeout;
+	/**
+	 * The {@link Socket} connected to the plug, null when not connected
+	 */
+	private Socket socket = null;
+	/**
+	 * The {@link DataInputStream} of {@link #socket}
+	 */
+	private DataInputStream in;
+	/**
+	 * The {@link DataOutputStream} of {@link #socket}
+	 */
+	private DataOutputStream out;
+
+	/**
+	 * Sets up a KasaClient, nothing is connected until the first command.
+	 *
+	 * @param host           {@link String} ip address of the plug, "ip:port" uses
+	 *                       another port than {@link #PORT}
+	 * @param connectTimeout {@link Integer} connect timeout in milliseconds
+	 * @param readTimeout    {@link Integer} read timeout in milliseconds
+	 */
+	KasaClient(String host, int connectTimeout, int readTimeout) {
+		int colon = host.lastIndexOf(':');
+		if (colon > 0) {
+			address = InetSocketAddress.createUnresolved(host.substring(0, colon),
+					Integer.parseInt(host.substring(colon + 1)));
+		} else {
+			address = InetSocketAddress.createUnresolved(host, PORT);
+		}
+		this.connectTimeout = connectTimeout;
+		this.readTimeout = readTimeout;
+	}
+
+	/**
+	 * Sends set_relay_state and checks that the plug answered with err_code 0
+	 *
+	 * @param on {@link Boolean} true to turn the relay on
+	 * @throws IOException if the plug could not be reached or answered with an
+	 *                     error
+	 */
+	@Override
+	public synchronized void setState(boolean on) throws IOException {
+		String response = send(on ? ON : OFF);
+		if (!response.replace(" ", "").contains("\"err_code\":0")) {
+			throw new IOException("Plug " + address + " refused command: " + response);
+		}
+	}
+
+	/**
+	 * Sends a json command and returns the json response. If the kept connection
+	 * fails the command is sent once more on a new connection, the plug closes
+	 * idle connections on its own.
+	 *
+	 * @param json {@link String} command
+	 * @return {@link String} response
+	 * @throws IOException if the plug could not be reached
+	 */
+	synchronized String send(String json) throws IOException {
+		byte[] request = encrypt(json);
+		boolean reused = socket != null;
+		try {
+			return exchange(request);
+		} catch (IOException e) {
+			close();
+			if (!reused) {
+				throw e;
+			}
+		}
+		try {
+			return exchange(request);
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Connects if needed, writes request and reads one response frame
+	 *
+	 * @param request {@link Byte} array with an encrypted frame
+	 * @return {@link String} decrypted response
+	 * @throws IOException if the exchange fails or times out
+	 */
+	private String exchange(byte[] request) throws IOException {
+		if (socket == null) {
+			Socket s = new Socket();
+			try {
+				s.connect(new InetSocketAddress(address.getHostString(), address.getPort()), connectTimeout);
+				s.setSoTimeout(readTimeout);
+				s.setTcpNoDelay(true);
+			} catch (IOException e) {
+				s.close();
+				throw e;
+			}
+			socket = s;
+			in = new DataInputStream(s.getInputStream());
+			out = new DataOutputStream(s.getOutputStream());
+		}
+		out.write(request);
+		out.flush();
+		return decrypt(readFrame(in));
+	}
+
+	/**
+	 * Closes the connection to the plug
+	 */
+	@Override
+	public synchronized void close() {
+		if (socket != null) {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			socket = null;
+		}
+	}
+
+	/**
+	 * Encrypts json as a length prefixed frame with the xor autokey cipher
+	 *
+	 * @param json {@link String} to encrypt
+	 * @return {@link Byte} array with the 4 byte length and the encrypted bytes
+	 */
+	static byte[] encrypt(String json) {
+		byte[] plain = json.getBytes(StandardCharsets.UTF_8);
+		byte[] frame = new byte[plain.length + 4];
+		int n = plain.length;
+		frame[0] = (byte) (n >>> 24);
+		frame[1] = (byte) (n >>> 16);
+		frame[2] = (byte) (n >>> 8);
+		frame[3] = (byte) n;
+		int key = KEY;
+		for (int i = 0; i < n; i++) {
+			key ^= plain[i] & 0xff;
+			frame[i + 4] = (byte) key;
+		}
+		return frame;
+	}
+
+	/**
+	 * Decrypts the payload of a frame, without the length prefix
+	 *
+	 * @param payload {@link Byte} array of encrypted bytes
+	 * @return {@link String} decrypted json
+	 */
+	static String decrypt(byte[] payload) {
+		byte[] plain = new byte[payload.length];
+		int key = KEY;
+		for (int i = 0; i < payload.length; i++) {
+			int c = payload[i] & 0xff;
+			plain[i] = (byte) (key ^ c);
+			key = c;
+		}
+		return new String(plain, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Reads the length prefix and payload of one frame
+	 *
+	 * @param in {@link DataInputStream} to read from
+	 * @return {@link Byte} array with the encrypted payload
+	 * @throws IOException if the stream ends or the length is not plausible
+	 */
+	static byte[] readFrame(DataInputStream in) throws IOException {
+		int n = in.readInt();
+		if (n < 0 || n > MAX_FRAME) {
+			throw new IOException("Bad frame length " + n);
+		}
+		byte[] payload = new byte[n];
+		in.readFully(payload);
+		return payload;
+	}
+}
@@ -0,0 +1,62 @@
+package Brewmaster;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+/**
+ * <h2>KasaExec</h2> The KasaExec class switches a wireless relay by running
+ * python-kasa, requires kasa in system path. Used when RelayMode=exec.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+public class KasaExec implements RelayTransport {
+	/**
+	 * The {@link String} represents the IP address of a wireless relay.
+	 */
+	private final String ip;
+
+	/**
+	 * Sets up a KasaExec
+	 *
+	 * @param ip {@link String} ip-address of wireless relay
+	 */
+	KasaExec(String ip) {
+		this.ip = ip;
+	}
+
+	/**
+	 * Runs "kasa --host ip on" or "kasa --host ip off" and prints its output
+	 *
+	 * @param on {@link Boolean} true to turn the relay on
+	 * @throws IOException if kasa could not be started or exits with an error
+	 */
+	@Override
+	public void setState(boolean on) throws IOException {
+		Process process = Runtime.getRuntime().exec("kasa --host " + ip + (on ? " on" : " off"));
+		try {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+			String line;
+			while ((line = reader.readLine()) != null) {
+				System.out.println(line);
+			}
+			if (process.waitFor() != 0) {
+				throw new IOException("kasa exited with " + process.exitValue());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} finally {
+			process.destroy();
+		}
+	}
+
+	/**
+	 * Nothing to release, every command is its own process
+	 */
+	@Override
+	public void close() {
+	}
+}
@@ -0,0 +1,144 @@
+package Brewmaster;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <h2>LatencyHistogram</h2> The LatencyHistogram class counts durations in
+ * nanoseconds in buckets that double every four buckets, so any percentile is
+ * known to within a quarter of its value from one array of counts. Recording
+ * takes no lock and creates no objects, it is cheap enough to run on every
+ * tick. Readers see counts that may be a record behind the writer.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ * @see VesselMetrics
+ */
+public class LatencyHistogram {
+	/**
+	 * The {@link Integer} buckets, enough for any positive {@link Long}
+	 */
+	private static final int BUCKETS = 248;
+
+	/**
+	 * The counts of every bucket
+	 */
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	/**
+	 * The {@link AtomicLong} number of durations recorded
+	 */
+	private final AtomicLong count = new AtomicLong();
+	/**
+	 * The {@link AtomicLong} sum of the durations recorded in nanoseconds
+	 */
+	private final AtomicLong total = new AtomicLong();
+	/**
+	 * The {@link AtomicLong} longest duration recorded in nanoseconds
+	 */
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Records a duration
+	 *
+	 * @param nanos {@link Long} duration in nanoseconds, counted as 0 if negative
+	 */
+	void record(long nanos) {
+		if (nanos < 0) {
+			nanos = 0;
+		}
+		buckets.incrementAndGet(bucket(nanos));
+		count.incrementAndGet();
+		total.addAndGet(nanos);
+		long m;
+		while (nanos > (m = max.get()) && !max.compareAndSet(m, nanos)) {
+		}
+	}
+
+	/**
+	 * Finds the bucket of a duration, the values 0 to 3 have a bucket each,
+	 * after that every power of two is split in four
+	 *
+	 * @param nanos {@link Long} duration, not negative
+	 * @return {@link Integer} index of its bucket
+	 */
+	private static int bucket(long nanos) {
+		if (nanos < 4) {
+			return (int) nanos;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+		int sub = (int) (nanos >>> (exponent - 2)) & 3;
+		return 4 * (exponent - 1) + sub;
+	}
+
+	/**
+	 * @param index {@link Integer} of a bucket
+	 * @return {@link Long} largest duration counted in the bucket
+	 */
+	private static long upperBound(int index) {
+		if (index < 4) {
+			return index;
+		}
+		int exponent = index / 4 + 1;
+		long lower = (4L + index % 4) << (exponent - 2);
+		return lower + (1L << (exponent - 2)) - 1;
+	}
+
+	/**
+	 * Estimates a percentile, never above the longest duration recorded
+	 *
+	 * @param percent {@link Double} from 0 to 100
+	 * @return {@link Long} nanoseconds at most this share of the durations was
+	 *         longer than, 0 if nothing is recorded
+	 */
+	long percentile(double percent) {
+		long n = count.get();
+		if (n == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(n * percent / 100));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += buckets.get(i);
+			if (seen >= rank) {
+				return Math.min(upperBound(i), max.get());
+			}
+		}
+		return max.get();
+	}
+
+	/**
+	 * @return {@link Long} number of durations recorded
+	 */
+	long getCount() {
+		return count.get();
+	}
+
+	/**
+	 * @return {@link Long} mean duration in nanoseconds, 0 if nothing is recorded
+	 */
+	long getMean() {
+		long n = count.get();
+		return n == 0 ? 0 : total.get() / n;
+	}
+
+	/**
+	 * @return {@link Long} longest duration recorded in nanoseconds
+	 */
+	long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * Forgets every duration recorded. A duration recorded while resetting may be
+	 * counted in part.
+	 */
+	void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			buckets.set(i, 0);
+		}
+		count.set(0);
+		total.set(0);
+		max.set(0);
+	}
+}
@@ -0,0 +1,73 @@
+package Brewmaster;
+
+import java.time.ZoneId;
+
+/**
+ * <h2>LogEvent</h2> A LogEvent is one thing to log, a sample of the
+ * temperature and relays or a message, with its time and level. A
+ * {@link LogPipeline} reuses one event for everything it logs, formats it once
+ * with {@link #format} and hands the event and the line to its
+ * {@link LogSink}s, a sink that needs the values reads them from the event.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+final class LogEvent {
+	/**
+	 * level of a sample logged every {@link Settings#secondsBetweenLogs}
+	 */
+	static final int SAMPLE = 0;
+	/**
+	 * level of a message about the schedule or the settings
+	 */
+	static final int INFO = 1;
+	/**
+	 * level of a message about something that went wrong
+	 */
+	static final int WARN = 2;
+	/**
+	 * level of a sink that logs nothing
+	 */
+	static final int OFF = 3;
+	/**
+	 * The names of the levels as written in the settings file
+	 */
+	static final String[] LEVELS = { "sample", "info", "warn", "off" };
+
+	/**
+	 * The {@link Long} time in milliseconds since the epoch
+	 */
+	long time;
+	/**
+	 * The {@link Integer} level, {@link #SAMPLE}, {@link #INFO} or {@link #WARN}
+	 */
+	int level;
+	/**
+	 * The {@link Double} temperature of a sample
+	 */
+	double temp;
+	/**
+	 * The {@link Integer} relay states of a sample as in {@link SampleHistory}
+	 */
+	int flags;
+	/**
+	 * The {@link String} text of a message, null for a sample
+	 */
+	String message;
+
+	/**
+	 * Appends the event as it is written to the log file, a sample as
+	 * {@link TempDateTime#appendLog} formats it and a message as it is
+	 *
+	 * @param sb   {@link StringBuilder} to append to
+	 * @param zone {@link ZoneId} the time of a sample is written in
+	 * @return sb
+	 */
+	StringBuilder format(StringBuilder sb, ZoneId zone) {
+		if (level == SAMPLE) {
+			return TempDateTime.appendLog(sb, time, zone, temp, flags);
+		}
+		return sb.append(message);
+	}
+}
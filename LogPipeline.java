@@ -0,0 +1,197 @@
+package Brewmaster;
+
+import java.time.ZoneId;
+import java.util.Arrays;
+
+/**
+ * <h2>LogPipeline</h2> The LogPipeline formats every sample and message of a
+ * vessel once, into a {@link StringBuilder} it reuses, and sends it to its
+ * {@link LogSink}s. Every sink is added with a level and a rate, as
+ * "level" or "level:seconds" in the settings file. A sink is sent the events
+ * at its level and above, "sample", "info", "warn" or "off", and at most one
+ * event of each level every seconds, so a probe failing every second does not
+ * fill the console while the day lines still get through.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ * @see LogEvent
+ */
+class LogPipeline {
+	/**
+	 * <h2>Route</h2> A sink with its level and rate
+	 */
+	private static final class Route {
+		/**
+		 * The {@link LogSink} sent the events
+		 */
+		final LogSink sink;
+		/**
+		 * The {@link Integer} lowest level sent
+		 */
+		int level;
+		/**
+		 * The {@link Long} fewest milliseconds between two events of a level
+		 */
+		long rate;
+		/**
+		 * The time of the last event of each level sent, {@link Long#MIN_VALUE}
+		 * before the first
+		 */
+		final long[] last = new long[LogEvent.OFF];
+
+		/**
+		 * @param sink {@link LogSink} sent the events
+		 */
+		Route(LogSink sink) {
+			this.sink = sink;
+		}
+	}
+
+	/**
+	 * The {@link Route}s of the sinks in the order they were added
+	 */
+	private Route[] routes = new Route[0];
+	/**
+	 * The {@link LogEvent} reused for every event
+	 */
+	private final LogEvent event = new LogEvent();
+	/**
+	 * The {@link StringBuilder} every event is formatted into
+	 */
+	private final StringBuilder line = new StringBuilder(128);
+	/**
+	 * The {@link ZoneId} the time of a sample is written in
+	 */
+	private final ZoneId zone;
+
+	/**
+	 * @param zone {@link ZoneId} the time of a sample is written in
+	 */
+	LogPipeline(ZoneId zone) {
+		this.zone = zone;
+	}
+
+	/**
+	 * Adds a sink, or sets the level and rate of one already added
+	 *
+	 * @param sink {@link LogSink} to send events to
+	 * @param spec {@link String} "level" or "level:seconds"
+	 * @throws IllegalArgumentException if spec is bad
+	 */
+	synchronized void route(LogSink sink, String spec) {
+		Route route = null;
+		for (Route r : routes) {
+			if (r.sink == sink) {
+				route = r;
+			}
+		}
+		if (route == null) {
+			route = new Route(sink);
+			routes = Arrays.copyOf(routes, routes.length + 1);
+			routes[routes.length - 1] = route;
+		}
+		route.level = level(spec);
+		route.rate = rate(spec);
+		Arrays.fill(route.last, Long.MIN_VALUE);
+	}
+
+	/**
+	 * Logs a sample
+	 *
+	 * @param time  {@link Long} milliseconds since the epoch
+	 * @param temp  {@link Double} temperature
+	 * @param flags {@link Integer} relay states as in {@link SampleHistory}
+	 */
+	synchronized void sample(long time, double temp, int flags) {
+		event.level = LogEvent.SAMPLE;
+		event.time = time;
+		event.temp = temp;
+		event.flags = flags;
+		event.message = null;
+		publish();
+	}
+
+	/**
+	 * Logs a message
+	 *
+	 * @param level   {@link Integer} {@link LogEvent#INFO} or
+	 *                {@link LogEvent#WARN}
+	 * @param time    {@link Long} milliseconds since the epoch
+	 * @param message {@link String} text
+	 */
+	synchronized void message(int level, long time, String message) {
+		event.level = level;
+		event.time = time;
+		event.message = message;
+		publish();
+	}
+
+	/**
+	 * Sends {@link #event} to every sink that wants it, formatting it the first
+	 * time one does
+	 */
+	private void publish() {
+		String text = null;
+		for (Route route : routes) {
+			if (event.level < route.level) {
+				continue;
+			}
+			long last = route.last[event.level];
+			if (last != Long.MIN_VALUE && event.time - last < route.rate) {
+				continue;
+			}
+			route.last[event.level] = event.time;
+			if (text == null) {
+				line.setLength(0);
+				text = event.format(line, zone).toString();
+			}
+			route.sink.write(event, text);
+		}
+	}
+
+	/**
+	 * Parses the level of a sink
+	 *
+	 * @param spec {@link String} "level" or "level:seconds"
+	 * @return {@link Integer} level
+	 * @throws IllegalArgumentException if the level is not sample, info, warn or
+	 *                                  off
+	 */
+	static int level(String spec) {
+		int colon = spec.indexOf(':');
+		String name = (colon < 0 ? spec : spec.substring(0, colon)).trim();
+		for (int i = 0; i < LogEvent.LEVELS.length; i++) {
+			if (LogEvent.LEVELS[i].equals(name)) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException("Log level must be sample, info, warn or off, not " + spec);
+	}
+
+	/**
+	 * Parses the rate of a sink
+	 *
+	 * @param spec {@link String} "level" or "level:seconds"
+	 * @return {@link Long} fewest milliseconds between two events of a level, 0
+	 *         if no seconds are given
+	 * @throws IllegalArgumentException if the seconds are not a number or are
+	 *                                  negative
+	 */
+	static long rate(String spec) {
+		int colon = spec.indexOf(':');
+		if (colon < 0) {
+			return 0;
+		}
+		double seconds;
+		try {
+			seconds = Double.parseDouble(spec.substring(colon + 1).trim());
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Log rate of " + spec + " is not a number", e);
+		}
+		if (!(seconds >= 0)) {
+			throw new IllegalArgumentException("Log rate of " + spec + " can not be negative");
+		}
+		return (long) (seconds * 1000);
+	}
+}
@@ -0,0 +1,24 @@
+package Brewmaster;
+
+/**
+ * <h2>LogSink</h2> A LogSink is somewhere a {@link LogPipeline} sends its
+ * {@link LogEvent}s. The pipeline decides which events a sink is sent from the
+ * level and rate it was added with, a sink writes what it is sent.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ * @see ConsoleSink
+ * @see LogWriter
+ * @see LogTail
+ */
+interface LogSink {
+	/**
+	 * Writes an event, called by one thread at a time. The event may not be
+	 * kept, it is reused for the next one, the line may be kept.
+	 *
+	 * @param event {@link LogEvent} with the values
+	 * @param line  {@link String} event formatted by {@link LogEvent#format}
+	 */
+	void write(LogEvent event, String line);
+}
@@ -0,0 +1,63 @@
+package Brewmaster;
+
+/**
+ * <h2>LogTail</h2> The LogTail keeps the last {@link #CAPACITY} lines logged
+ * for the telemetry clients, each numbered so a subscribed client is sent the
+ * lines it has not seen. A client that falls more than {@link #CAPACITY} lines
+ * behind misses the oldest.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ * @see ServerThread
+ */
+class LogTail implements LogSink {
+	/**
+	 * The {@link Integer} number of lines kept
+	 */
+	private static final int CAPACITY = 32;
+
+	/**
+	 * The lines kept, oldest overwritten first
+	 */
+	private final String[] lines = new String[CAPACITY];
+	/**
+	 * The time of each line in milliseconds since the epoch
+	 */
+	private final long[] times = new long[CAPACITY];
+	/**
+	 * The {@link Long} number of lines ever written
+	 */
+	private volatile long written = 0;
+
+	@Override
+	public synchronized void write(LogEvent event, String line) {
+		int i = (int) (written % CAPACITY);
+		lines[i] = line;
+		times[i] = event.time;
+		written++;
+	}
+
+	/**
+	 * @return {@link Long} number of lines ever written, the number of the next
+	 *         line
+	 */
+	long getWritten() {
+		return written;
+	}
+
+	/**
+	 * Appends a line "L,time,line" for every line kept from number seen on
+	 *
+	 * @param sb   {@link StringBuilder} to append to
+	 * @param seen {@link Long} number of lines already sent
+	 * @return {@link Long} number of lines sent after this
+	 */
+	synchronized long append(StringBuilder sb, long seen) {
+		for (long n = Math.max(seen, written - CAPACITY); n < written; n++) {
+			int i = (int) (n % CAPACITY);
+			sb.append("L,").append(times[i]).append(',').append(lines[i]).append('\n');
+		}
+		return written;
+	}
+}
@@ -0,0 +1,339 @@
+package Brewmaster;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h2>LogWriter</h2> The LogWriter class writes the log file on its own thread.
+ * {@link #write} puts the line on a bounded queue and returns, the thread keeps
+ * the file open and flushes when {@link #FLUSH_BYTES} are buffered,
+ * {@link #FLUSH_MILLIS} have passed or the program shuts down. The file is
+ * rotated when it grows past {@link Settings#logMaxSize} if
+ * {@link Settings#logRotate} is "size", or at every day of the schedule if it
+ * is "day". As a {@link LogSink} it writes every line it is sent.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+public class LogWriter implements Runnable, LogSink {
+	/**
+	 * The {@link Integer} number of lines that can wait to be written, lines
+	 * written while the queue is full are dropped
+	 */
+	private static final int QUEUE_SIZE = 1024;
+	/**
+	 * The {@link Integer} number of buffered characters that causes a flush
+	 */
+	private static final int FLUSH_BYTES = 8192;
+	/**
+	 * The {@link Long} milliseconds a written line may stay buffered
+	 */
+	private static final long FLUSH_MILLIS = 5000;
+	/**
+	 * The {@link Integer} number of old files kept when rotating by size
+	 */
+	private static final int KEEP_FILES = 5;
+	/**
+	 * put on the queue to stop the thread
+	 */
+	private static final Object STOP = new Object();
+
+	/**
+	 * The {@link Path} of the log file
+	 */
+	private final Path file;
+	/**
+	 * The {@link String} rotation mode, "none", "size" or "day"
+	 */
+	private final String rotate;
+	/**
+	 * The {@link Long} size in bytes to rotate at when {@link #rotate} is "size"
+	 */
+	private final long maxSize;
+	/**
+	 * The {@link ArrayBlockingQueue} of lines, and {@link Integer} day numbers
+	 * marking where a day ends
+	 */
+	private final ArrayBlockingQueue<Object> queue = new ArrayBlockingQueue<Object>(QUEUE_SIZE);
+	/**
+	 * The {@link Thread} writing the file
+	 */
+	private final Thread thread;
+	/**
+	 * The {@link Writer} open on {@link #file}, null if it could not be opened
+	 */
+	private Writer out;
+	/**
+	 * The {@link Long} bytes in {@link #file}
+	 */
+	private long size;
+	/**
+	 * The {@link Integer} bytes written since the last flush
+	 */
+	private int unflushed = 0;
+	/**
+	 * The {@link System#nanoTime} of the first line written since the last flush
+	 */
+	private long firstUnflushed;
+	/**
+	 * The {@link Long} number of lines dropped because the queue was full
+	 */
+	private volatile long dropped = 0;
+
+	/**
+	 * Sets up a LogWriter for {@link Settings#logFileName} and starts its thread,
+	 * the file is flushed and closed when the program shuts down.
+	 *
+	 * @param settings {@link Settings}
+	 */
+	LogWriter(Settings settings) {
+		file = Paths.get(settings.logFileName);
+		rotate = settings.logRotate;
+		maxSize = (long) (settings.logMaxSize * 1024 * 1024);
+		open();
+		thread = new Thread(this, "log-writer");
+		thread.setDaemon(true);
+		thread.start();
+		Runtime.getRuntime().addShutdownHook(new Thread(this::close, "log-writer-shutdown"));
+	}
+
+	/**
+	 * Queues a line to be written, never blocks. If the queue is full the line is
+	 * dropped and counted.
+	 *
+	 * @param line {@link String} to write, without newline
+	 */
+	void write(String line) {
+		if (!queue.offer(line)) {
+			dropped++;
+		}
+	}
+
+	/**
+	 * Queues the line with {@link #write(String)}
+	 */
+	@Override
+	public void write(LogEvent event, String line) {
+		write(line);
+	}
+
+	/**
+	 * Marks the end of a day of the schedule, if {@link #rotate} is "day" the file
+	 * is rotated after the lines already queued. Never blocks, if the queue is
+	 * full the day stays in the current file.
+	 *
+	 * @param day {@link Integer} day that ended, day 1 = 1
+	 */
+	void endDay(int day) {
+		if ("day".equals(rotate) && !queue.offer(Integer.valueOf(day))) {
+			dropped++;
+		}
+	}
+
+	/**
+	 * Writes queued lines until {@link #close} is called, flushing every
+	 * {@link #FLUSH_BYTES} or {@link #FLUSH_MILLIS}
+	 */
+	@Override
+	public void run() {
+		try {
+			while (true) {
+				long wait = unflushed == 0 ? FLUSH_MILLIS
+						: FLUSH_MILLIS - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - firstUnflushed);
+				Object entry = queue.poll(Math.max(0, wait), TimeUnit.MILLISECONDS);
+				if (entry == STOP) {
+					break;
+				} else if (entry instanceof String) {
+					append((String) entry);
+				} else if (entry instanceof Integer) {
+					flush();
+					rotate(file.getFileName() + ".day" + entry);
+				}
+				if (unflushed >= FLUSH_BYTES || (unflushed > 0
+						&& System.nanoTime() - firstUnflushed >= TimeUnit.MILLISECONDS.toNanos(FLUSH_MILLIS))) {
+					flush();
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		flush();
+		closeFile();
+	}
+
+	/**
+	 * Writes one line, rotating first if {@link #rotate} is "size" and the file
+	 * has grown past {@link #maxSize}
+	 *
+	 * @param line {@link String} to write
+	 */
+	private void append(String line) {
+		if ("size".equals(rotate) && size >= maxSize) {
+			flush();
+			rotateBySize();
+		}
+		if (out == null) {
+			open();
+			if (out == null) {
+				return;
+			}
+		}
+		try {
+			out.write(line);
+			out.write('\n');
+			if (unflushed == 0) {
+				firstUnflushed = System.nanoTime();
+			}
+			int bytes = utf8Length(line) + 1;
+			unflushed += bytes;
+			size += bytes;
+		} catch (IOException e) {
+			e.printStackTrace();
+			closeFile();
+		}
+	}
+
+	/**
+	 * Counts the bytes of line in UTF-8 without encoding it, so {@link #size}
+	 * stays in the bytes {@link Files#size} gives when the file is opened
+	 *
+	 * @param line {@link String} to count
+	 * @return {@link Integer} bytes of line in UTF-8
+	 */
+	static int utf8Length(String line) {
+		int bytes = 0;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (c < 0x80) {
+				bytes++;
+			} else if (c < 0x800) {
+				bytes += 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < line.length()
+					&& Character.isLowSurrogate(line.charAt(i + 1))) {
+				bytes += 4;
+				i++;
+			} else {
+				// a lone surrogate is written as '?'
+				bytes += Character.isSurrogate(c) ? 1 : 3;
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * Flushes {@link #out}
+	 */
+	private void flush() {
+		if (out != null && unflushed > 0) {
+			try {
+				out.flush();
+			} catch (IOException e) {
+				e.printStackTrace();
+				closeFile();
+			}
+		}
+		unflushed = 0;
+	}
+
+	/**
+	 * Renames log.(n) to log.(n+1) up to {@link #KEEP_FILES} and the log file to
+	 * log.1, then opens a new log file
+	 */
+	private void rotateBySize() {
+		closeFile();
+		try {
+			for (int i = KEEP_FILES - 1; i >= 1; i--) {
+				Path from = file.resolveSibling(file.getFileName() + "." + i);
+				if (Files.exists(from)) {
+					Files.move(from, file.resolveSibling(file.getFileName() + "." + (i + 1)),
+							java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+				}
+			}
+			Files.move(file, file.resolveSibling(file.getFileName() + ".1"),
+					java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		open();
+	}
+
+	/**
+	 * Renames the log file to name, adding -2, -3.. if it already exists, then
+	 * opens a new log file
+	 *
+	 * @param name {@link String} new file name
+	 */
+	private void rotate(String name) {
+		closeFile();
+		try {
+			Path target = file.resolveSibling(name);
+			for (int i = 2; Files.exists(target); i++) {
+				target = file.resolveSibling(name + "-" + i);
+			}
+			Files.move(file, target);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		open();
+	}
+
+	/**
+	 * Opens {@link #file} for appending, creating it if needed
+	 */
+	private void open() {
+		try {
+			out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file, StandardOpenOption.CREATE,
+					StandardOpenOption.APPEND, StandardOpenOption.WRITE), StandardCharsets.UTF_8), FLUSH_BYTES * 2);
+			size = Files.size(file);
+		} catch (IOException e) {
+			System.out.println("Failed to open log file " + file);
+			e.printStackTrace();
+			out = null;
+		}
+	}
+
+	/**
+	 * Closes {@link #out}
+	 */
+	private void closeFile() {
+		if (out != null) {
+			try {
+				out.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			out = null;
+		}
+	}
+
+	/**
+	 * Stops the thread after it has written every queued line and closed the
+	 * file, waits up to {@link #FLUSH_MILLIS} for it.
+	 */
+	void close() {
+		try {
+			if (queue.offer(STOP, FLUSH_MILLIS, TimeUnit.MILLISECONDS)) {
+				thread.join(FLUSH_MILLIS);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @return {@link #dropped}
+	 */
+	long getDropped() {
+		return dropped;
+	}
+}
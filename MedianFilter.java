@@ -0,0 +1,60 @@
+package Brewmaster;
+
+/**
+ * <h2>MedianFilter</h2> The MedianFilter passes on the median of the last
+ * {@link #size} samples, a single spike is never passed on however large it
+ * is while a real step in the temperature comes through after half the window.
+ * Until the window is full the median of the samples so far is used.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+class MedianFilter implements FilterStage {
+	/**
+	 * The last samples, oldest overwritten first
+	 */
+	private final double[] window;
+	/**
+	 * The samples of {@link #window} sorted, reused for every sample
+	 */
+	private final double[] sorted;
+	/**
+	 * The {@link Long} number of samples ever added
+	 */
+	private long added = 0;
+
+	/**
+	 * @param size {@link Integer} samples the median is taken over, odd and from 3
+	 *             to 15
+	 * @throws IllegalArgumentException if size is even or out of range
+	 */
+	MedianFilter(int size) {
+		if (size < 3 || size > 15 || size % 2 == 0) {
+			throw new IllegalArgumentException("Filter median:n needs an odd n from 3 to 15");
+		}
+		window = new double[size];
+		sorted = new double[size];
+	}
+
+	/**
+	 * @return {@link Double} median of the last samples
+	 */
+	@Override
+	public double filter(long time, double value) {
+		window[(int) (added % window.length)] = value;
+		added++;
+		int n = (int) Math.min(added, window.length);
+		// insertion sort, the window is never more than 15 samples
+		for (int i = 0; i < n; i++) {
+			double v = window[i];
+			int j = i;
+			while (j > 0 && sorted[j - 1] > v) {
+				sorted[j] = sorted[j - 1];
+				j--;
+			}
+			sorted[j] = v;
+		}
+		return n % 2 == 1 ? sorted[n / 2] : (sorted[n / 2 - 1] + sorted[n / 2]) / 2;
+	}
+}
@@ -0,0 +1,115 @@
+package Brewmaster;
+
+/**
+ * <h2>PidController</h2> The PidController is a time proportioning PID
+ * controller. Every tick it computes an output from -1 (full heat) to 1 (full
+ * cooling) from the error, its integral and the rate the temperature changes.
+ * Inside the DiffPlus/DiffMinus band the relays are left off, the band is the
+ * deadband of the controller. When the temperature leaves it a window is
+ * started and the cooler or heater runs for the fraction of
+ * {@link Settings#pidWindow} the output asks for, but at least
+ * {@link Settings#minutesToWaitPowerSwitch}, so every relay cycle is one dose
+ * sized by the PID terms and the compressor is never cycled faster than it is
+ * allowed to. The integral keeps adding up inside the band, so it learns the
+ * load and a dose centres the temperature on the target instead of the edge.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+class PidController implements Controller {
+	/**
+	 * The {@link Double} weight of a new rate in {@link #rate}
+	 */
+	private static final double RATE_SMOOTHING = 0.1;
+
+	/**
+	 * The {@link Double} integral of the error in degree hours
+	 */
+	private double integral = 0;
+	/**
+	 * The {@link Double} smoothed rate the temperature changes in degrees per
+	 * hour
+	 */
+	private double rate = 0;
+	/**
+	 * The {@link Double} temperature of the last tick
+	 */
+	private double lastTemp;
+	/**
+	 * The {@link Long} time of the last tick, {@link Long#MIN_VALUE} before the
+	 * first
+	 */
+	private long lastTime = Long.MIN_VALUE;
+	/**
+	 * The {@link Long} time the current window started
+	 */
+	private long windowStart = Long.MIN_VALUE;
+	/**
+	 * The {@link Double} output of the last tick, from -1 to 1
+	 */
+	private double output = 0;
+	/**
+	 * The {@link Long} milliseconds of the current window the relay is on
+	 */
+	private long on = 0;
+	/**
+	 * The {@link Boolean} true if the current window cools, false if it heats
+	 */
+	private boolean cooling;
+
+	/**
+	 * Updates the PID terms, starts a window when the temperature is out of the
+	 * band and no window is running, and decides where in the window the relays
+	 * are
+	 *
+	 * @return {@link Integer} {@link #COOL} or {@link #HEAT} in the on part of the
+	 *         window, else {@link #OFF}
+	 */
+	@Override
+	public int decide(long now, double temp, double target, Settings settings, int flags) {
+		double error = temp - target;
+		if (lastTime != Long.MIN_VALUE && now > lastTime) {
+			double hours = (now - lastTime) / 3600000.0;
+			rate += RATE_SMOOTHING * ((temp - lastTemp) / hours - rate);
+			integral += error * hours;
+			if (settings.pidKi > 0) {
+				// keep the integral term alone from asking for more than full output
+				integral = Math.max(-1 / settings.pidKi, Math.min(1 / settings.pidKi, integral));
+			}
+		}
+		lastTime = now;
+		lastTemp = temp;
+		output = settings.pidKp * error + settings.pidKi * integral + settings.pidKd * rate;
+		output = Math.max(-1, Math.min(1, output));
+
+		boolean hasHeater = (flags & SampleHistory.HAS_HEATER) != 0;
+		if (windowStart == Long.MIN_VALUE || now - windowStart >= on) {
+			boolean hot = temp >= target + settings.tempErrorMarginPlus;
+			if (!hot && !(hasHeater && temp <= target - settings.tempErrorMarginMinus)) {
+				return OFF;
+			}
+			long window = (long) (settings.pidWindow * 60000);
+			long minimum = (long) (settings.minutesToWaitPowerSwitch * 60000);
+			// only the part of the output that pushes back toward the band counts
+			double fraction = Math.max(0, hot ? output : -output);
+			windowStart = now;
+			on = Math.max(minimum, Math.min(window, (long) (fraction * window)));
+			cooling = hot;
+		}
+		if (now - windowStart >= on) {
+			return OFF;
+		}
+		if (cooling) {
+			return COOL;
+		}
+		return hasHeater ? HEAT : OFF;
+	}
+
+	/**
+	 * @return {@link #output}, from -1 (full heat) to 1 (full cooling)
+	 */
+	double getOutput() {
+		return output;
+	}
+}
@@ -1,8 +1,9 @@
 package Brewmaster;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
+import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 /**
 *<h2>PowerSocket</h2>
 *The PowerSocket class is used to control a wireless relay
@@ -19,79 +20,148 @@ public class PowerSocket {
 	* The {@link Settings} stores the program settings.
 	* @see Settings
 	*/
-	Settings settings;
+	volatile Settings settings;
 	/**
 	* The {@link Boolean} represents the state of the wireless relay, true if its power is on, else false.
 	* 
 	*/
-	boolean on;
+	volatile boolean on;
+	/**
+	* The {@link Long} counts the times the wireless relay has been turned on while it was off.
+	*/
+	volatile long cycles = 0;
+	/**
+	* The {@link Long} times in milliseconds since the epoch of the latest {@link #RECENT} cycles, used by {@link #cyclesLastHour}.
+	*/
+	private final long[] recent = new long[RECENT];
+	/**
+	* The {@link Integer} number of cycle times kept in {@link #recent}.
+	*/
+	static final int RECENT = 256;
+	
+	/**
+	* The {@link RelayTransport} used to switch the wireless relay, chosen by {@link Settings#relayMode}.
+	* @see KasaClient
+	* @see KasaExec
+	*/
+	RelayTransport transport;
+	/**
+	* The {@link RelayCommandQueue} sending commands to {@link #transport} on its own thread so switching never blocks the caller.
+	*/
+	RelayCommandQueue queue;
+	/**
+	* The {@link Clock} the waits between switching are measured with.
+	*/
+	Clock clock;
 	
 	/**
 	* Sets up a {@link PowerSocket} by passing and setting the value of {@link String} IP, {@link Boolean} on and {@link Settings} settings.
+	* The relay is switched with the {@link RelayTransport} chosen by {@link Settings#relayMode} on its own thread.
 	* @see Settings
 	* @param ip {@link String} ip-address of wireless relay
 	* @param settings {@link Settings}
 	* @param state {@link Boolean} state of wireless relay
 	*/
 	PowerSocket(String ip,Settings settings, Boolean state){
+		this(ip, settings, state, transport(ip, settings), Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r, "relay-" + ip);
+			t.setDaemon(true);
+			return t;
+		}), Clock.systemDefaultZone());
+	}
+	
+	/**
+	* Sets up a {@link PowerSocket} switched with transport.
+	* @param ip {@link String} ip-address of wireless relay
+	* @param settings {@link Settings}
+	* @param state {@link Boolean} state of wireless relay
+	* @param transport {@link RelayTransport} switching the relay
+	* @param executor {@link Executor} the commands are sent on, a {@link Simulation} sends them on the calling thread
+	* @param clock {@link Clock} the waits between switching are measured with
+	*/
+	PowerSocket(String ip,Settings settings, Boolean state, RelayTransport transport, Executor executor, Clock clock){
 		this.ip = ip;
 		this.settings = settings;
 		this.on = state;
+		this.transport = transport;
+		this.clock = clock;
+		queue = new RelayCommandQueue(ip, transport, executor);
+	}
+	
+	/**
+	*Creates the {@link RelayTransport} chosen by {@link Settings#relayMode}.
+	*@param ip {@link String} ip-address of wireless relay
+	*@param settings {@link Settings}
+	*@return {@link KasaExec} if RelayMode is exec, else {@link KasaClient}
+	*/
+	private static RelayTransport transport(String ip, Settings settings) {
+		if("exec".equals(settings.relayMode)) {
+			return new KasaExec(ip);
+		}
+		return new KasaClient(ip, (int)(settings.relayConnectTimeout*1000), (int)(settings.relayReadTimeout*1000));
+	}
+	
+	/**
+	*Replaces {@link #settings} with reloaded settings, {@link #lastInstant} and {@link #on} are kept.
+	*@param settings {@link Settings}
+	*/
+	protected void setSettings(Settings settings) {
+		this.settings = settings;
 	}
 	
 	/**
-	*Turns off a wireless relay, requires python-kassa in system path.
-	*@see Settings
+	*Turns off a wireless relay.
+	*@see #switchRelay
 	*/
 	protected void turnOff() {
-		
-		System.out.println("Turn off");
-		on = false;
-		Process process = null;
-		try{ 
-	        process = Runtime.getRuntime().exec("kasa --host " +ip+" off");
-	        process.waitFor();
-	        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-	        String line;
-	    while ((line=reader.readLine())!=null){
-	    	System.out.println(line);
-	    }
-	    }catch(Exception e){
-	    	System.out.println(e);
-	    }finally{
-	    	process.destroy();
-	    }
-		
-		
+		switchRelay(false);
 	}
 	
 	/**
-	*Turns on a wireless relay, requires python-kassa in system path.
-	*@see Settings
+	*Turns on a wireless relay.
+	*@see #switchRelay
 	*/
 	protected void turnOn() {
-
-		System.out.println("Turn on");
-		on = true;
-		Process process = null;
-		 try{ 
-         process = Runtime.getRuntime().exec("kasa --host " +ip+" on"); 
-         
-         process.waitFor();
-         BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-         String line;
-         while ((line=reader.readLine())!=null){
-             System.out.println(line);
-             }
-         }catch(Exception e){
-        	 System.out.println(e);
-        }finally{
-        	process.destroy();
-        }
-
-
+		switchRelay(true);
 	}
 	
+	/**
+	*Sets {@link #on}, counting a cycle in {@link #cycles} and {@link #recent} if it was off, and queues the state for the wireless relay with {@link #queue}, returns without waiting for the relay. Emits a {@link FlightEvents.RelaySwitch}.
+	*@param state {@link Boolean} true to turn the relay on
+	*@see RelayCommandQueue#request
+	*/
+	private void switchRelay(boolean state) {
+		if (state && !on) {
+			synchronized (recent) {
+				recent[(int)(cycles % RECENT)] = clock.millis();
+				cycles++;
+			}
+		}
+		on = state;
+		FlightEvents.RelaySwitch event = new FlightEvents.RelaySwitch();
+		if (event.shouldCommit()) {
+			event.relay = ip;
+			event.on = state;
+			event.cycles = cycles;
+			event.commit();
+		}
+		queue.request(state);
+	}
+	
+	/**
+	*Counts the cycles started in the last hour, at most {@link #RECENT}.
+	*@return {@link Integer} cycles started in the hour before now
+	*/
+	protected int cyclesLastHour() {
+		long hourAgo = clock.millis() - 3600000;
+		int n = 0;
+		synchronized (recent) {
+			for (long i = cycles - 1; i >= 0 && i >= cycles - RECENT && recent[(int)(i % RECENT)] > hourAgo; i--) {
+				n++;
+			}
+		}
+		return n;
+	}
 	
 	/**
 	*The {@link Instant} stores a point on the time-line. Before waitBetweenPowerSwitch() is called it is not initialized.
@@ -106,17 +176,17 @@ public class PowerSocket {
 	*/
 	protected Boolean waitBetweenPowerSwitch() {
 		if(lastInstant == null){
-			lastInstant = Instant.now();
+			lastInstant = clock.instant();
 			return false;
 		}
 		
 		double msInMinute = 60000;
 		long timeWait = (long)(settings.minutesToWaitPowerSwitch*msInMinute);
-		Instant finish = Instant.now();
+		Instant finish = clock.instant();
 		long timeElapsed = Duration.between(lastInstant, finish).toMillis();
 		
 		if(timeElapsed > timeWait) {
-			lastInstant = Instant.now();
+			lastInstant = clock.instant();
 			return false;
 		} 
 		return true;
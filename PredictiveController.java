@@ -0,0 +1,113 @@
+package Brewmaster;
+
+/**
+ * <h2>PredictiveController</h2> The PredictiveController switches on the
+ * temperature it expects {@link Settings#predictLag} from now instead of the
+ * temperature now. The rate the temperature changes is fitted by least squares
+ * over the last {@link #POINTS} points, taken at least a sixteenth of the lag
+ * apart. A relay is turned on like the hysteresis controller does, when the
+ * temperature leaves the band, and a running cooler is turned off as soon as
+ * the temperature is expected to reach the target, since the cold already in
+ * the fridge keeps pulling it down. The heater is handled the same way on the
+ * other side. Turning on at the edge of the band and off at the target keeps a
+ * cycle from overshooting into the far edge, where it would start the other
+ * relay or the next cycle early. Relays are only sent changes and never
+ * switched more often than {@link Settings#minutesToWaitPowerSwitch}.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+class PredictiveController implements Controller {
+	/**
+	 * The {@link Integer} number of points the rate is fitted over
+	 */
+	private static final int POINTS = 16;
+
+	/**
+	 * The time of each point in milliseconds since the epoch
+	 */
+	private final long[] times = new long[POINTS];
+	/**
+	 * The temperature of each point
+	 */
+	private final double[] temps = new double[POINTS];
+	/**
+	 * The {@link Integer} number of points ever added
+	 */
+	private int added = 0;
+	/**
+	 * The {@link Double} temperature expected at the last tick
+	 */
+	private double predicted;
+
+	/**
+	 * Adds a point if enough time has passed, predicts the temperature and
+	 * decides
+	 *
+	 * @return {@link Integer} {@link #COOL}, {@link #HEAT}, {@link #OFF} or
+	 *         {@link #HOLD}
+	 */
+	@Override
+	public int decide(long now, double temp, double target, Settings settings, int flags) {
+		long lag = (long) (settings.predictLag * 60000);
+		if (added == 0 || now - times[(added - 1) % POINTS] >= lag / POINTS) {
+			times[added % POINTS] = now;
+			temps[added % POINTS] = temp;
+			added++;
+		}
+		predicted = temp + slope() * lag;
+
+		boolean coolerOn = (flags & SampleHistory.COOLER_ON) != 0;
+		boolean heaterOn = (flags & SampleHistory.HEATER_ON) != 0;
+		boolean hasHeater = (flags & SampleHistory.HAS_HEATER) != 0;
+		double max = target + settings.tempErrorMarginPlus;
+		double min = target - settings.tempErrorMarginMinus;
+		if ((coolerOn && predicted <= target) || (heaterOn && predicted >= target)) {
+			return OFF;
+		} else if (coolerOn || heaterOn) {
+			return HOLD;
+		} else if (temp >= max) {
+			return COOL;
+		} else if (hasHeater && temp <= min) {
+			return HEAT;
+		}
+		return HOLD;
+	}
+
+	/**
+	 * Fits a line through the points by least squares
+	 *
+	 * @return {@link Double} degrees per millisecond, 0 with fewer than two points
+	 */
+	private double slope() {
+		int n = Math.min(added, POINTS);
+		if (n < 2) {
+			return 0;
+		}
+		long t0 = times[(added - n) % POINTS];
+		double st = 0;
+		double sy = 0;
+		for (int i = added - n; i < added; i++) {
+			st += times[i % POINTS] - t0;
+			sy += temps[i % POINTS];
+		}
+		double mt = st / n;
+		double my = sy / n;
+		double num = 0;
+		double den = 0;
+		for (int i = added - n; i < added; i++) {
+			double dt = times[i % POINTS] - t0 - mt;
+			num += dt * (temps[i % POINTS] - my);
+			den += dt * dt;
+		}
+		return den == 0 ? 0 : num / den;
+	}
+
+	/**
+	 * @return {@link #predicted}
+	 */
+	double getPredicted() {
+		return predicted;
+	}
+}
@@ -0,0 +1,26 @@
+package Brewmaster;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * <h2>Probe</h2> The Probe interface is how a {@link TemperatureHandler} reads
+ * its temperature probe. A read gives the content of a DS18B20 w1_slave file,
+ * parsed by {@link W1SlaveParser}.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ * @see W1Probe
+ * @see SimProbe
+ */
+interface Probe {
+	/**
+	 * Reads a w1_slave frame into dst
+	 *
+	 * @param dst {@link ByteBuffer} to read into from its position
+	 * @return {@link Integer} number of bytes read
+	 * @throws IOException if the probe can not be read
+	 */
+	int read(ByteBuffer dst) throws IOException;
+}
@@ -0,0 +1,56 @@
+package Brewmaster;
+
+/**
+ * <h2>RateLimitFilter</h2> The RateLimitFilter limits how fast the temperature
+ * passed on can change to {@link #perMinute} degrees a minute. A sample further
+ * from the last one passed on is moved towards it by as much as the time since
+ * allows, so a glitch only nudges the temperature while a real change is
+ * followed at the limit until it is caught up with. A fermenter holds several
+ * liters, it can not really change by more than a fraction of a degree a
+ * minute. The first sample is passed on as it is.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+class RateLimitFilter implements FilterStage {
+	/**
+	 * The {@link Double} degrees a minute the temperature may change, above 0
+	 */
+	private final double perMinute;
+	/**
+	 * The {@link Double} last value passed on, NaN before the first sample
+	 */
+	private double last = Double.NaN;
+	/**
+	 * The {@link Long} time of the last sample
+	 */
+	private long lastTime;
+
+	/**
+	 * @param perMinute {@link Double} degrees a minute the temperature may change,
+	 *                  above 0
+	 * @throws IllegalArgumentException if perMinute is not above 0
+	 */
+	RateLimitFilter(double perMinute) {
+		if (!(perMinute > 0)) {
+			throw new IllegalArgumentException("Filter rate:r needs an r above 0");
+		}
+		this.perMinute = perMinute;
+	}
+
+	/**
+	 * @return {@link Double} value, or the last value moved towards it by as much
+	 *         as allowed
+	 */
+	@Override
+	public double filter(long time, double value) {
+		if (!Double.isNaN(last)) {
+			double step = perMinute * Math.max(0, time - lastTime) / 60000;
+			value = Math.max(last - step, Math.min(last + step, value));
+		}
+		last = value;
+		lastTime = time;
+		return value;
+	}
+}
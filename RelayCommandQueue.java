@@ -0,0 +1,294 @@
+package Brewmaster;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * <h2>RelayCommandQueue</h2> The RelayCommandQueue class sends commands to one
+ * wireless relay off the control thread. {@link #request} only records the
+ * wanted state and returns, a worker sends it with the {@link RelayTransport}.
+ * Requests made while a command is pending replace it so only the latest state
+ * is sent, failed commands are retried with a doubling wait until they succeed
+ * or a new request replaces them. The time from request to the relay answering
+ * is recorded.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+public class RelayCommandQueue {
+	/**
+	 * a {@link Long} with the first wait in milliseconds before retrying a failed
+	 * command
+	 */
+	private static final long FIRST_RETRY = 1000;
+	/**
+	 * a {@link Long} with the longest wait in milliseconds between retries
+	 */
+	private static final long MAX_RETRY = 60000;
+
+	/**
+	 * The {@link String} name of the relay in events
+	 */
+	private final String name;
+	/**
+	 * The {@link RelayTransport} commands are sent with
+	 */
+	private final RelayTransport transport;
+	/**
+	 * The {@link Executor} running {@link #drain}
+	 */
+	private final Executor executor;
+	/**
+	 * a {@link Consumer} warnings are sent to, printed until {@link #setLog} is
+	 * called
+	 */
+	private volatile Consumer<String> log = System.out::println;
+
+	/**
+	 * a {@link Boolean} with the latest requested state
+	 */
+	private boolean wanted;
+	/**
+	 * a {@link Boolean} true while a request has not been taken by the worker
+	 */
+	private boolean pending = false;
+	/**
+	 * a {@link Boolean} true while {@link #drain} is running or submitted
+	 */
+	private boolean running = false;
+	/**
+	 * a {@link Long} with the {@link System#nanoTime} of the oldest request not yet
+	 * sent
+	 */
+	private long requested;
+
+	/**
+	 * a {@link Long} counting commands the relay accepted
+	 */
+	private volatile long completed = 0;
+	/**
+	 * a {@link Long} counting failed attempts to send a command
+	 */
+	private volatile long failures = 0;
+	/**
+	 * a {@link Long} counting requests that replaced a pending request
+	 */
+	private volatile long coalesced = 0;
+	/**
+	 * a {@link Long} with nanoseconds from request to answer for the last command
+	 */
+	private volatile long lastLatency = 0;
+	/**
+	 * a {@link Long} with the longest nanoseconds from request to answer
+	 */
+	private volatile long maxLatency = 0;
+	/**
+	 * a {@link Long} with the sum of nanoseconds from request to answer
+	 */
+	private volatile long totalLatency = 0;
+	/**
+	 * a {@link LatencyHistogram} of the nanoseconds from request to answer of
+	 * every command
+	 */
+	private final LatencyHistogram latencies = new LatencyHistogram();
+
+	/**
+	 * Sets up a RelayCommandQueue
+	 *
+	 * @param name      {@link String} name of the relay in events, its ip address
+	 * @param transport {@link RelayTransport} to send commands with
+	 * @param executor  {@link Executor} to run the worker on, it should not be
+	 *                  the control thread
+	 */
+	RelayCommandQueue(String name, RelayTransport transport, Executor executor) {
+		this.name = name;
+		this.transport = transport;
+		this.executor = executor;
+	}
+
+	/**
+	 * Setter for log
+	 * 
+	 * @param log {@link Consumer} to send warnings to
+	 */
+	void setLog(Consumer<String> log) {
+		this.log = log;
+	}
+
+	/**
+	 * Records on as the state to send and starts the worker if it is not running,
+	 * never waits for the relay.
+	 *
+	 * @param on {@link Boolean} true to turn the relay on
+	 */
+	void request(boolean on) {
+		boolean start;
+		synchronized (this) {
+			if (pending) {
+				coalesced++;
+			} else {
+				requested = System.nanoTime();
+			}
+			wanted = on;
+			pending = true;
+			start = !running;
+			running = true;
+			notifyAll();
+		}
+		if (start) {
+			executor.execute(this::drain);
+		}
+	}
+
+	/**
+	 * Sends the latest requested state until no request is pending
+	 */
+	private void drain() {
+		while (true) {
+			boolean on;
+			long start;
+			synchronized (this) {
+				if (!pending) {
+					running = false;
+					return;
+				}
+				on = wanted;
+				start = requested;
+				pending = false;
+			}
+			send(on, start);
+		}
+	}
+
+	/**
+	 * Sends one state, retrying with a doubling wait. Gives up as soon as a new
+	 * request is pending, {@link #drain} then sends that instead. Every attempt
+	 * emits a {@link FlightEvents.RelayCommand} timing the relay.
+	 *
+	 * @param on    {@link Boolean} state to send
+	 * @param start {@link Long} {@link System#nanoTime} of the request
+	 */
+	private void send(boolean on, long start) {
+		long wait = FIRST_RETRY;
+		int attempt = 0;
+		while (true) {
+			FlightEvents.RelayCommand event = new FlightEvents.RelayCommand();
+			attempt++;
+			event.begin();
+			try {
+				transport.setState(on);
+				command(event, on, attempt, null);
+				long latency = System.nanoTime() - start;
+				lastLatency = latency;
+				totalLatency += latency;
+				latencies.record(latency);
+				if (latency > maxLatency) {
+					maxLatency = latency;
+				}
+				completed++;
+				return;
+			} catch (IOException e) {
+				command(event, on, attempt, e);
+				failures++;
+				log.accept("Relay " + name + " command failed, retrying in " + wait + " ms: " + e);
+			}
+			synchronized (this) {
+				long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(wait);
+				long left;
+				while (!pending && (left = until - System.nanoTime()) > 0) {
+					try {
+						TimeUnit.NANOSECONDS.timedWait(this, left);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						return;
+					}
+				}
+				if (pending) {
+					return;
+				}
+			}
+			wait = Math.min(wait * 2, MAX_RETRY);
+		}
+	}
+
+	/**
+	 * Ends and commits event if a recording wants it
+	 *
+	 * @param event   {@link FlightEvents.RelayCommand} begun before the attempt
+	 * @param on      {@link Boolean} state sent
+	 * @param attempt {@link Integer} attempt, 1 for the first
+	 * @param error   {@link IOException} the attempt failed with, null if it
+	 *                succeeded
+	 */
+	private void command(FlightEvents.RelayCommand event, boolean on, int attempt, IOException error) {
+		event.end();
+		if (event.shouldCommit()) {
+			event.relay = name;
+			event.on = on;
+			event.attempt = attempt;
+			event.error = error == null ? null : error.toString();
+			event.commit();
+		}
+	}
+
+	/**
+	 * @return {@link Boolean} true if a request is pending or being sent
+	 */
+	synchronized boolean isBusy() {
+		return running;
+	}
+
+	/**
+	 * @return {@link #completed}
+	 */
+	long getCompleted() {
+		return completed;
+	}
+
+	/**
+	 * @return {@link #failures}
+	 */
+	long getFailures() {
+		return failures;
+	}
+
+	/**
+	 * @return {@link #coalesced}
+	 */
+	long getCoalesced() {
+		return coalesced;
+	}
+
+	/**
+	 * @return {@link #lastLatency} in nanoseconds
+	 */
+	long getLastLatency() {
+		return lastLatency;
+	}
+
+	/**
+	 * @return {@link #maxLatency} in nanoseconds
+	 */
+	long getMaxLatency() {
+		return maxLatency;
+	}
+
+	/**
+	 * @return {@link #latencies}
+	 */
+	LatencyHistogram getLatencies() {
+		return latencies;
+	}
+
+	/**
+	 * @return {@link Long} mean nanoseconds from request to answer, 0 before the
+	 *         first command
+	 */
+	long getMeanLatency() {
+		long n = completed;
+		return n == 0 ? 0 : totalLatency / n;
+	}
+}
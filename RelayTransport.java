@@ -0,0 +1,26 @@
+package Brewmaster;
+
+import java.io.IOException;
+
+/**
+ * <h2>RelayTransport</h2> The RelayTransport interface is how a
+ * {@link PowerSocket} talks to its wireless relay.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+interface RelayTransport {
+	/**
+	 * Switches the relay on or off, blocks until the relay has answered.
+	 *
+	 * @param on {@link Boolean} true to turn the relay on
+	 * @throws IOException if the relay could not be reached or refused the command
+	 */
+	void setState(boolean on) throws IOException;
+
+	/**
+	 * Releases any connection held to the relay.
+	 */
+	void close();
+}
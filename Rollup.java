@@ -0,0 +1,270 @@
+package Brewmaster;
+
+/**
+ * <h2>Rollup</h2> The Rollup class aggregates samples into buckets of a fixed
+ * length, keeping min, max, average temperature and the time the cooler and
+ * heater were on for each bucket. Buckets are counted from an origin that is
+ * moved to the start of every day of the schedule by {@link #roll}, so no
+ * bucket spans two days. A Rollup with length 0 only closes its bucket when
+ * {@link #roll} is called. Adding a sample is O(1), the latest
+ * {@link #capacity} closed buckets are kept in primitive columns.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+public class Rollup {
+	/**
+	 * The {@link String} name of the rollup used in queries
+	 */
+	private final String name;
+	/**
+	 * The {@link Long} length of a bucket in milliseconds, 0 if buckets only end
+	 * at {@link #roll}
+	 */
+	private final long length;
+	/**
+	 * The {@link Integer} number of closed buckets kept
+	 */
+	private final int capacity;
+
+	/**
+	 * start of each closed bucket in milliseconds since the epoch
+	 */
+	private final long[] start;
+	/**
+	 * end of each closed bucket in milliseconds since the epoch
+	 */
+	private final long[] end;
+	/**
+	 * lowest temperature of each closed bucket
+	 */
+	private final double[] min;
+	/**
+	 * highest temperature of each closed bucket
+	 */
+	private final double[] max;
+	/**
+	 * average temperature of each closed bucket
+	 */
+	private final double[] avg;
+	/**
+	 * fraction of each closed bucket the cooler was on
+	 */
+	private final float[] coolerDuty;
+	/**
+	 * fraction of each closed bucket the heater was on
+	 */
+	private final float[] heaterDuty;
+	/**
+	 * The {@link Long} number of buckets ever closed
+	 */
+	private long closed = 0;
+
+	/**
+	 * The {@link Long} time buckets are counted from
+	 */
+	private long origin = Long.MIN_VALUE;
+	/**
+	 * The {@link Long} start of the open bucket
+	 */
+	private long bucketStart;
+	/**
+	 * The {@link Long} end of the open bucket, {@link Long#MAX_VALUE} if
+	 * {@link #length} is 0
+	 */
+	private long bucketEnd;
+	/**
+	 * The {@link Integer} samples in the open bucket
+	 */
+	private int count = 0;
+	/**
+	 * The {@link Double} lowest temperature in the open bucket
+	 */
+	private double bucketMin;
+	/**
+	 * The {@link Double} highest temperature in the open bucket
+	 */
+	private double bucketMax;
+	/**
+	 * The {@link Double} sum of temperatures in the open bucket
+	 */
+	private double sum;
+	/**
+	 * The {@link Long} milliseconds the cooler was on in the open bucket
+	 */
+	private long coolerMillis;
+	/**
+	 * The {@link Long} milliseconds the heater was on in the open bucket
+	 */
+	private long heaterMillis;
+	/**
+	 * The {@link Long} time of the last sample
+	 */
+	private long lastTime = Long.MIN_VALUE;
+	/**
+	 * The {@link Integer} relay states of the last sample
+	 */
+	private int lastFlags;
+
+	/**
+	 * Sets up an empty Rollup
+	 *
+	 * @param name     {@link String} name used in queries
+	 * @param length   {@link Long} length of a bucket in milliseconds, 0 to close
+	 *                 buckets only at {@link #roll}
+	 * @param capacity {@link Integer} number of closed buckets to keep
+	 */
+	Rollup(String name, long length, int capacity) {
+		this.name = name;
+		this.length = length;
+		this.capacity = capacity;
+		start = new long[capacity];
+		end = new long[capacity];
+		min = new double[capacity];
+		max = new double[capacity];
+		avg = new double[capacity];
+		coolerDuty = new float[capacity];
+		heaterDuty = new float[capacity];
+	}
+
+	/**
+	 * @return {@link #name}
+	 */
+	String getName() {
+		return name;
+	}
+
+	/**
+	 * Adds a sample to the open bucket, closing it first if the sample is past
+	 * its end. The time since the last sample is counted as on time for the
+	 * relays that were on at the last sample, a gap longer than a bucket counts
+	 * as one bucket at most.
+	 *
+	 * @param time  {@link Long} milliseconds since the epoch
+	 * @param temp  {@link Double} temperature in degrees celsius
+	 * @param flags {@link Integer} relay states as in {@link SampleHistory}
+	 */
+	synchronized void add(long time, double temp, int flags) {
+		if (origin == Long.MIN_VALUE) {
+			origin = time;
+			open(time);
+		} else if (time >= bucketEnd) {
+			close(bucketEnd);
+			open(time);
+		}
+		if (lastTime != Long.MIN_VALUE && time > lastTime) {
+			long dt = Math.min(time - lastTime, length > 0 ? length : Long.MAX_VALUE);
+			if ((lastFlags & SampleHistory.COOLER_ON) != 0) {
+				coolerMillis += dt;
+			}
+			if ((lastFlags & SampleHistory.HEATER_ON) != 0) {
+				heaterMillis += dt;
+			}
+		}
+		lastTime = time;
+		lastFlags = flags;
+		if (count == 0 || temp < bucketMin) {
+			bucketMin = temp;
+		}
+		if (count == 0 || temp > bucketMax) {
+			bucketMax = temp;
+		}
+		sum += temp;
+		count++;
+	}
+
+	/**
+	 * Closes the open bucket at time and counts the next buckets from time,
+	 * called at the start of every day of the schedule
+	 *
+	 * @param time {@link Long} milliseconds since the epoch
+	 */
+	synchronized void roll(long time) {
+		if (origin != Long.MIN_VALUE) {
+			close(time);
+		}
+		origin = time;
+		open(time);
+	}
+
+	/**
+	 * Starts the bucket holding time
+	 *
+	 * @param time {@link Long} milliseconds since the epoch
+	 */
+	private void open(long time) {
+		if (length > 0) {
+			bucketStart = origin + Math.floorDiv(time - origin, length) * length;
+			bucketEnd = bucketStart + length;
+		} else {
+			bucketStart = time;
+			bucketEnd = Long.MAX_VALUE;
+		}
+		count = 0;
+		sum = 0;
+		coolerMillis = 0;
+		heaterMillis = 0;
+	}
+
+	/**
+	 * Stores the open bucket as closed at time if it has any samples
+	 *
+	 * @param time {@link Long} end of the bucket
+	 */
+	private void close(long time) {
+		if (count == 0) {
+			return;
+		}
+		int i = (int) (closed % capacity);
+		start[i] = bucketStart;
+		end[i] = Math.min(time, bucketEnd);
+		min[i] = bucketMin;
+		max[i] = bucketMax;
+		avg[i] = sum / count;
+		long duration = Math.max(1, end[i] - bucketStart);
+		coolerDuty[i] = (float) Math.min(1.0, (double) coolerMillis / duration);
+		heaterDuty[i] = (float) Math.min(1.0, (double) heaterMillis / duration);
+		closed++;
+	}
+
+	/**
+	 * Appends one line per bucket ending after from and starting before to,
+	 * oldest first and including the open bucket, to sb. A line is
+	 * "R,name,start,end,min,max,avg,coolerDuty,heaterDuty" with times in
+	 * milliseconds since the epoch and duty from 0 to 1.
+	 *
+	 * @param sb   {@link StringBuilder} to append to
+	 * @param from {@link Long} milliseconds since the epoch
+	 * @param to   {@link Long} milliseconds since the epoch
+	 * @return {@link Integer} number of lines appended
+	 */
+	synchronized int format(StringBuilder sb, long from, long to) {
+		int lines = 0;
+		for (long b = Math.max(0, closed - capacity); b < closed; b++) {
+			int i = (int) (b % capacity);
+			if (end[i] > from && start[i] <= to) {
+				line(sb, start[i], end[i], min[i], max[i], avg[i], coolerDuty[i], heaterDuty[i]);
+				lines++;
+			}
+		}
+		if (count > 0 && lastTime >= from && bucketStart <= to) {
+			long duration = Math.max(1, lastTime - bucketStart);
+			line(sb, bucketStart, lastTime, bucketMin, bucketMax, sum / count,
+					Math.min(1.0, (double) coolerMillis / duration), Math.min(1.0, (double) heaterMillis / duration));
+			lines++;
+		}
+		return lines;
+	}
+
+	/**
+	 * Appends one bucket line to sb
+	 */
+	private void line(StringBuilder sb, long s, long e, double lo, double hi, double mean, double cooler,
+			double heater) {
+		sb.append("R,").append(name).append(',').append(s).append(',').append(e).append(',').append(lo).append(',')
+				.append(hi).append(',').append(Math.round(mean * 1000) / 1000.0).append(',')
+				.append(Math.round(cooler * 1000) / 1000.0).append(',').append(Math.round(heater * 1000) / 1000.0)
+				.append('\n');
+	}
+}
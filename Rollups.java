@@ -0,0 +1,104 @@
+package Brewmaster;
+
+/**
+ * <h2>Rollups</h2> The Rollups class holds the {@link Rollup} tiers a
+ * {@link TemperatureHandler} keeps, minutes for the last two days, hours for
+ * ten weeks and the days of the schedule.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+public class Rollups {
+	/**
+	 * The {@link Integer} days of the schedule the day tier keeps
+	 */
+	static final int DAYS = 366;
+	/**
+	 * a {@link Rollup} of one minute buckets
+	 */
+	final Rollup minute = new Rollup("minute", 60000L, 2 * 24 * 60);
+	/**
+	 * a {@link Rollup} of one hour buckets
+	 */
+	final Rollup hour = new Rollup("hour", 3600000L, 70 * 24);
+	/**
+	 * a {@link Rollup} with one bucket per day of the schedule
+	 */
+	final Rollup day = new Rollup("day", 0, DAYS);
+
+	/**
+	 * Adds a sample to every tier
+	 *
+	 * @param time  {@link Long} milliseconds since the epoch
+	 * @param temp  {@link Double} temperature in degrees celsius
+	 * @param flags {@link Integer} relay states as in {@link SampleHistory}
+	 */
+	void add(long time, double temp, int flags) {
+		minute.add(time, temp, flags);
+		hour.add(time, temp, flags);
+		day.add(time, temp, flags);
+	}
+
+	/**
+	 * Starts a new day of the schedule in every tier
+	 *
+	 * @param time {@link Long} milliseconds since the epoch the day starts at
+	 * @see Rollup#roll
+	 */
+	void newDay(long time) {
+		minute.roll(time);
+		hour.roll(time);
+		day.roll(time);
+	}
+
+	/**
+	 * Adds the samples of store from {@link #DAYS} days before today on to every
+	 * tier, starting a new day every 24 hours counted from today and at today,
+	 * so after a restart the tiers hold the earlier days and line up with the
+	 * days of the schedule
+	 *
+	 * @param store {@link HistoryStore} to read, may be null
+	 * @param today {@link Long} milliseconds since the epoch the current day of
+	 *              the schedule started at
+	 */
+	void seed(HistoryStore store, long today) {
+		long next = today;
+		if (store != null) {
+			long n = store.size();
+			long i = store.lowerBound(today - DAYS * Schedule.DAY);
+			if (i < n) {
+				next = today + Math.floorDiv(store.getTime(i) - today, Schedule.DAY) * Schedule.DAY;
+			}
+			for (; i < n; i++) {
+				long time = store.getTime(i);
+				while (next <= today && time >= next) {
+					newDay(next);
+					next += Schedule.DAY;
+				}
+				add(time, store.getTemp(i), store.getFlags(i));
+			}
+		}
+		while (next <= today) {
+			newDay(next);
+			next += Schedule.DAY;
+		}
+	}
+
+	/**
+	 * Finds a tier by name
+	 *
+	 * @param name {@link String} "minute", "hour" or "day"
+	 * @return {@link Rollup} or null if there is no tier with that name
+	 */
+	Rollup get(String name) {
+		if (minute.getName().equalsIgnoreCase(name)) {
+			return minute;
+		} else if (hour.getName().equalsIgnoreCase(name)) {
+			return hour;
+		} else if (day.getName().equalsIgnoreCase(name)) {
+			return day;
+		}
+		return null;
+	}
+}
@@ -0,0 +1,556 @@
+package Brewmaster;
+
+import java.util.Arrays;
+
+/**
+ * <h2>SampleHistory</h2> The SampleHistory class keeps every sample of a
+ * fermentation in memory, compressed the way time series databases do. The
+ * samples are packed into chunks of bits in primitive long arrays, the first
+ * sample of a chunk is kept whole and every sample after it is written as the
+ * change from the one before. The time is written as the change of the period
+ * between samples, one bit when the period is the same as the last. The
+ * temperature is written as the bits that differ from the last temperature,
+ * one bit when it is the same. The relay states are written as one bit if they
+ * did not change. Samples a second apart with a probe that changes by a step
+ * now and then take well under two bytes each, so months of samples fit in a
+ * few megabytes.<br>
+ * One thread adds samples, any number of threads can read them with a
+ * {@link Cursor} at the same time without locking. A full chunk is never
+ * changed again, when more than {@link Settings#historySize} samples are kept
+ * the oldest chunk is dropped.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+public class SampleHistory {
+	/**
+	 * bit set in the relay states when the cooler is on
+	 */
+	static final int COOLER_ON = 1;
+	/**
+	 * bit set in the relay states when the heater is on
+	 */
+	static final int HEATER_ON = 2;
+	/**
+	 * bit set in the relay states when there is a heater
+	 */
+	static final int HAS_HEATER = 4;
+	/**
+	 * The {@link Integer} longs of bits in a chunk being written, cut to the bits
+	 * used when it is full
+	 */
+	private static final int CHUNK_WORDS = 256;
+	/**
+	 * The {@link Integer} most samples in a chunk, a reader looking for a time
+	 * decodes at most this many samples to find it
+	 */
+	static final int CHUNK_SAMPLES = 1024;
+	/**
+	 * The {@link Integer} most bits a sample takes
+	 */
+	private static final int SAMPLE_BITS = 4 + 64 + 2 + 5 + 6 + 64 + 4;
+
+	/**
+	 * <h2>Chunk</h2> A run of samples, the first kept whole and the rest as
+	 * bits in {@link #words}.
+	 */
+	private static final class Chunk {
+		/**
+		 * The {@link Long} number of chunks started before this one
+		 */
+		final long seq;
+		/**
+		 * The {@link Long} time of the first sample in milliseconds since the epoch
+		 */
+		final long time;
+		/**
+		 * The {@link Long} bits of the temperature of the first sample
+		 */
+		final long temp;
+		/**
+		 * The {@link Integer} relay states of the first sample
+		 */
+		final int flags;
+		/**
+		 * The bits of every sample after the first, replaced by a copy cut to the
+		 * bits used when the chunk is full
+		 */
+		volatile long[] words = new long[CHUNK_WORDS];
+		/**
+		 * The {@link Integer} number of samples, written after their bits so a
+		 * reader that sees it also sees the bits
+		 */
+		volatile int count = 1;
+
+		/**
+		 * @param seq   {@link Long} number of chunks started before it
+		 * @param time  {@link Long} time of the first sample
+		 * @param temp  {@link Long} bits of the temperature of the first sample
+		 * @param flags {@link Integer} relay states of the first sample
+		 */
+		Chunk(long seq, long time, long temp, int flags) {
+			this.seq = seq;
+			this.time = time;
+			this.temp = temp;
+			this.flags = flags;
+		}
+	}
+
+	/**
+	 * The {@link Integer} fewest samples kept
+	 */
+	private final int capacity;
+	/**
+	 * The chunks kept, oldest first, replaced by a new array when a chunk is
+	 * added or dropped
+	 */
+	private volatile Chunk[] chunks = new Chunk[0];
+	/**
+	 * The {@link Long} number of samples kept, written after the chunk count so a
+	 * reader that sees it also sees the sample
+	 */
+	private volatile long size = 0;
+	/**
+	 * The {@link Long} bytes the chunks kept hold
+	 */
+	private volatile long bytes = 0;
+	/**
+	 * The {@link Long} time of the newest sample, {@link Long#MIN_VALUE} if there
+	 * is none
+	 */
+	private volatile long latest = Long.MIN_VALUE;
+
+	/**
+	 * The {@link Chunk} being written, the last of {@link #chunks}
+	 */
+	private Chunk current = null;
+	/**
+	 * The {@link Integer} bits written to {@link #current}
+	 */
+	private int bit;
+	/**
+	 * The {@link Long} period before the newest sample in milliseconds
+	 */
+	private long delta;
+	/**
+	 * The {@link Long} bits of the temperature of the newest sample
+	 */
+	private long tempBits;
+	/**
+	 * The {@link Integer} leading zero bits of the last temperature change
+	 * written whole, -1 if there is none in {@link #current}
+	 */
+	private int leading;
+	/**
+	 * The {@link Integer} trailing zero bits of the last temperature change
+	 * written whole
+	 */
+	private int trailing;
+	/**
+	 * The {@link Integer} relay states of the newest sample
+	 */
+	private int flags;
+
+	/**
+	 * Sets up an empty SampleHistory
+	 *
+	 * @param capacity {@link Integer} fewest samples to keep
+	 */
+	SampleHistory(int capacity) {
+		this.capacity = Math.max(1, capacity);
+	}
+
+	/**
+	 * Adds a sample, must only be called from one thread. Samples older than the
+	 * newest one are ignored.
+	 *
+	 * @param millis  {@link Long} time in milliseconds since the epoch
+	 * @param celsius {@link Double} temperature
+	 * @param relays  {@link Integer} relay states
+	 */
+	void add(long millis, double celsius, int relays) {
+		long last = latest;
+		if (current != null && millis < last) {
+			return;
+		}
+		long bits = Double.doubleToRawLongBits(celsius);
+		if (current == null || current.count >= CHUNK_SAMPLES || bit > CHUNK_WORDS * 64 - SAMPLE_BITS) {
+			start(millis, bits, relays);
+			return;
+		}
+		long d = millis - last;
+		long dod = d - delta;
+		if (dod == 0) {
+			put(0, 1);
+		} else if (dod >= -64 && dod <= 63) {
+			put(2, 2);
+			put(dod, 7);
+		} else if (dod >= -256 && dod <= 255) {
+			put(6, 3);
+			put(dod, 9);
+		} else if (dod >= -2048 && dod <= 2047) {
+			put(14, 4);
+			put(dod, 12);
+		} else {
+			put(15, 4);
+			put(dod, 64);
+		}
+		long xor = bits ^ tempBits;
+		if (xor == 0) {
+			put(0, 1);
+		} else {
+			int lead = Math.min(31, Long.numberOfLeadingZeros(xor));
+			int trail = Long.numberOfTrailingZeros(xor);
+			if (leading >= 0 && lead >= leading && trail >= trailing) {
+				put(2, 2);
+				put(xor >>> trailing, 64 - leading - trailing);
+			} else {
+				int length = 64 - lead - trail;
+				put(3, 2);
+				put(lead, 5);
+				put(length, 6);
+				put(xor >>> trail, length);
+				leading = lead;
+				trailing = trail;
+			}
+		}
+		if (relays == flags) {
+			put(0, 1);
+		} else {
+			put(8 | relays, 4);
+		}
+		delta = d;
+		tempBits = bits;
+		flags = relays;
+		latest = millis;
+		current.count++;
+		size++;
+	}
+
+	/**
+	 * Starts a new chunk with a sample, cutting the full chunk to the bits it
+	 * used and dropping the oldest chunks while the rest hold
+	 * {@link #capacity} samples
+	 *
+	 * @param millis {@link Long} time in milliseconds since the epoch
+	 * @param bits   {@link Long} bits of the temperature
+	 * @param relays {@link Integer} relay states
+	 */
+	private void start(long millis, long bits, int relays) {
+		Chunk[] old = chunks;
+		long held = bytes;
+		if (current != null) {
+			current.words = Arrays.copyOf(current.words, (bit + 63) >>> 6);
+			held -= CHUNK_WORDS * 8 - current.words.length * 8;
+		}
+		long kept = size;
+		int drop = 0;
+		while (drop < old.length && kept - old[drop].count >= capacity) {
+			kept -= old[drop].count;
+			held -= old[drop].words.length * 8;
+			drop++;
+		}
+		current = new Chunk(current == null ? 0 : current.seq + 1, millis, bits, relays);
+		Chunk[] next = Arrays.copyOfRange(old, drop, old.length + 1);
+		next[next.length - 1] = current;
+		bit = 0;
+		delta = 0;
+		tempBits = bits;
+		leading = -1;
+		flags = relays;
+		latest = millis;
+		bytes = held + CHUNK_WORDS * 8;
+		chunks = next;
+		size = kept + 1;
+	}
+
+	/**
+	 * Writes the lowest n bits of value to {@link #current}, highest bit first
+	 *
+	 * @param value {@link Long} bits to write
+	 * @param n     {@link Integer} number of bits, 1 to 64
+	 */
+	private void put(long value, int n) {
+		long[] words = current.words;
+		if (n < 64) {
+			value &= (1L << n) - 1;
+		}
+		int i = bit >>> 6;
+		int free = 64 - (bit & 63);
+		if (n <= free) {
+			words[i] |= value << (free - n);
+		} else {
+			words[i] |= value >>> (n - free);
+			words[i + 1] |= value << (64 - n + free);
+		}
+		bit += n;
+	}
+
+	/**
+	 * Copies the first sample of every step long bucket of the last max buckets,
+	 * oldest first, into the given arrays. With step the time between logged
+	 * samples it gives the samples a log would have.
+	 *
+	 * @param cursor  {@link Cursor} to read with
+	 * @param step    {@link Long} length of a bucket in milliseconds
+	 * @param max     {@link Integer} most samples to copy, no more than the length
+	 *                of the arrays
+	 * @param millis  array for the times
+	 * @param celsius array for the temperatures
+	 * @param relays  array for the relay states
+	 * @return {@link Integer} number of samples copied
+	 */
+	int snapshot(Cursor cursor, long step, int max, long[] millis, double[] celsius, byte[] relays) {
+		long newest = latest;
+		if (newest == Long.MIN_VALUE || max < 1) {
+			return 0;
+		}
+		step = Math.max(1, step);
+		long bucket = Math.floorDiv(newest, step) - max;
+		cursor.seek(this, (bucket + 1) * step);
+		int n = 0;
+		while (n < max && cursor.next()) {
+			long b = Math.floorDiv(cursor.time, step);
+			if (b > bucket) {
+				millis[n] = cursor.time;
+				celsius[n] = cursor.temp;
+				relays[n] = (byte) cursor.flags;
+				bucket = b;
+				n++;
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * @return {@link Long} number of samples kept
+	 */
+	long size() {
+		return size;
+	}
+
+	/**
+	 * @return {@link Long} bytes the kept samples take
+	 */
+	long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * @return {@link Integer} fewest samples kept
+	 */
+	int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * <h2>Cursor</h2> A Cursor reads the samples of a {@link SampleHistory}
+	 * oldest first. It creates no objects while reading and can be reused for
+	 * any number of reads, of any SampleHistory, on the thread that owns it.
+	 */
+	static final class Cursor {
+		/**
+		 * The {@link Long} time of the sample read by {@link #next}
+		 */
+		long time;
+		/**
+		 * The {@link Double} temperature of the sample read by {@link #next}
+		 */
+		double temp;
+		/**
+		 * The {@link Integer} relay states of the sample read by {@link #next}
+		 */
+		int flags;
+
+		/**
+		 * The {@link SampleHistory} read
+		 */
+		private SampleHistory history;
+		/**
+		 * The {@link Chunk} read, null if there is none
+		 */
+		private Chunk chunk;
+		/**
+		 * The bits of {@link #chunk}
+		 */
+		private long[] words;
+		/**
+		 * The {@link Integer} samples of {@link #chunk} read
+		 */
+		private int index;
+		/**
+		 * The {@link Integer} bits of {@link #chunk} read
+		 */
+		private int bit;
+		/**
+		 * The {@link Long} period before the last sample read
+		 */
+		private long delta;
+		/**
+		 * The {@link Long} bits of the last temperature read
+		 */
+		private long bits;
+		/**
+		 * The {@link Integer} leading zero bits of the last temperature change
+		 * written whole
+		 */
+		private int leading;
+		/**
+		 * The {@link Integer} trailing zero bits of the last temperature change
+		 * written whole
+		 */
+		private int trailing;
+		/**
+		 * The {@link Boolean} true if {@link #next} is to return the sample already
+		 * read by {@link #seek}
+		 */
+		private boolean held;
+
+		/**
+		 * Moves to just before the first sample at or after from
+		 *
+		 * @param history {@link SampleHistory} to read
+		 * @param from    {@link Long} time in milliseconds since the epoch
+		 */
+		void seek(SampleHistory history, long from) {
+			this.history = history;
+			Chunk[] all = history.chunks;
+			int lo = 0;
+			int hi = all.length;
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (all[mid].time <= from) {
+					lo = mid + 1;
+				} else {
+					hi = mid;
+				}
+			}
+			open(all.length == 0 ? null : all[Math.max(0, lo - 1)]);
+			held = false;
+			while (next()) {
+				if (time >= from) {
+					held = true;
+					return;
+				}
+			}
+		}
+
+		/**
+		 * Starts reading a chunk
+		 *
+		 * @param c {@link Chunk} to read, may be null
+		 */
+		private void open(Chunk c) {
+			chunk = c;
+			index = 0;
+			bit = 0;
+			delta = 0;
+			leading = -1;
+			if (c != null) {
+				words = c.words;
+			}
+		}
+
+		/**
+		 * Reads the next sample into {@link #time}, {@link #temp} and
+		 * {@link #flags}
+		 *
+		 * @return {@link Boolean} false if there are no more samples
+		 */
+		boolean next() {
+			if (held) {
+				held = false;
+				return true;
+			}
+			if (chunk == null) {
+				return false;
+			}
+			if (index >= chunk.count) {
+				Chunk[] all = history.chunks;
+				// the count of a chunk read after a later chunk is seen is final
+				if (index >= chunk.count) {
+					long i = chunk.seq + 1 - all[0].seq;
+					if (i >= all.length) {
+						return false;
+					}
+					// a chunk dropped while it was read is followed by the oldest kept
+					open(all[(int) Math.max(0, i)]);
+				}
+			}
+			if (index == 0) {
+				time = chunk.time;
+				bits = chunk.temp;
+				flags = chunk.flags;
+				temp = Double.longBitsToDouble(bits);
+				index = 1;
+				return true;
+			}
+			return decode();
+		}
+
+		/**
+		 * Decodes the sample after the last one read from {@link #chunk}, the
+		 * words cached by {@link #open} hold every bit written before the count
+		 * read
+		 *
+		 * @return {@link Boolean} true
+		 */
+		private boolean decode() {
+			long dod;
+			if (get(1) == 0) {
+				dod = 0;
+			} else if (get(1) == 0) {
+				dod = signed(get(7), 7);
+			} else if (get(1) == 0) {
+				dod = signed(get(9), 9);
+			} else if (get(1) == 0) {
+				dod = signed(get(12), 12);
+			} else {
+				dod = get(64);
+			}
+			delta += dod;
+			time += delta;
+			if (get(1) != 0) {
+				if (get(1) != 0) {
+					leading = (int) get(5);
+					int length = (int) get(6);
+					trailing = 64 - leading - (length == 0 ? 64 : length);
+				}
+				bits ^= get(64 - leading - trailing) << trailing;
+				temp = Double.longBitsToDouble(bits);
+			}
+			if (get(1) != 0) {
+				flags = (int) get(3);
+			}
+			index++;
+			return true;
+		}
+
+		/**
+		 * Reads n bits, highest bit first
+		 *
+		 * @param n {@link Integer} number of bits, 1 to 64
+		 * @return {@link Long} the bits as the lowest bits
+		 */
+		private long get(int n) {
+			int i = bit >>> 6;
+			int off = bit & 63;
+			bit += n;
+			long v = (words[i] << off) >>> (64 - n);
+			if (off + n > 64) {
+				v |= words[i + 1] >>> (128 - off - n);
+			}
+			return v;
+		}
+
+		/**
+		 * @param v {@link Long} lowest n bits of a two's complement value
+		 * @param n {@link Integer} number of bits
+		 * @return {@link Long} the value with its sign
+		 */
+		private static long signed(long v, int n) {
+			return (v << (64 - n)) >> (64 - n);
+		}
+	}
+}
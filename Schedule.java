@@ -0,0 +1,227 @@
+package Brewmaster;
+
+import java.util.List;
+
+/**
+ * <h2>Schedule</h2> The Schedule class holds the temperature schedule of a
+ * fermentation as an immutable list of segments, each with a length, a start
+ * and end temperature and a state. A segment with different start and end
+ * temperatures is a linear ramp between them. Segments are stored in primitive
+ * columns and found by binary search on the time since the schedule started,
+ * so looking up a target temperature is O(log n) and never allocates.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+public class Schedule {
+	/**
+	 * The {@link Long} number of milliseconds in a day
+	 */
+	static final long DAY = 86400000L;
+
+	/**
+	 * The start of each segment in milliseconds since the schedule started
+	 */
+	private final long[] start;
+	/**
+	 * The temperature at the start of each segment
+	 */
+	private final double[] from;
+	/**
+	 * The temperature at the end of each segment
+	 */
+	private final double[] to;
+	/**
+	 * The state of each segment
+	 */
+	private final String[] state;
+	/**
+	 * The {@link Long} length of the whole schedule in milliseconds
+	 */
+	private final long duration;
+	/**
+	 * The {@link Long} hash of every segment, equal for schedules with the same
+	 * segments
+	 */
+	private final long fingerprint;
+
+	/**
+	 * Sets up a Schedule from the segments in the order they are listed, the
+	 * lists must have the same size
+	 *
+	 * @param days  {@link List} of segment lengths in days, may have decimals
+	 * @param from  {@link List} of temperatures at the start of each segment
+	 * @param to    {@link List} of temperatures at the end of each segment
+	 * @param state {@link List} of the state of each segment
+	 * @throws IllegalArgumentException if there are no segments or a length is
+	 *                                  negative
+	 */
+	Schedule(List<Double> days, List<Double> from, List<Double> to, List<String> state) {
+		int n = days.size();
+		if (n == 0) {
+			throw new IllegalArgumentException("The schedule has no days");
+		}
+		this.start = new long[n];
+		this.from = new double[n];
+		this.to = new double[n];
+		this.state = new String[n];
+		long time = 0;
+		for (int i = 0; i < n; i++) {
+			if (days.get(i) < 0) {
+				throw new IllegalArgumentException("Negative number of days in the schedule: " + days.get(i));
+			}
+			start[i] = time;
+			this.from[i] = from.get(i);
+			this.to[i] = to.get(i);
+			this.state[i] = state.get(i);
+			time += Math.round(days.get(i) * DAY);
+		}
+		duration = time;
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < n; i++) {
+			hash = mix(hash, start[i]);
+			hash = mix(hash, Double.doubleToLongBits(this.from[i]));
+			hash = mix(hash, Double.doubleToLongBits(this.to[i]));
+			hash = mix(hash, this.state[i].hashCode());
+		}
+		fingerprint = mix(hash, duration);
+	}
+
+	/**
+	 * Adds value to a FNV-1a hash a byte at a time
+	 *
+	 * @param hash  {@link Long} hash so far
+	 * @param value {@link Long} to add
+	 * @return {@link Long} new hash
+	 */
+	private static long mix(long hash, long value) {
+		for (int b = 0; b < 8; b++) {
+			hash ^= (value >>> (b * 8)) & 0xff;
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	/**
+	 * Finds the segment running at elapsed, the first segment before the schedule
+	 * starts and the last after it ends
+	 *
+	 * @param elapsed {@link Long} milliseconds since the schedule started
+	 * @return {@link Integer} index of the segment
+	 */
+	int segment(long elapsed) {
+		int lo = 0;
+		int hi = start.length - 1;
+		while (lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if (start[mid] <= elapsed) {
+				lo = mid;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * Returns the target temperature at elapsed
+	 *
+	 * @param elapsed {@link Long} milliseconds since the schedule started
+	 * @return {@link Double} target temperature
+	 */
+	double target(long elapsed) {
+		return target(segment(elapsed), elapsed);
+	}
+
+	/**
+	 * Returns the target temperature of segment i at elapsed, on a ramp the
+	 * temperature between {@link #getFrom} and {@link #getTo} at that time
+	 *
+	 * @param i       {@link Integer} index of the segment
+	 * @param elapsed {@link Long} milliseconds since the schedule started
+	 * @return {@link Double} target temperature
+	 */
+	double target(int i, long elapsed) {
+		if (from[i] == to[i]) {
+			return from[i];
+		}
+		long length = getEnd(i) - start[i];
+		if (length <= 0) {
+			return to[i];
+		}
+		double f = Math.min(1.0, Math.max(0.0, (double) (elapsed - start[i]) / length));
+		return from[i] + (to[i] - from[i]) * f;
+	}
+
+	/**
+	 * @return {@link Integer} number of segments
+	 */
+	int size() {
+		return start.length;
+	}
+
+	/**
+	 * @return {@link #duration} in milliseconds
+	 */
+	long getDuration() {
+		return duration;
+	}
+
+	/**
+	 * @return {@link #fingerprint}
+	 */
+	long getFingerprint() {
+		return fingerprint;
+	}
+
+	/**
+	 * @return {@link Integer} number of days the schedule runs, a started day
+	 *         counts as a day
+	 */
+	int getDays() {
+		return (int) ((duration + DAY - 1) / DAY);
+	}
+
+	/**
+	 * @param i {@link Integer} index of a segment
+	 * @return {@link Long} start of the segment in milliseconds since the schedule
+	 *         started
+	 */
+	long getStart(int i) {
+		return start[i];
+	}
+
+	/**
+	 * @param i {@link Integer} index of a segment
+	 * @return {@link Long} end of the segment in milliseconds since the schedule
+	 *         started
+	 */
+	long getEnd(int i) {
+		return i + 1 < start.length ? start[i + 1] : duration;
+	}
+
+	/**
+	 * @param i {@link Integer} index of a segment
+	 * @return {@link Double} temperature at the start of the segment
+	 */
+	double getFrom(int i) {
+		return from[i];
+	}
+
+	/**
+	 * @param i {@link Integer} index of a segment
+	 * @return {@link Double} temperature at the end of the segment
+	 */
+	double getTo(int i) {
+		return to[i];
+	}
+
+	/**
+	 * @param i {@link Integer} index of a segment
+	 * @return {@link String} state of the segment
+	 */
+	String getState(int i) {
+		return state[i];
+	}
+}
@@ -0,0 +1,57 @@
+package Brewmaster;
+
+/**
+ * <h2>SensorFilter</h2> The SensorFilter runs every temperature read from the
+ * probe through the {@link FilterStage}s listed in {@link Settings#filter}, in
+ * the order they are listed. A stage dropping a sample stops it, the stages
+ * after it never see it. An empty list or "none" passes every sample on as it
+ * is.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ * @see TemperatureHandler#updateTemp
+ */
+class SensorFilter {
+	/**
+	 * The {@link FilterStage}s in the order they are run
+	 */
+	private final FilterStage[] stages;
+
+	/**
+	 * Creates the stages of a list like "reject,median:5,ema:0.3,rate:0.5"
+	 *
+	 * @param spec {@link String} comma separated stages, or "none"
+	 * @throws IllegalArgumentException if a stage is bad
+	 * @see FilterStage#create
+	 */
+	SensorFilter(String spec) {
+		String trimmed = spec.trim();
+		if (trimmed.isEmpty() || "none".equals(trimmed)) {
+			stages = new FilterStage[0];
+			return;
+		}
+		String[] names = trimmed.split(",");
+		stages = new FilterStage[names.length];
+		for (int i = 0; i < names.length; i++) {
+			stages[i] = FilterStage.create(names[i].trim());
+		}
+	}
+
+	/**
+	 * Runs a sample through every stage
+	 *
+	 * @param time  {@link Long} milliseconds since the epoch the sample was read
+	 * @param value {@link Double} temperature read
+	 * @return {@link Double} filtered temperature, NaN if a stage dropped it
+	 */
+	double filter(long time, double value) {
+		for (FilterStage stage : stages) {
+			value = stage.filter(time, value);
+			if (Double.isNaN(value)) {
+				return value;
+			}
+		}
+		return value;
+	}
+}
@@ -0,0 +1,46 @@
+package Brewmaster;
+
+/**
+ * <h2>ServerMetrics</h2> The ServerMetrics class publishes the counters of the
+ * {@link ServerThread} over JMX.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ * @see ServerMetricsMBean
+ */
+public class ServerMetrics implements ServerMetricsMBean {
+	/**
+	 * The {@link ServerThread} counted
+	 */
+	private final ServerThread server;
+
+	/**
+	 * Sets up ServerMetrics
+	 *
+	 * @param server {@link ServerThread} to publish
+	 */
+	ServerMetrics(ServerThread server) {
+		this.server = server;
+	}
+
+	@Override
+	public int getClients() {
+		return server.getClients();
+	}
+
+	@Override
+	public long getConnections() {
+		return server.getConnections();
+	}
+
+	@Override
+	public long getCommands() {
+		return server.getCommands();
+	}
+
+	@Override
+	public long getBytesServed() {
+		return server.getBytesServed();
+	}
+}
@@ -0,0 +1,31 @@
+package Brewmaster;
+
+/**
+ * <h2>ServerMetricsMBean</h2> The management interface of
+ * {@link ServerMetrics}, published over JMX as "Brewmaster:type=Server".
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+public interface ServerMetricsMBean {
+	/**
+	 * @return {@link Integer} clients connected now on both ports
+	 */
+	int getClients();
+
+	/**
+	 * @return {@link Long} connections accepted on both ports
+	 */
+	long getConnections();
+
+	/**
+	 * @return {@link Long} commands run for subscribing clients
+	 */
+	long getCommands();
+
+	/**
+	 * @return {@link Long} bytes written to clients
+	 */
+	long getBytesServed();
+}
@@ -1,94 +1,942 @@
 package Brewmaster;
 
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.util.LinkedList;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * <h2>ServerThread</h2> The ServerThread class is used to as a server for an
- * android monitor temprature monitor app.
- * 
+ * android monitor temprature monitor app. One listening socket is kept open
+ * and every client is served from a single {@link Selector}, so any number of
+ * clients can connect at the same time without a thread each. One server
+ * serves every vessel, clients on {@link #SERVER_PORT} get the first.<br>
+ * Clients on {@link #SERVER_PORT} get one snapshot and are disconnected.
+ * Clients on {@link #COMMAND_PORT} send commands followed by a newline, about
+ * the first vessel unless they have selected another.<br>
+ * "VESSELS" answers with a line "V,id" for every vessel and disconnects.<br>
+ * "VESSEL id" selects the vessel the following commands are about.<br>
+ * "SNAPSHOT" answers with the snapshot sent on {@link #SERVER_PORT} and
+ * disconnects.<br>
+ * "ROLLUP tier [from [to]]" answers with the {@link Rollup} lines of the tier
+ * "minute", "hour" or "day" between from and to, in milliseconds since the
+ * epoch, and disconnects.<br>
+ * "HISTORY from to [resolution [pageSize]]" answers with a page of
+ * {@link HistoryQuery} lines from the {@link HistoryStore} of the vessel,
+ * every sample from from to to in milliseconds since the epoch, or buckets of
+ * resolution seconds, at most pageSize lines, {@link HistoryQuery#PAGE} if not
+ * given. The page ends with "N,next" if there is more, asking again with next
+ * as from gives the next page, or "E" at the end of the range. The page is
+ * formatted as the client reads it, and the client may send its next command
+ * on the same connection when the page is read.<br>
+ * "SUBSCRIBE" or "SUBSCRIBE seconds" keeps the client connected, it is sent a line
+ * "S,minTemp,maxTemp,daysLastCheck,state,coolerOn,heaterOn" when any of these
+ * change and a line "T,time,currentTemp,rawTemp" for every new sample, where
+ * time is milliseconds since the epoch and rawTemp the reading before the
+ * filter, and a line "L,time,line" for every line logged that
+ * {@link Settings#telemetryLog} lets through, starting with the last lines
+ * kept by the {@link LogTail} of the vessel. Updates are sent at most once every
+ * {@link Settings#secondsBetweenPush} or the seconds the client asked for, if
+ * more has happened in between only the latest values are sent. A client asking
+ * for fewer seconds than {@link Settings#secondsBetweenPush}, or for a number
+ * that is not finite, is closed.
+ *
  * @author Anders Lunde
  * @version 0.1
  * @since 2020-23-9
  */
 class ServerThread implements Runnable {
-	/**
-	 * The {@link PrintWriter} is used to send formatted data from
-	 * {@link TemperatureHandler} to android app.
-	 */
-	private PrintWriter output;
 	/**
 	 * The {@link Integer} is used to store the server port number.
 	 */
 	int SERVER_PORT = 4111;
 	/**
-	 * The {@link ServerSocket} used for connections.
+	 * The {@link Integer} is used to store the port number for clients sending
+	 * commands.
 	 */
-	ServerSocket serverSocket;
+	int COMMAND_PORT = 4112;
 	/**
-	 * The {@link Integer} is used to store the server port number.
+	 * The {@link Long} milliseconds a client has to read its response before it
+	 * is disconnected.
+	 */
+	static final long WRITE_TIMEOUT = 5000;
+	/**
+	 * The {@link Integer} size of the pooled response buffers, grown if a
+	 * response does not fit.
+	 */
+	private static final int BUFFER_SIZE = 4096;
+	/**
+	 * The {@link Integer} number of samples sent in a snapshot, one for each log
+	 * period.
 	 */
+	static final int SNAPSHOT_LOGS = 23;
 
 	/**
-	 * The {@link TemperatureHandler} is the object that stores all relevant
-	 * information.
+	 * The {@link TemperatureHandler} of the first vessel, used by clients that do
+	 * not select a vessel.
 	 */
 	TemperatureHandler th;
+	/**
+	 * A {@link Map} of the {@link TemperatureHandler} of every vessel by
+	 * {@link Settings#id}, in the order they were started.
+	 */
+	private final Map<String, TemperatureHandler> vessels;
+	/**
+	 * The {@link Selector} all connections are registered with.
+	 */
+	private Selector selector;
+	/**
+	 * An {@link ArrayDeque} of response buffers not in use by a client.
+	 */
+	private final ArrayDeque<ByteBuffer> pool = new ArrayDeque<ByteBuffer>();
+	/**
+	 * The {@link StringBuilder} responses are formatted in before encoding.
+	 */
+	private final StringBuilder response = new StringBuilder();
+	/**
+	 * The {@link CharsetEncoder} used to encode responses as UTF-8.
+	 */
+	private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+	/**
+	 * The {@link Integer} size new response buffers are allocated with.
+	 */
+	private int bufferSize = BUFFER_SIZE;
+	/**
+	 * The {@link Long} connections accepted on both ports.
+	 */
+	private volatile long connections = 0;
+	/**
+	 * The {@link Integer} clients connected on both ports.
+	 */
+	private volatile int clients = 0;
+	/**
+	 * The {@link Long} commands run for clients on {@link #COMMAND_PORT}.
+	 */
+	private volatile long commands = 0;
+	/**
+	 * The {@link Long} bytes written to clients.
+	 */
+	private volatile long bytesServed = 0;
+	/**
+	 * The {@link SampleHistory.Cursor} snapshots read
+	 * {@link TemperatureHandler#getHistory} with.
+	 */
+	private final SampleHistory.Cursor cursor = new SampleHistory.Cursor();
+	/**
+	 * The times of {@link TemperatureHandler#getHistory} are copied here before
+	 * formatting a snapshot.
+	 */
+	private final long[] logTime = new long[SNAPSHOT_LOGS];
+	/**
+	 * The temperatures of {@link TemperatureHandler#getHistory} are copied here
+	 * before formatting a snapshot.
+	 */
+	private final double[] logTemp = new double[SNAPSHOT_LOGS];
+	/**
+	 * The relay states of {@link TemperatureHandler#getHistory} are copied here
+	 * before formatting a snapshot.
+	 */
+	private final byte[] logFlags = new byte[SNAPSHOT_LOGS];
 
 	/**
 	 * Constructor for {@link ServerThread}
-	 * 
-	 * @param th #TemperatureHandler
+	 *
+	 * @param vessels {@link Map} of the {@link TemperatureHandler} of every vessel
+	 *                by id, the first is the default vessel
 	 */
-	ServerThread(TemperatureHandler th) {
-		this.th = th;
+	ServerThread(Map<String, TemperatureHandler> vessels) {
+		this.vessels = vessels;
+		this.th = vessels.values().iterator().next();
+		for (TemperatureHandler vessel : vessels.values()) {
+			vessel.addListener(this::update);
+		}
 	}
 
 	/**
-	 * The {@link TemperatureHandler} is the object that stores all relevant
-	 * information to send.
+	 * Called on the control thread after every tick, wakes up {@link #selector}
+	 * so {@link #push} sends any new values
 	 */
+	private void update() {
+		Selector sel = selector;
+		if (sel != null) {
+			sel.wakeup();
+		}
+	}
 
 	/**
-	 * Sets up a {@link ServerSocket} and accepts connections. After connection it
-	 * starts sending information in the following order minTemp, currentTemp,
-	 * maxTemp,daysLastCheck and state. if at any point an {@link IOException}
-	 * occurs it will start a new thread and try to run again.
-	 * 
-	 * @see TemperatureHandler#getMinTemp
-	 * @see TemperatureHandler#getCurrentTemp
-	 * @see TemperatureHandler#getMaxTemp
-	 * @see TemperatureHandler#getDaysLastCheck
-	 * @see TemperatureHandler#getState
+	 * Binds {@link #SERVER_PORT} and {@link #COMMAND_PORT} and serves clients
+	 * until the thread is interrupted. Every client that connects to
+	 * {@link #SERVER_PORT} is sent the information in the following order
+	 * minTemp, currentTemp, maxTemp,daysLastCheck, state and the log list, then
+	 * disconnected. Clients that do not read their response within
+	 * {@link #WRITE_TIMEOUT} are disconnected.
+	 *
+	 * @see #accept
+	 * @see #subscribe
+	 * @see #push
+	 * @see #write
 	 */
 	@Override
 	public void run() {
-		Socket socket = null;
+		try (Selector sel = Selector.open();
+				ServerSocketChannel server = ServerSocketChannel.open();
+				ServerSocketChannel commandServer = ServerSocketChannel.open()) {
+			selector = sel;
+			listen(server, SERVER_PORT);
+			listen(commandServer, COMMAND_PORT);
+			long timeout = WRITE_TIMEOUT / 2;
+			while (!Thread.currentThread().isInterrupted()) {
+				selector.select(timeout);
+				Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+				while (it.hasNext()) {
+					SelectionKey key = it.next();
+					it.remove();
+					if (!key.isValid()) {
+						continue;
+					}
+					if (key.isAcceptable()) {
+						if (key.channel() == server) {
+							accept(server);
+						} else {
+							subscribe(commandServer);
+						}
+					} else if (key.isReadable()) {
+						read(key);
+					} else if (key.isWritable()) {
+						write(key);
+					}
+				}
+				timeout = push();
+				closeTimedOut();
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Binds server to port and registers it with {@link #selector}
+	 *
+	 * @param server {@link ServerSocketChannel} to bind
+	 * @param port   {@link Integer} port to listen on
+	 * @throws IOException if the port can not be bound
+	 */
+	private void listen(ServerSocketChannel server, int port) throws IOException {
+		server.setOption(java.net.StandardSocketOptions.SO_REUSEADDR, true);
+		server.bind(new InetSocketAddress(port));
+		server.configureBlocking(false);
+		server.register(selector, SelectionKey.OP_ACCEPT);
+	}
+
+	/**
+	 * Accepts every pending connection, formats the response into a pooled buffer
+	 * and starts writing it.
+	 *
+	 * @param server {@link ServerSocketChannel} with pending connections
+	 * @throws IOException if accepting fails
+	 */
+	private void accept(ServerSocketChannel server) throws IOException {
+		SocketChannel channel;
+		while ((channel = server.accept()) != null) {
+			channel.configureBlocking(false);
+			connections++;
+			clients++;
+			Client client = new Client(encode(snapshot(th)));
+			SelectionKey key = channel.register(selector, SelectionKey.OP_WRITE, client);
+			write(key);
+		}
+	}
+
+	/**
+	 * Accepts every pending subscribing connection and waits for its command
+	 *
+	 * @param server {@link ServerSocketChannel} with pending connections
+	 * @throws IOException if accepting fails
+	 */
+	private void subscribe(ServerSocketChannel server) throws IOException {
+		SocketChannel channel;
+		while ((channel = server.accept()) != null) {
+			channel.configureBlocking(false);
+			connections++;
+			clients++;
+			channel.register(selector, SelectionKey.OP_READ, new Subscriber(th));
+		}
+	}
 
+	/**
+	 * Reads the commands of a client on {@link #COMMAND_PORT}. A client sending an
+	 * unknown command is disconnected, after subscribing anything the client
+	 * sends is ignored.
+	 *
+	 * @param key {@link SelectionKey} of the client
+	 */
+	private void read(SelectionKey key) {
+		Subscriber sub = (Subscriber) key.attachment();
 		try {
-			serverSocket = new ServerSocket(SERVER_PORT);
-			socket = serverSocket.accept();
-			output = new PrintWriter(socket.getOutputStream());
-			output.write(th.getMinTemp() + "," + th.getCurrentTemp() + "," + th.getMaxTemp() + ","
-					+ (th.getDaysLastCheck() + 1) + "," + th.getState() + ",");
-			LinkedList<String> logList = th.getLogList();
-			for (int i = 0; i < logList.size(); i++) {
-				if (i < logList.size() - 1)
-					output.write(logList.get(i) + ",");
-				else {
-					output.write(logList.get(i));
+			if (((SocketChannel) key.channel()).read(sub.in) < 0) {
+				close(key);
+				return;
+			}
+		} catch (IOException e) {
+			close(key);
+			return;
+		}
+		if (sub.subscribed) {
+			sub.in.clear();
+			return;
+		}
+		commands(key, sub);
+	}
+
+	/**
+	 * Runs the commands read from a client on {@link #COMMAND_PORT} until one
+	 * does not let it send more. A client whose commands fill
+	 * {@link Subscriber#in} without a newline is disconnected.
+	 *
+	 * @param key {@link SelectionKey} of the client
+	 * @param sub {@link Subscriber} attached to key
+	 */
+	private void commands(SelectionKey key, Subscriber sub) {
+		String command;
+		while ((command = nextLine(sub.in)) != null) {
+			FlightEvents.ServerCommand event = new FlightEvents.ServerCommand();
+			event.begin();
+			boolean more = command(key, sub, command);
+			event.end();
+			if (event.shouldCommit()) {
+				event.command = command;
+				event.vessel = sub.th.getSettings().id;
+				event.commit();
+			}
+			if (!more) {
+				return;
+			}
+		}
+		if (!sub.in.hasRemaining()) {
+			close(key);
+		}
+	}
+
+	/**
+	 * Takes the first line out of in
+	 *
+	 * @param in {@link ByteBuffer} in write mode
+	 * @return {@link String} line without newline, null if in holds no full line
+	 */
+	private static String nextLine(ByteBuffer in) {
+		for (int i = 0; i < in.position(); i++) {
+			if (in.get(i) == '\n') {
+				String line = new String(in.array(), 0, i, StandardCharsets.US_ASCII).trim();
+				in.flip().position(i + 1);
+				in.compact();
+				return line;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Runs one command of a client on {@link #COMMAND_PORT}
+	 *
+	 * @param key     {@link SelectionKey} of the client
+	 * @param sub     {@link Subscriber} attached to key
+	 * @param command {@link String} the line sent
+	 * @return {@link Boolean} true if the client may send another command
+	 */
+	private boolean command(SelectionKey key, Subscriber sub, String command) {
+		commands++;
+		sub.commands++;
+		String[] words = command.split(" +");
+		if (words[0].equalsIgnoreCase("HISTORY") && words.length >= 3 && words.length <= 5) {
+			return history(key, sub, words);
+		}
+		if (words[0].equalsIgnoreCase("VESSEL") && words.length == 2 && vessels.containsKey(words[1])) {
+			sub.th = vessels.get(words[1]);
+			return true;
+		}
+		if (words[0].equalsIgnoreCase("VESSELS") && words.length == 1) {
+			response.setLength(0);
+			for (String id : vessels.keySet()) {
+				response.append("V,").append(id).append('\n');
+			}
+			respond(key, StandardCharsets.UTF_8.encode(CharBuffer.wrap(response)));
+			return false;
+		}
+		if (words[0].equalsIgnoreCase("SNAPSHOT") && words.length == 1) {
+			respond(key, encode(snapshot(sub.th)));
+			return false;
+		}
+		if (words[0].equalsIgnoreCase("ROLLUP") && words.length >= 2 && words.length <= 4) {
+			rollup(key, sub.th, words);
+			return false;
+		}
+		if (!words[0].equalsIgnoreCase("SUBSCRIBE") || words.length > 2) {
+			close(key);
+			return false;
+		}
+		double seconds = sub.th.getSettings().secondsBetweenPush;
+		if (words.length == 2) {
+			try {
+				double asked = Double.parseDouble(words[1]);
+				// NaN fails the comparison, a rate of 0 would push on every select
+				if (!(asked >= seconds) || Double.isInfinite(asked)) {
+					close(key);
+					return false;
 				}
+				seconds = asked;
+			} catch (NumberFormatException e) {
+				close(key);
+				return false;
 			}
-			output.flush();
-			socket.close();
-			serverSocket.close();
+		}
+		sub.in.clear();
+		sub.rate = (long) (seconds * 1e9);
+		sub.subscribed = true;
+		sub.deadline = 0;
+		sub.nextPush = System.nanoTime();
+		if (sub.out == null) {
+			sub.out = pool.isEmpty() ? ByteBuffer.allocateDirect(bufferSize) : pool.pop();
+		}
+		sub.out.clear().flip();
+		return false;
+	}
+
+	/**
+	 * Starts sending the page of a "HISTORY" command, the rest of the page is
+	 * formatted by {@link #write} as the client reads it
+	 *
+	 * @param key   {@link SelectionKey} of the client
+	 * @param sub   {@link Subscriber} attached to key
+	 * @param words {@link String} array with the words of the command
+	 * @return {@link Boolean} false, commands sent after it are run when the page
+	 *         is written
+	 */
+	private boolean history(SelectionKey key, Subscriber sub, String[] words) {
+		HistoryStore store = sub.th.getStore();
+		try {
+			sub.query = store == null ? null : HistoryQuery.parse(store, words);
+		} catch (IllegalArgumentException e) {
+			sub.query = null;
+		}
+		if (sub.query == null) {
+			close(key);
+			return false;
+		}
+		if (sub.out == null) {
+			sub.out = pool.isEmpty() ? ByteBuffer.allocateDirect(bufferSize) : pool.pop();
+		}
+		sub.out.clear().flip();
+		key.interestOps(SelectionKey.OP_WRITE);
+		sub.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(WRITE_TIMEOUT);
+		write(key);
+		return false;
+	}
+
+	/**
+	 * Formats the next part of the page of sub into its empty output buffer
+	 *
+	 * @param sub {@link Subscriber} sending a page
+	 * @return {@link Boolean} false if the page has been formatted to the end or
+	 *         nothing was formatted, a long bucket is then read on by the next
+	 *         {@link #write} so the other clients are not held up
+	 * @throws IOException if the part does not fit in the buffer, the client is
+	 *                     then closed instead of sent a cut page
+	 */
+	private boolean page(Subscriber sub) throws IOException {
+		if (sub.query.isDone()) {
+			return false;
+		}
+		response.setLength(0);
+		sub.query.fill(response, sub.out.capacity() - 128);
+		sub.out.clear();
+		encoder.reset();
+		CoderResult result = encoder.encode(CharBuffer.wrap(response), sub.out, true);
+		sub.out.flip();
+		if (result.isOverflow()) {
+			throw new IOException("page does not fit in " + sub.out.capacity() + " bytes");
+		}
+		return sub.out.hasRemaining();
+	}
+
+	/**
+	 * Replaces the {@link Subscriber} of key with a {@link Client} writing buffer,
+	 * the client is disconnected after the answer is written. The output buffer
+	 * of the subscriber goes back to {@link #pool} and its
+	 * {@link FlightEvents.ClientServe}, bytes and commands carry over to the
+	 * client.
+	 *
+	 * @param key    {@link SelectionKey} of the client
+	 * @param buffer {@link ByteBuffer} with the answer
+	 */
+	private void respond(SelectionKey key, ByteBuffer buffer) {
+		Subscriber sub = (Subscriber) key.attachment();
+		release(sub.out);
+		sub.out = null;
+		Client client = new Client(buffer, sub.event, "command");
+		client.written = sub.written;
+		client.commands = sub.commands;
+		key.attach(client);
+		key.interestOps(SelectionKey.OP_WRITE);
+		write(key);
+	}
+
+	/**
+	 * Answers "ROLLUP tier [from [to]]" and disconnects the client after the
+	 * answer is written
+	 *
+	 * @param key    {@link SelectionKey} of the client
+	 * @param vessel {@link TemperatureHandler} of the vessel asked about
+	 * @param words  {@link String} array with the words of the command
+	 */
+	private void rollup(SelectionKey key, TemperatureHandler vessel, String[] words) {
+		Rollup rollup = vessel.getRollups().get(words[1]);
+		long from = Long.MIN_VALUE;
+		long to = Long.MAX_VALUE;
+		try {
+			if (words.length > 2) {
+				from = Long.parseLong(words[2]);
+			}
+			if (words.length > 3) {
+				to = Long.parseLong(words[3]);
+			}
+		} catch (NumberFormatException e) {
+			rollup = null;
+		}
+		if (rollup == null) {
+			close(key);
+			return;
+		}
+		response.setLength(0);
+		rollup.format(response, from, to);
+		respond(key, StandardCharsets.UTF_8.encode(CharBuffer.wrap(response)));
+	}
+
+	/**
+	 * Sends the latest state, sample and log lines to every subscribed client that is due an
+	 * update and has written everything it was sent before.
+	 *
+	 * @return {@link Long} milliseconds until the next client is due an update
+	 */
+	private long push() {
+		long now = System.nanoTime();
+		long next = TimeUnit.MILLISECONDS.toNanos(WRITE_TIMEOUT / 2);
+		TemperatureHandler stateVessel = null;
+		String stateLine = null;
+		for (SelectionKey key : selector.keys()) {
+			Object a = key.attachment();
+			if (!(a instanceof Subscriber) || !key.isValid()) {
+				continue;
+			}
+			Subscriber sub = (Subscriber) a;
+			if (!sub.subscribed || sub.out.hasRemaining()) {
+				continue;
+			}
+			if (sub.th != stateVessel) {
+				stateVessel = sub.th;
+				stateLine = stateLine(sub.th);
+			}
+			long sampleTime = sub.th.getSampleTime();
+			boolean stateChanged = !stateLine.equals(sub.lastState);
+			boolean sampled = sampleTime != 0 && sampleTime != sub.lastSample;
+			boolean logged = sub.th.getTail().getWritten() != sub.lastLog;
+			if (!stateChanged && !sampled && !logged) {
+				continue;
+			}
+			if (now - sub.nextPush < 0) {
+				next = Math.min(next, sub.nextPush - now);
+				continue;
+			}
+			response.setLength(0);
+			if (stateChanged) {
+				response.append(stateLine).append('\n');
+				sub.lastState = stateLine;
+			}
+			if (sampled) {
+				response.append("T,").append(sampleTime).append(',').append(sub.th.getCurrentTemp()).append(',')
+						.append(sub.th.getRawTemp()).append('\n');
+				sub.lastSample = sampleTime;
+			}
+			if (logged) {
+				sub.lastLog = sub.th.getTail().append(response, sub.lastLog);
+			}
+			sub.out.clear();
+			encoder.reset();
+			CoderResult result = encoder.encode(CharBuffer.wrap(response), sub.out, true);
+			sub.out.flip();
+			if (result.isOverflow()) {
+				close(key);
+				continue;
+			}
+			sub.nextPush = now + sub.rate;
+			sub.deadline = now + TimeUnit.MILLISECONDS.toNanos(WRITE_TIMEOUT);
+			write(key);
+		}
+		return Math.max(1, TimeUnit.NANOSECONDS.toMillis(next));
+	}
+
+	/**
+	 * Formats the line sent to subscribers when the state of a vessel changes
+	 *
+	 * @param th {@link TemperatureHandler} of the vessel
+	 * @return {@link String} "S,minTemp,maxTemp,daysLastCheck,state,coolerOn,heaterOn"
+	 */
+	private static String stateLine(TemperatureHandler th) {
+		return "S," + th.getMinTemp() + "," + th.getMaxTemp() + "," + (th.getDaysLastCheck() + 1) + ","
+				+ th.getState() + "," + th.isCoolerOn() + "," + th.isHeaterOn();
+	}
+
+	/**
+	 * Writes as much of the pending output as the client takes. A snapshot client
+	 * is disconnected when everything is written, a subscriber waits for its next
+	 * update. A client being sent a page is sent the rest of it as fast as it
+	 * reads and the store is read, and its next command is run when the page is
+	 * written.
+	 *
+	 * @param key {@link SelectionKey} of the client
+	 */
+	private void write(SelectionKey key) {
+		Object a = key.attachment();
+		SocketChannel channel = (SocketChannel) key.channel();
+		try {
+			if (a instanceof Subscriber) {
+				Subscriber sub = (Subscriber) a;
+				long before = sub.written;
+				do {
+					int n = channel.write(sub.out);
+					bytesServed += n;
+					sub.written += n;
+				} while (!sub.out.hasRemaining() && sub.query != null && page(sub));
+				if (sub.query != null) {
+					// an empty buffer before the end is the server reading, not the client
+					if (sub.written > before || !sub.out.hasRemaining()) {
+						sub.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(WRITE_TIMEOUT);
+					}
+					if (!sub.out.hasRemaining() && sub.query.isDone()) {
+						sub.query = null;
+						key.interestOps(SelectionKey.OP_READ);
+						commands(key, sub);
+					}
+				} else if (sub.out.hasRemaining()) {
+					key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+				} else {
+					key.interestOps(SelectionKey.OP_READ);
+					sub.deadline = 0;
+				}
+				return;
+			}
+			Client client = (Client) a;
+			int n = channel.write(client.buffer);
+			bytesServed += n;
+			client.written += n;
+			if (!client.buffer.hasRemaining()) {
+				close(key);
+			}
+		} catch (IOException e) {
+			close(key);
+		}
+	}
+
+	/**
+	 * Closes clients that have not read their response or sent their command
+	 * within {@link #WRITE_TIMEOUT}
+	 */
+	private void closeTimedOut() {
+		long now = System.nanoTime();
+		for (SelectionKey key : selector.keys()) {
+			Object a = key.attachment();
+			if (a instanceof Client && now - ((Client) a).deadline > 0) {
+				close(key);
+			} else if (a instanceof Subscriber && ((Subscriber) a).deadline != 0
+					&& now - ((Subscriber) a).deadline > 0) {
+				close(key);
+			}
+		}
+	}
+
+	/**
+	 * Closes the connection of key and returns its buffer to {@link #pool}
+	 *
+	 * @param key {@link SelectionKey} of the client
+	 */
+	private void close(SelectionKey key) {
+		served(key);
+		key.cancel();
+		try {
+			key.channel().close();
 		} catch (IOException e) {
-			// TODO Auto-generated catch block
 			e.printStackTrace();
 		}
-		new Thread(new ServerThread(th)).start();
+		Object a = key.attachment();
+		if (a != null) {
+			clients--;
+		}
+		ByteBuffer buffer = null;
+		if (a instanceof Client) {
+			buffer = ((Client) a).buffer;
+		} else if (a instanceof Subscriber) {
+			buffer = ((Subscriber) a).out;
+		}
+		release(buffer);
+		key.attach(null);
+	}
+
+	/**
+	 * Commits the {@link FlightEvents.ClientServe} of the client of key if a
+	 * recording wants it, before its connection is closed
+	 *
+	 * @param key {@link SelectionKey} of the client
+	 */
+	private static void served(SelectionKey key) {
+		Object a = key.attachment();
+		FlightEvents.ClientServe event;
+		if (a instanceof Client) {
+			event = ((Client) a).event;
+			event.kind = ((Client) a).kind;
+			event.bytes = ((Client) a).written;
+			event.commands = ((Client) a).commands;
+		} else if (a instanceof Subscriber) {
+			event = ((Subscriber) a).event;
+			event.kind = "command";
+			event.bytes = ((Subscriber) a).written;
+			event.commands = ((Subscriber) a).commands;
+		} else {
+			return;
+		}
+		event.end();
+		if (event.shouldCommit()) {
+			event.address = String.valueOf(((SocketChannel) key.channel()).socket().getRemoteSocketAddress());
+			event.commit();
+		}
+	}
+
+	/**
+	 * Returns a buffer from {@link #encode} to {@link #pool}, buffers smaller than
+	 * {@link #bufferSize} are dropped
+	 *
+	 * @param buffer {@link ByteBuffer} no longer written, may be null
+	 */
+	void release(ByteBuffer buffer) {
+		if (buffer != null && buffer.isDirect() && buffer.capacity() == bufferSize) {
+			pool.push(buffer);
+		}
+	}
+
+	/**
+	 * Formats minTemp, currentTemp, maxTemp, daysLastCheck, state and the first
+	 * sample of each of the last {@link #SNAPSHOT_LOGS} periods of
+	 * {@link Settings#secondsBetweenLogs} comma separated into {@link #response}
+	 *
+	 * @see TemperatureHandler#getMinTemp
+	 * @see TemperatureHandler#getCurrentTemp
+	 * @see TemperatureHandler#getMaxTemp
+	 * @see TemperatureHandler#getDaysLastCheck
+	 * @see TemperatureHandler#getState
+	 * @see TemperatureHandler#getHistory
+	 * @param th {@link TemperatureHandler} of the vessel
+	 * @return {@link #response}
+	 */
+	StringBuilder snapshot(TemperatureHandler th) {
+		response.setLength(0);
+		response.append(th.getMinTemp()).append(',').append(th.getCurrentTemp()).append(',')
+				.append(th.getMaxTemp()).append(',').append(th.getDaysLastCheck() + 1).append(',')
+				.append(th.getState()).append(',');
+		long step = Math.round(th.getSettings().secondsBetweenLogs() * 1000);
+		int n = th.getHistory().snapshot(cursor, step, SNAPSHOT_LOGS, logTime, logTemp, logFlags);
+		for (int i = 0; i < n; i++) {
+			if (i > 0) {
+				response.append(',');
+			}
+			TempDateTime.appendLog(response, logTime[i], logTemp[i], logFlags[i]);
+		}
+		return response;
+	}
+
+	/**
+	 * Encodes text into a buffer from {@link #pool}, growing
+	 * {@link #bufferSize} and dropping the pool if the text does not fit.
+	 *
+	 * @param text {@link CharSequence} to encode
+	 * @return {@link ByteBuffer} ready to be written
+	 */
+	ByteBuffer encode(CharSequence text) {
+		while (true) {
+			ByteBuffer buffer = pool.isEmpty() ? ByteBuffer.allocateDirect(bufferSize) : pool.pop();
+			buffer.clear();
+			encoder.reset();
+			CharBuffer chars = CharBuffer.wrap(text);
+			CoderResult result = encoder.encode(chars, buffer, true);
+			if (!result.isOverflow()) {
+				result = encoder.flush(buffer);
+			}
+			if (!result.isOverflow()) {
+				buffer.flip();
+				return buffer;
+			}
+			bufferSize *= 2;
+			pool.clear();
+		}
+	}
+
+	/**
+	 * @return {@link #connections}
+	 */
+	long getConnections() {
+		return connections;
+	}
+
+	/**
+	 * @return {@link #clients}
+	 */
+	int getClients() {
+		return clients;
+	}
+
+	/**
+	 * @return {@link #commands}
+	 */
+	long getCommands() {
+		return commands;
+	}
+
+	/**
+	 * @return {@link #bytesServed}
+	 */
+	long getBytesServed() {
+		return bytesServed;
+	}
+
+	/**
+	 * <h2>Client</h2> A connected client with the response being written to it.
+	 */
+	private static class Client {
+		/**
+		 * The {@link ByteBuffer} with the rest of the response
+		 */
+		final ByteBuffer buffer;
+		/**
+		 * The {@link System#nanoTime} the client is disconnected at
+		 */
+		final long deadline;
+		/**
+		 * The {@link Long} bytes written to the client
+		 */
+		long written = 0;
+		/**
+		 * The {@link Integer} commands the client has sent
+		 */
+		int commands = 0;
+		/**
+		 * The {@link FlightEvents.ClientServe} begun when the client was accepted
+		 */
+		final FlightEvents.ClientServe event;
+		/**
+		 * The {@link String} kind of client in {@link #event}, "snapshot" or
+		 * "command"
+		 */
+		final String kind;
+
+		/**
+		 * @param buffer {@link ByteBuffer} with the response
+		 */
+		Client(ByteBuffer buffer) {
+			this(buffer, new FlightEvents.ClientServe(), "snapshot");
+			event.begin();
+		}
+
+		/**
+		 * @param buffer {@link ByteBuffer} with the response
+		 * @param event  {@link FlightEvents.ClientServe} begun when the client was
+		 *               accepted
+		 * @param kind   {@link String} kind of client in event
+		 */
+		Client(ByteBuffer buffer, FlightEvents.ClientServe event, String kind) {
+			this.buffer = buffer;
+			this.deadline = System.nanoTime() + WRITE_TIMEOUT * 1000000L;
+			this.event = event;
+			this.kind = kind;
+		}
+	}
+
+	/**
+	 * <h2>Subscriber</h2> A client connected to {@link #COMMAND_PORT}.
+	 */
+	private static class Subscriber {
+		/**
+		 * The {@link ByteBuffer} the commands are read into
+		 */
+		final ByteBuffer in = ByteBuffer.allocate(128);
+		/**
+		 * The {@link TemperatureHandler} of the vessel the commands are about
+		 */
+		TemperatureHandler th;
+		/**
+		 * The {@link ByteBuffer} with output not yet written, null until subscribed
+		 * or sent a page
+		 */
+		ByteBuffer out = null;
+		/**
+		 * The {@link HistoryQuery} of the page being sent, null if none is
+		 */
+		HistoryQuery query = null;
+		/**
+		 * The {@link Boolean} true after the client has sent its command
+		 */
+		boolean subscribed = false;
+		/**
+		 * The {@link Long} fewest nanoseconds between updates
+		 */
+		long rate;
+		/**
+		 * The {@link System#nanoTime} the next update may be sent at
+		 */
+		long nextPush;
+		/**
+		 * The {@link Long} time of the last sample sent
+		 */
+		long lastSample = -1;
+		/**
+		 * The {@link Long} number of lines of the {@link LogTail} sent
+		 */
+		long lastLog = 0;
+		/**
+		 * The {@link String} last state line sent
+		 */
+		String lastState = null;
+		/**
+		 * The {@link System#nanoTime} the client is disconnected at if it has not
+		 * sent its command or read its output, 0 if it is not waited on
+		 */
+		long deadline = System.nanoTime() + WRITE_TIMEOUT * 1000000L;
+		/**
+		 * The {@link Long} bytes written to the client
+		 */
+		long written = 0;
+		/**
+		 * The {@link Integer} commands the client has sent
+		 */
+		int commands = 0;
+		/**
+		 * The {@link FlightEvents.ClientServe} begun when the client was accepted
+		 */
+		final FlightEvents.ClientServe event = new FlightEvents.ClientServe();
+
+		/**
+		 * @param th {@link TemperatureHandler} of the default vessel
+		 */
+		Subscriber(TemperatureHandler th) {
+			this.th = th;
+			event.begin();
+		}
 	}
 }
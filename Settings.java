@@ -1,7 +1,8 @@
 package Brewmaster;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Objects;
 import java.util.Scanner;
 
 /**
@@ -10,7 +11,15 @@ import java.util.Scanner;
 *<h2>Ex. of settings file below</h2>
 *"<br>
 *#settings<br>
+*Id=fridge1<br>
+*ProbeId=28-0000075a1b2c<br>
 *LogFileName=brew.log<br>
+*LogRotate=none<br>
+*LogMaxSize=10<br>
+*HistoryFile=brew.hist<br>
+*CheckpointFile=brew.ckpt<br>
+*ArchiveDir=brew.archive<br>
+*ArchivePrune=0<br>
 *CoolerState=1<br>
 *HeaterState=0<br>
 *HasHeater=0<br>
@@ -20,13 +29,34 @@ import java.util.Scanner;
 *HeaterIp=0<br>
 *LogFreq=1<br>
 *Onoffdelay=10<br>
+*Controller=hysteresis<br>
+*PidKp=0.5<br>
+*PidKi=0.1<br>
+*PidKd=0.5<br>
+*PidWindow=20<br>
+*PredictLag=10<br>
+*SamplePeriod=1<br>
+*ControlPeriod=1<br>
+*RelayMode=kasa<br>
+*RelayConnectTimeout=2<br>
+*RelayReadTimeout=5<br>
+*SubscribeRate=1<br>
+*HistorySize=5184000<br>
+*Filter=reject,median:5<br>
+*ProbeFailLimit=10<br>
+*ProbeTimeout=60<br>
+*ConsoleLog=sample<br>
+*FileLog=sample<br>
+*TelemetryLog=info<br>
 *#days;temp<br>
 *!state=Ferment<br>
 *14;12<br>
 *!state=Diactyl rest<br>
 *3;16.66<br>
 *!state=Lager cooldown<br>
-*1;13.89<br>
+*5;13.89&gt;2.78<br>
+*!state=Lager<br>
+*0.5;&gt;1.67<br>
 *"
 * @author  Anders Lunde
 * @version 0.1
@@ -36,10 +66,6 @@ import java.util.Scanner;
 public class Settings {
 	
 
-	/**
-	* The {@link Integer} represents total number of days to control temperature.
-	*/
-	protected int totalDays;
 	/**
 	* The {@link Double} represents temperature margin in positive direction.
 	*/
@@ -53,10 +79,74 @@ public class Settings {
 	*/
 	protected double minutesToWaitPowerSwitch;
 	/**
+	* The {@link String} represents how the relays are controlled, "hysteresis", "pid" or "predictive".
+	*/
+	protected String controller = "hysteresis";
+	/**
+	* The {@link Double} represents the fraction of a {@link #pidWindow} the cooler runs per degree above the target.
+	*/
+	protected double pidKp = 0.5;
+	/**
+	* The {@link Double} represents the fraction of a {@link #pidWindow} added per degree hour above the target.
+	*/
+	protected double pidKi = 0.1;
+	/**
+	* The {@link Double} represents the fraction of a {@link #pidWindow} added per degree per hour the temperature rises.
+	*/
+	protected double pidKd = 0.5;
+	/**
+	* The {@link Double} represents the longest minutes the pid controller runs a relay for each time the temperature leaves the band.
+	*/
+	protected double pidWindow = 20;
+	/**
+	* The {@link Double} represents the minutes ahead the predictive controller predicts the temperature.
+	*/
+	protected double predictLag = 10;
+	/**
 	* The {@link Double} represents minutes to wait between logging.
 	*/
 	protected double minutesToWaitLog;
 	/**
+	* The {@link Double} represents seconds to wait between reading the temperature probe.
+	*/
+	protected double secondsBetweenSamples = 1;
+	/**
+	* The {@link Double} represents seconds to wait between checking the temperature against the relays.
+	*/
+	protected double secondsBetweenControl = 1;
+	/**
+	* The {@link Double} represents the fewest seconds between updates pushed to a subscribed telemetry client.
+	*/
+	protected double secondsBetweenPush = 1;
+	/**
+	* The {@link Integer} represents how many samples are kept in memory, 60 days of samples a second.
+	*/
+	protected int historySize = 5184000;
+	/**
+	* The {@link String} represents the {@link FilterStage}s every probe reading goes through, ex. "reject,median:5".
+	*/
+	protected String filter = "reject";
+	/**
+	* The {@link Integer} represents how many probe readings in a row may fail or be dropped by the filter before both relays are turned off.
+	*/
+	protected int probeFailLimit = 10;
+	/**
+	* The {@link Double} represents the most seconds without a good probe reading before both relays are turned off.
+	*/
+	protected double probeTimeout = 60;
+	/**
+	* The {@link String} represents the level and rate of the lines printed to the console, ex. "info" or "sample:600".
+	*/
+	protected String consoleLog = "sample";
+	/**
+	* The {@link String} represents the level and rate of the lines written to the log file.
+	*/
+	protected String fileLog = "sample";
+	/**
+	* The {@link String} represents the level and rate of the lines sent to subscribed telemetry clients.
+	*/
+	protected String telemetryLog = "info";
+	/**
 	* The {@link Boolean} represents if the program should support a heater connected to a wireless relay.
 	*/
 	protected boolean hasHeater = false;
@@ -73,52 +163,115 @@ public class Settings {
 	*/
 	protected String coolerIp;
 	/**
-	* The {@link LinkedList} represents the ip heaters wireless relay.
+	* The {@link String} represents the ip heaters wireless relay.
 	*/
 	protected String heaterIp;
 	/**
-	* A {@link LinkedList} containing {@link TempDateTime} temperature, date and time positioned by day where 0 is day 1, x is day-1.
+	* The {@link String} represents how to talk to the wireless relays, "kasa" for the built in client or "exec" to run python-kasa.
+	*/
+	protected String relayMode = "kasa";
+	/**
+	* The {@link Double} represents seconds to wait for a wireless relay to accept a connection.
+	*/
+	protected double relayConnectTimeout = 2;
+	/**
+	* The {@link Double} represents seconds to wait for a wireless relay to answer a command.
 	*/
-	protected LinkedList<Double> dailyTemp;
+	protected double relayReadTimeout = 5;
 	/**
-	* A {@link String} containing {@link String} state positioned by day where 0 is day 1, x is day-1.
+	* The {@link Schedule} of temperatures and states compiled from the day;temp lines.
 	*/
-	protected LinkedList<String> dailyState;
+	protected Schedule schedule;
 	/**
 	* The {@link String} represents the path of the logfile.
 	*/
-	protected String logFileName;
+	protected String logFileName = "brew.log";
+	/**
+	* The {@link String} represents when the logfile is rotated, "none", "size" or "day".
+	*/
+	protected String logRotate = "none";
+	/**
+	* The {@link Double} represents the size in megabytes the logfile is rotated at when logRotate is "size".
+	*/
+	protected double logMaxSize = 10;
+	/**
+	* The {@link String} represents the path of the history file every sample is stored in, "none" to not store samples.
+	*/
+	protected String historyFile;
+	/**
+	* The {@link String} represents the path of the file the progress of the schedule is kept in so it can be resumed after a restart, "none" to not keep it.
+	*/
+	protected String checkpointFile;
+	/**
+	* The {@link String} represents the path of the folder every finished day is archived in, "none" to not archive.
+	*/
+	protected String archiveDir;
+	/**
+	* The {@link Boolean} represents if the log file's day rotations and the history file are pruned of what is archived.
+	*/
+	protected boolean archivePrune = false;
+	/**
+	* The {@link String} represents the path of the settings file these settings were loaded from.
+	*/
+	protected String file;
+	/**
+	* The {@link String} represents the id clients select the vessel by, defaults to the settings file name without extension.
+	*/
+	protected String id;
+	/**
+	* The {@link String} represents the folder name of the temperature probe in /sys/bus/w1/devices/, null to use the first probe found.
+	*/
+	protected String probeId;
 	
 	/**
-	 * Sets up a Settings object by initializes LinkedList dailyTemp and dailyState. Setting totalDays to 0 and calling load()
+	 * Sets up a Settings object by calling load()
 	 * @see #load
 	 * @param file a {@link String} with the log file path
 	 */
 	Settings(String file){
-		dailyTemp = new LinkedList<Double>();
-		dailyState = new LinkedList<String>();
-		totalDays = 0;
+		this.file = file;
 		load(file);
 	}
 	
 	/**
 	*The load methode will load a settings file.<br>
-	*It will check the file for LogFileName,CoolerState,HeaterState,HasHeater,DiffPlus,DiffMinus,CoolerIp,HeaterIp,LogFreq,Onoffdelay
+	*It will check the file for Id,ProbeId,LogFileName,LogRotate,LogMaxSize,HistoryFile,CheckpointFile,ArchiveDir,ArchivePrune,CoolerState,HeaterState,HasHeater,DiffPlus,DiffMinus,CoolerIp,HeaterIp,LogFreq,Onoffdelay,Controller,PidKp,PidKi,PidKd,PidWindow,PredictLag,SamplePeriod,ControlPeriod,RelayMode,RelayConnectTimeout,RelayReadTimeout,SubscribeRate,HistorySize,Filter,ProbeFailLimit,ProbeTimeout,ConsoleLog,FileLog,TelemetryLog
 	*,!state and day;temp.<br>
 	*Day and temp are separated by ';' everything else is separated by "tag=" tags are case sensitive.<br>
 	*"tag=" will try to load everything after the '=' in the same line.<br>
 	*It does not matter in what order the settings are specified except for the states and day;temps.<br>
 	*They are loaded by there position in the file, all days and temps after a !state are in that state until a new !state is listed.<br>
-	*The file containing  "...(\n)x;y(\n)a;b(\n)..." will hold temperature y for x days then b for a days<br><br>
-	*<br>LogFileName<br> needs to be a valid path to a file this is the programs log file, it does not have to exist before you start the program<br>
+	*The file containing  "...(\n)x;y(\n)a;b(\n)..." will hold temperature y for x days then b for a days<br>
+	*The file containing  "...(\n)x;y&gt;z(\n)a;&gt;b(\n)..." will ramp the temperature from y to z over x days then on from z to b over a days<br><br>
+	*<br>Id<br> is the name clients select this vessel by when several settings files are run at once, defaults to the settings file name without extension<br>
+	*<br>ProbeId<br> is the folder name of the probe in /sys/bus/w1/devices/ ex. 28-0000075a1b2c, needed when several probes are connected, defaults to the first probe found<br>
+	*<br>LogFileName<br> needs to be a valid path to a file this is the programs log file, it does not have to exist before you start the program, defaults to brew.log<br>
+	*<br>HistoryFile<br> needs to be a valid path to a file, every sample is stored there with the band and relay states, defaults to LogFileName with .hist instead of .log. "none" turns it off<br>
+	*<br>CheckpointFile<br> needs to be a valid path to a file, the day, relay states and relay delays are kept there so a restarted program resumes the schedule where it was, defaults to LogFileName with .ckpt instead of .log. "none" turns it off<br>
+	*<br>ArchiveDir<br> needs to be a valid path to a folder, every day of the schedule is sealed there at midnight of the schedule as a compressed and checksummed segment with the log lines and the samples from HistoryFile of the day, defaults to LogFileName with .archive instead of .log. "none" turns it off<br>
+	*<br>ArchivePrune<br> needs to be an integer between 0 and 1, 1 deletes the LogFileName.dayN rotations and drops the samples from HistoryFile when the program starts, keeping the last HistorySize, once they are in segments that pass their crc check, defaults to 0 which keeps everything<br>
+	*<br>LogRotate<br> is "none", "size" to rotate the log file to LogFileName.1 when it is larger than LogMaxSize megabytes, keeping 5 old files, or "day" to rotate it to LogFileName.dayN at the end of every day N of the schedule, defaults to none<br>
 	*<br>CoolerState,HeaterState,HasHeater<br> needs to an integer between 0 and 1, 0 representing false and 1 representing true<br>
 	*<br>DiffPlus,DiffMinus<br> can be an integer or a decimal number and represents the acceptable temperature differential.<br>
-	*<br>CoolerIp,HeaterIp<br> needs to be the ip address of your wireless relay, if HasHeater is false HeaterIp is not needed.<br>
-	*<br>LogFreq,Onoffdelay<br> can be an integer or a decimal number and defines the wait time in minutes.<br>
+	*<br>CoolerIp,HeaterIp<br> needs to be the ip address of your wireless relay, if HasHeater is false HeaterIp is not needed. "ip:port" can be used to reach a relay on another port than 9999.<br>
+	*<br>RelayMode<br> is "kasa" to switch the relays with the built in kasa client or "exec" to run python-kasa, defaults to kasa.<br>
+	*<br>RelayConnectTimeout,RelayReadTimeout<br> can be an integer or a decimal number and defines the wait time in seconds for a relay to connect and answer, defaults to 2 and 5.<br>
+	*<br>LogFreq,Onoffdelay<br> can be an integer or a decimal number and defines the wait time in minutes. A LogFreq shorter than SamplePeriod, or 0, logs every sample.<br>
+	*<br>Controller<br> is "hysteresis" to switch the relays when the temperature leaves the band, "pid" for a time proportioning pid controller or "predictive" to switch on the temperature expected PredictLag minutes ahead, defaults to hysteresis. The pid and predictive controllers turn a relay on when the temperature leaves the band like hysteresis, pid runs it for as long as its terms ask for and predictive until the temperature is expected to reach the target.<br>
+	*<br>PidKp,PidKi,PidKd<br> can be an integer or a decimal number, the fraction of PidWindow the cooler (or heater when negative) runs per degree above the target, per degree hour above it and per degree per hour it rises, default to 0.5, 0.1 and 0.5.<br>
+	*<br>PidWindow,PredictLag<br> can be an integer or a decimal number of minutes, the longest time the pid controller runs a relay for and the time the predictive controller looks ahead, default to 20 and 10. Onoffdelay is the shortest time a relay is left on or off by both, PidWindow must be at least twice it.<br>
+	*<br>SamplePeriod,ControlPeriod<br> can be an integer or a decimal number and defines the wait time in seconds between reading the probe and checking the relays, both default to 1.<br>
+	*<br>SubscribeRate<br> can be an integer or a decimal number and defines the fewest seconds between updates pushed to a subscribed client, defaults to 1. Clients may ask for a slower rate, a client asking for a faster one is closed.<br>
+	*<br>HistorySize<br> needs to be an integer and is the number of samples kept in memory, compressed to about a byte each, defaults to 5184000, 60 days of samples a second. The oldest are dropped a few thousand at a time.<br>
+	*<br>Filter<br> is a comma separated list of the stages every probe reading goes through before the relays are switched on it, run in the order listed. "reject" drops readings outside -55 to 125 and the 85, -0.0625 and 127.9375 a glitching probe gives unless the last reading was close to them, "median:n" uses the median of the last n readings (odd, 3 to 15), "ema:alpha" an exponential moving average moving alpha (above 0, at most 1) of the way to every reading and "rate:r" limits the change to r degrees a minute. "none" uses every reading as it is, defaults to reject.<br>
+	*<br>ProbeFailLimit,ProbeTimeout<br> are the number of probe readings in a row that may fail or be dropped by Filter and the seconds that may pass without a good reading, an integer and an integer or a decimal number longer than SamplePeriod. When either is reached both relays are turned off until the probe reads again, default to 10 and 60.<br>
+	*<br>ConsoleLog,FileLog,TelemetryLog<br> are "level" or "level:seconds" and choose what is printed to the console, written to LogFileName and sent to subscribed clients. The level is "sample" for everything, "info" for the days, relay switches, reloads and other messages, "warn" for failed and rejected probe readings only or "off". No more than one line of each level is let through every seconds, if given. Default to sample, sample and info.<br>
 	*<br>!state<br> gives the state name, it will persist until given a new state name, if no !states are given it will be left blank ("")<br>
-	*<br>Days and temperatures<br> needs to be listed as d;t where d is an integer of days and t is an integer or a decimal number representing the temperature(degrees Celsius) you want to keep.<br>
-	*log file will ignore lines starting with '#' it is used for comments<br><br>
+	*<br>Days and temperatures<br> needs to be listed as d;t where d is an integer or a decimal number of days and t is an integer or a decimal number representing the temperature(degrees Celsius) you want to keep.
+	*d;t1&gt;t2 changes the temperature evenly from t1 to t2 over the d days, d;&gt;t from the temperature the line before ended at to t.<br>
+	*log file will ignore empty lines and lines starting with '#' it is used for comments<br><br>
 	*@param file {@link String} that stores the path of a settings file
+	*@throws IllegalArgumentException if the file can not be read or a value can not be parsed
 	*@see #splitByEquals
 	*/
 	private void load(String file){
@@ -127,14 +280,28 @@ public class Settings {
 		try {
 			s = new Scanner(f);
 		} catch (FileNotFoundException e) {
-			e.printStackTrace();
+			throw new IllegalArgumentException("Settings file " + file + " not found", e);
 		}
 		
 		String lastState = "";
+		ArrayList<Double> days = new ArrayList<Double>();
+		ArrayList<Double> from = new ArrayList<Double>();
+		ArrayList<Double> to = new ArrayList<Double>();
+		ArrayList<String> states = new ArrayList<String>();
 		while(s.hasNext()) {
 			String line = s.nextLine();
-			if(line.charAt(0) == '#') {
-			}else if(line.contains("HasHeater")) {
+			if(line.isEmpty() || line.charAt(0) == '#') {
+			}else if(line.startsWith("!state")) {
+				// before the keys, a state may be named anything
+				String ret = splitByEquals(line);
+				lastState = ret;
+			}else if(line.startsWith("Id=")) {
+				String ret = splitByEquals(line);
+				id = ret.trim();
+			}else if(line.startsWith("ProbeId=")) {
+				String ret = splitByEquals(line);
+				probeId = ret.trim();
+			}else if(line.startsWith("HasHeater")) {
 				String ret = splitByEquals(line);
 				int bool = Integer.parseInt(ret);
 				if(bool == 0) {
@@ -142,11 +309,11 @@ public class Settings {
 				}else if(bool == 1) {
 					hasHeater = true;
 				}
-			}else if(line.contains("HeaterIp")) {
+			}else if(line.startsWith("HeaterIp")) {
 				String ret = splitByEquals(line);
 				heaterIp = ret;
 			
-			}else if(line.contains("CoolerState")) {
+			}else if(line.startsWith("CoolerState")) {
 				String ret = splitByEquals(line);
 				int bool = Integer.parseInt(ret);
 				if(bool == 0) {
@@ -155,7 +322,7 @@ public class Settings {
 					coolerState = true;
 				}
 			
-			}else if(line.contains("HeaterState")) {
+			}else if(line.startsWith("HeaterState")) {
 				String ret = splitByEquals(line);
 				int bool = Integer.parseInt(ret);
 				if(bool == 0) {
@@ -163,42 +330,264 @@ public class Settings {
 				}else if(bool == 1) {
 					heaterState = true;
 				}
-			}else if(line.contains("CoolerIp")) {
+			}else if(line.startsWith("CoolerIp")) {
 				String ret = splitByEquals(line);
 				coolerIp = ret;
-			}else if(line.contains("DiffPlus")) {
+			}else if(line.startsWith("DiffPlus")) {
 				String ret = splitByEquals(line);
 				tempErrorMarginPlus = Double.parseDouble(ret);
-			}else if(line.contains("DiffMinus")) {
+			}else if(line.startsWith("DiffMinus")) {
 				String ret = splitByEquals(line);
 				tempErrorMarginMinus = Double.parseDouble(ret);
-			}else if(line.contains("LogFileName")) {
+			}else if(line.startsWith("LogRotate=")) {
+				String ret = splitByEquals(line);
+				logRotate = ret.trim();
+			}else if(line.startsWith("LogMaxSize=")) {
+				String ret = splitByEquals(line);
+				logMaxSize = Double.parseDouble(ret);
+			}else if(line.startsWith("HistoryFile=")) {
+				String ret = splitByEquals(line);
+				historyFile = ret.trim();
+			}else if(line.startsWith("CheckpointFile=")) {
+				String ret = splitByEquals(line);
+				checkpointFile = ret.trim();
+			}else if(line.startsWith("ArchivePrune=")) {
+				String ret = splitByEquals(line);
+				int bool = Integer.parseInt(ret.trim());
+				if(bool == 0) {
+					archivePrune = false;
+				}else if(bool == 1) {
+					archivePrune = true;
+				}
+			}else if(line.startsWith("ArchiveDir=")) {
+				String ret = splitByEquals(line);
+				archiveDir = ret.trim();
+			}else if(line.startsWith("LogFileName")) {
 				String ret = splitByEquals(line);
 				logFileName= ret;
-			}else if(line.contains("Onoffdelay")) {
+			}else if(line.startsWith("Onoffdelay")) {
 				String ret = splitByEquals(line);
 				minutesToWaitPowerSwitch = Double.parseDouble(ret);
-			}else if(line.contains("LogFreq")) {
+			}else if(line.startsWith("LogFreq")) {
 				String ret = splitByEquals(line);
 				minutesToWaitLog = Double.parseDouble(ret);
-			}else if(line.contains("!state")) {
+			}else if(line.startsWith("Controller=")) {
 				String ret = splitByEquals(line);
-				lastState = ret;
+				controller = ret.trim();
+			}else if(line.startsWith("PidKp=")) {
+				String ret = splitByEquals(line);
+				pidKp = Double.parseDouble(ret);
+			}else if(line.startsWith("PidKi=")) {
+				String ret = splitByEquals(line);
+				pidKi = Double.parseDouble(ret);
+			}else if(line.startsWith("PidKd=")) {
+				String ret = splitByEquals(line);
+				pidKd = Double.parseDouble(ret);
+			}else if(line.startsWith("PidWindow=")) {
+				String ret = splitByEquals(line);
+				pidWindow = Double.parseDouble(ret);
+			}else if(line.startsWith("PredictLag=")) {
+				String ret = splitByEquals(line);
+				predictLag = Double.parseDouble(ret);
+			}else if(line.startsWith("SamplePeriod=")) {
+				String ret = splitByEquals(line);
+				secondsBetweenSamples = Double.parseDouble(ret);
+			}else if(line.startsWith("ControlPeriod=")) {
+				String ret = splitByEquals(line);
+				secondsBetweenControl = Double.parseDouble(ret);
+			}else if(line.startsWith("RelayMode=")) {
+				String ret = splitByEquals(line);
+				relayMode = ret.trim();
+			}else if(line.startsWith("RelayConnectTimeout=")) {
+				String ret = splitByEquals(line);
+				relayConnectTimeout = Double.parseDouble(ret);
+			}else if(line.startsWith("RelayReadTimeout=")) {
+				String ret = splitByEquals(line);
+				relayReadTimeout = Double.parseDouble(ret);
+			}else if(line.startsWith("SubscribeRate=")) {
+				String ret = splitByEquals(line);
+				secondsBetweenPush = Double.parseDouble(ret);
+			}else if(line.startsWith("HistorySize=")) {
+				String ret = splitByEquals(line);
+				historySize = Integer.parseInt(ret.trim());
+			}else if(line.startsWith("Filter=")) {
+				String ret = splitByEquals(line);
+				filter = ret.trim();
+			}else if(line.startsWith("ProbeFailLimit=")) {
+				String ret = splitByEquals(line);
+				probeFailLimit = Integer.parseInt(ret.trim());
+			}else if(line.startsWith("ProbeTimeout=")) {
+				String ret = splitByEquals(line);
+				probeTimeout = Double.parseDouble(ret);
+			}else if(line.startsWith("ConsoleLog=")) {
+				String ret = splitByEquals(line);
+				consoleLog = ret.trim();
+			}else if(line.startsWith("FileLog=")) {
+				String ret = splitByEquals(line);
+				fileLog = ret.trim();
+			}else if(line.startsWith("TelemetryLog=")) {
+				String ret = splitByEquals(line);
+				telemetryLog = ret.trim();
 			}else if(line.contains(";")) {
 				String[] split = line.split(";");
-				int days = Integer.parseInt(split[0]);
-				double temp = Double.parseDouble(split[1]);
-				for(int i = 0; i < days; i++) {
-					dailyTemp.add(temp);
-					dailyState.add(lastState);
+				String[] temps = split[1].split(">");
+				double end = Double.parseDouble(temps[temps.length - 1].trim());
+				double start = end;
+				if(temps.length > 1 && !temps[0].isBlank()) {
+					start = Double.parseDouble(temps[0].trim());
+				}else if(temps.length > 1 && !to.isEmpty()) {
+					start = to.get(to.size() - 1);
 				}
-				totalDays += days;
-				
+				days.add(Double.parseDouble(split[0].trim()));
+				from.add(start);
+				to.add(end);
+				states.add(lastState);
 			}
 		}
+		s.close();
+		schedule = new Schedule(days, from, to, states);
+		if(id == null) {
+			String name = f.getName();
+			id = name.lastIndexOf('.') > 0 ? name.substring(0, name.lastIndexOf('.')) : name;
+		}
+		String base = logFileName.endsWith(".log") ? logFileName.substring(0, logFileName.length() - 4) : logFileName;
+		if(historyFile == null) {
+			historyFile = base + ".hist";
+		}
+		if(checkpointFile == null) {
+			checkpointFile = base + ".ckpt";
+		}
+		if(archiveDir == null) {
+			archiveDir = base + ".archive";
+		}
 		
 	}
 	
+	/**
+	 * Gives the seconds between logged samples, never fewer than the seconds between samples so a LogFreq of 0 can not log faster than the probe is read
+	 * @return {@link Double} seconds between logged samples
+	 */
+	double secondsBetweenLogs(){
+		return Math.max(minutesToWaitLog * 60, secondsBetweenSamples);
+	}
+	
+	/**
+	 * Checks that the settings can be used to control a vessel
+	 * @throws IllegalArgumentException naming the first setting that is missing or out of range
+	 */
+	void validate(){
+		if(coolerIp == null) {
+			throw new IllegalArgumentException("CoolerIp is missing");
+		}else if(hasHeater && heaterIp == null) {
+			throw new IllegalArgumentException("HeaterIp is missing");
+		}else if(tempErrorMarginPlus < 0 || tempErrorMarginMinus < 0) {
+			throw new IllegalArgumentException("DiffPlus and DiffMinus can not be negative");
+		}else if(minutesToWaitPowerSwitch < 0 || minutesToWaitLog < 0) {
+			throw new IllegalArgumentException("Onoffdelay and LogFreq can not be negative");
+		}else if(!(secondsBetweenSamples > 0) || !(secondsBetweenControl > 0)) {
+			throw new IllegalArgumentException("SamplePeriod and ControlPeriod must be above 0");
+		}else if(secondsBetweenPush < 0) {
+			throw new IllegalArgumentException("SubscribeRate can not be negative");
+		}else if(!"kasa".equals(relayMode) && !"exec".equals(relayMode)) {
+			throw new IllegalArgumentException("RelayMode must be kasa or exec");
+		}else if(!"none".equals(logRotate) && !"size".equals(logRotate) && !"day".equals(logRotate)) {
+			throw new IllegalArgumentException("LogRotate must be none, size or day");
+		}else if(!"hysteresis".equals(controller) && !"pid".equals(controller) && !"predictive".equals(controller)) {
+			throw new IllegalArgumentException("Controller must be hysteresis, pid or predictive");
+		}else if(!(pidWindow > 0) || predictLag < 0) {
+			throw new IllegalArgumentException("PidWindow must be above 0 and PredictLag can not be negative");
+		}else if("pid".equals(controller) && pidWindow < 2 * minutesToWaitPowerSwitch) {
+			throw new IllegalArgumentException("PidWindow must be at least twice Onoffdelay");
+		}else if(historySize < 1) {
+			throw new IllegalArgumentException("HistorySize must be above 0");
+		}else if(probeFailLimit < 1 || !(probeTimeout > secondsBetweenSamples)) {
+			throw new IllegalArgumentException("ProbeFailLimit must be above 0 and ProbeTimeout longer than SamplePeriod");
+		}
+		// throws naming the filter stage or log level that is bad
+		new SensorFilter(filter);
+		for(String log : new String[] {consoleLog, fileLog, telemetryLog}) {
+			LogPipeline.level(log);
+			LogPipeline.rate(log);
+		}
+	}
+	
+	/**
+	 * Copies the settings that are only read when the program starts from running.
+	 * Everything else in a reloaded settings file takes effect on the next tick.
+	 * @param running {@link Settings} the vessel is running with
+	 * @return {@link String} the names of the settings that were changed and need a restart, each after a space, empty if none
+	 */
+	String keepStartupSettings(Settings running){
+		String changed = "";
+		if(!Objects.equals(id, running.id)) {
+			changed += " Id";
+			id = running.id;
+		}
+		if(!Objects.equals(probeId, running.probeId)) {
+			changed += " ProbeId";
+			probeId = running.probeId;
+		}
+		if(!Objects.equals(logFileName, running.logFileName)) {
+			changed += " LogFileName";
+			logFileName = running.logFileName;
+		}
+		if(!Objects.equals(logRotate, running.logRotate)) {
+			changed += " LogRotate";
+			logRotate = running.logRotate;
+		}
+		if(logMaxSize != running.logMaxSize) {
+			changed += " LogMaxSize";
+			logMaxSize = running.logMaxSize;
+		}
+		if(!Objects.equals(historyFile, running.historyFile)) {
+			changed += " HistoryFile";
+			historyFile = running.historyFile;
+		}
+		if(!Objects.equals(checkpointFile, running.checkpointFile)) {
+			changed += " CheckpointFile";
+			checkpointFile = running.checkpointFile;
+		}
+		if(!Objects.equals(archiveDir, running.archiveDir)) {
+			changed += " ArchiveDir";
+			archiveDir = running.archiveDir;
+		}
+		if(archivePrune != running.archivePrune) {
+			changed += " ArchivePrune";
+			archivePrune = running.archivePrune;
+		}
+		if(historySize != running.historySize) {
+			changed += " HistorySize";
+			historySize = running.historySize;
+		}
+		if(hasHeater != running.hasHeater) {
+			changed += " HasHeater";
+			hasHeater = running.hasHeater;
+		}
+		if(!Objects.equals(coolerIp, running.coolerIp)) {
+			changed += " CoolerIp";
+			coolerIp = running.coolerIp;
+		}
+		if(!Objects.equals(heaterIp, running.heaterIp)) {
+			changed += " HeaterIp";
+			heaterIp = running.heaterIp;
+		}
+		if(!Objects.equals(relayMode, running.relayMode)) {
+			changed += " RelayMode";
+			relayMode = running.relayMode;
+		}
+		if(relayConnectTimeout != running.relayConnectTimeout) {
+			changed += " RelayConnectTimeout";
+			relayConnectTimeout = running.relayConnectTimeout;
+		}
+		if(relayReadTimeout != running.relayReadTimeout) {
+			changed += " RelayReadTimeout";
+			relayReadTimeout = running.relayReadTimeout;
+		}
+		coolerState = running.coolerState;
+		heaterState = running.heaterState;
+		return changed;
+	}
+	
 	/**
 	 * Splits string s around matches of the regular expression "="
 	 * @return the {@link String} at index 1 in the array of strings computed by splitting around matches of the regular expression "=" or null
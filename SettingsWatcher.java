@@ -0,0 +1,146 @@
+package Brewmaster;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h2>SettingsWatcher</h2> The SettingsWatcher class watches the settings file
+ * of every vessel and reloads it when it changes. The file is parsed and
+ * validated on the watcher thread and handed to the {@link TemperatureHandler}
+ * with {@link TemperatureHandler#reload}, which swaps it in on its next tick.
+ * A file that fails to parse or validate is reported and the vessel keeps
+ * running with the settings it has.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+public class SettingsWatcher implements Runnable {
+	/**
+	 * The {@link Long} milliseconds to wait for more changes before reloading,
+	 * editors often write a file in several steps
+	 */
+	private static final long SETTLE_MILLIS = 200;
+
+	/**
+	 * The {@link WatchService} the folders of the settings files are registered
+	 * with
+	 */
+	private final WatchService ws;
+	/**
+	 * A {@link Map} of the {@link TemperatureHandler} of every watched settings
+	 * file by its absolute path
+	 */
+	private final Map<Path, TemperatureHandler> files = new ConcurrentHashMap<Path, TemperatureHandler>();
+	/**
+	 * A {@link Set} of the folders already registered with {@link #ws}
+	 */
+	private final Set<Path> folders = new HashSet<Path>();
+
+	/**
+	 * Sets up a SettingsWatcher watching nothing
+	 *
+	 * @throws IOException if the file system can not be watched
+	 */
+	SettingsWatcher() throws IOException {
+		ws = FileSystems.getDefault().newWatchService();
+	}
+
+	/**
+	 * Starts watching the settings file of th
+	 *
+	 * @param th {@link TemperatureHandler} to reload
+	 * @throws IOException if the folder of the file can not be watched
+	 */
+	synchronized void watch(TemperatureHandler th) throws IOException {
+		Path file = Paths.get(th.getSettings().file).toAbsolutePath().normalize();
+		Path folder = file.getParent();
+		if (folders.add(folder)) {
+			folder.register(ws, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+		}
+		files.put(file, th);
+	}
+
+	/**
+	 * Starts a daemon thread running {@link #run}
+	 */
+	void start() {
+		Thread t = new Thread(this, "settings-watcher");
+		t.setDaemon(true);
+		t.start();
+	}
+
+	/**
+	 * Waits for changes in the watched folders. After a change more changes are
+	 * collected for {@link #SETTLE_MILLIS}, then every changed settings file is
+	 * reloaded once.
+	 */
+	@Override
+	public void run() {
+		try {
+			while (true) {
+				WatchKey key = ws.take();
+				long changed = System.nanoTime();
+				Set<Path> paths = new HashSet<Path>();
+				while (key != null) {
+					Path folder = (Path) key.watchable();
+					for (WatchEvent<?> event : key.pollEvents()) {
+						if (event.context() instanceof Path) {
+							paths.add(folder.resolve((Path) event.context()));
+						}
+					}
+					key.reset();
+					key = ws.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+				}
+				for (Path path : paths) {
+					TemperatureHandler th = files.get(path);
+					if (th != null) {
+						reload(path, th, changed);
+					}
+				}
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			return;
+		}
+	}
+
+	/**
+	 * Parses and validates the settings file at path and hands it to th, the
+	 * settings only read at startup are kept from the running settings
+	 *
+	 * @param path    {@link Path} of the settings file
+	 * @param th      {@link TemperatureHandler} to reload
+	 * @param changed {@link System#nanoTime} the change was seen at
+	 * @see Settings#validate
+	 * @see Settings#keepStartupSettings
+	 */
+	private void reload(Path path, TemperatureHandler th, long changed) {
+		Settings settings;
+		try {
+			settings = new Settings(path.toString());
+			settings.validate();
+		} catch (RuntimeException e) {
+			th.log(LogEvent.WARN, "Settings not reloaded, " + e.getMessage());
+			th.reloadFailed();
+			return;
+		}
+		settings.file = th.getSettings().file;
+		String restart = settings.keepStartupSettings(th.getSettings());
+		if (!restart.isEmpty()) {
+			th.log(LogEvent.INFO, "Restart to change" + restart);
+		}
+		th.reload(settings, changed);
+	}
+}
@@ -0,0 +1,104 @@
+package Brewmaster;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <h2>SimProbe</h2> The SimProbe class is a {@link Probe} reading the wort
+ * temperature of a {@link ThermalModel}. Every read is a w1_slave frame with a
+ * good crc, rounded to the 1/16 degree a DS18B20 gives, so the temperature goes
+ * through {@link W1SlaveParser} like a real one.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ * @see Simulation
+ */
+public class SimProbe implements Probe {
+	/**
+	 * The {@link ThermalModel} the temperature is read from
+	 */
+	private final ThermalModel model;
+	/**
+	 * The {@link Integer} bytes of the scratchpad, the first two are the
+	 * temperature and the last is the crc
+	 */
+	private final int[] scratchpad = { 0, 0, 0x4b, 0x46, 0x7f, 0xff, 0x0c, 0x10, 0 };
+	/**
+	 * The hex digits
+	 */
+	private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+	/**
+	 * Sets up a SimProbe
+	 *
+	 * @param model {@link ThermalModel} to read
+	 */
+	SimProbe(ThermalModel model) {
+		this.model = model;
+	}
+
+	/**
+	 * Writes a w1_slave frame with the wort temperature of {@link #model} into
+	 * dst, without creating any objects since it is read every sample of a
+	 * simulated schedule
+	 *
+	 * @param dst {@link ByteBuffer} to write into from its position, needs room
+	 *            for 80 bytes
+	 * @return {@link Integer} number of bytes written
+	 */
+	@Override
+	public int read(ByteBuffer dst) {
+		int start = dst.position();
+		int raw = (int) Math.round(model.getWort() * 16);
+		scratchpad[0] = raw & 0xff;
+		scratchpad[1] = (raw >> 8) & 0xff;
+		int crc = 0;
+		for (int i = 0; i < scratchpad.length - 1; i++) {
+			crc = W1SlaveParser.crc8(crc, scratchpad[i]);
+		}
+		scratchpad[scratchpad.length - 1] = crc;
+		putBytes(dst);
+		dst.put((byte) ':').put((byte) ' ').put((byte) 'c').put((byte) 'r').put((byte) 'c').put((byte) '=');
+		putHex(dst, crc);
+		dst.put((byte) ' ').put((byte) 'Y').put((byte) 'E').put((byte) 'S').put((byte) '\n');
+		putBytes(dst);
+		dst.put((byte) 't').put((byte) '=');
+		int milli = raw * 1000 / 16;
+		if (milli < 0) {
+			dst.put((byte) '-');
+			milli = -milli;
+		}
+		int div = 1;
+		while (div <= milli / 10) {
+			div *= 10;
+		}
+		for (; div > 0; div /= 10) {
+			dst.put((byte) ('0' + milli / div % 10));
+		}
+		dst.put((byte) '\n');
+		return dst.position() - start;
+	}
+
+	/**
+	 * Writes the bytes of {@link #scratchpad} as hex followed by spaces
+	 *
+	 * @param dst {@link ByteBuffer} to write into
+	 */
+	private void putBytes(ByteBuffer dst) {
+		for (int b : scratchpad) {
+			putHex(dst, b);
+			dst.put((byte) ' ');
+		}
+	}
+
+	/**
+	 * Writes one byte as two hex digits
+	 *
+	 * @param dst {@link ByteBuffer} to write into
+	 * @param b   {@link Integer} byte to write
+	 */
+	private static void putHex(ByteBuffer dst, int b) {
+		dst.put(HEX[b >> 4]).put(HEX[b & 0xf]);
+	}
+}
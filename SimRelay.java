@@ -0,0 +1,55 @@
+package Brewmaster;
+
+/**
+ * <h2>SimRelay</h2> The SimRelay class is a {@link RelayTransport} switching
+ * the cooler or the heater of a {@link ThermalModel} instead of a wireless
+ * relay. It always answers at once and never fails.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ * @see Simulation
+ */
+public class SimRelay implements RelayTransport {
+	/**
+	 * The {@link ThermalModel} switched
+	 */
+	private final ThermalModel model;
+	/**
+	 * The {@link Boolean} true if this is the heater, false if it is the cooler
+	 */
+	private final boolean heater;
+
+	/**
+	 * Sets up a SimRelay
+	 *
+	 * @param model  {@link ThermalModel} to switch
+	 * @param heater {@link Boolean} true to switch the heater, false to switch the
+	 *               cooler
+	 */
+	SimRelay(ThermalModel model, boolean heater) {
+		this.model = model;
+		this.heater = heater;
+	}
+
+	/**
+	 * Turns the cooler or heater of {@link #model} on or off
+	 *
+	 * @param on {@link Boolean} true to turn it on
+	 */
+	@Override
+	public void setState(boolean on) {
+		if (heater) {
+			model.setHeater(on);
+		} else {
+			model.setCooler(on);
+		}
+	}
+
+	/**
+	 * Nothing to release
+	 */
+	@Override
+	public void close() {
+	}
+}
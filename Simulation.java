@@ -0,0 +1,157 @@
+package Brewmaster;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h2>Simulation</h2> The Simulation program runs a settings file against a
+ * {@link ThermalModel} instead of a probe and wireless relays. The
+ * {@link TemperatureHandler} is the one the real program uses, only its
+ * {@link Probe}, {@link RelayTransport} and {@link java.time.Clock} are
+ * replaced by a {@link SimProbe}, {@link SimRelay} and {@link VirtualClock}.
+ * The ticks are run in the order and with the periods {@link ControlEngine}
+ * would run them, but the clock jumps from one tick to the next, so a schedule
+ * of several weeks runs in seconds. The clock always starts at {@link #START}
+ * and the model has no randomness, the same settings file and parameters give
+ * the same log. Run it with<br>
+ * "java Brewmaster.Simulation settings.brew Volume=20 Cooling=80 Ambient=20"<br>
+ * the parameters of the model are optional, see {@link ThermalModel#set}.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+public class Simulation {
+	/**
+	 * The {@link Instant} every simulation starts at
+	 */
+	static final Instant START = Instant.parse("2020-09-23T00:00:00Z");
+
+	/**
+	 * Reads the settings file and the model parameters, runs the schedule to the
+	 * end and prints how well the temperature was held. Exits with code -1 if
+	 * the settings file or a parameter is bad.
+	 *
+	 * @param a the settings file followed by model parameters as "Key=value"
+	 */
+	public static void main(String[] a) {
+		if (a.length == 0) {
+			System.out.println(
+					"Need settings file as input \"eks: java Brewmaster.Simulation settings.brew Volume=20 Ambient=20\"");
+			System.exit(-1);
+		}
+		Settings settings = null;
+		ThermalModel model = new ThermalModel();
+		try {
+			settings = new Settings(a[0]);
+			settings.validate();
+			for (int i = 1; i < a.length; i++) {
+				model.set(a[i]);
+			}
+		} catch (IllegalArgumentException e) {
+			System.out.println(e.getMessage());
+			System.exit(-1);
+		}
+		model.reset();
+		// a checkpoint or history from an earlier run would make the run depend on it
+		settings.checkpointFile = "none";
+		settings.historyFile = "none";
+		settings.archiveDir = "none";
+		run(settings, model);
+		System.exit(0);
+	}
+
+	/**
+	 * Runs the schedule of settings against model until it has finished and
+	 * prints the cycles of the relays and how far the wort was from the target.
+	 * Every tick is run on the calling thread, relay commands are sent on it
+	 * too so the model is switched before the tick returns.
+	 *
+	 * @param settings {@link Settings} to run
+	 * @param model    {@link ThermalModel} to run against
+	 * @return {@link TemperatureHandler} that ran the schedule
+	 */
+	static TemperatureHandler run(Settings settings, ThermalModel model) {
+		VirtualClock clock = new VirtualClock(START, ZoneOffset.UTC);
+		Executor direct = Runnable::run;
+		model.setCooler(settings.coolerState);
+		PowerSocket cooler = new PowerSocket(settings.coolerIp, settings, settings.coolerState,
+				new SimRelay(model, false), direct, clock);
+		PowerSocket heater = null;
+		if (settings.hasHeater) {
+			model.setHeater(settings.heaterState);
+			heater = new PowerSocket(settings.heaterIp, settings, settings.heaterState, new SimRelay(model, true),
+					direct, clock);
+		}
+		TemperatureHandler th = new TemperatureHandler(settings, new SimProbe(model), cooler, heater, clock);
+
+		long wall = System.nanoTime();
+		long nextSample = clock.millis();
+		long nextControl = nextSample;
+		long nextLog = nextSample;
+		long samples = 0;
+		long coolerOn = 0;
+		long heaterOn = 0;
+		double sum = 0;
+		double sumSquares = 0;
+		double under = 0;
+		double over = 0;
+		while (!th.isFinished()) {
+			Settings s = th.getSettings();
+			long next = Math.min(nextSample, Math.min(nextControl, nextLog));
+			model.advance(next - clock.millis());
+			clock.advanceTo(next);
+			if (next == nextSample) {
+				th.sampleTick();
+				nextSample += period(s.secondsBetweenSamples * 1000);
+				double error = model.getWort() - th.getTarget();
+				sum += error;
+				sumSquares += error * error;
+				under = Math.min(under, error);
+				over = Math.max(over, error);
+				samples++;
+				coolerOn += th.isCoolerOn() ? 1 : 0;
+				heaterOn += th.isHeaterOn() ? 1 : 0;
+			}
+			if (next == nextControl) {
+				th.controlTick();
+				nextControl += period(s.secondsBetweenControl * 1000);
+			}
+			if (next == nextLog) {
+				th.logTemp();
+				nextLog += period(s.secondsBetweenLogs() * 1000);
+			}
+		}
+		wall = System.nanoTime() - wall;
+
+		double days = (clock.millis() - START.toEpochMilli()) / (double) Schedule.DAY;
+		double mean = samples == 0 ? 0 : sum / samples;
+		double sd = samples == 0 ? 0 : Math.sqrt(Math.max(0, sumSquares / samples - mean * mean));
+		System.out.println(settings.id + ": simulated " + String.format("%.1f", days) + " days in "
+				+ TimeUnit.NANOSECONDS.toMillis(wall) + " ms");
+		System.out.println(settings.id + ": cooler cycles " + th.getCoolerCycles() + String.format(" (%.1f a day)",
+				th.getCoolerCycles() / days) + String.format(", on %.1f%% of the time", 100.0 * coolerOn / samples));
+		if (settings.hasHeater) {
+			System.out.println(settings.id + ": heater cycles " + th.getHeaterCycles()
+					+ String.format(" (%.1f a day)", th.getHeaterCycles() / days)
+					+ String.format(", on %.1f%% of the time", 100.0 * heaterOn / samples));
+		}
+		System.out.println(settings.id + String.format(
+				": wort off target by %.3f on average, standard deviation %.3f, from %.2f to %.2f", mean, sd,
+				under, over));
+		return th;
+	}
+
+	/**
+	 * Rounds a period to whole milliseconds, never less than one so a zero
+	 * period in the settings file can not stop the clock
+	 *
+	 * @param millis {@link Double} period in milliseconds
+	 * @return {@link Long} milliseconds
+	 */
+	private static long period(double millis) {
+		return Math.max(1, Math.round(millis));
+	}
+}
@@ -1,5 +1,8 @@
 package Brewmaster;
+import java.time.Clock;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 /**
 *<h2>TempDateTime</h2>
@@ -22,7 +25,16 @@ public class TempDateTime {
 	*@param temp a {@link Double} that stores a temperature in degrees celsius
 	*/
 	TempDateTime(double temp){
-		dateTime = LocalDateTime.now();
+		this(temp, Clock.systemDefaultZone());
+	}
+	
+	/**
+	*Sets up TempDateTime object with the current time of clock
+	*@param temp a {@link Double} that stores a temperature in degrees celsius
+	*@param clock a {@link Clock} giving the time
+	*/
+	TempDateTime(double temp, Clock clock){
+		dateTime = LocalDateTime.now(clock);
 		this.temp = temp;
 	}
 	
@@ -31,10 +43,45 @@ public class TempDateTime {
 	*@return A {@link String} containing formatted date and temperature
 	*/
 	String getFormatedDateTimeTemp() {
-		DateTimeFormatter myFormatObj = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss");
-	    String formattedDate = dateTime.format(myFormatObj);
-	    String FormatedDateTimeTemp = formattedDate + " t:"+temp;
-		return FormatedDateTimeTemp;
+		StringBuilder sb = new StringBuilder(32);
+		FORMAT.formatTo(dateTime, sb);
+		return sb.append(" t:").append(temp).toString();
+	}
+
+	/**
+	*a {@link DateTimeFormatter} shared by {@link #getFormatedDateTimeTemp} and {@link #appendLog}, creating one parses the pattern
+	*/
+	private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss");
+
+	/**
+	*Appends a sample formatted the same way as the log file to sb, in the default time zone
+	*@param sb {@link StringBuilder} to append to
+	*@param millis {@link Long} time of the sample in milliseconds since the epoch
+	*@param temp {@link Double} temperature of the sample in degrees celsius
+	*@param flags {@link Integer} relay states of the sample as stored in {@link SampleHistory}
+	*@return sb
+	*/
+	static StringBuilder appendLog(StringBuilder sb, long millis, double temp, int flags) {
+		return appendLog(sb, millis, ZoneId.systemDefault(), temp, flags);
+	}
+
+	/**
+	*Appends a sample formatted the same way as the log file to sb
+	*@param sb {@link StringBuilder} to append to
+	*@param millis {@link Long} time of the sample in milliseconds since the epoch
+	*@param zone {@link ZoneId} the time is written in
+	*@param temp {@link Double} temperature of the sample in degrees celsius
+	*@param flags {@link Integer} relay states of the sample as stored in {@link SampleHistory}
+	*@return sb
+	*@see LogEvent#format
+	*/
+	static StringBuilder appendLog(StringBuilder sb, long millis, ZoneId zone, double temp, int flags) {
+		FORMAT.formatTo(LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), zone), sb);
+		sb.append(" t:").append(temp).append(" Cooler on: ").append((flags & SampleHistory.COOLER_ON) != 0);
+		if ((flags & SampleHistory.HAS_HEATER) != 0) {
+			sb.append(" Heater on: ").append((flags & SampleHistory.HEATER_ON) != 0);
+		}
+		return sb;
 	}
 
 
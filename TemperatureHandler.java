@@ -1,12 +1,13 @@
 package Brewmaster;
 
-import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.time.Duration;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.time.Clock;
 import java.time.Instant;
-import java.util.LinkedList;
-import java.util.Scanner;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 
 /**
  * <h2>TemperatureHandler</h2> The PowerSocket class is used to control a
@@ -30,93 +31,375 @@ public class TemperatureHandler {
 	 */
 	private PowerSocket cooler;
 	/**
-	 * {@link Settings} object that stores program settings
+	 * {@link Settings} object that stores program settings, replaced as a whole
+	 * when the settings file is reloaded
 	 * 
 	 * @see Settings
+	 * @see #applySettings
 	 */
-	private Settings settings;
+	private volatile Settings settings;
+	/**
+	 * {@link Settings} reloaded from the settings file and waiting to be swapped
+	 * in on the next tick, null if there are none
+	 * 
+	 * @see #reload
+	 */
+	private volatile Settings pending = null;
+	/**
+	 * a {@link Long} with the {@link System#nanoTime} the change to the settings
+	 * file of {@link #pending} was seen at
+	 */
+	private volatile long pendingSince;
+	/**
+	 * a {@link Long} counting settings swapped in by {@link #applySettings}
+	 */
+	private volatile long reloads = 0;
+	/**
+	 * a {@link Long} counting changes to the settings file that failed to parse
+	 * or validate
+	 */
+	private volatile long failedReloads = 0;
+	/**
+	 * a {@link Long} with the nanoseconds from the last change to the settings
+	 * file being seen to the new settings being in use
+	 */
+	private volatile long lastReloadLatency = 0;
 	/**
 	 * a {@link Double} that stores the last temperature reading of the probe
+	 * after {@link #filter}, the temperature the relays are switched on
 	 * 
 	 * @see #updateTemp
 	 */
-	private double currentTemp = 0;
+	private volatile double currentTemp = 0;
 	/**
-	 * a {@link File} object representing the programs log file
+	 * a {@link Double} that stores the last temperature reading of the probe as
+	 * it was read
+	 * 
+	 * @see #updateTemp
 	 */
-	private File logFile;
+	private volatile double rawTemp = 0;
+	/**
+	 * a {@link Long} that stores the time in milliseconds since the epoch of the
+	 * last temperature reading of the probe, 0 before the first reading
+	 * 
+	 * @see #updateTemp
+	 */
+	private volatile long sampleTime = 0;
+	/**
+	 * a {@link LogWriter} writing the programs log file
+	 */
+	private LogWriter logFile;
 	/**
 	 * a {@link Integer} that stores then latest count of the number of days the
 	 * program has been running, day 1 = 0 etc
 	 * 
 	 * @see #updateDay
 	 */
-	private int daysLastCheck = 0;
+	private volatile int daysLastCheck = 0;
 
 	/**
 	 * a {@link Double} that stores the last temperature reading of the probe
 	 * 
 	 * @see #updateTemp
 	 */
-	private double minTemp = 0;
+	private volatile double minTemp = 0;
 
 	/**
 	 * a {@link Double} that stores the last temperature reading of the probe
 	 * 
 	 * @see #updateTemp
 	 */
-	private double maxTemp = 0;
+	private volatile double maxTemp = 0;
 
 	/**
 	 * a {@link String} that stores state for the current day
 	 * 
 	 * @see #logDaily
 	 */
-	private String state = "";
+	private volatile String state = "";
+
+	/**
+	 * a {@link Boolean} set when the last day of the schedule has ended
+	 * 
+	 * @see #updateDay
+	 */
+	private volatile boolean finished = false;
+
+	/**
+	 * a {@link Clock} every time is read from, a {@link VirtualClock} when run by
+	 * a {@link Simulation}
+	 */
+	private final Clock clock;
 
 	/**
 	 * Sets up based on {@link Settings} the logFile, heater if hasHeater is true,
-	 * cooler, runs {@link #logDaily}
+	 * cooler, the probe from {@link Settings#probeId} on bus, starts the
+	 * {@link Settings#schedule} or resumes it from {@link #journal}, refills
+	 * {@link #rollups} from {@link #store} and runs {@link #logDaily}
 	 * 
 	 * @param settings {@link Settings}
+	 * @param bus      {@link W1Bus} the probe is read from
 	 * @see #cooler
 	 * @see #heater
+	 * @see #probe
 	 * @see #logFile
 	 */
-	TemperatureHandler(Settings settings) {
+	TemperatureHandler(Settings settings, W1Bus bus) {
+		this(settings, bus.probe(settings.probeId),
+				new PowerSocket(settings.coolerIp, settings, settings.coolerState),
+				settings.hasHeater ? new PowerSocket(settings.heaterIp, settings, settings.heaterState) : null,
+				Clock.systemDefaultZone());
+	}
+
+	/**
+	 * Sets up with the probe, relays and clock given instead of the ones
+	 * {@link Settings} names, used by {@link Simulation}
+	 * 
+	 * @param settings {@link Settings}
+	 * @param probe    {@link Probe} the temperature is read from
+	 * @param cooler   {@link PowerSocket} of the cooler
+	 * @param heater   {@link PowerSocket} of the heater, null if
+	 *                 {@link Settings#hasHeater} is false
+	 * @param clock    {@link Clock} every time is read from
+	 */
+	TemperatureHandler(Settings settings, Probe probe, PowerSocket cooler, PowerSocket heater, Clock clock) {
 		this.settings = settings;
-		logFile = new File("brew.log");
+		this.clock = clock;
+		logFile = new LogWriter(settings);
+		history = new SampleHistory(settings.historySize);
+		console = new ConsoleSink(settings.id);
+		logs = new LogPipeline(clock.getZone());
+		// routed before the files are opened so failing to open them is logged
+		routeLogs(settings);
+		rollups = new Rollups();
+		if (!"none".equals(settings.historyFile)) {
+			try {
+				store = new HistoryStore(Paths.get(settings.historyFile));
+				if (settings.archivePrune && !"none".equals(settings.archiveDir)) {
+					pruneHistory();
+				}
+				long n = store.size();
+				if (n > 0) {
+					store.query(store.getTime(Math.max(0, n - settings.historySize)), Long.MAX_VALUE,
+							(time, temp, min, max, flags) -> {
+								// held as the float the store keeps, as in sampleTick
+								history.add(time, temp, flags);
+								return true;
+							});
+				}
+			} catch (IOException e) {
+				log(LogEvent.WARN, "Failed to open history file " + settings.historyFile + ": " + e);
+			}
+		}
+		if (!"none".equals(settings.archiveDir)) {
+			try {
+				archive = new ArchiveWriter(settings, store);
+				archive.setLog(message -> log(LogEvent.WARN, message));
+				if (archive.getRemovedParts() > 0) {
+					log(LogEvent.WARN, "Deleted " + archive.getRemovedParts()
+							+ " unsealed archive segments left by a crash, their days are kept in the log and history files");
+				}
+			} catch (IOException e) {
+				log(LogEvent.WARN, "Failed to open archive folder " + settings.archiveDir + ": " + e);
+			}
+		}
+		routeLogs(settings);
 
-		if (settings.hasHeater) {
-			heater = new PowerSocket(settings.heaterIp, settings, settings.heaterState);
+		this.heater = heater;
+		this.cooler = cooler;
+		cooler.queue.setLog(message -> log(LogEvent.WARN, message));
+		if (heater != null) {
+			heater.queue.setLog(message -> log(LogEvent.WARN, message));
 		}
-		cooler = new PowerSocket(settings.coolerIp, settings, settings.coolerState);
+		controller = Controller.create(settings.controller);
+		filter = new SensorFilter(settings.filter);
+		this.probe = probe;
 
-		try {
-			System.out.println("Log file created: " + logFile.createNewFile());
-		} catch (IOException e) {
-			System.out.println("Failed to create log file");
-			e.printStackTrace();
+		start = clock.instant();
+		lastGoodRead = start.toEpochMilli();
+		tomorrow = start.plusMillis(Schedule.DAY);
+		if (!"none".equals(settings.checkpointFile)) {
+			try {
+				journal = new CheckpointJournal(Paths.get(settings.checkpointFile));
+				resume();
+			} catch (IOException e) {
+				log(LogEvent.WARN, "Failed to open checkpoint file " + settings.checkpointFile + ": " + e);
+			}
 		}
-		// startInstant = Instant.now();
+		// after resume, the tiers start their days where updateDay ends them
+		rollups.seed(store, tomorrow.toEpochMilli() - Schedule.DAY);
+		updateTarget(clock.millis());
 		logDaily();
 
 	}
 
 	/**
-	 * Runs {@link #updateTemp}, {@link #checkTemp}, {@link #updateDay} and
-	 * {@link #logTemp}
+	 * Runs one full tick, {@link #sampleTick}, {@link #controlTick} and
+	 * {@link #logTemp}. {@link ControlEngine} normally schedules the three parts
+	 * separately.
 	 * 
-	 * @see #updateTemp
-	 * @see #checkTemp
-	 * @see #updateDay
+	 * @see #sampleTick
+	 * @see #controlTick
 	 * @see #logTemp()
+	 * @see ControlEngine
 	 */
 	protected void run() {
+		sampleTick();
+		controlTick();
+		logTemp();
+	}
+
+	/**
+	 * Runs {@link #updateTemp}, scheduled every
+	 * {@link Settings#secondsBetweenSamples}. The ticks are synchronized since
+	 * the scheduler is shared by every vessel and may run two ticks of the same
+	 * vessel on different threads.
+	 * 
+	 * @see #updateTemp
+	 */
+	protected synchronized void sampleTick() {
+		applySettings();
 		updateTemp();
+		notifyListeners();
+	}
+
+	/**
+	 * Runs {@link #updateTarget}, {@link #checkTemp} and {@link #updateDay},
+	 * scheduled every {@link Settings#secondsBetweenControl}
+	 * 
+	 * @see #updateTarget
+	 * @see #checkTemp
+	 * @see #updateDay
+	 */
+	protected synchronized void controlTick() {
+		applySettings();
+		updateTarget(clock.millis());
 		checkTemp();
 		updateDay();
-		logTemp();
+		checkpoint();
+		notifyListeners();
+	}
+
+	/**
+	 * Hands reloaded settings to the control thread, they are swapped in at the
+	 * start of the next tick. Settings handed in before the last ones were
+	 * swapped in are replaced.
+	 * 
+	 * @param settings {@link Settings} parsed and validated
+	 * @param changed  {@link System#nanoTime} the change to the settings file was
+	 *                 seen at
+	 * @see SettingsWatcher
+	 */
+	protected void reload(Settings settings, long changed) {
+		pendingSince = changed;
+		pending = settings;
+	}
+
+	/**
+	 * Counts a change to the settings file that could not be used
+	 * 
+	 * @see SettingsWatcher
+	 */
+	protected void reloadFailed() {
+		failedReloads++;
+	}
+
+	/**
+	 * Swaps in {@link #pending} if there are reloaded settings. The day, the
+	 * start of the schedule and the waits between switching the relays carry
+	 * over, the target is looked up again in the new schedule on this tick.
+	 * 
+	 * @see PowerSocket#setSettings
+	 */
+	private void applySettings() {
+		Settings next = pending;
+		if (next == null) {
+			return;
+		}
+		pending = null;
+		if (!next.controller.equals(settings.controller)) {
+			controller = Controller.create(next.controller);
+		}
+		if (!next.filter.equals(settings.filter)) {
+			filter = new SensorFilter(next.filter);
+		}
+		settings = next;
+		routeLogs(next);
+		cooler.setSettings(next);
+		if (heater != null) {
+			heater.setSettings(next);
+		}
+		segment = -1;
+		loggedSegment = -1;
+		updateTarget(clock.millis());
+		lastReloadLatency = System.nanoTime() - pendingSince;
+		reloads++;
+		String line = "Settings reloaded in " + TimeUnit.NANOSECONDS.toMillis(lastReloadLatency) + " ms";
+		log(LogEvent.INFO, line);
+	}
+
+	/**
+	 * Getter for reloads
+	 * 
+	 * @return {@link #reloads}
+	 */
+	protected long getReloads() {
+		return reloads;
+	}
+
+	/**
+	 * Getter for failedReloads
+	 * 
+	 * @return {@link #failedReloads}
+	 */
+	protected long getFailedReloads() {
+		return failedReloads;
+	}
+
+	/**
+	 * Getter for lastReloadLatency
+	 * 
+	 * @return {@link #lastReloadLatency} in nanoseconds
+	 */
+	protected long getLastReloadLatency() {
+		return lastReloadLatency;
+	}
+
+	/**
+	 * A list of {@link Runnable} called on the control thread after every sample
+	 * and control tick
+	 * 
+	 * @see #addListener
+	 */
+	private final List<Runnable> listeners = new CopyOnWriteArrayList<Runnable>();
+
+	/**
+	 * Adds a listener that is run after every sample and control tick, it should
+	 * only read the getters and hand the work to its own thread.
+	 * 
+	 * @param listener {@link Runnable} to add
+	 * @see #listeners
+	 */
+	protected void addListener(Runnable listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Runs every listener in {@link #listeners}
+	 */
+	private void notifyListeners() {
+		for (Runnable listener : listeners) {
+			listener.run();
+		}
+	}
+
+	/**
+	 * Getter for settings
+	 * 
+	 * @return {@link #settings}
+	 */
+	protected Settings getSettings() {
+		return settings;
 	}
 
 	/**
@@ -137,6 +420,15 @@ public class TemperatureHandler {
 		return minTemp;
 	}
 
+	/**
+	 * Getter for target
+	 * 
+	 * @return {@link #target}
+	 */
+	protected double getTarget() {
+		return target;
+	}
+
 	/**
 	 * Getter for currentTemp
 	 * 
@@ -146,6 +438,15 @@ public class TemperatureHandler {
 		return currentTemp;
 	}
 
+	/**
+	 * Getter for rawTemp
+	 * 
+	 * @return {@link #rawTemp}
+	 */
+	protected double getRawTemp() {
+		return rawTemp;
+	}
+
 	/**
 	 * Getter for daysLastCheck
 	 * 
@@ -155,6 +456,43 @@ public class TemperatureHandler {
 		return daysLastCheck;
 	}
 
+	/**
+	 * Getter for sampleTime
+	 * 
+	 * @return {@link #sampleTime}
+	 */
+	protected long getSampleTime() {
+		return sampleTime;
+	}
+
+	/**
+	 * Getter for the state of the cooler
+	 * 
+	 * @return {@link PowerSocket#on} of {@link #cooler}
+	 */
+	protected boolean isCoolerOn() {
+		return cooler.on;
+	}
+
+	/**
+	 * Getter for the state of the heater
+	 * 
+	 * @return {@link PowerSocket#on} of {@link #heater}, false if there is no
+	 *         heater
+	 */
+	protected boolean isHeaterOn() {
+		return heater != null && heater.on;
+	}
+
+	/**
+	 * Getter for finished
+	 * 
+	 * @return {@link #finished}
+	 */
+	protected boolean isFinished() {
+		return finished;
+	}
+
 	/**
 	 * Getter for state
 	 * 
@@ -165,275 +503,884 @@ public class TemperatureHandler {
 	}
 
 	/**
-	 * Reads the temperature probe text file named w1_slave to get temperature and
-	 * store in {@link #currentTemp}, updates {@link #maxTemp} and {@link #minTemp}
+	 * a {@link Probe} reading the temperature probe, a {@link W1Probe} keeps its
+	 * w1_slave file open
+	 * 
+	 * @see #updateTemp
+	 */
+	private final Probe probe;
+
+	/**
+	 * a {@link ByteBuffer} reused for every read of {@link #probe}
 	 * 
-	 * @see #findFolderNameOfProbe
+	 * @see #updateTemp
+	 */
+	private final ByteBuffer probeBuffer = ByteBuffer.allocate(128);
+
+	/**
+	 * a {@link LatencyHistogram} of the nanoseconds every read of {@link #probe}
+	 * took, failed reads included
+	 * 
+	 * @see #updateTemp
+	 */
+	private final LatencyHistogram probeReads = new LatencyHistogram();
+
+	/**
+	 * a {@link Long} counting reads of {@link #probe} that failed or did not
+	 * parse
+	 * 
+	 * @see #updateTemp
+	 */
+	private volatile long probeFailures = 0;
+
+	/**
+	 * a {@link SensorFilter} with the stages of {@link Settings#filter}, every
+	 * reading of {@link #probe} goes through it
+	 * 
+	 * @see #updateTemp
+	 */
+	private SensorFilter filter;
+
+	/**
+	 * a {@link Long} counting readings of {@link #probe} dropped by
+	 * {@link #filter}
+	 * 
+	 * @see #updateTemp
+	 */
+	private volatile long filterRejects = 0;
+
+	/**
+	 * a {@link Integer} counting reads of {@link #probe} in a row that failed,
+	 * did not parse or were dropped by {@link #filter}
+	 * 
+	 * @see #badRead
+	 */
+	private volatile int badReads = 0;
+
+	/**
+	 * a {@link Long} with the time in milliseconds since the epoch of the last
+	 * reading of {@link #probe} that was used, the start before the first
+	 * 
+	 * @see #checkProbe
+	 */
+	private volatile long lastGoodRead;
+
+	/**
+	 * a {@link Long} with the time in milliseconds since the epoch the last
+	 * warning about a bad read was logged
+	 * 
+	 * @see #badRead
+	 */
+	private long lastProbeWarn = -PROBE_WARN_MILLIS;
+
+	/**
+	 * The {@link Long} fewest milliseconds between warnings about bad reads
+	 */
+	private static final long PROBE_WARN_MILLIS = 60000;
+
+	/**
+	 * a {@link Boolean} set while both relays are kept off because
+	 * {@link #probe} has not given a good reading
+	 * 
+	 * @see #checkProbe
+	 */
+	private volatile boolean probeFault = false;
+
+	/**
+	 * Getter for probeFault
+	 * 
+	 * @return {@link #probeFault}
+	 */
+	protected boolean isProbeFault() {
+		return probeFault;
+	}
+
+	/**
+	 * Getter for probeReads
+	 * 
+	 * @return {@link #probeReads}
+	 */
+	protected LatencyHistogram getProbeReads() {
+		return probeReads;
+	}
+
+	/**
+	 * Getter for probeFailures
+	 * 
+	 * @return {@link #probeFailures}
+	 */
+	protected long getProbeFailures() {
+		return probeFailures;
+	}
+
+	/**
+	 * Getter for filterRejects
+	 * 
+	 * @return {@link #filterRejects}
+	 */
+	protected long getFilterRejects() {
+		return filterRejects;
+	}
+
+	/**
+	 * a {@link HistoryStore} every sample is appended to, null if
+	 * {@link Settings#historyFile} is "none" or could not be opened
+	 * 
+	 * @see #updateTemp
+	 */
+	private HistoryStore store = null;
+	/**
+	 * a {@link Boolean} true while appending to {@link #store} fails, so the
+	 * failure is logged once and not for every sample
+	 */
+	private boolean storeFailing = false;
+
+	/**
+	 * Drops the samples at the start of {@link #store} that are in verified
+	 * segments in {@link Settings#archiveDir}, keeping the last
+	 * {@link Settings#historySize} for {@link #history}
+	 * 
+	 * @see ArchiveWriter#archivedUntil
+	 */
+	private void pruneHistory() {
+		try {
+			long until = ArchiveWriter.archivedUntil(Paths.get(settings.archiveDir), settings.id, store);
+			long first = Math.min(store.lowerBound(until), store.size() - settings.historySize);
+			if (until != Long.MIN_VALUE && first > 0) {
+				store = store.compact(Paths.get(settings.historyFile), first);
+				log(LogEvent.INFO, "Dropped " + first + " archived samples from " + settings.historyFile);
+			}
+		} catch (IOException e) {
+			log(LogEvent.WARN, "Failed to prune history file " + settings.historyFile + ": " + e);
+		}
+	}
+
+	/**
+	 * {@link Rollups} of every sample in minutes, hours and days of the schedule
+	 * 
+	 * @see #updateTemp
+	 * @see #updateDay
+	 */
+	private final Rollups rollups;
+
+	/**
+	 * Getter for rollups
+	 * 
+	 * @return {@link #rollups}
+	 */
+	protected Rollups getRollups() {
+		return rollups;
+	}
+
+	/**
+	 * Getter for store
+	 * 
+	 * @return {@link #store}, may be null
+	 */
+	protected HistoryStore getStore() {
+		return store;
+	}
+
+	/**
+	 * Reads the temperature probe text file named w1_slave through {@link #probe}
+	 * and parses it with {@link W1SlaveParser} to get temperature and store in
+	 * {@link #rawTemp}, runs it through {@link #filter} and stores the result in
+	 * {@link #currentTemp}, updates {@link #maxTemp} and {@link #minTemp} with
+	 * {@link #updateTarget}. If the
+	 * probe can not be read or the frame fails the crc check the last temperature
+	 * is kept and counted in {@link #probeFailures}, if the filter drops the
+	 * reading it is kept and counted in {@link #filterRejects}, both are counted in
+	 * {@link #badReads} by {@link #badRead}. The time of every read is
+	 * recorded in {@link #probeReads} and emitted as a
+	 * {@link FlightEvents.ProbeRead}. Every sample is added to {@link #rollups}
+	 * and {@link #history} and appended to {@link #store}.
+	 * 
+	 * @see Probe#read
+	 * @see W1SlaveParser#parse
+	 * @see SensorFilter#filter
 	 * @see #currentTemp
 	 * @see #maxTemp
 	 * @see #minTemp
 	 */
 	private void updateTemp() {
-
-		File f = new File("/sys/bus/w1/devices/");
-		String fname = findFolderNameOfProbe(f.list());
-		File found = new File(f.getAbsoluteFile() + "/" + fname + "/w1_slave");
-		String temp = null;
+		int n;
+		FlightEvents.ProbeRead event = new FlightEvents.ProbeRead();
+		event.begin();
+		long started = System.nanoTime();
 		try {
-			Scanner s = new Scanner(found);
-			while (s.hasNext()) {
-				temp = s.nextLine();
-				if (temp.contains("t=")) {
-					temp = temp.split("t=")[1];
+			probeBuffer.clear();
+			n = probe.read(probeBuffer);
+		} catch (IOException e) {
+			probeReads.record(System.nanoTime() - started);
+			probeFailures++;
+			probeRead(event, 0, Double.NaN, Double.NaN, e.toString());
+			badRead("Probe read failed: " + e);
+			return;
+		}
+		probeReads.record(System.nanoTime() - started);
+		int intTempC = W1SlaveParser.parse(probeBuffer.array(), n);
+		if (intTempC == W1SlaveParser.BAD_CRC) {
+			probeFailures++;
+			probeRead(event, n, Double.NaN, Double.NaN, "bad crc");
+			badRead("Probe read failed crc check");
+			return;
+		} else if (intTempC == W1SlaveParser.MALFORMED) {
+			probeFailures++;
+			probeRead(event, n, Double.NaN, Double.NaN, "malformed");
+			badRead("Probe read could not be parsed");
+			return;
+		}
+		rawTemp = ((double) intTempC) / ((double) 1000);
+		long now = clock.millis();
+		double filtered = filter.filter(now, rawTemp);
+		if (Double.isNaN(filtered)) {
+			filterRejects++;
+			probeRead(event, n, rawTemp, Double.NaN, "rejected");
+			badRead("Probe read " + rawTemp + " rejected by filter");
+			return;
+		}
+		badReads = 0;
+		lastGoodRead = now;
+		currentTemp = filtered;
+		probeRead(event, n, rawTemp, currentTemp, "ok");
+		sampleTime = now;
+		// the band of the sample, not of the one before, is stored with it
+		updateTarget(sampleTime);
+		int flags = relayFlags();
+		rollups.add(sampleTime, currentTemp, flags);
+		// the store keeps floats, the filter stages give any double, history holds
+		// the float so it reads the same before and after a restart
+		history.add(sampleTime, (float) currentTemp, flags);
+		if (store != null) {
+			try {
+				store.append(sampleTime, currentTemp, minTemp, maxTemp, flags);
+				if (storeFailing) {
+					storeFailing = false;
+					log(LogEvent.INFO, "History file written again");
+				}
+			} catch (IOException e) {
+				if (!storeFailing) {
+					storeFailing = true;
+					log(LogEvent.WARN, "Failed to write history file: " + e);
 				}
 			}
-			s.close();
+		}
+	}
 
-			int intTempC = Integer.parseInt(temp);
-			currentTemp = ((double) intTempC) / ((double) 1000);
-			minTemp = settings.dailyTemp.get(daysLastCheck) - settings.tempErrorMarginMinus;
-			maxTemp = settings.dailyTemp.get(daysLastCheck) + settings.tempErrorMarginPlus;
+	/**
+	 * Counts a read of {@link #probe} that was not used in {@link #badReads} and
+	 * logs warning, at most once every {@link #PROBE_WARN_MILLIS} so a probe
+	 * that stays bad does not flood the log
+	 * 
+	 * @param warning {@link String} what went wrong
+	 */
+	private void badRead(String warning) {
+		badReads++;
+		long now = clock.millis();
+		if (now - lastProbeWarn >= PROBE_WARN_MILLIS) {
+			lastProbeWarn = now;
+			log(LogEvent.WARN, badReads > 1 ? warning + ", " + badReads + " bad reads in a row" : warning);
+		}
+	}
 
-		} catch (Exception e) {
-			e.printStackTrace();
+	/**
+	 * Sets {@link #probeFault} if {@link Settings#probeFailLimit} reads in a row
+	 * were bad or there has not been a good one for {@link Settings#probeTimeout}
+	 * seconds, logging when it is set and cleared
+	 * 
+	 * @return {@link Boolean} {@link #probeFault}
+	 */
+	private boolean checkProbe() {
+		long since = clock.millis() - lastGoodRead;
+		boolean fault = badReads >= settings.probeFailLimit || since >= (long) (settings.probeTimeout * 1000);
+		if (fault && !probeFault) {
+			log(LogEvent.WARN, "No good probe reading for " + TimeUnit.MILLISECONDS.toSeconds(since) + " s, "
+					+ badReads + " bad reads in a row, relays turned off");
+		} else if (!fault && probeFault) {
+			log(LogEvent.INFO, "Probe reading again, relays switched on the temperature");
 		}
+		probeFault = fault;
+		return fault;
 	}
 
 	/**
-	 * Tries to find folder path in "/sys/bus/w1/devices/" starting with 28 and
-	 * return it, if not found system will exit with status 1
+	 * Ends and commits event if a recording wants it
 	 * 
-	 * @param str {@link String} array containing folder paths in
-	 *            "/sys/bus/w1/devices/"
-	 * @see #updateTemp
-	 * @return {@link String} path of the folder that is starts with "28"
-	 */
-	private String findFolderNameOfProbe(String[] str) {
-		String filename = null;
-		String contains = "28";
-		for (String s : str) {
-			if (s.startsWith(contains)) {
-				filename = s;
-				break;
-			}
+	 * @param event       {@link FlightEvents.ProbeRead} begun before the read
+	 * @param bytes       {@link Integer} bytes read
+	 * @param temperature {@link Double} temperature read, NaN if the read failed
+	 * @param filtered    {@link Double} temperature after {@link #filter}, NaN if
+	 *                    the read failed or was dropped
+	 * @param result      {@link String} "ok" or what went wrong
+	 */
+	private void probeRead(FlightEvents.ProbeRead event, int bytes, double temperature, double filtered,
+			String result) {
+		event.end();
+		if (event.shouldCommit()) {
+			event.vessel = settings.id;
+			event.bytes = bytes;
+			event.temperature = temperature;
+			event.filtered = filtered;
+			event.result = result;
+			event.commit();
 		}
-		if (filename == null) {
-			System.exit(1);
+	}
+
+	/**
+	 * Looks up the target temperature of {@link Settings#schedule} at now and
+	 * sets {@link #minTemp} and {@link #maxTemp} to the band around it. When a new
+	 * segment of the schedule starts its state is set and {@link #logDaily} is
+	 * run.
+	 * 
+	 * @param now {@link Long} milliseconds since the epoch
+	 * @see Schedule#segment
+	 * @see Schedule#target
+	 */
+	private void updateTarget(long now) {
+		Schedule schedule = settings.schedule;
+		long elapsed = now - start.toEpochMilli();
+		int i = schedule.segment(elapsed);
+		double goal = schedule.target(i, elapsed);
+		target = goal;
+		minTemp = goal - settings.tempErrorMarginMinus;
+		maxTemp = goal + settings.tempErrorMarginPlus;
+		if (i != segment) {
+			segment = i;
+			state = schedule.getState(i);
+			if (loggedDay >= 0) {
+				logDaily();
+			}
 		}
-		return filename;
 	}
 
 	/**
-	 * Checks if temperature {@link #currentTemp} is in the acceptable range of
-	 * {@link Settings#tempErrorMarginPlus} and
-	 * {@link Settings#tempErrorMarginMinus} if {@link Settings#hasHeater} is true
-	 * and {@link PowerSocket#waitBetweenPowerSwitch} is false and it's to cold it
-	 * will turn on {@link #heater} by calling {@link PowerSocket#turnOn} or turn
-	 * off {@link #heater} by calling {@link PowerSocket#turnOff} if it's too hot.
-	 * if {@link PowerSocket#waitBetweenPowerSwitch} is false and it's too cold it
-	 * will turn off the {@link #cooler} by calling {@link PowerSocket#turnOff} or
-	 * turn off the {@link #cooler} by calling {@link PowerSocket#turnOff} if it's
-	 * too hot.
+	 * a {@link Double} with the target temperature of {@link Settings#schedule}
+	 * at the last lookup
+	 * 
+	 * @see #updateTarget
+	 */
+	private volatile double target = 0;
+
+	/**
+	 * The {@link Controller} named by {@link Settings#controller} deciding what
+	 * the relays do
+	 * 
+	 * @see #checkTemp
+	 */
+	private Controller controller;
+
+	/**
+	 * Asks {@link #controller} what the relays should do with
+	 * {@link #currentTemp} and the target of {@link Settings#schedule} and
+	 * switches {@link #heater} and {@link #cooler} by calling
+	 * {@link PowerSocket#turnOn} or {@link PowerSocket#turnOff}. A relay is only
+	 * switched if {@link PowerSocket#waitBetweenPowerSwitch} is false. With the
+	 * default {@link HysteresisController} it's too cold below {@link #minTemp},
+	 * turning on the heater if {@link Settings#hasHeater} is true and turning off
+	 * the cooler, and too hot above {@link #maxTemp}, turning off the heater and
+	 * turning on the cooler. The relays are switched by their
+	 * {@link RelayCommandQueue} so this never waits for a relay to answer. The
+	 * decision is emitted as a {@link FlightEvents.ControlDecision}. While
+	 * {@link #checkProbe} finds the probe faulty both relays are turned off at
+	 * once instead, without waiting for {@link Settings#minutesToWaitPowerSwitch}.
 	 * 
 	 * @see #currentTemp
-	 * @see Settings
+	 * @see Controller#decide
 	 * @see PowerSocket#waitBetweenPowerSwitch
 	 * @see #heater
 	 * @see #cooler
-	 * @see PowerSocket#turnOff
-	 * @see PowerSocket#turnOn
-	 * @see #daysLastCheck
 	 * @see Settings#hasHeater
-	 * @see Settings#tempErrorMarginMinus
-	 * @see Settings#tempErrorMarginPlus
 	 */
 	private void checkTemp() {
+		if (checkProbe()) {
+			shutOff(heater);
+			shutOff(cooler);
+			return;
+		}
+		FlightEvents.ControlDecision event = new FlightEvents.ControlDecision();
+		event.begin();
+		int decision = controller.decide(clock.millis(), currentTemp, target, settings, relayFlags());
+		switch (decision) {
+		case Controller.COOL:
+			drive(heater, false);
+			drive(cooler, true);
+			break;
+		case Controller.HEAT:
+			drive(heater, true);
+			drive(cooler, false);
+			break;
+		case Controller.OFF:
+			drive(heater, false);
+			drive(cooler, false);
+			break;
+		default:
+			break;
+		}
+		event.end();
+		if (event.shouldCommit()) {
+			event.vessel = settings.id;
+			event.controller = settings.controller;
+			event.temperature = currentTemp;
+			event.target = target;
+			event.decision = DECISIONS[decision];
+			event.coolerOn = cooler.on;
+			event.heaterOn = isHeaterOn();
+			event.commit();
+		}
+	}
 
-		if (currentTemp <= (settings.dailyTemp.get(daysLastCheck) - settings.tempErrorMarginMinus)) {
-			if (settings.hasHeater) {
-				if (!heater.waitBetweenPowerSwitch()) {
-					heater.turnOn();
-				}
-			}
-			if (!cooler.waitBetweenPowerSwitch()) {
-				cooler.turnOff();
-			}
+	/**
+	 * The names of the decisions of a {@link Controller} in
+	 * {@link FlightEvents.ControlDecision}, by their value
+	 */
+	private static final String[] DECISIONS = { "hold", "cool", "heat", "off" };
 
-		} else if (currentTemp >= (settings.dailyTemp.get(daysLastCheck) + settings.tempErrorMarginPlus)) {
-			if (settings.hasHeater) {
-				if (!heater.waitBetweenPowerSwitch()) {
-					heater.turnOff();
-				}
+	/**
+	 * Switches socket to state unless {@link PowerSocket#waitBetweenPowerSwitch}
+	 * is true. A relay already in state is only sent it again if
+	 * {@link Controller#reassert} is true, a relay changing state is logged.
+	 * 
+	 * @param socket {@link PowerSocket} to switch, null if there is none
+	 * @param state  {@link Boolean} true to turn it on
+	 */
+	private void drive(PowerSocket socket, boolean state) {
+		if (socket == null || (socket.on == state && !controller.reassert())) {
+			return;
+		}
+		if (!socket.waitBetweenPowerSwitch()) {
+			if (socket.on != state) {
+				log(LogEvent.INFO, (socket == cooler ? "Cooler" : "Heater") + (state ? " turned on" : " turned off"));
 			}
-			if (!cooler.waitBetweenPowerSwitch()) {
-				cooler.turnOn();
+			if (state) {
+				socket.turnOn();
+			} else {
+				socket.turnOff();
 			}
+		}
+	}
+
+	/**
+	 * Turns socket off if it is on, the wait before it may be turned on again
+	 * starts now
+	 * 
+	 * @param socket {@link PowerSocket} to turn off, null if there is none
+	 */
+	private void shutOff(PowerSocket socket) {
+		if (socket == null || !socket.on) {
+			return;
+		}
+		socket.lastInstant = clock.instant();
+		socket.turnOff();
+	}
 
+	/**
+	 * Waits until both relays have sent every command queued, at most millis.
+	 * Run before the program exits so the last commands reach the relays.
+	 * 
+	 * @param millis {@link Long} longest wait in milliseconds
+	 * @see RelayCommandQueue#isBusy
+	 */
+	protected void awaitRelays(long millis) {
+		long until = System.currentTimeMillis() + millis;
+		while ((cooler.queue.isBusy() || (heater != null && heater.queue.isBusy()))
+				&& System.currentTimeMillis() < until) {
+			try {
+				Thread.sleep(100);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
 		}
 	}
+
 	/**
-	 * a {@link Instant} used to store a day after the current day
-	 * @see #updateDay
+	 * Getter for the cycles of the cooler
+	 * 
+	 * @return {@link PowerSocket#cycles} of {@link #cooler}
+	 */
+	protected long getCoolerCycles() {
+		return cooler.cycles;
+	}
+
+	/**
+	 * Getter for the cooler
+	 * 
+	 * @return {@link #cooler}
+	 */
+	protected PowerSocket getCooler() {
+		return cooler;
+	}
+
+	/**
+	 * Getter for the heater
+	 * 
+	 * @return {@link #heater}, null if there is no heater
 	 */
-	private Instant tomorrow = null;
+	protected PowerSocket getHeater() {
+		return heater;
+	}
+
+	/**
+	 * Getter for the cycles of the heater
+	 * 
+	 * @return {@link PowerSocket#cycles} of {@link #heater}, 0 if there is no
+	 *         heater
+	 */
+	protected long getHeaterCycles() {
+		return heater == null ? 0 : heater.cycles;
+	}
+
 	/**
-	 * a {@link Integer} used to store total amount of seconds in a day.
+	 * a {@link Instant} the schedule started at
+	 * @see #updateTarget
+	 */
+	private Instant start;
+	/**
+	 * a {@link Instant} used to store the start of the day after the current day
 	 * @see #updateDay
 	 */
-	private final int secondsInADay = 86400;
+	private Instant tomorrow;
+	/**
+	 * a {@link Integer} with the index of the current segment of
+	 * {@link Settings#schedule}, -1 before the first lookup
+	 * @see #updateTarget
+	 */
+	private int segment = -1;
 
 	/**
-	 * When first run it initializes {@link #tomorrow} as the current time and adds
-	 * {@link #secondsInADay} and a {@link Instant} now as the current time. the
-	 * next times the method is ran it will check if the time past since
-	 * {@link #tomorrow} has exceeded 24 hours. If it has it will set
-	 * {@link #tomorrow} as the current time plus 24 hours and add 1 to
-	 * {@link #daysLastCheck} to signify that a day has past. If
-	 * {@link #daysLastCheck} is greater or equal than the size of
-	 * {@link Settings#dailyTemp} the program will terminate with status 0, the
-	 * program has finished. If it's not greater it will call {@link #logDaily}
+	 * Checks if the time past since {@link #start} has reached the duration of
+	 * {@link Settings#schedule}, if it has {@link #finished} is set, both relays
+	 * are turned off and {@link #logFile} and {@link #rollups} are told the last
+	 * day has ended, the schedule of this vessel has finished. Else for every time {@link #tomorrow}
+	 * has been passed it adds 1 to {@link #daysLastCheck} to signify that a day
+	 * has past, tells {@link #logFile}, {@link #rollups} and {@link #archive} the day has ended,
+	 * moves {@link #tomorrow} 24 hours on and calls {@link #logDaily}. Days are
+	 * counted from {@link #start} so they do not drift with the control period.
 	 * 
 	 * @see #daysLastCheck
-	 * @see Settings#dailyTemp
+	 * @see Settings#schedule
 	 * @see #logDaily
 	 */
 	private void updateDay() {
-		Instant now = Instant.now();
-
-		if (tomorrow == null) {
-			tomorrow = Instant.now();
-			tomorrow = tomorrow.plusSeconds(secondsInADay);
-
-		} else if (now.isAfter(tomorrow)) {
-			tomorrow = Instant.now();
-			tomorrow = tomorrow.plusSeconds(secondsInADay);
+		if (finished) {
+			return;
+		}
+		Instant now = clock.instant();
+		if (now.toEpochMilli() - start.toEpochMilli() >= settings.schedule.getDuration()) {
+			finished = true;
+			// nothing switches the relays after this, left on they would run for good
+			shutOff(heater);
+			shutOff(cooler);
+			logFile.endDay(daysLastCheck + 1);
+			rollups.newDay(now.toEpochMilli());
+			log(LogEvent.INFO, "out of days, done, relays turned off");
+			if (archive != null) {
+				archive.endDay(now.toEpochMilli());
+			}
+			return;
+		}
+		while (!now.isBefore(tomorrow)) {
 			daysLastCheck++;
-			if (daysLastCheck >= settings.dailyTemp.size()) {
-				System.out.println("out of days, done");
-				System.exit(0);
-			} else {
-				logDaily();
+			logFile.endDay(daysLastCheck);
+			if (archive != null) {
+				archive.endDay(tomorrow.toEpochMilli());
 			}
-
+			rollups.newDay(tomorrow.toEpochMilli());
+			tomorrow = tomorrow.plusMillis(Schedule.DAY);
+			logDaily();
 		}
 	}
 
 	/**
-	 * The {@link Instant} stores a point on the time-line. Before
-	 * waitBetweenLogging() is called it is not initialized.
+	 * a {@link CheckpointJournal} the progress of the schedule is kept in, null
+	 * if {@link Settings#checkpointFile} is "none" or could not be opened
 	 * 
-	 * @see #waitBetweenLogging
+	 * @see #checkpoint
+	 * @see #resume
 	 */
-	Instant lastInstant = null;
+	private CheckpointJournal journal = null;
+	/**
+	 * a {@link Long} with the schedule fingerprint of the last checkpoint written,
+	 * a new checkpoint is only written when it or one of the other saved values
+	 * changes
+	 */
+	private long savedFingerprint;
+	/**
+	 * a {@link Long} with the schedule start of the last checkpoint written, -1
+	 * before the first
+	 */
+	private long savedStart = -1;
+	/**
+	 * a {@link Integer} with the day of the last checkpoint written
+	 */
+	private int savedDay;
+	/**
+	 * a {@link Integer} with the relay states of the last checkpoint written
+	 */
+	private int savedFlags;
+	/**
+	 * a {@link Long} with the cooler delay of the last checkpoint written
+	 */
+	private long savedCoolerLast;
+	/**
+	 * a {@link Long} with the heater delay of the last checkpoint written
+	 */
+	private long savedHeaterLast;
+	/**
+	 * a {@link Boolean} true while writing to {@link #journal} fails, so the
+	 * failure is logged once and not for every checkpoint
+	 */
+	private boolean journalFailing = false;
 
 	/**
-	 * Returns a {@link Boolean} that is false if the time since you last called the
-	 * method is greater than than specified by the settings
+	 * Resumes the schedule from the last checkpoint in {@link #journal} if it was
+	 * written for the same {@link Settings#schedule}, restoring {@link #start},
+	 * {@link #daysLastCheck}, {@link #tomorrow}, the relay states and
+	 * {@link PowerSocket#lastInstant} of both relays. Days that ended while the
+	 * program was not running are ended by the first {@link #updateDay}.
 	 * 
-	 * @see #lastInstant
-	 * @see Settings#minutesToWaitLog
-	 * @return a {@link Boolean} that is false if the time since you last called the
-	 *         method is greater than than specified by the settings
+	 * @see CheckpointJournal
 	 */
-	private Boolean waitBetweenLogging() {
-		if (lastInstant == null) {
-			lastInstant = Instant.now();
-			return false;
+	private void resume() {
+		if (!journal.hasCheckpoint()) {
+			return;
 		}
-
-		double msInMinute = 60000;
-		long timeWait = (long) (settings.minutesToWaitLog * msInMinute);
-		Instant finish = Instant.now();
-		long timeElapsed = Duration.between(lastInstant, finish).toMillis();
-
-		if (timeElapsed > timeWait) {
-			lastInstant = Instant.now();
-			return false;
+		if (journal.getFingerprint() != settings.schedule.getFingerprint()) {
+			String line = "Schedule changed since the last checkpoint, starting from day 1";
+			log(LogEvent.INFO, line);
+			return;
 		}
-		return true;
+		start = Instant.ofEpochMilli(journal.getStart());
+		daysLastCheck = journal.getDay();
+		tomorrow = start.plusMillis((daysLastCheck + 1) * Schedule.DAY);
+		int flags = journal.getFlags();
+		cooler.on = (flags & SampleHistory.COOLER_ON) != 0;
+		cooler.lastInstant = journal.getCoolerLast() < 0 ? null : Instant.ofEpochMilli(journal.getCoolerLast());
+		if (heater != null && (flags & SampleHistory.HAS_HEATER) != 0) {
+			heater.on = (flags & SampleHistory.HEATER_ON) != 0;
+			heater.lastInstant = journal.getHeaterLast() < 0 ? null : Instant.ofEpochMilli(journal.getHeaterLast());
+		}
+		String line = "Resumed at day " + (daysLastCheck + 1) + " from a checkpoint written "
+				+ TimeUnit.MILLISECONDS.toSeconds(clock.millis() - journal.getTime()) + " s ago";
+		log(LogEvent.INFO, line);
 	}
 
 	/**
-	 * Tries to add {@link String} log to {@link #logFile}
+	 * Writes a checkpoint to {@link #journal} if the schedule, its start, the
+	 * day, the relay states or the relay delays have changed since the last one,
+	 * the journal forces it to disk within {@link CheckpointJournal#SYNC_MILLIS}.
+	 * Run at the end of every control tick.
 	 * 
-	 * @see #lastInstant
-	 * @see #logFile
-	 * @param log {@link String} to add to log file
+	 * @see CheckpointJournal#write
 	 */
-	private void log(String log) {
+	private void checkpoint() {
+		if (journal == null) {
+			return;
+		}
+		long fingerprint = settings.schedule.getFingerprint();
+		long startMillis = start.toEpochMilli();
+		int flags = relayFlags();
+		long coolerLast = cooler.lastInstant == null ? -1 : cooler.lastInstant.toEpochMilli();
+		long heaterLast = heater == null || heater.lastInstant == null ? -1 : heater.lastInstant.toEpochMilli();
+		if (fingerprint == savedFingerprint && startMillis == savedStart && daysLastCheck == savedDay
+				&& flags == savedFlags && coolerLast == savedCoolerLast && heaterLast == savedHeaterLast) {
+			journal.sync();
+			return;
+		}
 		try {
-			FileWriter fw = new FileWriter(logFile, true);
-			fw.write(log + "\n");
-			fw.close();
+			journal.write(clock.millis(), fingerprint, startMillis, daysLastCheck, flags, coolerLast, heaterLast);
 		} catch (IOException e) {
-			e.printStackTrace();
+			if (!journalFailing) {
+				journalFailing = true;
+				log(LogEvent.WARN, "Failed to write checkpoint file: " + e);
+			}
+			return;
 		}
+		if (journalFailing) {
+			journalFailing = false;
+			log(LogEvent.INFO, "Checkpoint file written again");
+		}
+		savedFingerprint = fingerprint;
+		savedStart = startMillis;
+		savedDay = daysLastCheck;
+		savedFlags = flags;
+		savedCoolerLast = coolerLast;
+		savedHeaterLast = heaterLast;
 	}
 
+	/**
+	 * an {@link ArchiveWriter} sealing every finished day, null if
+	 * {@link Settings#archiveDir} is "none" or could not be created
+	 * 
+	 * @see #updateDay
+	 * @see #logDaily
+	 */
+	private ArchiveWriter archive = null;
+
+	/**
+	 * Getter for archive
+	 * 
+	 * @return {@link #archive}, may be null
+	 */
+	protected ArchiveWriter getArchive() {
+		return archive;
+	}
+
+	/**
+	 * a {@link LogPipeline} sending every sample and message to {@link #console},
+	 * {@link #logFile}, {@link #tail} and {@link #archive}
+	 * 
+	 * @see #log
+	 * @see #logTemp
+	 */
+	private final LogPipeline logs;
+
+	/**
+	 * a {@link ConsoleSink} printing the lines {@link Settings#consoleLog} lets
+	 * through
+	 */
+	private final ConsoleSink console;
+
+	/**
+	 * a {@link LogTail} with the last lines {@link Settings#telemetryLog} lets
+	 * through, sent to subscribed clients
+	 */
+	private final LogTail tail = new LogTail();
+
+	/**
+	 * Getter for tail
+	 * 
+	 * @return {@link #tail}
+	 */
+	protected LogTail getTail() {
+		return tail;
+	}
+
+	/**
+	 * Sets the level and rate of every sink of {@link #logs} from settings,
+	 * {@link #archive} is sent every line
+	 * 
+	 * @param settings {@link Settings} with the levels and rates
+	 */
+	private void routeLogs(Settings settings) {
+		logs.route(console, settings.consoleLog);
+		logs.route(logFile, settings.fileLog);
+		logs.route(tail, settings.telemetryLog);
+		if (archive != null) {
+			logs.route(archive, LogEvent.LEVELS[LogEvent.SAMPLE]);
+		}
+	}
+
+	/**
+	 * Sends a message to the sinks of {@link #logs}, may be called from any
+	 * thread
+	 * 
+	 * @see LogPipeline#message
+	 * @param level {@link Integer} {@link LogEvent#INFO} or {@link LogEvent#WARN}
+	 * @param log   {@link String} message
+	 */
+	void log(int level, String log) {
+		logs.message(level, clock.millis(), log);
+	}
+
+	/**
+	 * a {@link Integer} with the day last logged by {@link #logDaily}, -1 before
+	 * the first
+	 */
+	private int loggedDay = -1;
+	/**
+	 * a {@link Integer} with the segment last logged by {@link #logDaily}
+	 */
+	private int loggedSegment = -1;
+
 	/**
 	 * Tries to add {@link #daysLastCheck}+1 (adding 1 to start with day 1 instead
-	 * of day 0) and the {@link Settings#dailyState} and {@link Settings#dailyTemp}
-	 * for index {@link #daysLastCheck} (the current day) to {@link #logFile}
+	 * of day 0) and the state and temperature goal of the current segment of
+	 * {@link Settings#schedule} to {@link #logFile}, a ramp is logged as
+	 * "from&gt;to" and emitted as a {@link FlightEvents.ScheduleDay}. A new day is
+	 * started in {@link #archive}, from the start of the day or from now if the
+	 * program started during it. Does nothing if the day and segment are already
+	 * logged.
 	 * 
 	 * @see #daysLastCheck
-	 * @see Settings#dailyTemp
-	 * @see Settings#dailyTemp
+	 * @see #segment
+	 * @see Settings#schedule
 	 * @see #logFile
 	 */
 	private void logDaily() {
-		this.state = settings.dailyState.get(daysLastCheck);
-		log("Day:" + (daysLastCheck + 1) + ", State:" + state + ", Temp goal: "
-				+ settings.dailyTemp.get(daysLastCheck));
+		if (loggedDay == daysLastCheck && loggedSegment == segment) {
+			return;
+		}
+		Schedule schedule = settings.schedule;
+		double from = schedule.getFrom(segment);
+		double to = schedule.getTo(segment);
+		if (archive != null && loggedDay != daysLastCheck) {
+			long dayStart = start.toEpochMilli() + daysLastCheck * Schedule.DAY;
+			archive.startDay(daysLastCheck + 1, state, from, to,
+					loggedDay < 0 ? Math.max(dayStart, clock.millis()) : dayStart);
+		}
+		loggedDay = daysLastCheck;
+		loggedSegment = segment;
+		log(LogEvent.INFO, "Day:" + (daysLastCheck + 1) + ", State:" + state + ", Temp goal: "
+				+ (from == to ? String.valueOf(from) : from + ">" + to));
+		FlightEvents.ScheduleDay event = new FlightEvents.ScheduleDay();
+		if (event.shouldCommit()) {
+			event.vessel = settings.id;
+			event.day = daysLastCheck + 1;
+			event.state = state;
+			event.from = from;
+			event.to = to;
+			event.commit();
+		}
 	}
 
 	/**
-	 * A list containing {@link String} from logTemps
+	 * A {@link SampleHistory} with every sample, compressed, at least the
+	 * latest {@link Settings#historySize}
 	 * 
-	 * @see #logList
+	 * @see #updateTemp
 	 */
-	private LinkedList<String> logList = new LinkedList<String>();
+	private final SampleHistory history;
 
 	/**
-	 * @return #logList
+	 * Getter for history
+	 * 
+	 * @return #history
 	 */
-	protected LinkedList<String> getLogList() {
-		return logList;
+	protected SampleHistory getHistory() {
+		return history;
 	}
 
 	/**
-	 * Tries to add the current value from {@link PowerSocket#on} of the
-	 * {@link #heater} if {@link Settings#hasHeater} and the current value from
-	 * {@link PowerSocket#on} of the {@link #cooler} and
-	 * {@link TempDateTime#getFormatedDateTimeTemp} to {@link #logFile} adds log to
-	 * {@link #logList}, removes first if {@link #logList} is larger than 23
+	 * Sends {@link #currentTemp} and the current value from {@link PowerSocket#on}
+	 * of the {@link #cooler} and of the {@link #heater} if
+	 * {@link Settings#hasHeater} as a sample to {@link #logs}, which formats it
+	 * once for {@link #console} and {@link #logFile}. Scheduled every
+	 * {@link Settings#secondsBetweenLogs}
 	 * 
 	 * @see #currentTemp
 	 * @see #cooler
 	 * @see #heater
-	 * @see #logFile
-	 * @see #logList
-	 * @see TempDateTime
+	 * @see #logs
+	 * @see LogEvent#format
 	 * @see Settings#hasHeater
 	 * @see PowerSocket#on
 	 */
-	protected void logTemp() {
-		if (!waitBetweenLogging()) {
-			String log = "";
-			TempDateTime temp = new TempDateTime(currentTemp);
-			if (settings.hasHeater) {
-				log(temp.getFormatedDateTimeTemp() + " Cooler on: " + cooler.on + " Heater on: " + heater.on);
-				System.out.println(
-						temp.getFormatedDateTimeTemp() + " Cooler on: " + cooler.on + " Heater on: " + heater.on);
-				log = temp.getFormatedDateTimeTemp() + " Cooler on: " + cooler.on + " Heater on: " + heater.on;
-			} else {
-				log((temp.getFormatedDateTimeTemp() + " Cooler on: " + cooler.on));
-				System.out.println(temp.getFormatedDateTimeTemp() + " Cooler on: " + cooler.on);
-				log = temp.getFormatedDateTimeTemp() + " Cooler on: " + cooler.on;
-			}
-			logList.add(log);
-			if (logList.size() > 23) {
-				logList.removeFirst();
-			}
+	protected synchronized void logTemp() {
+		logs.sample(clock.millis(), currentTemp, relayFlags());
+	}
+
+	/**
+	 * Returns the relay states as bits, {@link SampleHistory#COOLER_ON},
+	 * {@link SampleHistory#HEATER_ON} and {@link SampleHistory#HAS_HEATER}
+	 * 
+	 * @return {@link Integer} relay states
+	 */
+	private int relayFlags() {
+		int flags = cooler.on ? SampleHistory.COOLER_ON : 0;
+		if (settings.hasHeater) {
+			flags |= SampleHistory.HAS_HEATER | (heater.on ? SampleHistory.HEATER_ON : 0);
 		}
+		return flags;
 	}
 }
@@ -0,0 +1,207 @@
+package Brewmaster;
+
+/**
+ * <h2>ThermalModel</h2> The ThermalModel class simulates a fridge with a
+ * fermenter of wort inside it. The air in the fridge exchanges heat with the
+ * room through the insulation and with the wort through the fermenter wall.
+ * The cooler pulls heat out of the air, its cooling power rises and falls
+ * with {@link #lag} after it is switched since the compressor has to cool the
+ * evaporator first and the evaporator stays cold after it stops. The heater
+ * heats the air right away. The probe sits in the wort. The model is stepped
+ * at most {@link #STEP} at a time and has no randomness, the same switching
+ * gives the same temperatures.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ * @see Simulation
+ */
+public class ThermalModel {
+	/**
+	 * The {@link Long} longest step in milliseconds the model is moved at a time
+	 */
+	private static final long STEP = 1000;
+	/**
+	 * The {@link Double} heat capacity of wort in joule per liter and degree
+	 */
+	private static final double WORT_HEAT_CAPACITY = 4100;
+
+	/**
+	 * The {@link Double} liters of wort in the fermenter
+	 */
+	double volume = 20;
+	/**
+	 * The {@link Double} heat capacity of the air, shelves and walls inside the
+	 * fridge in joule per degree
+	 */
+	double airMass = 15000;
+	/**
+	 * The {@link Double} watts the cooler pulls out when it has been on long
+	 * enough
+	 */
+	double cooling = 80;
+	/**
+	 * The {@link Double} watts the heater gives
+	 */
+	double heating = 60;
+	/**
+	 * The {@link Double} temperature of the room in degrees celsius
+	 */
+	double ambient = 20;
+	/**
+	 * The {@link Double} watts per degree leaking through the insulation of the
+	 * fridge
+	 */
+	double insulation = 1.5;
+	/**
+	 * The {@link Double} watts per degree between the air and the wort
+	 */
+	double coupling = 4;
+	/**
+	 * The {@link Double} minutes the cooling power takes to get two thirds of the
+	 * way to full or to nothing after the cooler is switched
+	 */
+	double lag = 10;
+	/**
+	 * The {@link Double} temperature the air and the wort start at, NaN to start
+	 * at {@link #ambient}
+	 */
+	double start = Double.NaN;
+
+	/**
+	 * The {@link Double} temperature of the air in the fridge
+	 */
+	private double air;
+	/**
+	 * The {@link Double} temperature of the wort
+	 */
+	private double wort;
+	/**
+	 * The {@link Double} watts the cooler pulls out right now
+	 */
+	private double power = 0;
+	/**
+	 * The {@link Boolean} true while the cooler is on
+	 */
+	private volatile boolean coolerOn = false;
+	/**
+	 * The {@link Boolean} true while the heater is on
+	 */
+	private volatile boolean heaterOn = false;
+
+	/**
+	 * Sets up a ThermalModel with the default parameters, the air and the wort
+	 * at the room temperature and the cooler and heater off
+	 */
+	ThermalModel() {
+		reset();
+	}
+
+	/**
+	 * Puts the air and the wort back at {@link #start} with the cooler not
+	 * cooling, run after changing parameters
+	 */
+	synchronized void reset() {
+		air = Double.isNaN(start) ? ambient : start;
+		wort = air;
+		power = 0;
+	}
+
+	/**
+	 * Sets a parameter from a line "Key=value", the keys are Volume, AirMass,
+	 * Cooling, Heating, Ambient, Insulation, Coupling, Lag and Start
+	 *
+	 * @param line {@link String} "Key=value"
+	 * @throws IllegalArgumentException if the key is unknown or the value is not
+	 *                                  a number
+	 */
+	void set(String line) {
+		int eq = line.indexOf('=');
+		if (eq < 0) {
+			throw new IllegalArgumentException("Expected Key=value: " + line);
+		}
+		String key = line.substring(0, eq).trim();
+		double value;
+		try {
+			value = Double.parseDouble(line.substring(eq + 1).trim());
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(key + " must be a number");
+		}
+		if ("Volume".equals(key)) {
+			volume = value;
+		} else if ("AirMass".equals(key)) {
+			airMass = value;
+		} else if ("Cooling".equals(key)) {
+			cooling = value;
+		} else if ("Heating".equals(key)) {
+			heating = value;
+		} else if ("Ambient".equals(key)) {
+			ambient = value;
+		} else if ("Insulation".equals(key)) {
+			insulation = value;
+		} else if ("Coupling".equals(key)) {
+			coupling = value;
+		} else if ("Lag".equals(key)) {
+			lag = value;
+		} else if ("Start".equals(key)) {
+			start = value;
+		} else {
+			throw new IllegalArgumentException("Unknown model parameter " + key);
+		}
+		if (volume <= 0 || airMass <= 0 || lag < 0) {
+			throw new IllegalArgumentException("Volume and AirMass must be above 0 and Lag can not be negative");
+		}
+	}
+
+	/**
+	 * Moves the model millis forward in steps of at most {@link #STEP}
+	 *
+	 * @param millis {@link Long} milliseconds to move
+	 */
+	synchronized void advance(long millis) {
+		double wortMass = volume * WORT_HEAT_CAPACITY;
+		while (millis > 0) {
+			long step = Math.min(millis, STEP);
+			millis -= step;
+			double seconds = step / 1000.0;
+			double full = coolerOn ? cooling : 0;
+			if (lag > 0) {
+				power += (full - power) * Math.min(1, seconds / (lag * 60));
+			} else {
+				power = full;
+			}
+			double toWort = coupling * (air - wort);
+			double watts = insulation * (ambient - air) - toWort - power + (heaterOn ? heating : 0);
+			air += watts * seconds / airMass;
+			wort += toWort * seconds / wortMass;
+		}
+	}
+
+	/**
+	 * @param on {@link Boolean} true to turn the cooler on
+	 */
+	void setCooler(boolean on) {
+		coolerOn = on;
+	}
+
+	/**
+	 * @param on {@link Boolean} true to turn the heater on
+	 */
+	void setHeater(boolean on) {
+		heaterOn = on;
+	}
+
+	/**
+	 * @return {@link #wort}
+	 */
+	synchronized double getWort() {
+		return wort;
+	}
+
+	/**
+	 * @return {@link #air}
+	 */
+	synchronized double getAir() {
+		return air;
+	}
+}
@@ -0,0 +1,261 @@
+package Brewmaster;
+
+/**
+ * <h2>VesselMetrics</h2> The VesselMetrics class publishes the counters and
+ * {@link LatencyHistogram} of one vessel over JMX, from its
+ * {@link TemperatureHandler}, its {@link ControlEngine} and the
+ * {@link RelayCommandQueue} of each relay. Every attribute is read when it is
+ * asked for, nothing is done on the control thread.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ * @see VesselMetricsMBean
+ */
+public class VesselMetrics implements VesselMetricsMBean {
+	/**
+	 * The {@link TemperatureHandler} of the vessel
+	 */
+	private final TemperatureHandler th;
+	/**
+	 * The {@link ControlEngine} running {@link #th}
+	 */
+	private final ControlEngine engine;
+
+	/**
+	 * Sets up VesselMetrics
+	 *
+	 * @param th     {@link TemperatureHandler} of the vessel
+	 * @param engine {@link ControlEngine} running th
+	 */
+	VesselMetrics(TemperatureHandler th, ControlEngine engine) {
+		this.th = th;
+		this.engine = engine;
+	}
+
+	/**
+	 * @param nanos {@link Long} nanoseconds
+	 * @return {@link Double} microseconds
+	 */
+	private static double micros(long nanos) {
+		return nanos / 1e3;
+	}
+
+	/**
+	 * @param nanos {@link Long} nanoseconds
+	 * @return {@link Double} milliseconds
+	 */
+	private static double millis(long nanos) {
+		return nanos / 1e6;
+	}
+
+	@Override
+	public String getId() {
+		return th.getSettings().id;
+	}
+
+	@Override
+	public double getCurrentTemp() {
+		return th.getCurrentTemp();
+	}
+
+	@Override
+	public double getRawTemp() {
+		return th.getRawTemp();
+	}
+
+	@Override
+	public double getTarget() {
+		return th.getTarget();
+	}
+
+	@Override
+	public int getDay() {
+		return th.getDaysLastCheck() + 1;
+	}
+
+	@Override
+	public long getControlTicks() {
+		return engine.control.getTicks();
+	}
+
+	@Override
+	public double getControlTickMeanMicros() {
+		return micros(engine.control.durations.getMean());
+	}
+
+	@Override
+	public double getControlTickP99Micros() {
+		return micros(engine.control.durations.percentile(99));
+	}
+
+	@Override
+	public double getControlTickMaxMicros() {
+		return micros(engine.control.durations.getMax());
+	}
+
+	@Override
+	public double getSampleTickP99Micros() {
+		return micros(engine.sample.durations.percentile(99));
+	}
+
+	@Override
+	public double getSampleTickMaxMicros() {
+		return micros(engine.sample.durations.getMax());
+	}
+
+	@Override
+	public double getControlLatenessP99Millis() {
+		return millis(engine.control.lateness.percentile(99));
+	}
+
+	@Override
+	public double getControlLatenessMaxMillis() {
+		return millis(engine.control.lateness.getMax());
+	}
+
+	@Override
+	public long getLateTicks() {
+		return engine.sample.getLateTicks() + engine.control.getLateTicks() + engine.log.getLateTicks();
+	}
+
+	@Override
+	public long getMissedTicks() {
+		return engine.sample.getMissedTicks() + engine.control.getMissedTicks() + engine.log.getMissedTicks();
+	}
+
+	@Override
+	public double getProbeReadMeanMicros() {
+		return micros(th.getProbeReads().getMean());
+	}
+
+	@Override
+	public double getProbeReadP99Micros() {
+		return micros(th.getProbeReads().percentile(99));
+	}
+
+	@Override
+	public double getProbeReadMaxMicros() {
+		return micros(th.getProbeReads().getMax());
+	}
+
+	@Override
+	public long getProbeFailures() {
+		return th.getProbeFailures();
+	}
+
+	@Override
+	public long getFilterRejects() {
+		return th.getFilterRejects();
+	}
+
+	@Override
+	public boolean isProbeFault() {
+		return th.isProbeFault();
+	}
+
+	@Override
+	public long getHistorySamples() {
+		return th.getHistory().size();
+	}
+
+	@Override
+	public long getHistoryBytes() {
+		return th.getHistory().getBytes();
+	}
+
+	@Override
+	public boolean isCoolerOn() {
+		return th.isCoolerOn();
+	}
+
+	@Override
+	public long getCoolerCycles() {
+		return th.getCoolerCycles();
+	}
+
+	@Override
+	public int getCoolerCyclesLastHour() {
+		return th.getCooler().cyclesLastHour();
+	}
+
+	@Override
+	public double getCoolerLatencyP99Millis() {
+		return millis(th.getCooler().queue.getLatencies().percentile(99));
+	}
+
+	@Override
+	public double getCoolerLatencyMaxMillis() {
+		return millis(th.getCooler().queue.getLatencies().getMax());
+	}
+
+	@Override
+	public long getCoolerFailures() {
+		return th.getCooler().queue.getFailures();
+	}
+
+	@Override
+	public boolean isHeaterOn() {
+		return th.isHeaterOn();
+	}
+
+	@Override
+	public long getHeaterCycles() {
+		return th.getHeaterCycles();
+	}
+
+	@Override
+	public int getHeaterCyclesLastHour() {
+		PowerSocket heater = th.getHeater();
+		return heater == null ? 0 : heater.cyclesLastHour();
+	}
+
+	@Override
+	public double getHeaterLatencyP99Millis() {
+		PowerSocket heater = th.getHeater();
+		return heater == null ? 0 : millis(heater.queue.getLatencies().percentile(99));
+	}
+
+	@Override
+	public double getHeaterLatencyMaxMillis() {
+		PowerSocket heater = th.getHeater();
+		return heater == null ? 0 : millis(heater.queue.getLatencies().getMax());
+	}
+
+	@Override
+	public long getHeaterFailures() {
+		PowerSocket heater = th.getHeater();
+		return heater == null ? 0 : heater.queue.getFailures();
+	}
+
+	@Override
+	public long getReloads() {
+		return th.getReloads();
+	}
+
+	@Override
+	public long getFailedReloads() {
+		return th.getFailedReloads();
+	}
+
+	@Override
+	public double getLastReloadMillis() {
+		return millis(th.getLastReloadLatency());
+	}
+
+	@Override
+	public void resetHistograms() {
+		engine.sample.durations.reset();
+		engine.sample.lateness.reset();
+		engine.control.durations.reset();
+		engine.control.lateness.reset();
+		engine.log.durations.reset();
+		engine.log.lateness.reset();
+		th.getProbeReads().reset();
+		th.getCooler().queue.getLatencies().reset();
+		PowerSocket heater = th.getHeater();
+		if (heater != null) {
+			heater.queue.getLatencies().reset();
+		}
+	}
+}
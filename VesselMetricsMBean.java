@@ -0,0 +1,218 @@
+package Brewmaster;
+
+/**
+ * <h2>VesselMetricsMBean</h2> The management interface of
+ * {@link VesselMetrics}, published over JMX for every vessel as
+ * "Brewmaster:type=Vessel,id=&lt;Id&gt;". Durations are in microseconds or
+ * milliseconds as named, percentiles are within a quarter of the true value.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+public interface VesselMetricsMBean {
+	/**
+	 * @return {@link String} {@link Settings#id} of the vessel
+	 */
+	String getId();
+
+	/**
+	 * @return {@link Double} last temperature read after the filter
+	 */
+	double getCurrentTemp();
+
+	/**
+	 * @return {@link Double} last temperature read before the filter
+	 */
+	double getRawTemp();
+
+	/**
+	 * @return {@link Double} target temperature of the schedule
+	 */
+	double getTarget();
+
+	/**
+	 * @return {@link Integer} day of the schedule, day 1 = 1
+	 */
+	int getDay();
+
+	/**
+	 * @return {@link Long} control ticks run
+	 */
+	long getControlTicks();
+
+	/**
+	 * @return {@link Double} mean microseconds a control tick runs
+	 */
+	double getControlTickMeanMicros();
+
+	/**
+	 * @return {@link Double} microseconds 99% of control ticks run within
+	 */
+	double getControlTickP99Micros();
+
+	/**
+	 * @return {@link Double} longest microseconds a control tick has run
+	 */
+	double getControlTickMaxMicros();
+
+	/**
+	 * @return {@link Double} microseconds 99% of sample ticks run within
+	 */
+	double getSampleTickP99Micros();
+
+	/**
+	 * @return {@link Double} longest microseconds a sample tick has run
+	 */
+	double getSampleTickMaxMicros();
+
+	/**
+	 * @return {@link Double} milliseconds 99% of control ticks started within
+	 *         after their deadline
+	 */
+	double getControlLatenessP99Millis();
+
+	/**
+	 * @return {@link Double} longest milliseconds a control tick started after its
+	 *         deadline
+	 */
+	double getControlLatenessMaxMillis();
+
+	/**
+	 * @return {@link Long} sample, control and log ticks that started late
+	 */
+	long getLateTicks();
+
+	/**
+	 * @return {@link Long} sample, control and log ticks skipped because they were
+	 *         a period or more behind
+	 */
+	long getMissedTicks();
+
+	/**
+	 * @return {@link Double} mean microseconds a probe read takes
+	 */
+	double getProbeReadMeanMicros();
+
+	/**
+	 * @return {@link Double} microseconds 99% of probe reads take
+	 */
+	double getProbeReadP99Micros();
+
+	/**
+	 * @return {@link Double} longest microseconds a probe read has taken
+	 */
+	double getProbeReadMaxMicros();
+
+	/**
+	 * @return {@link Long} probe reads that failed or did not parse
+	 */
+	long getProbeFailures();
+
+	/**
+	 * @return {@link Long} probe reads dropped by the filter
+	 */
+	long getFilterRejects();
+
+	/**
+	 * @return {@link Boolean} true while the relays are off because the probe
+	 *         has not given a good reading
+	 */
+	boolean isProbeFault();
+
+	/**
+	 * @return {@link Long} samples kept in memory
+	 */
+	long getHistorySamples();
+
+	/**
+	 * @return {@link Long} bytes the samples kept in memory take
+	 */
+	long getHistoryBytes();
+
+	/**
+	 * @return {@link Boolean} true if the cooler is on
+	 */
+	boolean isCoolerOn();
+
+	/**
+	 * @return {@link Long} times the cooler has been turned on
+	 */
+	long getCoolerCycles();
+
+	/**
+	 * @return {@link Integer} times the cooler was turned on in the last hour
+	 */
+	int getCoolerCyclesLastHour();
+
+	/**
+	 * @return {@link Double} milliseconds 99% of cooler commands took from request
+	 *         to answer
+	 */
+	double getCoolerLatencyP99Millis();
+
+	/**
+	 * @return {@link Double} longest milliseconds a cooler command took from
+	 *         request to answer
+	 */
+	double getCoolerLatencyMaxMillis();
+
+	/**
+	 * @return {@link Long} cooler commands that failed and were retried
+	 */
+	long getCoolerFailures();
+
+	/**
+	 * @return {@link Boolean} true if the heater is on, false if there is none
+	 */
+	boolean isHeaterOn();
+
+	/**
+	 * @return {@link Long} times the heater has been turned on, 0 if there is none
+	 */
+	long getHeaterCycles();
+
+	/**
+	 * @return {@link Integer} times the heater was turned on in the last hour
+	 */
+	int getHeaterCyclesLastHour();
+
+	/**
+	 * @return {@link Double} milliseconds 99% of heater commands took from request
+	 *         to answer
+	 */
+	double getHeaterLatencyP99Millis();
+
+	/**
+	 * @return {@link Double} longest milliseconds a heater command took from
+	 *         request to answer
+	 */
+	double getHeaterLatencyMaxMillis();
+
+	/**
+	 * @return {@link Long} heater commands that failed and were retried
+	 */
+	long getHeaterFailures();
+
+	/**
+	 * @return {@link Long} settings file changes swapped in
+	 */
+	long getReloads();
+
+	/**
+	 * @return {@link Long} settings file changes that failed to parse or validate
+	 */
+	long getFailedReloads();
+
+	/**
+	 * @return {@link Double} milliseconds from the last settings file change to
+	 *         the new settings being used
+	 */
+	double getLastReloadMillis();
+
+	/**
+	 * Forgets every duration recorded so the percentiles show only what happens
+	 * from now on, counters are kept
+	 */
+	void resetHistograms();
+}
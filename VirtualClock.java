@@ -0,0 +1,118 @@
+package Brewmaster;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+
+/**
+ * <h2>VirtualClock</h2> The VirtualClock class is a {@link Clock} that only
+ * moves when it is told to. {@link Simulation} hands it to the
+ * {@link TemperatureHandler} and {@link PowerSocket} it runs and moves it from
+ * tick to tick, so weeks of a schedule pass in seconds and every run gives the
+ * same result.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+public class VirtualClock extends Clock {
+	/**
+	 * The {@link Long} time in milliseconds since the epoch
+	 */
+	private volatile long millis;
+	/**
+	 * The {@link ZoneId} times are shown in
+	 */
+	private final ZoneId zone;
+
+	/**
+	 * Sets up a VirtualClock standing at start
+	 *
+	 * @param start {@link Instant} the clock starts at
+	 * @param zone  {@link ZoneId} times are shown in
+	 */
+	VirtualClock(Instant start, ZoneId zone) {
+		this.millis = start.toEpochMilli();
+		this.zone = zone;
+	}
+
+	/**
+	 * Moves the clock forward
+	 *
+	 * @param millis {@link Long} milliseconds to move, not negative
+	 * @throws IllegalArgumentException if millis is negative
+	 */
+	void advance(long millis) {
+		if (millis < 0) {
+			throw new IllegalArgumentException("A VirtualClock can not go back in time");
+		}
+		this.millis += millis;
+	}
+
+	/**
+	 * Moves the clock forward to time, a time before now is ignored
+	 *
+	 * @param time {@link Long} milliseconds since the epoch
+	 */
+	void advanceTo(long time) {
+		if (time > millis) {
+			millis = time;
+		}
+	}
+
+	/**
+	 * @return {@link #zone}
+	 */
+	@Override
+	public ZoneId getZone() {
+		return zone;
+	}
+
+	/**
+	 * @return {@link Clock} showing times in zone that moves with this clock
+	 */
+	@Override
+	public Clock withZone(ZoneId zone) {
+		if (zone.equals(this.zone)) {
+			return this;
+		}
+		VirtualClock parent = this;
+		return new Clock() {
+			@Override
+			public ZoneId getZone() {
+				return zone;
+			}
+
+			@Override
+			public Clock withZone(ZoneId other) {
+				return parent.withZone(other);
+			}
+
+			@Override
+			public long millis() {
+				return parent.millis();
+			}
+
+			@Override
+			public Instant instant() {
+				return parent.instant();
+			}
+		};
+	}
+
+	/**
+	 * @return {@link #millis}
+	 */
+	@Override
+	public long millis() {
+		return millis;
+	}
+
+	/**
+	 * @return {@link Instant} of {@link #millis}
+	 */
+	@Override
+	public Instant instant() {
+		return Instant.ofEpochMilli(millis);
+	}
+}
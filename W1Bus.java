@@ -0,0 +1,90 @@
+package Brewmaster;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * <h2>W1Bus</h2> The W1Bus class hands out a {@link W1Probe} for every vessel
+ * and runs the one watcher thread they share. Folders in the devices folder
+ * coming and going marks every probe stale, each is looked up again on its
+ * next read.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+public class W1Bus {
+	/**
+	 * The {@link Path} of the folder the w1 bus lists its devices in
+	 */
+	private final Path devices;
+	/**
+	 * A {@link List} of every {@link W1Probe} handed out
+	 */
+	private final List<W1Probe> probes = new CopyOnWriteArrayList<W1Probe>();
+
+	/**
+	 * Sets up a W1Bus for the devices folder, the watcher is not started until
+	 * {@link #startWatcher}
+	 *
+	 * @param devices {@link Path} folder listing w1 devices
+	 */
+	W1Bus(Path devices) {
+		this.devices = devices;
+	}
+
+	/**
+	 * Returns a new {@link W1Probe} reading the probe id, marked stale with every
+	 * other probe of the bus
+	 *
+	 * @param id {@link String} folder name of the probe, null for the first probe
+	 *           found
+	 * @return {@link W1Probe}
+	 */
+	W1Probe probe(String id) {
+		W1Probe probe = new W1Probe(devices, id);
+		probes.add(probe);
+		return probe;
+	}
+
+	/**
+	 * Starts a daemon thread watching {@link #devices}, any folder being created or
+	 * deleted marks every probe stale. If the folder can not be watched the
+	 * probes are still looked up again after a failed read.
+	 */
+	void startWatcher() {
+		WatchService ws;
+		try {
+			ws = FileSystems.getDefault().newWatchService();
+			devices.register(ws, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE);
+		} catch (IOException e) {
+			System.out.println("Can not watch " + devices + ": " + e);
+			return;
+		}
+		Thread t = new Thread(() -> {
+			try {
+				while (true) {
+					WatchKey key = ws.take();
+					key.pollEvents();
+					for (W1Probe probe : probes) {
+						probe.markStale();
+					}
+					if (!key.reset()) {
+						return;
+					}
+				}
+			} catch (InterruptedException | ClosedWatchServiceException e) {
+				return;
+			}
+		}, "w1-watcher");
+		t.setDaemon(true);
+		t.start();
+	}
+}
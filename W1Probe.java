@@ -0,0 +1,163 @@
+package Brewmaster;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * <h2>W1Probe</h2> The W1Probe class keeps the w1_slave file of a DS18B20
+ * temperature probe open so a sample is a single read. The probe folder is
+ * looked up once, the watcher thread of {@link W1Bus} marks it stale when
+ * folders in "/sys/bus/w1/devices/" come and go and the next read looks it up
+ * again. A failed read does the same, since sysfs does not always report
+ * changes to the watcher.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+public class W1Probe implements Probe {
+	/**
+	 * The {@link Path} of the folder the w1 bus lists its devices in
+	 */
+	static final Path DEVICES = Paths.get("/sys/bus/w1/devices/");
+	/**
+	 * a {@link String} all DS18B20 folder names start with
+	 */
+	private static final String FAMILY = "28";
+
+	/**
+	 * The {@link Path} of the folder to look for probes in
+	 */
+	private final Path devices;
+	/**
+	 * a {@link String} with the folder name of the probe to use, null to use the
+	 * first probe found
+	 */
+	private final String wanted;
+	/**
+	 * a {@link FileChannel} open on w1_slave of the probe, null when no probe has
+	 * been found
+	 */
+	private FileChannel channel = null;
+	/**
+	 * a {@link String} with the folder name of the probe, null when no probe has
+	 * been found
+	 */
+	private String id = null;
+	/**
+	 * a {@link Boolean} set by {@link W1Bus} when the folder has changed and
+	 * the probe should be looked up again
+	 */
+	private volatile boolean stale = true;
+
+	/**
+	 * Sets up a W1Probe looking for probes in devices, nothing is opened until
+	 * the first {@link #read}
+	 *
+	 * @param devices {@link Path} folder listing w1 devices
+	 * @param wanted  {@link String} folder name of the probe, null for the first
+	 *                probe found
+	 */
+	W1Probe(Path devices, String wanted) {
+		this.devices = devices;
+		this.wanted = wanted;
+	}
+
+	/**
+	 * Marks the probe to be looked up again on the next {@link #read}, called
+	 * when the devices folder changes
+	 */
+	void markStale() {
+		stale = true;
+	}
+
+	/**
+	 * Getter for id
+	 *
+	 * @return {@link #id}, null if no probe has been found
+	 */
+	String getId() {
+		return id;
+	}
+
+	/**
+	 * Reads w1_slave of the probe from the start into dst. Looks the probe up
+	 * first if it has not been found yet or {@link #stale} is set. If the read
+	 * fails the probe is closed so the next read looks it up again.
+	 *
+	 * @param dst {@link ByteBuffer} to read into from its position
+	 * @return {@link Integer} number of bytes read
+	 * @throws IOException if no probe is found or the read fails
+	 */
+	@Override
+	public int read(ByteBuffer dst) throws IOException {
+		if (stale || channel == null) {
+			resolve();
+		}
+		try {
+			int start = dst.position();
+			long position = 0;
+			int n;
+			while (dst.hasRemaining() && (n = channel.read(dst, position)) > 0) {
+				position += n;
+			}
+			return dst.position() - start;
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Closes {@link #channel} and looks for the folder {@link #wanted} in
+	 * {@link #devices}, or the first folder starting with {@link #FAMILY} if no
+	 * probe is wanted, then opens its w1_slave.
+	 *
+	 * @throws IOException if no probe is found or w1_slave can not be opened
+	 */
+	private void resolve() throws IOException {
+		stale = false;
+		close();
+		String found = null;
+		if (wanted != null) {
+			if (Files.isDirectory(devices.resolve(wanted))) {
+				found = wanted;
+			}
+		} else {
+			try (DirectoryStream<Path> ds = Files.newDirectoryStream(devices, FAMILY + "*")) {
+				for (Path p : ds) {
+					found = p.getFileName().toString();
+					break;
+				}
+			}
+		}
+		if (found == null) {
+			throw new IOException("No probe " + (wanted != null ? wanted + " " : "") + "found in " + devices);
+		}
+		channel = FileChannel.open(devices.resolve(found).resolve("w1_slave"), StandardOpenOption.READ);
+		if (!found.equals(id)) {
+			System.out.println("Probe found: " + found);
+		}
+		id = found;
+	}
+
+	/**
+	 * Closes {@link #channel} if it is open
+	 */
+	void close() {
+		if (channel != null) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			channel = null;
+		}
+	}
+}
@@ -0,0 +1,167 @@
+package Brewmaster;
+
+/**
+ * <h2>W1SlaveParser</h2> The W1SlaveParser class parses the content of a
+ * DS18B20 w1_slave file byte by byte without creating any objects. The file
+ * looks like<br>
+ * "72 01 4b 46 7f ff 0e 10 57 : crc=57 YES<br>
+ * 72 01 4b 46 7f ff 0e 10 57 t=23125"<br>
+ * The first line has the 9 bytes of the scratchpad, the crc the kernel read and
+ * YES if it matched. The frame is only accepted if the kernel said YES and the
+ * crc of the first 8 bytes matches the 9th byte and the crc field.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+public class W1SlaveParser {
+	/**
+	 * returned by {@link #parse} when the crc check fails
+	 */
+	static final int BAD_CRC = Integer.MIN_VALUE;
+	/**
+	 * returned by {@link #parse} when the content is not a w1_slave frame
+	 */
+	static final int MALFORMED = Integer.MIN_VALUE + 1;
+
+	/**
+	 * a {@link Integer} with the number of bytes in the scratchpad
+	 */
+	private static final int SCRATCHPAD = 9;
+	/**
+	 * the bytes in front of the crc
+	 */
+	private static final byte[] CRC_TAG = { 'c', 'r', 'c', '=' };
+	/**
+	 * the bytes in front of the temperature
+	 */
+	private static final byte[] TEMP_TAG = { 't', '=' };
+
+	/**
+	 * Only static methods
+	 */
+	private W1SlaveParser() {
+	}
+
+	/**
+	 * Parses the temperature of a w1_slave frame
+	 *
+	 * @param buf {@link Byte} array holding the file content from index 0
+	 * @param len {@link Integer} number of bytes in buf
+	 * @return {@link Integer} temperature in thousandths of a degree celsius,
+	 *         {@link #BAD_CRC} or {@link #MALFORMED}
+	 */
+	static int parse(byte[] buf, int len) {
+		int i = 0;
+		int crc = 0;
+		int last = 0;
+		for (int b = 0; b < SCRATCHPAD; b++) {
+			i = skipSpaces(buf, i, len);
+			if (i + 1 >= len) {
+				return MALFORMED;
+			}
+			int hi = hex(buf[i]);
+			int lo = hex(buf[i + 1]);
+			if (hi < 0 || lo < 0) {
+				return MALFORMED;
+			}
+			last = (hi << 4) | lo;
+			if (b < SCRATCHPAD - 1) {
+				crc = crc8(crc, last);
+			}
+			i += 2;
+		}
+
+		i = find(buf, i, len, CRC_TAG);
+		if (i < 0 || i + 1 >= len) {
+			return MALFORMED;
+		}
+		int hi = hex(buf[i]);
+		int lo = hex(buf[i + 1]);
+		if (hi < 0 || lo < 0) {
+			return MALFORMED;
+		}
+		int reported = (hi << 4) | lo;
+		i = skipSpaces(buf, i + 2, len);
+		boolean yes = i + 2 < len && buf[i] == 'Y' && buf[i + 1] == 'E' && buf[i + 2] == 'S';
+		if (!yes || crc != last || crc != reported) {
+			return BAD_CRC;
+		}
+
+		i = find(buf, i + 3, len, TEMP_TAG);
+		if (i < 0 || i >= len) {
+			return MALFORMED;
+		}
+		boolean negative = buf[i] == '-';
+		if (negative) {
+			i++;
+		}
+		int start = i;
+		int value = 0;
+		while (i < len && buf[i] >= '0' && buf[i] <= '9' && i - start < 9) {
+			value = value * 10 + (buf[i] - '0');
+			i++;
+		}
+		if (i == start) {
+			return MALFORMED;
+		}
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Updates a Dallas/Maxim 1-Wire crc (polynomial x^8+x^5+x^4+1) with one byte
+	 *
+	 * @param crc  {@link Integer} crc so far
+	 * @param data {@link Integer} next byte
+	 * @return {@link Integer} the new crc
+	 */
+	static int crc8(int crc, int data) {
+		crc ^= data;
+		for (int bit = 0; bit < 8; bit++) {
+			crc = (crc & 1) != 0 ? (crc >>> 1) ^ 0x8C : crc >>> 1;
+		}
+		return crc;
+	}
+
+	/**
+	 * @param c {@link Byte} character
+	 * @return {@link Integer} value of the hex digit c or -1
+	 */
+	private static int hex(byte c) {
+		if (c >= '0' && c <= '9') {
+			return c - '0';
+		} else if (c >= 'a' && c <= 'f') {
+			return c - 'a' + 10;
+		} else if (c >= 'A' && c <= 'F') {
+			return c - 'A' + 10;
+		}
+		return -1;
+	}
+
+	/**
+	 * @return {@link Integer} index of the first byte from i that is not a space
+	 */
+	private static int skipSpaces(byte[] buf, int i, int len) {
+		while (i < len && buf[i] == ' ') {
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * Finds the bytes of tag in buf starting at i
+	 *
+	 * @return {@link Integer} index right after the tag or -1 if not found
+	 */
+	private static int find(byte[] buf, int i, int len, byte[] tag) {
+		outer: for (; i + tag.length <= len; i++) {
+			for (int j = 0; j < tag.length; j++) {
+				if (buf[i + j] != tag[j]) {
+					continue outer;
+				}
+			}
+			return i + tag.length;
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,105 @@
+package Brewmaster;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * <h2>BenchmarkFiles</h2> The BenchmarkFiles class sets up what the benchmarks
+ * share, settings files in a temporary folder and a {@link System#out} that
+ * throws away the lines the program prints so the terminal is not measured.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+final class BenchmarkFiles {
+	/**
+	 * The {@link PrintStream} {@link System#out} was before {@link #quiet}
+	 */
+	private static PrintStream out = null;
+
+	/**
+	 * Only static methods
+	 */
+	private BenchmarkFiles() {
+	}
+
+	/**
+	 * Writes a settings file logging to dir with no history, checkpoint or archive
+	 * and a schedule of days lines of one day each
+	 *
+	 * @param dir        {@link Path} folder to write in
+	 * @param controller {@link String} name of the controller
+	 * @param days       {@link Integer} lines in the schedule
+	 * @return {@link Path} of the settings file
+	 * @throws IOException if the file can not be written
+	 */
+	static Path settings(Path dir, String controller, int days) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		sb.append("#settings\n");
+		sb.append("Id=bench\n");
+		sb.append("LogFileName=").append(dir.resolve("bench.log")).append('\n');
+		sb.append("HistoryFile=none\n");
+		sb.append("CheckpointFile=none\n");
+		sb.append("ArchiveDir=none\n");
+		sb.append("CoolerState=0\nHeaterState=0\nHasHeater=1\n");
+		sb.append("DiffPlus=0.5\nDiffMinus=0.5\n");
+		sb.append("CoolerIp=192.168.2.52\nHeaterIp=192.168.2.53\n");
+		sb.append("LogFreq=1\nOnoffdelay=5\n");
+		sb.append("Controller=").append(controller).append('\n');
+		sb.append("#days;temp\n");
+		for (int i = 0; i < days; i++) {
+			if (i % 7 == 0) {
+				sb.append("!state=Week ").append(i / 7 + 1).append('\n');
+			}
+			if (i % 2 == 0) {
+				sb.append("1;").append(10 + i % 10).append('\n');
+			} else {
+				sb.append("1;>").append(10 + (i + 3) % 10).append(".5\n");
+			}
+		}
+		Path file = dir.resolve("bench.brew");
+		Files.write(file, sb.toString().getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+	/**
+	 * Replaces {@link System#out} with a stream that throws everything away
+	 */
+	static synchronized void quiet() {
+		if (out == null) {
+			out = System.out;
+			System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+		}
+	}
+
+	/**
+	 * Puts back the {@link System#out} replaced by {@link #quiet}
+	 */
+	static synchronized void loud() {
+		if (out != null) {
+			System.setOut(out);
+			out = null;
+		}
+	}
+
+	/**
+	 * Deletes dir and everything in it
+	 *
+	 * @param dir {@link Path} folder to delete
+	 * @throws IOException if it can not be listed or deleted
+	 */
+	static void delete(Path dir) throws IOException {
+		try (Stream<Path> paths = Files.walk(dir)) {
+			for (Path p : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(p);
+			}
+		}
+	}
+}
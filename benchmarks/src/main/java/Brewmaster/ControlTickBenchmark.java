@@ -0,0 +1,106 @@
+package Brewmaster;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneOffset;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <h2>ControlTickBenchmark</h2> Measures one {@link TemperatureHandler#run}
+ * tick, sampling, control and logging, against a {@link SimProbe}. Every tick
+ * moves the {@link VirtualClock} and the {@link ThermalModel} one second so
+ * the relays switch as they would in a fridge.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ControlTickBenchmark {
+	/**
+	 * The {@link String} name of the controller
+	 */
+	@Param({ "hysteresis", "pid", "predictive" })
+	String controller;
+
+	/**
+	 * The {@link Path} of the folder with the settings and log file
+	 */
+	private Path dir;
+	/**
+	 * The {@link VirtualClock} of {@link #th}
+	 */
+	private VirtualClock clock;
+	/**
+	 * The {@link ThermalModel} read and switched by {@link #th}
+	 */
+	private ThermalModel model;
+	/**
+	 * The {@link TemperatureHandler} measured
+	 */
+	private TemperatureHandler th;
+
+	/**
+	 * Sets up a vessel with a heater on a simulated fridge
+	 *
+	 * @throws IOException if the settings file can not be written
+	 */
+	@Setup
+	public void setUp() throws IOException {
+		BenchmarkFiles.quiet();
+		dir = Files.createTempDirectory("brewmaster-bench");
+		Settings settings = new Settings(BenchmarkFiles.settings(dir, controller, 28).toString());
+		clock = new VirtualClock(Simulation.START, ZoneOffset.UTC);
+		model = new ThermalModel();
+		Executor direct = Runnable::run;
+		PowerSocket cooler = new PowerSocket(settings.coolerIp, settings, settings.coolerState,
+				new SimRelay(model, false), direct, clock);
+		PowerSocket heater = new PowerSocket(settings.heaterIp, settings, settings.heaterState,
+				new SimRelay(model, true), direct, clock);
+		th = new TemperatureHandler(settings, new SimProbe(model), cooler, heater, clock);
+	}
+
+	/**
+	 * Deletes the folder and puts back {@link System#out}
+	 *
+	 * @throws IOException if the folder can not be deleted
+	 */
+	@TearDown
+	public void tearDown() throws IOException {
+		BenchmarkFiles.delete(dir);
+		BenchmarkFiles.loud();
+	}
+
+	/**
+	 * Moves one second and runs a tick
+	 *
+	 * @return {@link Double} current temperature
+	 */
+	@Benchmark
+	public double tick() {
+		clock.advance(1000);
+		model.advance(1000);
+		th.run();
+		return th.getCurrentTemp();
+	}
+}
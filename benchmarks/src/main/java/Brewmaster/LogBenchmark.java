@@ -0,0 +1,129 @@
+package Brewmaster;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <h2>LogBenchmark</h2> Measures building a log line, with
+ * {@link TempDateTime#getFormatedDateTimeTemp} and with
+ * {@link TempDateTime#appendLog} as the snapshot does, queueing a line to a
+ * {@link LogWriter} and logging a sample through a {@link LogPipeline} to the
+ * writer and a {@link LogTail} taking messages only as logTemp in
+ * {@link TemperatureHandler} does. The writer thread is not measured, a line it can not keep up with is
+ * dropped and counted.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LogBenchmark {
+	/**
+	 * The {@link Path} of the folder with the settings and log file
+	 */
+	private Path dir;
+	/**
+	 * The {@link VirtualClock} the lines are dated with
+	 */
+	private VirtualClock clock;
+	/**
+	 * The {@link LogWriter} measured
+	 */
+	private LogWriter writer;
+	/**
+	 * The {@link LogPipeline} measured, sending to {@link #writer} and a
+	 * {@link LogTail}
+	 */
+	private LogPipeline pipeline;
+	/**
+	 * The {@link StringBuilder} reused by {@link #appendLog}
+	 */
+	private final StringBuilder sb = new StringBuilder();
+	/**
+	 * The {@link String} line queued by {@link #write}
+	 */
+	private final String line = "23-09-2020 12:00:00 t:12.0625 Cooler on: true Heater on: false";
+
+	/**
+	 * Opens a {@link LogWriter} in a temporary folder
+	 *
+	 * @throws IOException if the settings file can not be written
+	 */
+	@Setup
+	public void setUp() throws IOException {
+		dir = Files.createTempDirectory("brewmaster-bench");
+		Settings settings = new Settings(BenchmarkFiles.settings(dir, "hysteresis", 1).toString());
+		clock = new VirtualClock(Simulation.START, ZoneOffset.UTC);
+		writer = new LogWriter(settings);
+		pipeline = new LogPipeline(clock.getZone());
+		pipeline.route(writer, "sample");
+		pipeline.route(new LogTail(), "info");
+	}
+
+	/**
+	 * Closes the writer and deletes the folder
+	 *
+	 * @throws IOException if the folder can not be deleted
+	 */
+	@TearDown
+	public void tearDown() throws IOException {
+		writer.close();
+		BenchmarkFiles.delete(dir);
+	}
+
+	/**
+	 * @return {@link String} line as logTemp formats it
+	 */
+	@Benchmark
+	public String formatedDateTimeTemp() {
+		clock.advance(1000);
+		return new TempDateTime(12.0625, clock).getFormatedDateTimeTemp();
+	}
+
+	/**
+	 * @return {@link StringBuilder} with the line as the snapshot formats it
+	 */
+	@Benchmark
+	public StringBuilder appendLog() {
+		clock.advance(1000);
+		sb.setLength(0);
+		return TempDateTime.appendLog(sb, clock.millis(), 12.0625, SampleHistory.COOLER_ON | SampleHistory.HAS_HEATER);
+	}
+
+	/**
+	 * Queues a line to {@link #writer}
+	 */
+	@Benchmark
+	public void write() {
+		writer.write(line);
+	}
+
+	/**
+	 * Logs a sample through {@link #pipeline}
+	 */
+	@Benchmark
+	public void pipelineSample() {
+		clock.advance(1000);
+		pipeline.sample(clock.millis(), 12.0625, SampleHistory.COOLER_ON | SampleHistory.HAS_HEATER);
+	}
+}
@@ -0,0 +1,144 @@
+package Brewmaster;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <h2>SampleHistoryBenchmark</h2> Measures adding a sample to a
+ * {@link SampleHistory}, reading a day of samples a second back with a
+ * {@link SampleHistory.Cursor} and taking the samples of a snapshot. The
+ * samples come from a {@link ThermalModel} of a fridge holding its target, read
+ * with the resolution of a DS18B20.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SampleHistoryBenchmark {
+	/**
+	 * The {@link Integer} samples in a day, one a second
+	 */
+	private static final int DAY = 86400;
+
+	/**
+	 * The {@link SampleHistory} holding a day of samples
+	 */
+	private SampleHistory day;
+	/**
+	 * The {@link SampleHistory} {@link #add} adds to, it drops a day at a time
+	 */
+	private SampleHistory growing;
+	/**
+	 * The {@link SampleHistory.Cursor} reused by every read
+	 */
+	private final SampleHistory.Cursor cursor = new SampleHistory.Cursor();
+	/**
+	 * The times of a day of samples
+	 */
+	private final long[] time = new long[DAY];
+	/**
+	 * The temperatures of a day of samples
+	 */
+	private final double[] temp = new double[DAY];
+	/**
+	 * The relay states of a day of samples
+	 */
+	private final int[] flags = new int[DAY];
+	/**
+	 * The {@link Integer} sample {@link #add} adds next
+	 */
+	private int next = 0;
+	/**
+	 * The {@link Long} time added to the samples of {@link #time} by
+	 * {@link #add}, grows by a day every time they are used up
+	 */
+	private long offset = 0;
+	/**
+	 * The times of a snapshot
+	 */
+	private final long[] snapTime = new long[ServerThread.SNAPSHOT_LOGS];
+	/**
+	 * The temperatures of a snapshot
+	 */
+	private final double[] snapTemp = new double[ServerThread.SNAPSHOT_LOGS];
+	/**
+	 * The relay states of a snapshot
+	 */
+	private final byte[] snapFlags = new byte[ServerThread.SNAPSHOT_LOGS];
+
+	/**
+	 * Runs the model for a day with a hysteresis band of 0.5 around 12 degrees
+	 * and adds the samples to {@link #day}. Prints the bytes a sample takes.
+	 */
+	@Setup
+	public void setUp() {
+		ThermalModel model = new ThermalModel();
+		model.reset();
+		boolean on = false;
+		long start = Simulation.START.toEpochMilli();
+		day = new SampleHistory(DAY);
+		growing = new SampleHistory(DAY);
+		for (int i = 0; i < DAY; i++) {
+			model.advance(1000);
+			double t = Math.round(model.getWort() * 16) / 16.0;
+			if (t > 12.5 || t < 11.5) {
+				on = t > 12.5;
+				model.setCooler(on);
+			}
+			time[i] = start + i * 1000L + (i % 7 == 0 ? 1 : 0);
+			temp[i] = t;
+			flags[i] = on ? SampleHistory.COOLER_ON : 0;
+			day.add(time[i], temp[i], flags[i]);
+		}
+		System.out.printf("%n%.3f bytes a sample%n", (double) day.getBytes() / day.size());
+	}
+
+	/**
+	 * Adds the next sample of the day to {@link #growing}
+	 */
+	@Benchmark
+	public void add() {
+		growing.add(time[next] + offset, temp[next], flags[next]);
+		if (++next == DAY) {
+			next = 0;
+			offset += DAY * 1000L;
+		}
+	}
+
+	/**
+	 * @return {@link Double} sum of a day of temperatures read back
+	 */
+	@Benchmark
+	public double readDay() {
+		double sum = 0;
+		cursor.seek(day, Long.MIN_VALUE);
+		while (cursor.next()) {
+			sum += cursor.temp;
+		}
+		return sum;
+	}
+
+	/**
+	 * @return {@link Integer} samples of a snapshot with a log every minute
+	 */
+	@Benchmark
+	public int snapshot() {
+		return day.snapshot(cursor, 60000, ServerThread.SNAPSHOT_LOGS, snapTime, snapTemp, snapFlags);
+	}
+}
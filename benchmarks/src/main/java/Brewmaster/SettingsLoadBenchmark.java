@@ -0,0 +1,82 @@
+package Brewmaster;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <h2>SettingsLoadBenchmark</h2> Measures loading a settings file and
+ * compiling its {@link Schedule}, as the program does at start and on every
+ * reload, for schedules of {@link #days} lines.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SettingsLoadBenchmark {
+	/**
+	 * The {@link Integer} lines in the schedule
+	 */
+	@Param({ "10", "1000", "10000" })
+	int days;
+
+	/**
+	 * The {@link Path} of the folder with the settings file
+	 */
+	private Path dir;
+	/**
+	 * The {@link String} path of the settings file
+	 */
+	private String file;
+
+	/**
+	 * Writes the settings file
+	 *
+	 * @throws IOException if the settings file can not be written
+	 */
+	@Setup
+	public void setUp() throws IOException {
+		dir = Files.createTempDirectory("brewmaster-bench");
+		file = BenchmarkFiles.settings(dir, "hysteresis", days).toString();
+	}
+
+	/**
+	 * Deletes the folder
+	 *
+	 * @throws IOException if the folder can not be deleted
+	 */
+	@TearDown
+	public void tearDown() throws IOException {
+		BenchmarkFiles.delete(dir);
+	}
+
+	/**
+	 * @return {@link Settings} loaded and validated
+	 */
+	@Benchmark
+	public Settings load() {
+		Settings settings = new Settings(file);
+		settings.validate();
+		return settings;
+	}
+}
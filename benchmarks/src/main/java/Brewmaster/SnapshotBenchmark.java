@@ -0,0 +1,108 @@
+package Brewmaster;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <h2>SnapshotBenchmark</h2> Measures the snapshot {@link ServerThread} sends
+ * every client, formatting it and encoding it into a pooled buffer. The
+ * vessel has a full {@link ServerThread#SNAPSHOT_LOGS} of logged samples.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SnapshotBenchmark {
+	/**
+	 * The {@link Path} of the folder with the settings and log file
+	 */
+	private Path dir;
+	/**
+	 * The {@link TemperatureHandler} of the vessel
+	 */
+	private TemperatureHandler th;
+	/**
+	 * The {@link ServerThread} measured, it is never started
+	 */
+	private ServerThread server;
+
+	/**
+	 * Sets up a vessel on a simulated fridge and logs an hour of samples
+	 *
+	 * @throws IOException if the settings file can not be written
+	 */
+	@Setup
+	public void setUp() throws IOException {
+		BenchmarkFiles.quiet();
+		dir = Files.createTempDirectory("brewmaster-bench");
+		Settings settings = new Settings(BenchmarkFiles.settings(dir, "hysteresis", 28).toString());
+		VirtualClock clock = new VirtualClock(Simulation.START, ZoneOffset.UTC);
+		ThermalModel model = new ThermalModel();
+		Executor direct = Runnable::run;
+		PowerSocket cooler = new PowerSocket(settings.coolerIp, settings, settings.coolerState,
+				new SimRelay(model, false), direct, clock);
+		PowerSocket heater = new PowerSocket(settings.heaterIp, settings, settings.heaterState,
+				new SimRelay(model, true), direct, clock);
+		th = new TemperatureHandler(settings, new SimProbe(model), cooler, heater, clock);
+		for (int i = 0; i < 60; i++) {
+			clock.advance(60000);
+			model.advance(60000);
+			th.run();
+		}
+		server = new ServerThread(Collections.singletonMap(settings.id, th));
+	}
+
+	/**
+	 * Deletes the folder and puts back {@link System#out}
+	 *
+	 * @throws IOException if the folder can not be deleted
+	 */
+	@TearDown
+	public void tearDown() throws IOException {
+		BenchmarkFiles.delete(dir);
+		BenchmarkFiles.loud();
+	}
+
+	/**
+	 * @return {@link Integer} length of the formatted snapshot
+	 */
+	@Benchmark
+	public int format() {
+		return server.snapshot(th).length();
+	}
+
+	/**
+	 * @return {@link Integer} bytes of the encoded snapshot
+	 */
+	@Benchmark
+	public int encode() {
+		ByteBuffer buffer = server.encode(server.snapshot(th));
+		int n = buffer.remaining();
+		server.release(buffer);
+		return n;
+	}
+}
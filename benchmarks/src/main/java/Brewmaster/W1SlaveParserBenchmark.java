@@ -0,0 +1,65 @@
+package Brewmaster;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <h2>W1SlaveParserBenchmark</h2> Compares {@link W1SlaveParser#parse} with
+ * the {@link Scanner} and split("t=") parsing updateTemp used before.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class W1SlaveParserBenchmark {
+	/**
+	 * a w1_slave frame from a DS18B20 reading 23.125 degrees celsius
+	 */
+	private final byte[] frame = ("72 01 4b 46 7f ff 0e 10 57 : crc=57 YES\n"
+			+ "72 01 4b 46 7f ff 0e 10 57 t=23125\n").getBytes(StandardCharsets.US_ASCII);
+
+	/**
+	 * @return {@link Integer} temperature parsed by {@link W1SlaveParser}
+	 */
+	@Benchmark
+	public int parser() {
+		return W1SlaveParser.parse(frame, frame.length);
+	}
+
+	/**
+	 * The parsing updateTemp did before {@link W1SlaveParser}
+	 *
+	 * @return {@link Integer} temperature in thousandths of a degree celsius
+	 */
+	@Benchmark
+	public int scanner() {
+		String temp = null;
+		Scanner s = new Scanner(new ByteArrayInputStream(frame));
+		while (s.hasNext()) {
+			temp = s.nextLine();
+			if (temp.contains("t=")) {
+				temp = temp.split("t=")[1];
+			}
+		}
+		s.close();
+		return Integer.parseInt(temp);
+	}
+}
@@ -0,0 +1,208 @@
+package Brewmaster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * <h2>ArchiveWriterTest</h2> Seals days of a {@link HistoryStore} with an
+ * {@link ArchiveWriter} and checks which ".part" files are deleted when it
+ * starts, how far {@link ArchiveWriter#archivedUntil} finds the samples
+ * archived and which day rotations of the log file ArchivePrune deletes.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+class ArchiveWriterTest {
+	/**
+	 * The {@link Long} time of the first sample
+	 */
+	private static final long T0 = 1600000000000L;
+	/**
+	 * The {@link Long} milliseconds in a day of the test, samples are a minute
+	 * apart
+	 */
+	private static final long DAY = 100 * 60000L;
+	/**
+	 * The {@link Long} milliseconds to wait for the writer thread
+	 */
+	private static final long WAIT = 5000;
+
+	/**
+	 * The {@link Path} of a folder removed after every test
+	 */
+	@TempDir
+	Path dir;
+	/**
+	 * The {@link HistoryStore} of the test, closed after it
+	 */
+	HistoryStore store;
+	/**
+	 * The {@link ArchiveWriter} of the test, closed after it
+	 */
+	ArchiveWriter writer;
+
+	@AfterEach
+	void close() {
+		if (writer != null) {
+			writer.close();
+		}
+		if (store != null) {
+			store.close();
+		}
+	}
+
+	/**
+	 * Loads settings for the vessel brew logging and archiving in {@link #dir}
+	 *
+	 * @param prune {@link Boolean} true for ArchivePrune=1
+	 * @return {@link Settings} of the file
+	 */
+	Settings settings(boolean prune) throws IOException {
+		Path file = dir.resolve("brew.brew");
+		Files.write(file, Arrays.asList("Id=brew", "CoolerIp=x", "LogFileName=" + dir.resolve("brew.log"),
+				"ArchiveDir=" + dir.resolve("archive"), "ArchivePrune=" + (prune ? 1 : 0), "3;12"));
+		return new Settings(file.toString());
+	}
+
+	/**
+	 * Appends a sample every minute from from up to to
+	 *
+	 * @param from {@link Long} time of the first sample
+	 * @param to   {@link Long} time past the last sample
+	 */
+	void fill(long from, long to) throws IOException {
+		for (long t = from; t < to; t += 60000) {
+			store.append(t, 12, 11.5, 12.5, 0);
+		}
+	}
+
+	/**
+	 * Seals the samples from start to end as day, with a log line, and waits
+	 * for the segment
+	 *
+	 * @param day   {@link Integer} day, day 1 = 1
+	 * @param start {@link Long} time the day starts
+	 * @param end   {@link Long} time the day ends
+	 */
+	void seal(int day, long start, long end) throws InterruptedException {
+		long sealed = writer.getSealed();
+		writer.startDay(day, "Ferment", 12, 12, start);
+		writer.write(null, "Day:" + day);
+		writer.endDay(end);
+		long until = System.currentTimeMillis() + WAIT;
+		while (writer.getSealed() == sealed && System.currentTimeMillis() < until) {
+			Thread.sleep(10);
+		}
+		assertEquals(sealed + 1, writer.getSealed());
+	}
+
+	@Test
+	void deletesOnlyItsOwnLeftoverParts() throws IOException {
+		Path archive = Files.createDirectories(dir.resolve("archive"));
+		for (String name : new String[] { "brew-123.part", "brew-2-456.part", "fridge-789.part", "brew-day001-1.bma" }) {
+			Files.write(archive.resolve(name), new byte[] { 1 });
+		}
+		writer = new ArchiveWriter(settings(false), null);
+		assertEquals(1, writer.getRemovedParts());
+		assertFalse(Files.exists(archive.resolve("brew-123.part")));
+		assertTrue(Files.exists(archive.resolve("brew-2-456.part")));
+		assertTrue(Files.exists(archive.resolve("fridge-789.part")));
+		assertTrue(Files.exists(archive.resolve("brew-day001-1.bma")));
+	}
+
+	@Test
+	void sendsAFailingFolderToTheLogOnce() throws IOException, InterruptedException {
+		List<String> warnings = Collections.synchronizedList(new ArrayList<String>());
+		writer = new ArchiveWriter(settings(false), null);
+		writer.setLog(warnings::add);
+		Files.delete(dir.resolve("archive"));
+		writer.write(null, "a line");
+		writer.write(null, "another line");
+		long until = System.currentTimeMillis() + WAIT;
+		while (warnings.isEmpty() && System.currentTimeMillis() < until) {
+			Thread.sleep(10);
+		}
+		Thread.sleep(100);
+		assertEquals(1, warnings.size());
+		assertTrue(warnings.get(0).startsWith("Failed to open archive segment"), warnings.get(0));
+	}
+
+	@Test
+	void archivedUntilFollowsVerifiedSegments() throws IOException, InterruptedException {
+		store = new HistoryStore(dir.resolve("brew.hist"));
+		writer = new ArchiveWriter(settings(false), store);
+		Path archive = dir.resolve("archive");
+		assertEquals(Long.MIN_VALUE, ArchiveWriter.archivedUntil(archive, "brew", store));
+		fill(T0, T0 + 2 * DAY);
+		seal(1, T0, T0 + DAY);
+		seal(2, T0 + DAY, T0 + 2 * DAY);
+		assertEquals(T0 + 2 * DAY, ArchiveWriter.archivedUntil(archive, "brew", store));
+		assertEquals(Long.MIN_VALUE, ArchiveWriter.archivedUntil(archive, "brew", null));
+		// segments of another vessel in the same folder do not count
+		assertEquals(T0, ArchiveWriter.archivedUntil(archive, "fridge", store));
+	}
+
+	@Test
+	void archivedUntilStopsAtSamplesNotArchived() throws IOException, InterruptedException {
+		store = new HistoryStore(dir.resolve("brew.hist"));
+		writer = new ArchiveWriter(settings(false), store);
+		fill(T0, T0 + 3 * DAY);
+		seal(1, T0, T0 + DAY);
+		// day 2 crashed before it was sealed, day 3 starts after the restart
+		seal(3, T0 + 2 * DAY, T0 + 3 * DAY);
+		assertEquals(T0 + DAY, ArchiveWriter.archivedUntil(dir.resolve("archive"), "brew", store));
+	}
+
+	@Test
+	void archivedUntilStopsAtACorruptSegment() throws IOException, InterruptedException {
+		store = new HistoryStore(dir.resolve("brew.hist"));
+		writer = new ArchiveWriter(settings(false), store);
+		fill(T0, T0 + 2 * DAY);
+		seal(1, T0, T0 + DAY);
+		seal(2, T0 + DAY, T0 + 2 * DAY);
+		List<ArchiveSegment> segments = ArchiveSegment.list(dir.resolve("archive"));
+		try (FileChannel channel = FileChannel.open(segments.get(1).file, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap(new byte[] { 0x55 }), channel.size() - 1);
+		}
+		assertEquals(T0 + DAY, ArchiveWriter.archivedUntil(dir.resolve("archive"), "brew", store));
+	}
+
+	@Test
+	void prunesDayRotationsWrittenWhileArchived() throws IOException, InterruptedException {
+		store = new HistoryStore(dir.resolve("brew.hist"));
+		writer = new ArchiveWriter(settings(true), store);
+		Path day1 = Files.write(dir.resolve("brew.log.day1"), Arrays.asList("Day:1"));
+		Path day2 = Files.write(dir.resolve("brew.log.day2"), Arrays.asList("Day:2"));
+		Path older = Files.write(dir.resolve("brew.log.day3-2"), Arrays.asList("an older fermentation"));
+		Files.setLastModifiedTime(day1, FileTime.fromMillis(T0 + DAY));
+		Files.setLastModifiedTime(day2, FileTime.fromMillis(T0 + 2 * DAY));
+		Files.setLastModifiedTime(older, FileTime.fromMillis(T0 - DAY));
+		fill(T0, T0 + 2 * DAY);
+		seal(1, T0, T0 + DAY);
+		long until = System.currentTimeMillis() + WAIT;
+		while (Files.exists(day1) && System.currentTimeMillis() < until) {
+			Thread.sleep(10);
+		}
+		assertFalse(Files.exists(day1));
+		assertTrue(Files.exists(day2));
+		assertTrue(Files.exists(older));
+	}
+}
@@ -0,0 +1,158 @@
+package Brewmaster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * <h2>CheckpointJournalTest</h2> Writes checkpoints to a
+ * {@link CheckpointJournal} and reads them back after a clean close, after a
+ * crash tore the last record and after a bit of it flipped.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+class CheckpointJournalTest {
+	/**
+	 * The {@link Long} start of the schedule in the checkpoints
+	 */
+	private static final long START = 1600000000000L;
+
+	/**
+	 * The {@link Path} of a folder removed after every test
+	 */
+	@TempDir
+	Path dir;
+
+	/**
+	 * Writes checkpoint i, day i with the cooler on every other day
+	 *
+	 * @param journal {@link CheckpointJournal} to write to
+	 * @param i       {@link Integer} number of the checkpoint
+	 */
+	static void write(CheckpointJournal journal, int i) throws IOException {
+		journal.write(START + i * 1000L, 42, START, i, i & SampleHistory.COOLER_ON, START + i, -1);
+	}
+
+	/**
+	 * Checks that journal read back checkpoint i
+	 *
+	 * @param journal {@link CheckpointJournal} opened again
+	 * @param i       {@link Integer} number of the checkpoint
+	 */
+	static void assertCheckpoint(CheckpointJournal journal, int i) {
+		assertTrue(journal.hasCheckpoint());
+		assertEquals(START + i * 1000L, journal.getTime());
+		assertEquals(42, journal.getFingerprint());
+		assertEquals(START, journal.getStart());
+		assertEquals(i, journal.getDay());
+		assertEquals(i & SampleHistory.COOLER_ON, journal.getFlags());
+		assertEquals(START + i, journal.getCoolerLast());
+		assertEquals(-1, journal.getHeaterLast());
+	}
+
+	@Test
+	void startsEmpty() throws IOException {
+		CheckpointJournal journal = new CheckpointJournal(dir.resolve("brew.ckpt"));
+		assertFalse(journal.hasCheckpoint());
+		journal.close();
+		journal = new CheckpointJournal(dir.resolve("brew.ckpt"));
+		assertFalse(journal.hasCheckpoint());
+		journal.close();
+	}
+
+	@Test
+	void readsTheLastCheckpointBackAndCompacts() throws IOException {
+		Path file = dir.resolve("brew.ckpt");
+		CheckpointJournal journal = new CheckpointJournal(file);
+		for (int i = 1; i <= 5; i++) {
+			write(journal, i);
+		}
+		journal.close();
+		assertEquals(5 * CheckpointJournal.RECORD, Files.size(file));
+		journal = new CheckpointJournal(file);
+		assertCheckpoint(journal, 5);
+		assertEquals(CheckpointJournal.RECORD, Files.size(file));
+		journal.close();
+	}
+
+	@Test
+	void skipsALastRecordTornByACrash() throws IOException {
+		Path file = dir.resolve("brew.ckpt");
+		CheckpointJournal journal = new CheckpointJournal(file);
+		for (int i = 1; i <= 3; i++) {
+			write(journal, i);
+		}
+		journal.close();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			channel.truncate(3 * CheckpointJournal.RECORD - 20);
+		}
+		journal = new CheckpointJournal(file);
+		assertCheckpoint(journal, 2);
+		write(journal, 4);
+		journal.close();
+		journal = new CheckpointJournal(file);
+		assertCheckpoint(journal, 4);
+		journal.close();
+	}
+
+	@Test
+	void skipsALastRecordWithABadCrc() throws IOException {
+		Path file = dir.resolve("brew.ckpt");
+		CheckpointJournal journal = new CheckpointJournal(file);
+		for (int i = 1; i <= 3; i++) {
+			write(journal, i);
+		}
+		journal.close();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			ByteBuffer b = ByteBuffer.allocate(1);
+			long day = 2 * CheckpointJournal.RECORD + 7;
+			channel.read(b, day);
+			b.put(0, (byte) (b.get(0) ^ 1));
+			b.rewind();
+			channel.write(b, day);
+		}
+		journal = new CheckpointJournal(file);
+		assertCheckpoint(journal, 2);
+		journal.close();
+	}
+
+	@Test
+	void aJournalOfOnlyATornRecordHasNoCheckpoint() throws IOException {
+		Path file = dir.resolve("brew.ckpt");
+		CheckpointJournal journal = new CheckpointJournal(file);
+		write(journal, 1);
+		journal.close();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			channel.truncate(CheckpointJournal.RECORD / 2);
+		}
+		journal = new CheckpointJournal(file);
+		assertFalse(journal.hasCheckpoint());
+		journal.close();
+	}
+
+	@Test
+	void compactsWhenTheJournalIsFull() throws IOException {
+		Path file = dir.resolve("brew.ckpt");
+		CheckpointJournal journal = new CheckpointJournal(file);
+		for (int i = 1; i <= 1500; i++) {
+			write(journal, i);
+		}
+		journal.close();
+		assertTrue(Files.size(file) <= 1024 * CheckpointJournal.RECORD);
+		journal = new CheckpointJournal(file);
+		assertCheckpoint(journal, 1500);
+		journal.close();
+	}
+}
@@ -0,0 +1,135 @@
+package Brewmaster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * <h2>ControllerTest</h2> Drives the {@link PredictiveController} and the
+ * {@link PidController} through a cooling cycle around a target of 12 with a
+ * band of 0.5 and checks where they turn the relays on and off.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+class ControllerTest {
+	/**
+	 * The {@link Long} milliseconds in a minute
+	 */
+	private static final long MINUTE = 60000;
+	/**
+	 * The {@link Double} target of every test
+	 */
+	private static final double TARGET = 12;
+
+	/**
+	 * The {@link Path} of a folder removed after every test
+	 */
+	@TempDir
+	Path dir;
+
+	/**
+	 * Parses a settings file with a cooler, a heater and the given lines
+	 *
+	 * @param lines {@link String} extra lines of the file
+	 * @return {@link Settings} of the file
+	 */
+	Settings settings(String... lines) throws IOException {
+		Path file = dir.resolve("test.brew");
+		String[] all = Arrays.copyOf(new String[] { "CoolerIp=x", "HeaterIp=x", "HasHeater=1", "DiffPlus=0.5",
+				"DiffMinus=0.5", "Onoffdelay=5", "PredictLag=10", "14;12" }, 8 + lines.length);
+		System.arraycopy(lines, 0, all, 8, lines.length);
+		Files.write(file, Arrays.asList(all));
+		Settings settings = new Settings(file.toString());
+		settings.validate();
+		return settings;
+	}
+
+	@Test
+	void predictiveStartsAtTheEdgeOfTheBand() throws IOException {
+		Settings settings = settings("Controller=predictive");
+		PredictiveController controller = new PredictiveController();
+		int flags = SampleHistory.HAS_HEATER;
+		// rising fast, but inside the band nothing is started on the prediction
+		for (int i = 0; i <= 10; i++) {
+			double temp = 12 + 0.04 * i;
+			assertEquals(Controller.HOLD, controller.decide(i * MINUTE, temp, TARGET, settings, flags));
+		}
+		assertEquals(Controller.COOL, controller.decide(11 * MINUTE, 12.5, TARGET, settings, flags));
+	}
+
+	@Test
+	void predictiveCutsTheCoolerWhenThePredictionCrossesTheTarget() throws IOException {
+		Settings settings = settings("Controller=predictive");
+		PredictiveController controller = new PredictiveController();
+		int flags = SampleHistory.HAS_HEATER | SampleHistory.COOLER_ON;
+		// falling 0.02 a minute, 0.2 over the lag of 10 minutes
+		int i = 0;
+		while (controller.decide(i * MINUTE, 12.5 - 0.02 * i, TARGET, settings, flags) == Controller.HOLD) {
+			i++;
+		}
+		// cut at 12.2, not when the prediction reaches the far edge at 11.5
+		assertEquals(12.2, 12.5 - 0.02 * i, 0.03);
+		assertEquals(TARGET, controller.getPredicted(), 0.03);
+	}
+
+	@Test
+	void predictiveDoesNotStartTheHeaterOnAPrediction() throws IOException {
+		Settings settings = settings("Controller=predictive");
+		PredictiveController controller = new PredictiveController();
+		int flags = SampleHistory.HAS_HEATER;
+		// coasting down past the target after the cooler was cut, expected below the band
+		for (int i = 0; i <= 10; i++) {
+			double temp = 12 - 0.04 * i;
+			assertEquals(Controller.HOLD, controller.decide(i * MINUTE, temp, TARGET, settings, flags));
+		}
+		assertEquals(Controller.HEAT, controller.decide(11 * MINUTE, 11.5, TARGET, settings, flags));
+	}
+
+	@Test
+	void pidLeavesTheRelaysOffInsideTheBand() throws IOException {
+		Settings settings = settings("Controller=pid");
+		PidController controller = new PidController();
+		for (int i = 0; i < 120; i++) {
+			double temp = 12 + 0.45 * Math.sin(i / 10.0);
+			assertEquals(Controller.OFF, controller.decide(i * MINUTE, temp, TARGET, settings, SampleHistory.HAS_HEATER));
+		}
+	}
+
+	@Test
+	void pidRunsOneDosePerExcursion() throws IOException {
+		Settings settings = settings("Controller=pid", "PidWindow=20", "PidKi=0", "PidKd=0", "PidKp=0.5");
+		PidController controller = new PidController();
+		// 1 over the target asks for half of the window, 10 minutes
+		for (int i = 0; i < 10; i++) {
+			assertEquals(Controller.COOL, controller.decide(i * MINUTE, 13, TARGET, settings, SampleHistory.HAS_HEATER), "minute " + i);
+		}
+		// back in the band when the dose is over, nothing more is started
+		for (int i = 10; i < 30; i++) {
+			assertEquals(Controller.OFF, controller.decide(i * MINUTE, 12.2, TARGET, settings, SampleHistory.HAS_HEATER), "minute " + i);
+		}
+	}
+
+	@Test
+	void pidRunsAtLeastOnoffdelay() throws IOException {
+		Settings settings = settings("Controller=pid", "PidWindow=20", "PidKi=0", "PidKd=0", "PidKp=0.01");
+		PidController controller = new PidController();
+		for (int i = 0; i < 5; i++) {
+			assertEquals(Controller.COOL, controller.decide(i * MINUTE, 12.5, TARGET, settings, 0), "minute " + i);
+		}
+		assertEquals(Controller.OFF, controller.decide(5 * MINUTE, 12.2, TARGET, settings, 0));
+	}
+
+	@Test
+	void pidWindowMustCoverTwoOnoffdelays() {
+		assertThrows(IllegalArgumentException.class, () -> settings("Controller=pid", "PidWindow=9"));
+	}
+}
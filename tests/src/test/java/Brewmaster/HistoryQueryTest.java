@@ -0,0 +1,71 @@
+package Brewmaster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * <h2>HistoryQueryTest</h2> Formats pages of a {@link HistoryStore} with a
+ * {@link HistoryQuery} and checks a bucket over more than
+ * {@link HistoryQuery#SCAN} samples is read over several calls to
+ * {@link HistoryQuery#fill}.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+class HistoryQueryTest {
+	/**
+	 * The {@link Path} of a folder removed after every test
+	 */
+	@TempDir
+	Path dir;
+
+	@Test
+	void readsALongBucketOverSeveralFills() throws IOException {
+		HistoryStore store = new HistoryStore(dir.resolve("brew.hist"));
+		try {
+			int n = 2 * HistoryQuery.SCAN + 500;
+			HistoryStoreTest.fill(store, n);
+			// one bucket holds every sample
+			long resolution = 1000000000000L;
+			HistoryQuery query = new HistoryQuery(store, 0, Long.MAX_VALUE, resolution, HistoryQuery.PAGE);
+			StringBuilder sb = new StringBuilder();
+			assertFalse(query.fill(sb, 8192));
+			assertEquals("", sb.toString());
+			assertFalse(query.fill(sb, 8192));
+			assertEquals("", sb.toString());
+			assertTrue(query.fill(sb, 8192));
+			assertEquals("B,1000000000000,2000000000000,0.0," + (n - 1) / 16.0 + ","
+					+ Math.round((n - 1) / 32.0 * 1000) / 1000.0 + ",0.5,0.5\nE\n", sb.toString());
+		} finally {
+			store.close();
+		}
+	}
+
+	@Test
+	void bucketsAreCountedFromTheEpoch() throws IOException {
+		HistoryStore store = new HistoryStore(dir.resolve("brew.hist"));
+		try {
+			HistoryStoreTest.fill(store, 120);
+			HistoryQuery query = new HistoryQuery(store, 0, Long.MAX_VALUE, 60000, HistoryQuery.PAGE);
+			StringBuilder sb = new StringBuilder();
+			assertTrue(query.fill(sb, 8192));
+			String[] lines = sb.toString().split("\n");
+			// 1600000000000 is 40 s into a minute
+			assertEquals(4, lines.length);
+			assertTrue(lines[0].startsWith("B,1599999960000,1600000020000,0.0,1.1875,"), lines[0]);
+			assertTrue(lines[1].startsWith("B,1600000020000,1600000080000,1.25,4.9375,"), lines[1]);
+			assertTrue(lines[2].startsWith("B,1600000080000,1600000140000,5.0,7.4375,"), lines[2]);
+			assertEquals("E", lines[3]);
+		} finally {
+			store.close();
+		}
+	}
+}
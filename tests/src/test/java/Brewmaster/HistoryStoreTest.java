@@ -0,0 +1,214 @@
+package Brewmaster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * <h2>HistoryStoreTest</h2> Appends samples to a {@link HistoryStore}, opens
+ * it again as after a clean exit and after a crash that left the count in the
+ * header behind the records, and looks samples up by time.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+class HistoryStoreTest {
+	/**
+	 * The {@link Long} time of the first sample
+	 */
+	private static final long T0 = 1600000000000L;
+
+	/**
+	 * The {@link Path} of a folder removed after every test
+	 */
+	@TempDir
+	Path dir;
+
+	/**
+	 * Appends n samples a second apart, the temperature of sample i is i / 16
+	 *
+	 * @param store {@link HistoryStore} to append to
+	 * @param n     {@link Integer} samples to append
+	 */
+	static void fill(HistoryStore store, int n) throws IOException {
+		for (int i = 0; i < n; i++) {
+			store.append(T0 + i * 1000L, i / 16.0, 11.5, 12.5, i & 3);
+		}
+	}
+
+	/**
+	 * Writes count to the header of the history file, as if the program stopped
+	 * before the header of the last records reached the disk
+	 *
+	 * @param file  {@link Path} of the history file
+	 * @param count {@link Long} count to write
+	 */
+	static void setCount(Path file, long count) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			ByteBuffer b = ByteBuffer.allocate(8).putLong(0, count);
+			channel.write(b, 16);
+		}
+	}
+
+	/**
+	 * Writes time over the time of record i
+	 *
+	 * @param file {@link Path} of the history file
+	 * @param i    {@link Long} position of the record
+	 * @param time {@link Long} time to write
+	 */
+	static void setTime(Path file, long i, long time) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			ByteBuffer b = ByteBuffer.allocate(8).putLong(0, time);
+			channel.write(b, 64 + i * HistoryStore.RECORD);
+		}
+	}
+
+	@Test
+	void keepsEverySampleAcrossAReopen() throws IOException {
+		Path file = dir.resolve("brew.hist");
+		HistoryStore store = new HistoryStore(file);
+		fill(store, 10000);
+		store.close();
+		store = new HistoryStore(file);
+		assertEquals(10000, store.size());
+		for (long i = 0; i < 10000; i += 997) {
+			assertEquals(T0 + i * 1000, store.getTime(i));
+			assertEquals(i / 16f, store.getTemp(i));
+			assertEquals(11.5f, store.getMin(i));
+			assertEquals(12.5f, store.getMax(i));
+			assertEquals(i & 3, store.getFlags(i));
+		}
+		store.append(T0 + 10000 * 1000L, 1, 2, 3, 0);
+		assertEquals(10001, store.size());
+		store.close();
+	}
+
+	@Test
+	void recoversRecordsPastTheCountInTheHeader() throws IOException {
+		Path file = dir.resolve("brew.hist");
+		HistoryStore store = new HistoryStore(file);
+		fill(store, 5000);
+		store.close();
+		setCount(file, 4000);
+		store = new HistoryStore(file);
+		assertEquals(5000, store.size());
+		assertEquals(T0 + 4999 * 1000L, store.getTime(4999));
+		assertEquals(4500, store.lowerBound(T0 + 4500 * 1000L));
+		store.close();
+	}
+
+	@Test
+	void recoversEverythingWhenTheHeaderNeverCounted() throws IOException {
+		Path file = dir.resolve("brew.hist");
+		HistoryStore store = new HistoryStore(file);
+		fill(store, 300);
+		store.close();
+		setCount(file, 0);
+		store = new HistoryStore(file);
+		assertEquals(300, store.size());
+		store.close();
+	}
+
+	@Test
+	void stopsRecoveringWhereTheTimeGoesBack() throws IOException {
+		Path file = dir.resolve("brew.hist");
+		HistoryStore store = new HistoryStore(file);
+		fill(store, 5000);
+		store.close();
+		setCount(file, 4000);
+		// a record torn by the crash, the ones after it are not trusted either
+		setTime(file, 4200, T0);
+		store = new HistoryStore(file);
+		assertEquals(4200, store.size());
+		store.append(T0 + 4200 * 1000L + 1, 20, 11.5, 12.5, 0);
+		assertEquals(4201, store.size());
+		assertEquals(20f, store.getTemp(4200));
+		store.close();
+	}
+
+	@Test
+	void stopsRecoveringAtAnEmptyRecord() throws IOException {
+		Path file = dir.resolve("brew.hist");
+		HistoryStore store = new HistoryStore(file);
+		fill(store, 5000);
+		store.close();
+		setCount(file, 100);
+		setTime(file, 3000, 0);
+		store = new HistoryStore(file);
+		assertEquals(3000, store.size());
+		store.close();
+	}
+
+	@Test
+	void findsSamplesByTimeAcrossBlocks() throws IOException {
+		HistoryStore store = new HistoryStore(dir.resolve("brew.hist"));
+		int n = HistoryStore.BLOCK * 3 + 17;
+		fill(store, n);
+		assertEquals(0, store.lowerBound(Long.MIN_VALUE));
+		assertEquals(0, store.lowerBound(T0));
+		assertEquals(1, store.lowerBound(T0 + 1));
+		assertEquals(HistoryStore.BLOCK, store.lowerBound(T0 + HistoryStore.BLOCK * 1000L));
+		assertEquals(HistoryStore.BLOCK, store.lowerBound(T0 + HistoryStore.BLOCK * 1000L - 999));
+		assertEquals(HistoryStore.BLOCK + 1, store.lowerBound(T0 + HistoryStore.BLOCK * 1000L + 1));
+		assertEquals(n, store.lowerBound(Long.MAX_VALUE));
+		List<Long> times = new ArrayList<Long>();
+		long visited = store.query(T0 + 5000 * 1000L, T0 + 5009 * 1000L, (time, temp, min, max, flags) -> {
+			times.add(time);
+			return true;
+		});
+		assertEquals(10, visited);
+		assertEquals(T0 + 5000 * 1000L, times.get(0));
+		assertEquals(T0 + 5009 * 1000L, times.get(9));
+		store.close();
+	}
+
+	@Test
+	void ignoresSamplesOlderThanTheLast() throws IOException {
+		HistoryStore store = new HistoryStore(dir.resolve("brew.hist"));
+		fill(store, 10);
+		store.append(T0, 99, 0, 0, 0);
+		assertEquals(10, store.size());
+		store.append(T0 + 9000, 99, 0, 0, 0);
+		assertEquals(11, store.size());
+		store.close();
+	}
+
+	@Test
+	void compactKeepsTheNewestSamples() throws IOException {
+		Path file = dir.resolve("brew.hist");
+		HistoryStore store = new HistoryStore(file);
+		fill(store, 10000);
+		store = store.compact(file, 6000);
+		assertEquals(4000, store.size());
+		assertEquals(T0 + 6000 * 1000L, store.getTime(0));
+		assertEquals(6000 / 16f, store.getTemp(0));
+		assertEquals(9999 & 3, store.getFlags(3999));
+		assertEquals(3000, store.lowerBound(T0 + 9000 * 1000L));
+		store.append(T0 + 10000 * 1000L, 1, 2, 3, 0);
+		store.close();
+		store = new HistoryStore(file);
+		assertEquals(4001, store.size());
+		assertEquals(false, Files.exists(dir.resolve("brew.hist.tmp")));
+		store.close();
+	}
+
+	@Test
+	void refusesAFileThatIsNotAHistoryFile() throws IOException {
+		Path file = dir.resolve("brew.log");
+		Files.write(file, "Day:1, State:Ferment, Temp goal: 12.0\n".repeat(10).getBytes());
+		assertThrows(IOException.class, () -> new HistoryStore(file));
+	}
+}
@@ -0,0 +1,98 @@
+package Brewmaster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * <h2>KasaClientTest</h2> Switches a {@link FakeKasaPlug} with a
+ * {@link KasaClient}, through answers that come too late and connections the
+ * plug closes.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+class KasaClientTest {
+	/**
+	 * The {@link FakeKasaPlug} switched by {@link #client}
+	 */
+	private FakeKasaPlug plug;
+	/**
+	 * The {@link KasaClient} under test, 200 ms read timeout
+	 */
+	private KasaClient client;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		plug = new FakeKasaPlug(0).start();
+		client = new KasaClient(plug.getHost(), 1000, 200);
+	}
+
+	@AfterEach
+	void tearDown() {
+		client.close();
+		plug.close();
+	}
+
+	@Test
+	void switchesTheRelayOnAndOff() throws IOException {
+		client.setState(true);
+		assertTrue(plug.isOn());
+		assertTrue(client.send("{\"system\":{\"get_sysinfo\":{}}}").contains("\"relay_state\":1"));
+		client.setState(false);
+		assertFalse(plug.isOn());
+		assertTrue(client.send("{\"system\":{\"get_sysinfo\":{}}}").contains("\"relay_state\":0"));
+		assertEquals(4, plug.getCommands());
+		assertEquals(1, plug.getConnections());
+	}
+
+	@Test
+	void encryptionRoundTrips() {
+		String json = "{\"system\":{\"set_relay_state\":{\"state\":1}}}";
+		byte[] frame = KasaClient.encrypt(json);
+		assertEquals(json.length(), ((frame[0] & 0xff) << 24) | ((frame[1] & 0xff) << 16) | ((frame[2] & 0xff) << 8)
+				| (frame[3] & 0xff));
+		byte[] payload = new byte[frame.length - 4];
+		System.arraycopy(frame, 4, payload, 0, payload.length);
+		assertEquals(json, KasaClient.decrypt(payload));
+	}
+
+	@Test
+	void timesOutOnASlowPlugAndRecovers() throws IOException {
+		client.setState(true);
+		plug.setDelay(1000);
+		long started = System.nanoTime();
+		assertThrows(IOException.class, () -> client.setState(false));
+		// one try on the kept connection and one on a new one, each cut off by the read timeout
+		long millis = (System.nanoTime() - started) / 1000000;
+		assertTrue(millis >= 400 && millis < 1500, millis + " ms");
+		plug.setDelay(0);
+		client.setState(false);
+		assertFalse(plug.isOn());
+	}
+
+	@Test
+	void reconnectsAfterThePlugClosesTheConnection() throws IOException, InterruptedException {
+		client.setState(true);
+		assertEquals(1, plug.getConnections());
+		plug.dropClients();
+		Thread.sleep(50);
+		client.setState(false);
+		assertFalse(plug.isOn());
+		assertEquals(2, plug.getConnections());
+	}
+
+	@Test
+	void failsWhenNoPlugListens() {
+		plug.close();
+		assertThrows(IOException.class, () -> client.setState(true));
+	}
+}
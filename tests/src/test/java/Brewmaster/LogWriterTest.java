@@ -0,0 +1,25 @@
+package Brewmaster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * <h2>LogWriterTest</h2> Checks the bytes {@link LogWriter} counts for a line
+ * are the bytes it takes in the file.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+class LogWriterTest {
+	@Test
+	void countsTheEncodedBytes() {
+		for (String line : new String[] { "", "Day:1, State:Gjæring, Temp goal: 12.0", "ø€ 12°C", "𝄞 clef",
+				"lone \uD800 surrogate", "end \uDC00" }) {
+			assertEquals(line.getBytes(StandardCharsets.UTF_8).length, LogWriter.utf8Length(line), line);
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package Brewmaster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * <h2>RelayCommandQueueTest</h2> Sends commands to a {@link FakeKasaPlug}
+ * through a {@link RelayCommandQueue}, checking that requests made while one is
+ * being sent only leave the latest and that a plug that can not be reached is
+ * retried with a growing wait.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+class RelayCommandQueueTest {
+	/**
+	 * The {@link FakeKasaPlug} switched by {@link #queue}
+	 */
+	private FakeKasaPlug plug;
+	/**
+	 * The {@link KasaClient} {@link #queue} sends with
+	 */
+	private KasaClient client;
+	/**
+	 * The {@link ExecutorService} the worker of {@link #queue} runs on
+	 */
+	private ExecutorService executor;
+	/**
+	 * The {@link RelayCommandQueue} under test
+	 */
+	private RelayCommandQueue queue;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		plug = new FakeKasaPlug(0).start();
+		client = new KasaClient(plug.getHost(), 1000, 2000);
+		executor = Executors.newSingleThreadExecutor();
+		queue = new RelayCommandQueue("fake", client, executor);
+	}
+
+	@AfterEach
+	void tearDown() {
+		executor.shutdownNow();
+		client.close();
+		plug.close();
+	}
+
+	/**
+	 * Waits up to millis for done to become true
+	 *
+	 * @param done   {@link BooleanSupplier} to wait for
+	 * @param millis {@link Long} longest wait
+	 * @return {@link Boolean} true if done became true
+	 */
+	static boolean await(BooleanSupplier done, long millis) throws InterruptedException {
+		long until = System.currentTimeMillis() + millis;
+		while (!done.getAsBoolean()) {
+			if (System.currentTimeMillis() > until) {
+				return false;
+			}
+			Thread.sleep(5);
+		}
+		return true;
+	}
+
+	@Test
+	void sendsARequest() throws InterruptedException {
+		queue.request(true);
+		assertTrue(await(() -> queue.getCompleted() == 1 && !queue.isBusy(), 2000));
+		assertTrue(plug.isOn());
+		assertEquals(0, queue.getFailures());
+		assertTrue(queue.getMaxLatency() > 0);
+	}
+
+	@Test
+	void onlySendsTheLatestOfRequestsMadeWhileBusy() throws InterruptedException {
+		plug.setDelay(300);
+		queue.request(true);
+		assertTrue(await(() -> plug.getCommands() == 1, 2000));
+		queue.request(false);
+		queue.request(true);
+		queue.request(false);
+		assertTrue(await(() -> !queue.isBusy(), 3000));
+		assertFalse(plug.isOn());
+		assertEquals(2, queue.getCompleted());
+		assertEquals(2, queue.getCoalesced());
+		assertEquals(2, plug.getCommands());
+	}
+
+	@Test
+	void backsOffWhileThePlugIsGoneAndSendsTheLatestWhenItIsBack() throws Exception {
+		String host = plug.getHost();
+		int port = Integer.parseInt(host.substring(host.lastIndexOf(':') + 1));
+		plug.close();
+		queue.request(true);
+		// attempts at 0, 1 and 3 seconds, not one every tick
+		Thread.sleep(3500);
+		long failures = queue.getFailures();
+		assertTrue(failures >= 2 && failures <= 3, failures + " failures");
+		assertTrue(queue.isBusy());
+		plug = new FakeKasaPlug(port).start();
+		// a new request stops the wait for the next retry and is sent at once
+		queue.request(false);
+		assertTrue(await(() -> !queue.isBusy(), 2000));
+		assertEquals(1, queue.getCompleted());
+		assertEquals(1, plug.getCommands());
+		assertFalse(plug.isOn());
+	}
+}
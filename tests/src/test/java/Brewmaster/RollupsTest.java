@@ -0,0 +1,84 @@
+package Brewmaster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * <h2>RollupsTest</h2> Refills {@link Rollups} from a {@link HistoryStore} as
+ * after a restart and checks the earlier days are kept and the buckets start
+ * at the days of the schedule.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+class RollupsTest {
+	/**
+	 * The {@link Long} time the current day of the schedule started, not on a
+	 * whole hour
+	 */
+	private static final long TODAY = 1600000000000L + 17 * 60000L;
+	/**
+	 * The {@link Long} milliseconds in an hour
+	 */
+	private static final long HOUR = 3600000L;
+
+	/**
+	 * The {@link Path} of a folder removed after every test
+	 */
+	@TempDir
+	Path dir;
+
+	/**
+	 * Formats every bucket of a tier
+	 *
+	 * @param tier {@link Rollup} to format
+	 * @return {@link String} lines of the buckets
+	 */
+	static String[] lines(Rollup tier) {
+		StringBuilder sb = new StringBuilder();
+		tier.format(sb, Long.MIN_VALUE, Long.MAX_VALUE);
+		return sb.toString().split("\n");
+	}
+
+	@Test
+	void seedKeepsTheEarlierDays() throws IOException {
+		HistoryStore store = new HistoryStore(dir.resolve("brew.hist"));
+		try {
+			// every 10 minutes from half way through the third day before today
+			for (long t = TODAY - 5 * Schedule.DAY / 2; t < TODAY + HOUR; t += 600000) {
+				store.append(t, 12, 11.5, 12.5, 0);
+			}
+			Rollups rollups = new Rollups();
+			rollups.seed(store, TODAY);
+			rollups.add(TODAY + HOUR, 13, 0);
+			String[] days = lines(rollups.day);
+			assertEquals(4, days.length);
+			for (int i = 0; i < days.length; i++) {
+				assertEquals(TODAY + (i - 3) * Schedule.DAY, Long.parseLong(days[i].split(",")[2]));
+			}
+			// the highest temperature of today, the live sample after the seed
+			assertEquals("13.0", days[3].split(",")[5]);
+			for (String line : lines(rollups.hour)) {
+				long start = Long.parseLong(line.split(",")[2]);
+				assertEquals(0, Math.floorMod(start - TODAY, HOUR), line);
+			}
+		} finally {
+			store.close();
+		}
+	}
+
+	@Test
+	void seedWithoutAStoreStartsToday() {
+		Rollups rollups = new Rollups();
+		rollups.seed(null, TODAY);
+		rollups.add(TODAY + 90 * 60000L, 12, 0);
+		assertEquals(TODAY + HOUR, Long.parseLong(lines(rollups.hour)[0].split(",")[2]));
+		assertEquals(TODAY, Long.parseLong(lines(rollups.day)[0].split(",")[2]));
+	}
+}
@@ -0,0 +1,251 @@
+package Brewmaster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * <h2>SampleHistoryTest</h2> Adds samples with irregular times, special
+ * temperatures and changing relay states to a {@link SampleHistory} and reads
+ * them back with a {@link SampleHistory.Cursor}, checking every time, the bits
+ * of every temperature and every relay state against the arrays they were
+ * added from, across chunks and while the oldest chunks are dropped.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+class SampleHistoryTest {
+	/**
+	 * The {@link Long} time of the first sample
+	 */
+	private static final long T0 = 1600000000000L;
+
+	/**
+	 * Adds the samples from the arrays
+	 *
+	 * @param history {@link SampleHistory} to add to
+	 * @param time    times of the samples
+	 * @param temp    temperatures of the samples
+	 * @param flags   relay states of the samples
+	 */
+	static void add(SampleHistory history, long[] time, double[] temp, int[] flags) {
+		for (int i = 0; i < time.length; i++) {
+			history.add(time[i], temp[i], flags[i]);
+		}
+	}
+
+	/**
+	 * Reads every sample from the cursor and checks them against the arrays from
+	 * position first to the end
+	 *
+	 * @param cursor {@link SampleHistory.Cursor} moved to just before the sample
+	 *               at first
+	 * @param first  {@link Integer} position in the arrays of the first sample
+	 *               read
+	 * @param time   times of the samples
+	 * @param temp   temperatures of the samples
+	 * @param flags  relay states of the samples
+	 */
+	static void check(SampleHistory.Cursor cursor, int first, long[] time, double[] temp, int[] flags) {
+		for (int i = first; i < time.length; i++) {
+			assertTrue(cursor.next(), "sample " + i);
+			assertEquals(time[i], cursor.time, "time of sample " + i);
+			assertEquals(Double.doubleToRawLongBits(temp[i]), Double.doubleToRawLongBits(cursor.temp),
+					"temperature of sample " + i);
+			assertEquals(flags[i], cursor.flags, "relays of sample " + i);
+		}
+		assertFalse(cursor.next());
+	}
+
+	/**
+	 * Makes n samples a second apart, changing by a probe step now and then,
+	 * with the cooler running in runs
+	 *
+	 * @param n      {@link Integer} number of samples
+	 * @param random {@link Random} to draw from
+	 * @return the times, temperatures and relay states of the samples
+	 */
+	static Object[] probe(int n, Random random) {
+		long[] time = new long[n];
+		double[] temp = new double[n];
+		int[] flags = new int[n];
+		double t = 12;
+		int f = 0;
+		for (int i = 0; i < n; i++) {
+			if (random.nextInt(10) == 0) {
+				t += (random.nextInt(3) - 1) * 0.0625;
+			}
+			if (random.nextInt(200) == 0) {
+				f ^= SampleHistory.COOLER_ON;
+			}
+			time[i] = T0 + i * 1000L + (random.nextInt(20) == 0 ? random.nextInt(5) : 0);
+			temp[i] = t;
+			flags[i] = f;
+		}
+		return new Object[] { time, temp, flags };
+	}
+
+	@Test
+	void keepsIrregularTimes() {
+		// gaps of 0, the same period, small, medium and large changes of it,
+		// around the 2048 ms limit and going back to short
+		long[] gaps = { 1000, 0, 0, 1000, 1000, 1001, 999, 1063, 1064, 1255, 1256, 2047, 2048, 2049, 4096, 1,
+				86400000, 1000, 3000, 1000, 123456789, 0 };
+		long[] time = new long[gaps.length + 1];
+		time[0] = T0;
+		for (int i = 0; i < gaps.length; i++) {
+			time[i + 1] = time[i] + gaps[i];
+		}
+		double[] temp = new double[time.length];
+		int[] flags = new int[time.length];
+		for (int i = 0; i < time.length; i++) {
+			temp[i] = 12 + i * 0.0625;
+		}
+		SampleHistory history = new SampleHistory(100);
+		add(history, time, temp, flags);
+		assertEquals(time.length, history.size());
+		SampleHistory.Cursor cursor = new SampleHistory.Cursor();
+		cursor.seek(history, Long.MIN_VALUE);
+		check(cursor, 0, time, temp, flags);
+	}
+
+	@Test
+	void keepsTheBitsOfSpecialTemperatures() {
+		double[] temp = { 12, 12, Double.NaN, Double.NaN, 0.0, -0.0, 0.0, Double.POSITIVE_INFINITY,
+				Double.NEGATIVE_INFINITY, Double.MIN_VALUE, -Double.MIN_VALUE, Double.MAX_VALUE,
+				Double.longBitsToDouble(0x7ff8000000000001L), 85, -0.0625, 127.9375, 12.0625, 12, -0.0, -0.0 };
+		long[] time = new long[temp.length];
+		int[] flags = new int[temp.length];
+		for (int i = 0; i < temp.length; i++) {
+			time[i] = T0 + i * 1000L;
+		}
+		SampleHistory history = new SampleHistory(100);
+		add(history, time, temp, flags);
+		SampleHistory.Cursor cursor = new SampleHistory.Cursor();
+		cursor.seek(history, Long.MIN_VALUE);
+		check(cursor, 0, time, temp, flags);
+	}
+
+	@Test
+	void keepsRelayChanges() {
+		int[] flags = { 0, 1, 1, 0, 4, 5, 7, 6, 4, 4, 0, 7, 0, 2, 2, 3 };
+		long[] time = new long[flags.length];
+		double[] temp = new double[flags.length];
+		for (int i = 0; i < flags.length; i++) {
+			time[i] = T0 + i * 1000L;
+			temp[i] = 12;
+		}
+		SampleHistory history = new SampleHistory(100);
+		add(history, time, temp, flags);
+		SampleHistory.Cursor cursor = new SampleHistory.Cursor();
+		cursor.seek(history, Long.MIN_VALUE);
+		check(cursor, 0, time, temp, flags);
+	}
+
+	@Test
+	void readsAcrossChunks() {
+		int n = SampleHistory.CHUNK_SAMPLES * 3 + 7;
+		Object[] samples = probe(n, new Random(1));
+		long[] time = (long[]) samples[0];
+		double[] temp = (double[]) samples[1];
+		int[] flags = (int[]) samples[2];
+		SampleHistory history = new SampleHistory(n);
+		add(history, time, temp, flags);
+		assertEquals(n, history.size());
+		SampleHistory.Cursor cursor = new SampleHistory.Cursor();
+		cursor.seek(history, Long.MIN_VALUE);
+		check(cursor, 0, time, temp, flags);
+		// seeking lands on the first sample at or after the time, on both sides of
+		// a chunk boundary
+		for (int i : new int[] { 1, SampleHistory.CHUNK_SAMPLES - 1, SampleHistory.CHUNK_SAMPLES,
+				SampleHistory.CHUNK_SAMPLES + 1, 2 * SampleHistory.CHUNK_SAMPLES + 500, n - 1 }) {
+			cursor.seek(history, time[i - 1] + 1);
+			check(cursor, i, time, temp, flags);
+		}
+		cursor.seek(history, time[n - 1] + 1);
+		assertFalse(cursor.next());
+	}
+
+	@Test
+	void readsChunksCutByBitsBeforeTheyAreFull() {
+		// noise in every bit of the temperature fills a chunk before CHUNK_SAMPLES
+		int n = SampleHistory.CHUNK_SAMPLES * 2;
+		Random random = new Random(2);
+		long[] time = new long[n];
+		double[] temp = new double[n];
+		int[] flags = new int[n];
+		for (int i = 0; i < n; i++) {
+			time[i] = T0 + i * 1000L + random.nextInt(3000);
+			if (i > 0 && time[i] < time[i - 1]) {
+				time[i] = time[i - 1];
+			}
+			temp[i] = Double.longBitsToDouble(random.nextLong());
+			flags[i] = random.nextInt(8);
+		}
+		SampleHistory history = new SampleHistory(n);
+		add(history, time, temp, flags);
+		SampleHistory.Cursor cursor = new SampleHistory.Cursor();
+		cursor.seek(history, Long.MIN_VALUE);
+		check(cursor, 0, time, temp, flags);
+	}
+
+	@Test
+	void dropsTheOldestChunksUnderAnOpenCursor() {
+		int capacity = SampleHistory.CHUNK_SAMPLES * 2;
+		int n = SampleHistory.CHUNK_SAMPLES * 6;
+		Object[] samples = probe(n, new Random(3));
+		long[] time = (long[]) samples[0];
+		double[] temp = (double[]) samples[1];
+		int[] flags = (int[]) samples[2];
+		SampleHistory history = new SampleHistory(capacity);
+		int added = SampleHistory.CHUNK_SAMPLES * 2 + 10;
+		for (int i = 0; i < added; i++) {
+			history.add(time[i], temp[i], flags[i]);
+		}
+		SampleHistory.Cursor cursor = new SampleHistory.Cursor();
+		cursor.seek(history, Long.MIN_VALUE);
+		int read = 0;
+		for (; read < 100; read++) {
+			assertTrue(cursor.next());
+			assertEquals(time[read], cursor.time);
+		}
+		for (int i = added; i < n; i++) {
+			history.add(time[i], temp[i], flags[i]);
+		}
+		assertTrue(history.size() >= capacity);
+		// whole chunks are dropped, the oldest kept and the one being filled may
+		// hold more than capacity
+		assertTrue(history.size() < capacity + 2 * SampleHistory.CHUNK_SAMPLES);
+		assertTrue(history.size() < n - SampleHistory.CHUNK_SAMPLES);
+		// the chunk being read is finished from the words the cursor holds, then it
+		// goes on at the oldest chunk kept
+		for (; read < SampleHistory.CHUNK_SAMPLES; read++) {
+			assertTrue(cursor.next());
+			assertEquals(time[read], cursor.time);
+			assertEquals(Double.doubleToRawLongBits(temp[read]), Double.doubleToRawLongBits(cursor.temp));
+			assertEquals(flags[read], cursor.flags);
+		}
+		check(cursor, (int) (n - history.size()), time, temp, flags);
+		cursor.seek(history, Long.MIN_VALUE);
+		check(cursor, (int) (n - history.size()), time, temp, flags);
+	}
+
+	@Test
+	void ignoresSamplesOlderThanTheNewest() {
+		SampleHistory history = new SampleHistory(100);
+		history.add(T0, 12, 0);
+		history.add(T0 + 1000, 12.5, 1);
+		history.add(T0 + 500, 99, 2);
+		history.add(T0 + 1000, 13, 0);
+		assertEquals(3, history.size());
+		SampleHistory.Cursor cursor = new SampleHistory.Cursor();
+		cursor.seek(history, Long.MIN_VALUE);
+		check(cursor, 0, new long[] { T0, T0 + 1000, T0 + 1000 }, new double[] { 12, 12.5, 13 },
+				new int[] { 0, 1, 0 });
+	}
+}
@@ -0,0 +1,138 @@
+package Brewmaster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * <h2>ScheduleTest</h2> Looks up segments and targets of a {@link Schedule}
+ * with holds and ramps, both built directly and parsed from the d;t, d;t1&gt;t2
+ * and d;&gt;t lines of a settings file.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+class ScheduleTest {
+	/**
+	 * The {@link Long} milliseconds in a day
+	 */
+	private static final long DAY = Schedule.DAY;
+	/**
+	 * The {@link Double} difference allowed between targets
+	 */
+	private static final double EPSILON = 1e-9;
+
+	/**
+	 * The {@link Path} of a folder removed after every test
+	 */
+	@TempDir
+	Path dir;
+
+	/**
+	 * Parses lines as a settings file
+	 *
+	 * @param lines {@link String} lines of the file
+	 * @return {@link Schedule} of the file
+	 */
+	Schedule parse(String... lines) throws IOException {
+		Path file = dir.resolve("test.brew");
+		Files.write(file, Arrays.asList(lines));
+		return new Settings(file.toString()).schedule;
+	}
+
+	@Test
+	void findsTheSegmentAtEveryBoundary() {
+		Schedule s = new Schedule(Arrays.asList(14.0, 3.0, 5.0), Arrays.asList(12.0, 16.0, 13.0),
+				Arrays.asList(12.0, 16.0, 3.0), Arrays.asList("Ferment", "Rest", "Cooldown"));
+		assertEquals(3, s.size());
+		assertEquals(22 * DAY, s.getDuration());
+		assertEquals(22, s.getDays());
+		assertEquals(0, s.segment(-1));
+		assertEquals(0, s.segment(0));
+		assertEquals(0, s.segment(14 * DAY - 1));
+		assertEquals(1, s.segment(14 * DAY));
+		assertEquals(1, s.segment(17 * DAY - 1));
+		assertEquals(2, s.segment(17 * DAY));
+		assertEquals(2, s.segment(100 * DAY));
+		assertEquals("Rest", s.getState(s.segment(15 * DAY)));
+		assertEquals(17 * DAY, s.getEnd(1));
+		assertEquals(22 * DAY, s.getEnd(2));
+	}
+
+	@Test
+	void rampsEvenlyAndHoldsTheEndsOutsideTheRamp() {
+		Schedule s = new Schedule(Arrays.asList(1.0, 4.0), Arrays.asList(12.0, 12.0), Arrays.asList(12.0, 4.0),
+				Arrays.asList("", ""));
+		assertEquals(12.0, s.target(0), EPSILON);
+		assertEquals(12.0, s.target(DAY), EPSILON);
+		assertEquals(10.0, s.target(2 * DAY), EPSILON);
+		assertEquals(6.0, s.target(4 * DAY), EPSILON);
+		assertEquals(12.0 - 8.0 / 4 / 24, s.target(DAY + DAY / 24), EPSILON);
+		assertEquals(4.0, s.target(5 * DAY), EPSILON);
+		assertEquals(4.0, s.target(50 * DAY), EPSILON);
+		assertEquals(12.0, s.target(-DAY), EPSILON);
+	}
+
+	@Test
+	void aZeroLengthRampIsItsEnd() {
+		Schedule s = new Schedule(Arrays.asList(1.0, 0.0, 1.0), Arrays.asList(10.0, 10.0, 20.0),
+				Arrays.asList(10.0, 20.0, 20.0), Arrays.asList("a", "b", "c"));
+		assertEquals(2, s.segment(DAY));
+		assertEquals(20.0, s.target(1, DAY), EPSILON);
+		assertEquals(20.0, s.target(DAY), EPSILON);
+	}
+
+	@Test
+	void refusesAnEmptyScheduleAndNegativeDays() {
+		assertThrows(IllegalArgumentException.class, () -> new Schedule(Collections.<Double>emptyList(),
+				Collections.<Double>emptyList(), Collections.<Double>emptyList(), Collections.<String>emptyList()));
+		assertThrows(IllegalArgumentException.class, () -> new Schedule(Arrays.asList(-1.0), Arrays.asList(1.0),
+				Arrays.asList(1.0), Arrays.asList("")));
+	}
+
+	@Test
+	void parsesHoldsRampsAndRampsFromTheLineBefore() throws IOException {
+		Schedule s = parse("#days;temp", "!state=Ferment", "14;12", "!state=Diactyl rest", "3;16.66",
+				"!state=Lager cooldown", "5;13.89>2.78", "!state=Lager", "0.5;>1.67", "42;1.67");
+		assertEquals(5, s.size());
+		assertEquals("Ferment", s.getState(0));
+		assertEquals("Lager", s.getState(4));
+		assertEquals(16.66, s.target(15 * DAY), EPSILON);
+		assertEquals(13.89, s.getFrom(2), EPSILON);
+		assertEquals(2.78, s.getTo(2), EPSILON);
+		assertEquals((13.89 + 2.78) / 2, s.target(17 * DAY + 5 * DAY / 2), EPSILON);
+		// d;>t ramps from where the line before ended
+		assertEquals(2.78, s.getFrom(3), EPSILON);
+		assertEquals(1.67, s.getTo(3), EPSILON);
+		assertEquals((2.78 + 1.67) / 2, s.target(22 * DAY + DAY / 4), EPSILON);
+		assertEquals(22 * DAY + DAY / 2, s.getStart(4));
+		assertEquals(1.67, s.target(30 * DAY), EPSILON);
+		assertEquals(Math.round(64.5 * DAY), s.getDuration());
+	}
+
+	@Test
+	void aRampFromTheLineBeforeAtTheStartHoldsItsEnd() throws IOException {
+		Schedule s = parse("2;>8");
+		assertEquals(8.0, s.getFrom(0), EPSILON);
+		assertEquals(8.0, s.target(DAY), EPSILON);
+	}
+
+	@Test
+	void theFingerprintFollowsTheSegments() throws IOException {
+		long a = parse("!state=Ferment", "14;12", "3;>16").getFingerprint();
+		assertEquals(a, parse("#same", "!state=Ferment", "14;12", "", "3;>16").getFingerprint());
+		assertNotEquals(a, parse("!state=Ferment", "14;12", "3;>16.5").getFingerprint());
+		assertNotEquals(a, parse("!state=Ale", "14;12", "3;>16").getFingerprint());
+		assertNotEquals(a, parse("!state=Ferment", "13;12", "3;>16").getFingerprint());
+	}
+}
@@ -0,0 +1,86 @@
+package Brewmaster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * <h2>SettingsTest</h2> Loads settings files whose state names and values hold
+ * the names of other keys and checks every line is read as what it is.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+class SettingsTest {
+	/**
+	 * The {@link Path} of a folder removed after every test
+	 */
+	@TempDir
+	Path dir;
+
+	/**
+	 * Loads lines as a settings file and validates it
+	 *
+	 * @param lines {@link String} lines of the file
+	 * @return {@link Settings} of the file
+	 */
+	Settings load(String... lines) throws IOException {
+		Path file = dir.resolve("test.brew");
+		Files.write(file, Arrays.asList(lines));
+		Settings settings = new Settings(file.toString());
+		settings.validate();
+		return settings;
+	}
+
+	@Test
+	void stateNamedLikeAKeyIsAState() throws IOException {
+		Settings settings = load("CoolerIp=x", "!state=Filtering", "2;18", "!state=Controller test", "3;12",
+				"!state=HasHeater off", "1;4");
+		assertEquals(3, settings.schedule.size());
+		assertEquals("Filtering", settings.schedule.getState(0));
+		assertEquals("Controller test", settings.schedule.getState(1));
+		assertEquals("HasHeater off", settings.schedule.getState(2));
+		assertEquals("reject", settings.filter);
+		assertEquals("hysteresis", settings.controller);
+		assertEquals(false, settings.hasHeater);
+	}
+
+	@Test
+	void keysAreMatchedOnTheWholeName() throws IOException {
+		Settings settings = load("CoolerIp=x", "ArchiveDir=/brew/CheckpointFile", "HistoryFile=LogRotate.hist",
+				"Filter=median:5", "Controller=predictive", "14;12");
+		assertEquals("/brew/CheckpointFile", settings.archiveDir);
+		assertEquals("LogRotate.hist", settings.historyFile);
+		assertEquals("none", settings.logRotate);
+		assertEquals("median:5", settings.filter);
+		assertEquals("predictive", settings.controller);
+	}
+
+	@Test
+	void logsNoFasterThanTheProbeIsRead() throws IOException {
+		assertEquals(5, load("CoolerIp=x", "LogFreq=0", "SamplePeriod=5", "14;12").secondsBetweenLogs());
+		assertEquals(1, load("CoolerIp=x", "14;12").secondsBetweenLogs());
+		assertEquals(120, load("CoolerIp=x", "LogFreq=2", "SamplePeriod=5", "14;12").secondsBetweenLogs());
+	}
+
+	@Test
+	void valuesHoldingOldKeyNamesAreValues() throws IOException {
+		Settings settings = load("CoolerIp=x", "HistoryFile=/srv/HeaterIp.hist", "ArchiveDir=/brew/LogFreq",
+				"CheckpointFile=/brew/DiffPlus.ckpt", "LogFileName=/brew/HasHeater.log", "LogFreq=2", "14;12");
+		assertEquals("/srv/HeaterIp.hist", settings.historyFile);
+		assertEquals("/brew/LogFreq", settings.archiveDir);
+		assertEquals("/brew/DiffPlus.ckpt", settings.checkpointFile);
+		assertEquals("/brew/HasHeater.log", settings.logFileName);
+		assertEquals(null, settings.heaterIp);
+		assertEquals(false, settings.hasHeater);
+		assertEquals(2, settings.minutesToWaitLog);
+		assertEquals("x", settings.coolerIp);
+	}
+}
@@ -0,0 +1,123 @@
+package Brewmaster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * <h2>W1SlaveParserTest</h2> Parses good, corrupted and cut off w1_slave
+ * frames with {@link W1SlaveParser}.
+ *
+ * @author Anders Lunde
+ * @version 0.1
+ * @since 2020-23-9
+ */
+class W1SlaveParserTest {
+	/**
+	 * Builds a w1_slave frame for a DS18B20 reading millis, with the crc the
+	 * scratchpad should have
+	 *
+	 * @param millis {@link Integer} temperature in thousandths of a degree
+	 * @return {@link String} content of the w1_slave file
+	 */
+	static String frame(int millis) {
+		int raw = Math.round(millis * 16 / 1000f);
+		int[] pad = { raw & 0xff, (raw >> 8) & 0xff, 0x4b, 0x46, 0x7f, 0xff, 0x0c, 0x10, 0 };
+		int crc = 0;
+		for (int i = 0; i < 8; i++) {
+			crc = W1SlaveParser.crc8(crc, pad[i]);
+		}
+		pad[8] = crc;
+		StringBuilder bytes = new StringBuilder();
+		for (int b : pad) {
+			bytes.append(String.format("%02x ", b));
+		}
+		return bytes + String.format(": crc=%02x YES\n", crc) + bytes + "t=" + millis + "\n";
+	}
+
+	/**
+	 * @param frame {@link String} content of a w1_slave file
+	 * @return {@link Integer} what {@link W1SlaveParser#parse} gives for it
+	 */
+	static int parse(String frame) {
+		byte[] buf = frame.getBytes(StandardCharsets.US_ASCII);
+		return W1SlaveParser.parse(buf, buf.length);
+	}
+
+	@Test
+	void parsesAGoodFrame() {
+		assertEquals(23125, parse(frame(23125)));
+	}
+
+	@Test
+	void parsesNegativeAndZeroTemperatures() {
+		assertEquals(-10125, parse(frame(-10125)));
+		assertEquals(0, parse(frame(0)));
+		assertEquals(85000, parse(frame(85000)));
+	}
+
+	@Test
+	void crcOfTheDatasheetExampleMatches() {
+		int[] rom = { 0x02, 0x1c, 0xb8, 0x01, 0x00, 0x00, 0x00 };
+		int crc = 0;
+		for (int b : rom) {
+			crc = W1SlaveParser.crc8(crc, b);
+		}
+		assertEquals(0xa2, crc);
+	}
+
+	@Test
+	void rejectsAFrameTheKernelSaidNoTo() {
+		assertEquals(W1SlaveParser.BAD_CRC, parse(frame(12000).replace("YES", "NO")));
+	}
+
+	@Test
+	void rejectsAFlippedScratchpadByte() {
+		String good = frame(12000);
+		// the second byte of the first line, the crc field still matches the old bytes
+		String bad = good.substring(0, 3) + (good.charAt(3) == '0' ? '1' : '0') + good.substring(4);
+		assertEquals(W1SlaveParser.BAD_CRC, parse(bad));
+	}
+
+	@Test
+	void rejectsACrcFieldThatDoesNotMatch() {
+		String good = frame(12000);
+		int at = good.indexOf("crc=") + 4;
+		String bad = good.substring(0, at) + (good.charAt(at) == '0' ? '1' : '0') + good.substring(at + 1);
+		assertEquals(W1SlaveParser.BAD_CRC, parse(bad));
+	}
+
+	@Test
+	void rejectsAnEmptyFile() {
+		assertEquals(W1SlaveParser.MALFORMED, W1SlaveParser.parse(new byte[128], 0));
+	}
+
+	@Test
+	void rejectsAFrameCutOffBeforeTheTemperature() {
+		String good = frame(12000);
+		assertEquals(W1SlaveParser.MALFORMED, parse(good.substring(0, good.indexOf("t="))));
+		assertEquals(W1SlaveParser.MALFORMED, parse(good.substring(0, good.indexOf("t=") + 2)));
+	}
+
+	@Test
+	void rejectsAFrameCutOffInTheScratchpad() {
+		assertEquals(W1SlaveParser.MALFORMED, parse(frame(12000).substring(0, 10)));
+	}
+
+	@Test
+	void rejectsAScratchpadThatIsNotHex() {
+		assertEquals(W1SlaveParser.MALFORMED, parse("zz" + frame(12000).substring(2)));
+	}
+
+	@Test
+	void onlyReadsTheBytesGiven() {
+		byte[] buf = new byte[128];
+		String good = frame(12000);
+		byte[] bytes = good.getBytes(StandardCharsets.US_ASCII);
+		System.arraycopy(bytes, 0, buf, 0, bytes.length);
+		assertEquals(12000, W1SlaveParser.parse(buf, bytes.length));
+		assertEquals(W1SlaveParser.MALFORMED, W1SlaveParser.parse(buf, good.indexOf("t=")));
+	}
+}